@@ -0,0 +1,117 @@
+package org.codelibs.elasticsearch.benchmark.aggregations;
+
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.codelibs.elasticsearch.common.io.stream.StreamInput;
+import org.codelibs.elasticsearch.common.util.BigArrays;
+import org.codelibs.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the reduce of cardinality results from many shards: reading the {HyperLogLogPlusPlus} sketches from their
+ * stream format, merging their registers and estimating the cardinality, as well as merging registers and estimating
+ * their cardinality without a {HyperLogLogPlusPlus}.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class HyperLogLogPlusPlusBenchmark {
+
+    @Param({ "14", "16", "18" })
+    public int precision;
+
+    @Param({ "16" })
+    public int numShards;
+
+    private HyperLogLogPlusPlus[] shards;
+
+    private byte[][] serialized;
+
+    private byte[][] shardRegisters;
+
+    private HyperLogLogPlusPlus merged;
+
+    private byte[] registers;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(0);
+        shards = new HyperLogLogPlusPlus[numShards];
+        serialized = new byte[numShards][];
+        shardRegisters = new byte[numShards][];
+        for (int i = 0; i < numShards; i++) {
+            shards[i] = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1);
+            // enough distinct values for the shards to use hyperloglog rather than linear counting
+            for (int j = 0; j < 4 << precision; j++) {
+                shards[i].collect(0, random.nextLong());
+            }
+            BytesStreamOutput out = new BytesStreamOutput();
+            shards[i].writeTo(0, out);
+            serialized[i] = BytesReference.toBytes(out.bytes());
+            // the registers follow the precision and the algorithm
+            shardRegisters[i] = new byte[1 << precision];
+            System.arraycopy(serialized[i], 2, shardRegisters[i], 0, 1 << precision);
+        }
+        merged = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        registers = new byte[1 << precision];
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (HyperLogLogPlusPlus shard : shards) {
+            shard.close();
+        }
+        merged.close();
+    }
+
+    @Benchmark
+    public long readFrom() throws IOException {
+        long sum = 0;
+        for (byte[] bytes : serialized) {
+            try (StreamInput in = StreamInput.wrap(bytes);
+                 HyperLogLogPlusPlus counts = HyperLogLogPlusPlus.readFrom(in, BigArrays.NON_RECYCLING_INSTANCE)) {
+                sum += counts.maxBucket();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long mergeAndEstimate() {
+        for (HyperLogLogPlusPlus shard : shards) {
+            merged.merge(0, shard, 0);
+        }
+        return merged.cardinality(0);
+    }
+
+    @Benchmark
+    public long estimate() {
+        return shards[0].cardinality(0);
+    }
+
+    @Benchmark
+    public long mergeAndEstimateRegisters() {
+        for (byte[] shard : shardRegisters) {
+            HyperLogLogPlusPlus.mergeRegisters(registers, 0, shard, 0, registers.length);
+        }
+        return HyperLogLogPlusPlus.estimateCardinality(registers, 0, precision);
+    }
+}
@@ -0,0 +1,114 @@
+package org.codelibs.elasticsearch.benchmark.aggregations;
+
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.codelibs.elasticsearch.common.io.stream.StreamInput;
+import org.codelibs.elasticsearch.search.aggregations.metrics.percentiles.tdigest.TDigestState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding values to a {TDigestState}, merging the digests of many shards, computing quantiles and reading a
+ * digest from its stream format.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class TDigestBenchmark {
+
+    private static final double[] QUANTILES = { 0.001, 0.01, 0.05, 0.25, 0.5, 0.75, 0.95, 0.99, 0.999 };
+
+    @Param({ "100" })
+    public double compression;
+
+    @Param({ "100" })
+    public int numShards;
+
+    @Param({ "10000" })
+    public int valuesPerShard;
+
+    private double[] values;
+
+    private TDigestState[] shards;
+
+    private TDigestState merged;
+
+    private BytesStreamOutput serialized;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(0);
+        values = new double[valuesPerShard];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(random.nextGaussian());
+        }
+        shards = new TDigestState[numShards];
+        merged = new TDigestState(compression);
+        for (int shard = 0; shard < numShards; shard++) {
+            shards[shard] = new TDigestState(compression);
+            for (int i = 0; i < valuesPerShard; i++) {
+                shards[shard].add(values[i] * (1 + shard % 10));
+            }
+            merged.add(shards[shard]);
+        }
+        merged.compress();
+        serialized = new BytesStreamOutput();
+        TDigestState.write(merged, serialized);
+    }
+
+    /**
+     * Adds the values of a shard to an empty digest.
+     */
+    @Benchmark
+    public TDigestState add() {
+        TDigestState state = new TDigestState(compression);
+        for (double value : values) {
+            state.add(value);
+        }
+        state.compress();
+        return state;
+    }
+
+    /**
+     * Merges the digests of all shards, the way a reduce does.
+     */
+    @Benchmark
+    public TDigestState merge() {
+        TDigestState state = new TDigestState(compression);
+        for (TDigestState shard : shards) {
+            state.add(shard);
+        }
+        state.compress();
+        return state;
+    }
+
+    @Benchmark
+    public void quantile(Blackhole blackhole) {
+        for (double q : QUANTILES) {
+            blackhole.consume(merged.quantile(q));
+        }
+    }
+
+    @Benchmark
+    public TDigestState read() throws IOException {
+        try (StreamInput in = serialized.bytes().streamInput()) {
+            return TDigestState.read(in);
+        }
+    }
+}
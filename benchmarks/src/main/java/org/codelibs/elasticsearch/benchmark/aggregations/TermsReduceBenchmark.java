@@ -0,0 +1,184 @@
+package org.codelibs.elasticsearch.benchmark.aggregations;
+
+import org.apache.lucene.util.BytesRef;
+import org.codelibs.elasticsearch.common.util.BigArrays;
+import org.codelibs.elasticsearch.search.DocValueFormat;
+import org.codelibs.elasticsearch.search.aggregations.InternalAggregation;
+import org.codelibs.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.codelibs.elasticsearch.search.aggregations.InternalAggregations;
+import org.codelibs.elasticsearch.search.aggregations.bucket.terms.LongTerms;
+import org.codelibs.elasticsearch.search.aggregations.bucket.terms.StringTerms;
+import org.codelibs.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.codelibs.elasticsearch.search.aggregations.metrics.max.InternalMax;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reducing the terms aggregation results of several shards, each of them holding a large number of buckets
+ * drawn from a shared pool of terms. Run with <code>-prof gc</code> to compare the allocations per reduce, and run
+ * {#main} to print the peak heap usage of a reduce.
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class TermsReduceBenchmark {
+
+    @Param({ "long", "string" })
+    public String type;
+
+    @Param({ "count", "term" })
+    public String order;
+
+    @Param({ "5", "20" })
+    public int numShards;
+
+    @Param({ "100000" })
+    public int bucketsPerShard;
+
+    @Param({ "false", "true" })
+    public boolean subAggregation;
+
+    private final ReduceContext reduceContext = new ReduceContext(BigArrays.NON_RECYCLING_INSTANCE);
+
+    private List<InternalAggregation> shardResults;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        Terms.Order termsOrder = "count".equals(order) ? Terms.Order.compound(Terms.Order.count(false), Terms.Order.term(true))
+                : Terms.Order.term(true);
+        shardResults = new ArrayList<>(numShards);
+        for (int shard = 0; shard < numShards; shard++) {
+            // every shard holds bucketsPerShard distinct terms out of 2 * bucketsPerShard
+            long[] terms = new long[bucketsPerShard];
+            long[] docCounts = new long[bucketsPerShard];
+            int offset = random.nextInt(bucketsPerShard);
+            for (int i = 0; i < bucketsPerShard; i++) {
+                terms[i] = (offset + 2L * i + random.nextInt(2)) % (2L * bucketsPerShard);
+                docCounts[i] = 1 + random.nextInt(1000);
+            }
+            if ("long".equals(type)) {
+                List<LongTerms.Bucket> buckets = new ArrayList<>(bucketsPerShard);
+                for (int i = 0; i < bucketsPerShard; i++) {
+                    buckets.add(new LongTerms.Bucket(terms[i], docCounts[i], subAggregations(docCounts[i]), false, 0,
+                            DocValueFormat.RAW));
+                }
+                buckets.sort("count".equals(order) ? countDesc() : Comparator.comparingLong(b -> b.getKeyAsNumber().longValue()));
+                shardResults.add(new LongTerms("terms", termsOrder, 10, 1, Collections.emptyList(), null, DocValueFormat.RAW,
+                        bucketsPerShard, false, 0, buckets, 0));
+            } else {
+                List<StringTerms.Bucket> buckets = new ArrayList<>(bucketsPerShard);
+                for (int i = 0; i < bucketsPerShard; i++) {
+                    buckets.add(new StringTerms.Bucket(new BytesRef("term-" + terms[i]), docCounts[i], subAggregations(docCounts[i]),
+                            false, 0, DocValueFormat.RAW));
+                }
+                buckets.sort("count".equals(order) ? countDesc() : Comparator.comparing(Terms.Bucket::getKeyAsString));
+                shardResults.add(new StringTerms("terms", termsOrder, 10, 1, Collections.emptyList(), null, DocValueFormat.RAW,
+                        bucketsPerShard, false, 0, buckets, 0));
+            }
+        }
+    }
+
+    private static <B extends Terms.Bucket> Comparator<B> countDesc() {
+        return (b1, b2) -> Long.compare(b2.getDocCount(), b1.getDocCount());
+    }
+
+    private InternalAggregations subAggregations(long docCount) {
+        if (subAggregation == false) {
+            return InternalAggregations.EMPTY;
+        }
+        return new InternalAggregations(
+                Collections.singletonList(new InternalMax("max", docCount, DocValueFormat.RAW, Collections.emptyList(), null)));
+    }
+
+    @Benchmark
+    public InternalAggregation reduce() {
+        return shardResults.get(0).reduce(shardResults, reduceContext);
+    }
+
+    /**
+     * Prints the peak heap usage of a reduce per configuration, over the heap usage before it. Run it with a small young
+     * generation whose objects are promoted by every collection, such as <code>-XX:+UseSerialGC -Xmn16m
+     * -XX:MaxTenuringThreshold=0</code>: the peak then counts what was live at any collection during the reduce, plus
+     * up to the size of the young generation.
+     */
+    public static void main(String[] args) throws Exception {
+        System.out.printf(Locale.ROOT, "%-8s%-8s%8s%8s%12s%n", "type", "order", "shards", "subAgg", "peak MB");
+        for (String type : params("type")) {
+            for (String order : params("order")) {
+                for (String numShards : params("numShards")) {
+                    for (String subAggregation : params("subAggregation")) {
+                        TermsReduceBenchmark benchmark = new TermsReduceBenchmark();
+                        benchmark.type = type;
+                        benchmark.order = order;
+                        benchmark.numShards = Integer.parseInt(numShards);
+                        benchmark.bucketsPerShard = Integer.parseInt(params("bucketsPerShard")[0]);
+                        benchmark.subAggregation = Boolean.parseBoolean(subAggregation);
+                        benchmark.setUp();
+                        // warm up, so that class loading and compilation do not count
+                        for (int i = 0; i < 5; i++) {
+                            benchmark.reduce();
+                        }
+                        long peak = 0;
+                        for (int i = 0; i < 3; i++) {
+                            peak = Math.max(peak, peakHeapUsage(benchmark));
+                        }
+                        System.out.printf(Locale.ROOT, "%-8s%-8s%8s%8s%12.1f%n", type, order, numShards, subAggregation,
+                                peak / (1024.0 * 1024.0));
+                    }
+                }
+            }
+        }
+    }
+
+    private static String[] params(String field) throws NoSuchFieldException {
+        return TermsReduceBenchmark.class.getField(field).getAnnotation(Param.class).value();
+    }
+
+    private static long peakHeapUsage(TermsReduceBenchmark benchmark) {
+        final List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pools.add(pool);
+            }
+        }
+        System.gc();
+        long before = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            before += pool.getUsage().getUsed();
+            pool.resetPeakUsage();
+        }
+        final InternalAggregation reduced = benchmark.reduce();
+        long peak = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        if (reduced == null) {
+            throw new AssertionError();
+        }
+        return peak - before;
+    }
+}
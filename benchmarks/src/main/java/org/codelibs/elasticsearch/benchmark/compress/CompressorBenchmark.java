@@ -0,0 +1,101 @@
+package org.codelibs.elasticsearch.benchmark.compress;
+
+import org.codelibs.elasticsearch.benchmark.search.Workload;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.compress.CompressedXContent;
+import org.codelibs.elasticsearch.common.compress.Compressor;
+import org.codelibs.elasticsearch.common.compress.CompressorFactory;
+import org.codelibs.elasticsearch.common.compress.DeflateCompressor;
+import org.codelibs.elasticsearch.common.xcontent.XContentType;
+import org.codelibs.elasticsearch.querybuilders.SearchDslBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures compressing the JSON of the {Workload} search bodies into {CompressedXContent} and uncompressing them, with
+ * DEFLATE at several levels and with LZ4. Run {#main} to print the compressed size of each body.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class CompressorBenchmark {
+
+    @Param({ "DEEP_BOOL", "LARGE_TERMS", "NESTED_AGGS", "FULL_SOURCE" })
+    public Workload workload;
+
+    @Param({ "DEFLATE_1", "DEFLATE_3", "DEFLATE_6", "LZ4" })
+    public String compressor;
+
+    private Compressor instance;
+
+    private BytesReference source;
+
+    private CompressedXContent compressed;
+
+    @Setup
+    public void setUp() throws IOException {
+        instance = compressor(compressor);
+        source = source(workload);
+        compressed = new CompressedXContent(source, instance);
+    }
+
+    private static Compressor compressor(String compressor) {
+        if ("LZ4".equals(compressor)) {
+            return CompressorFactory.LZ4;
+        }
+        return new DeflateCompressor(Integer.parseInt(compressor.substring("DEFLATE_".length())));
+    }
+
+    private static BytesReference source(Workload workload) {
+        SearchDslBuilder builder = SearchDslBuilder.builder();
+        builder.searchSourceBuilder = workload.build();
+        return builder.buildAsBytes(XContentType.JSON);
+    }
+
+    @Benchmark
+    public CompressedXContent compress() throws IOException {
+        return new CompressedXContent(source, instance);
+    }
+
+    @Benchmark
+    public byte[] uncompress() {
+        return compressed.uncompressed();
+    }
+
+    /**
+     * Prints the size in bytes of each search body and of its compressed form per compressor, with the ratio of both.
+     */
+    public static void main(String[] args) throws Exception {
+        final String[] compressors = CompressorBenchmark.class.getField("compressor").getAnnotation(Param.class).value();
+        System.out.printf(Locale.ROOT, "%-12s%8s", "workload", "JSON");
+        for (String compressor : compressors) {
+            System.out.printf(Locale.ROOT, "%18s", compressor);
+        }
+        System.out.println();
+        for (Workload workload : Workload.values()) {
+            final BytesReference source = source(workload);
+            System.out.printf(Locale.ROOT, "%-12s%8d", workload, source.length());
+            for (String compressor : compressors) {
+                final int length = new CompressedXContent(source, compressor(compressor)).compressed().length;
+                System.out.printf(Locale.ROOT, "%10d (%4.1f%%)", length, 100.0 * length / source.length());
+            }
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.codelibs.elasticsearch.benchmark.io;
+
+import org.apache.lucene.util.BytesRef;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.io.stream.ByteBufferStreamInput;
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.codelibs.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.codelibs.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.codelibs.elasticsearch.common.io.stream.StreamInput;
+import org.codelibs.elasticsearch.common.io.stream.StreamOutput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing and reading 1,000 strings, such as the values of a terms query or the keys of string term buckets,
+ * with the streams that work on their bytes directly and with the generic streams that go one byte at a time.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class StreamStringBenchmark {
+
+    @Param({ "BYTES_REFERENCE", "HEAP_BUFFER", "DIRECT_BUFFER", "GENERIC" })
+    public String stream;
+
+    @Param({ "ASCII", "UNICODE" })
+    public String charset;
+
+    private String[] strings;
+
+    private BytesReference bytes;
+
+    private ByteBuffer buffer;
+
+    private byte[] array;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(0);
+        strings = new String[1000];
+        for (int i = 0; i < strings.length; i++) {
+            char[] chars = new char[8 + random.nextInt(24)];
+            for (int j = 0; j < chars.length; j++) {
+                if ("UNICODE".equals(charset) && random.nextInt(4) == 0) {
+                    // kana and kanji take three bytes
+                    chars[j] = (char) (0x3040 + random.nextInt(0x5000));
+                } else {
+                    chars[j] = (char) ('a' + random.nextInt(26));
+                }
+            }
+            strings[i] = new String(chars);
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        for (String string : strings) {
+            out.writeString(string);
+        }
+        bytes = out.bytes();
+        array = BytesRef.deepCopyOf(bytes.toBytesRef()).bytes;
+        buffer = "DIRECT_BUFFER".equals(stream) ? ByteBuffer.allocateDirect(array.length) : ByteBuffer.allocate(array.length);
+        buffer.put(array).flip();
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole) throws IOException {
+        final StreamInput in;
+        switch (stream) {
+            case "BYTES_REFERENCE":
+                in = bytes.streamInput();
+                break;
+            case "GENERIC":
+                in = new InputStreamStreamInput(new ByteArrayInputStream(array));
+                break;
+            default:
+                buffer.rewind();
+                in = new ByteBufferStreamInput(buffer);
+        }
+        for (int i = 0; i < strings.length; i++) {
+            blackhole.consume(in.readString());
+        }
+    }
+
+    @Benchmark
+    public StreamOutput write() throws IOException {
+        final StreamOutput out;
+        if ("GENERIC".equals(stream)) {
+            out = new OutputStreamStreamOutput(new ByteArrayOutputStream(array.length));
+        } else {
+            out = new BytesStreamOutput(array.length);
+        }
+        for (String string : strings) {
+            out.writeString(string);
+        }
+        return out;
+    }
+}
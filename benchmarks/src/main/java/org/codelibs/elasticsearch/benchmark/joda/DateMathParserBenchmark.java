@@ -0,0 +1,72 @@
+package org.codelibs.elasticsearch.benchmark.joda;
+
+import org.codelibs.elasticsearch.common.joda.DateMathParser;
+import org.codelibs.elasticsearch.common.joda.FormatDateTimeFormatter;
+import org.codelibs.elasticsearch.index.mapper.DateFieldMapper;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Measures resolving the bounds of date range queries with the default date format, through the Joda parser, through
+ * the hand written parser and with expressions that were compiled once.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class DateMathParserBenchmark {
+
+    // 2016-11-20T13:21:06.789Z
+    private static final LongSupplier NOW = () -> 1479648066789L;
+
+    @Param({ "2016-01-15T10:11:12.345Z", "2016-01-15", "1452852672345", "2016-01-01||+1M/M", "now-1d/d" })
+    public String text;
+
+    @Param({ "UTC", "Europe/Berlin" })
+    public String timeZone;
+
+    @Param({ "joda", "fast", "compiled" })
+    public String parser;
+
+    private DateMathParser dateMathParser;
+
+    private DateMathParser.CompiledExpression expression;
+
+    private DateTimeZone zone;
+
+    @Setup
+    public void setUp() {
+        FormatDateTimeFormatter formatter = DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER;
+        if ("joda".equals(parser)) {
+            // the same format under a name without a fast path
+            formatter = new FormatDateTimeFormatter("joda", formatter.parser(), formatter.printer(), Locale.ROOT);
+        }
+        dateMathParser = new DateMathParser(formatter);
+        expression = dateMathParser.compile(text);
+        zone = DateTimeZone.forID(timeZone);
+    }
+
+    @Benchmark
+    public long parse() {
+        if ("compiled".equals(parser)) {
+            return expression.resolve(NOW, true, zone);
+        }
+        return dateMathParser.parse(text, NOW, true, zone);
+    }
+}
@@ -0,0 +1,74 @@
+package org.codelibs.elasticsearch.benchmark.querybuilders;
+
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.xcontent.XContentType;
+import org.codelibs.elasticsearch.index.query.BoolQueryBuilder;
+import org.codelibs.elasticsearch.index.query.QueryBuilders;
+import org.codelibs.elasticsearch.querybuilders.QueryTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares rebuilding and serializing a builder tree against rendering a compiled {QueryTemplate}.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class QueryTemplateBenchmark {
+
+    @Param({ "JSON", "SMILE" })
+    public XContentType type;
+
+    private QueryTemplate.Bindings bindings;
+
+    private final String[] users = new String[1024];
+
+    private int user;
+
+    @Setup
+    public void setUp() {
+        QueryTemplate.Slots slots = new QueryTemplate.Slots();
+        QueryTemplate template = QueryTemplate.compile(type, query(slots.string("user"), slots.longValue("age"),
+                slots.date("from"), slots.strings("tags")), slots);
+        bindings = template.newBindings();
+        for (int i = 0; i < users.length; i++) {
+            users[i] = "user" + i;
+        }
+    }
+
+    private static BoolQueryBuilder query(Object user, Object age, Object from, String... tags) {
+        return QueryBuilders.boolQuery()
+            .must(QueryBuilders.matchQuery("title", "quick brown fox"))
+            .filter(QueryBuilders.termQuery("user", user))
+            .filter(QueryBuilders.rangeQuery("age").gte(age))
+            .filter(QueryBuilders.rangeQuery("date").gte(from).lt("now/d"))
+            .filter(QueryBuilders.termsQuery("tags", tags));
+    }
+
+    @Benchmark
+    public BytesReference rebuild() {
+        int i = user++;
+        return query(users[i & 1023], (long) (i & 127), "now-7d/d", "java", "search", "lucene").buildAsBytes(type);
+    }
+
+    @Benchmark
+    public BytesReference template() {
+        int i = user++;
+        return bindings.set(0, users[i & 1023]).set(1, (long) (i & 127)).set(2, "now-7d/d")
+            .setStrings(3, "java", "search", "lucene").bytes();
+    }
+}
@@ -0,0 +1,67 @@
+package org.codelibs.elasticsearch.benchmark.querybuilders;
+
+import org.codelibs.elasticsearch.common.xcontent.XContentHelper;
+import org.codelibs.elasticsearch.index.query.QueryBuilders;
+import org.codelibs.elasticsearch.querybuilders.SearchDslBuilder;
+import org.codelibs.elasticsearch.search.aggregations.AggregationBuilders;
+import org.codelibs.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
+import org.codelibs.elasticsearch.search.sort.SortOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {SearchDslBuilder#build()} against the former render-to-SMILE-then-reformat path.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class SearchDslBuilderBenchmark {
+
+    private SearchDslBuilder builder;
+
+    @Setup
+    public void setUp() {
+        builder = SearchDslBuilder.builder().query(() ->
+            QueryBuilders.boolQuery()
+                .must(QueryBuilders.matchQuery("title", "quick brown fox"))
+                .should(QueryBuilders.matchPhraseQuery("body", "quick brown fox").slop(2))
+                .filter(QueryBuilders.termQuery("status", "published"))
+                .filter(QueryBuilders.rangeQuery("date").gte("now-7d/d").lt("now/d"))
+                .filter(QueryBuilders.termsQuery("tags", "java", "search", "lucene", "elasticsearch"))
+        ).aggregation(() ->
+            AggregationBuilders.terms("tags").field("tags").size(20)
+                .subAggregation(AggregationBuilders.avg("avg_price").field("price"))
+        ).highlighter(() ->
+            new HighlightBuilder().field("title").field("body")
+        ).from(0).size(20).sort("date", SortOrder.DESC);
+    }
+
+    @Benchmark
+    public String reformat() throws IOException {
+        return XContentHelper.convertToJson(builder.searchSourceBuilder.buildAsBytes(), true);
+    }
+
+    @Benchmark
+    public String build() {
+        return builder.build();
+    }
+
+    @Benchmark
+    public String buildPretty() {
+        return builder.build(true);
+    }
+}
@@ -0,0 +1,84 @@
+package org.codelibs.elasticsearch.benchmark.querybuilders;
+
+import org.codelibs.elasticsearch.benchmark.search.Workload;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.xcontent.XContentType;
+import org.codelibs.elasticsearch.querybuilders.SearchDslBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding the {Workload} search bodies with {SearchDslBuilder#buildAsBytes(XContentType)} per content type.
+ * Run {#main} to print the size of each encoded body.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class SearchDslEncodingBenchmark {
+
+    @Param({ "DEEP_BOOL", "LARGE_TERMS", "NESTED_AGGS", "FULL_SOURCE" })
+    public Workload workload;
+
+    @Param({ "JSON", "SMILE", "SMILE_SHARED_VALUES", "CBOR" })
+    public String encoding;
+
+    private SearchDslBuilder builder;
+
+    private XContentType type;
+
+    @Setup
+    public void setUp() {
+        builder = builder(workload, encoding);
+        type = type(encoding);
+    }
+
+    private static SearchDslBuilder builder(Workload workload, String encoding) {
+        SearchDslBuilder builder = SearchDslBuilder.builder();
+        builder.searchSourceBuilder = workload.build();
+        builder.sharedStringValues("SMILE_SHARED_VALUES".equals(encoding));
+        return builder;
+    }
+
+    private static XContentType type(String encoding) {
+        return "SMILE_SHARED_VALUES".equals(encoding) ? XContentType.SMILE : XContentType.valueOf(encoding);
+    }
+
+    @Benchmark
+    public BytesReference encode() {
+        return builder.buildAsBytes(type);
+    }
+
+    /**
+     * Prints the size in bytes of each search body per encoding.
+     */
+    public static void main(String[] args) throws Exception {
+        final String[] encodings = SearchDslEncodingBenchmark.class.getField("encoding").getAnnotation(Param.class).value();
+        System.out.printf(Locale.ROOT, "%-12s", "workload");
+        for (String encoding : encodings) {
+            System.out.printf(Locale.ROOT, "%22s", encoding);
+        }
+        System.out.println();
+        for (Workload workload : Workload.values()) {
+            System.out.printf(Locale.ROOT, "%-12s", workload);
+            for (String encoding : encodings) {
+                System.out.printf(Locale.ROOT, "%22d", builder(workload, encoding).buildAsBytes(type(encoding)).length());
+            }
+            System.out.println();
+        }
+    }
+}
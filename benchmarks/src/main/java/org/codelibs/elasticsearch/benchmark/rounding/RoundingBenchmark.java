@@ -0,0 +1,83 @@
+package org.codelibs.elasticsearch.benchmark.rounding;
+
+import org.codelibs.elasticsearch.common.rounding.DateTimeUnit;
+import org.codelibs.elasticsearch.common.rounding.Rounding;
+import org.codelibs.elasticsearch.common.unit.TimeValue;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rounding a year of timestamps into date histogram buckets, with roundings that compute every bucket key with
+ * the time zone rules or that look it up in prepared tables.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class RoundingBenchmark {
+
+    // 2016-01-01T00:00:00Z
+    private static final long START = 1451606400000L;
+
+    @Param({ "UTC", "Europe/Berlin" })
+    public String timeZone;
+
+    @Param({ "1h", "1d", "1M", "90m" })
+    public String interval;
+
+    @Param({ "false", "true" })
+    public boolean prepared;
+
+    @Param({ "100000" })
+    public int numValues;
+
+    private long[] values;
+
+    private Rounding rounding;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        final long end = START + TimeValue.timeValueHours(24 * 366).millis();
+        values = new long[numValues];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = START + (long) (random.nextDouble() * (end - START));
+        }
+        Rounding.Builder builder;
+        switch (interval) {
+            case "1h": builder = Rounding.builder(DateTimeUnit.HOUR_OF_DAY); break;
+            case "1d": builder = Rounding.builder(DateTimeUnit.DAY_OF_MONTH); break;
+            case "1M": builder = Rounding.builder(DateTimeUnit.MONTH_OF_YEAR); break;
+            default: builder = Rounding.builder(TimeValue.parseTimeValue(interval, "interval"));
+        }
+        builder.timeZone(DateTimeZone.forID(timeZone));
+        if (prepared) {
+            builder.prepare(START, end);
+        }
+        rounding = builder.build();
+    }
+
+    @Benchmark
+    public long round() {
+        long sum = 0;
+        for (long value : values) {
+            sum += rounding.round(value);
+        }
+        return sum;
+    }
+}
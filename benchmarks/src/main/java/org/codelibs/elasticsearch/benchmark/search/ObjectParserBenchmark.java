@@ -0,0 +1,91 @@
+package org.codelibs.elasticsearch.benchmark.search;
+
+import org.codelibs.elasticsearch.common.ParseFieldMatcher;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.xcontent.XContentParser;
+import org.codelibs.elasticsearch.common.xcontent.XContentType;
+import org.codelibs.elasticsearch.index.query.QueryParseContext;
+import org.codelibs.elasticsearch.search.SearchModule;
+import org.codelibs.elasticsearch.search.aggregations.AggregationBuilders;
+import org.codelibs.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.codelibs.elasticsearch.search.builder.SearchSourceBuilder;
+import org.codelibs.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
+import org.codelibs.elasticsearch.search.sort.SortBuilders;
+import org.codelibs.elasticsearch.search.sort.SortOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing search bodies whose elements are mostly parsed by {ObjectParser}s: highlighted fields, terms
+ * aggregations and field sorts.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class ObjectParserBenchmark {
+
+    @Param({ "HIGHLIGHT", "TERMS_AGGS", "SORTS" })
+    public String body;
+
+    @Param({ "JSON", "SMILE" })
+    public XContentType type;
+
+    private final SearchModule searchModule = new SearchModule();
+
+    private BytesReference rendered;
+
+    @Setup
+    public void setUp() {
+        SearchSourceBuilder source = new SearchSourceBuilder();
+        switch (body) {
+            case "HIGHLIGHT":
+                HighlightBuilder highlight = new HighlightBuilder().preTags("<em>").postTags("</em>").requireFieldMatch(false);
+                for (int i = 0; i < 50; i++) {
+                    highlight.field(new HighlightBuilder.Field("field_" + i).fragmentSize(150).numOfFragments(3)
+                            .highlighterType("fvh").noMatchSize(100).phraseLimit(256));
+                }
+                source.highlighter(highlight);
+                break;
+            case "TERMS_AGGS":
+                source.size(0);
+                for (int i = 0; i < 50; i++) {
+                    source.aggregation(AggregationBuilders.terms("terms_" + i).field("field_" + i).size(20).shardSize(100)
+                            .minDocCount(2).executionHint("map").order(Terms.Order.count(false))
+                            .subAggregation(AggregationBuilders.avg("avg").field("price").missing(0)));
+                }
+                break;
+            case "SORTS":
+                for (int i = 0; i < 50; i++) {
+                    source.sort(SortBuilders.fieldSort("field_" + i).order(SortOrder.DESC).missing("_last").unmappedType("long"));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("unknown body [" + body + "]");
+        }
+        rendered = source.buildAsBytes(type);
+    }
+
+    @Benchmark
+    public SearchSourceBuilder fromXContent() throws IOException {
+        try (XContentParser parser = type.xContent().createParser(searchModule.getNamedXContentRegistry(), rendered)) {
+            QueryParseContext context = new QueryParseContext(parser, ParseFieldMatcher.EMPTY);
+            return SearchSourceBuilder.fromXContent(context, searchModule.getAggregatorParsers(), searchModule.getSuggesters(),
+                    searchModule.getSearchExtRegistry());
+        }
+    }
+}
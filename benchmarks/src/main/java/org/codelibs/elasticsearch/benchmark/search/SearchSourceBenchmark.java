@@ -0,0 +1,82 @@
+package org.codelibs.elasticsearch.benchmark.search;
+
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.codelibs.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.codelibs.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.codelibs.elasticsearch.common.io.stream.StreamInput;
+import org.codelibs.elasticsearch.search.SearchModule;
+import org.codelibs.elasticsearch.search.builder.SearchSourceBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures constructing the {Workload} builder trees and writing them to and reading them from the transport format.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class SearchSourceBenchmark {
+
+    @Param({ "DEEP_BOOL", "LARGE_TERMS", "NESTED_AGGS", "FULL_SOURCE" })
+    public Workload workload;
+
+    private final NamedWriteableRegistry namedWriteableRegistry = new SearchModule().getNamedWriteableRegistry();
+
+    private final BytesStreamOutput out = new BytesStreamOutput();
+
+    private SearchSourceBuilder source;
+
+    private BytesReference serialized;
+
+    @Setup
+    public void setUp() throws IOException {
+        source = workload.build();
+        BytesStreamOutput output = new BytesStreamOutput();
+        source.writeTo(output);
+        serialized = output.bytes();
+    }
+
+    @Benchmark
+    public SearchSourceBuilder build() {
+        return workload.build();
+    }
+
+    @Benchmark
+    public BytesReference writeTo() throws IOException {
+        out.reset();
+        source.writeTo(out);
+        return out.bytes();
+    }
+
+    @Benchmark
+    public SearchSourceBuilder readFrom() throws IOException {
+        try (StreamInput in = new NamedWriteableAwareStreamInput(serialized.streamInput(), namedWriteableRegistry)) {
+            return new SearchSourceBuilder(in);
+        }
+    }
+
+    @Benchmark
+    public SearchSourceBuilder roundTrip() throws IOException {
+        out.reset();
+        source.writeTo(out);
+        try (StreamInput in = new NamedWriteableAwareStreamInput(out.bytes().streamInput(), namedWriteableRegistry)) {
+            return new SearchSourceBuilder(in);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.codelibs.elasticsearch.benchmark.search;
+
+import org.codelibs.elasticsearch.common.ParseFieldMatcher;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.xcontent.XContentParser;
+import org.codelibs.elasticsearch.common.xcontent.XContentType;
+import org.codelibs.elasticsearch.index.query.QueryParseContext;
+import org.codelibs.elasticsearch.search.SearchModule;
+import org.codelibs.elasticsearch.search.builder.SearchSourceBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rendering the {Workload} builder trees with toXContent and parsing them back with fromXContent.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class SearchSourceXContentBenchmark {
+
+    @Param({ "DEEP_BOOL", "LARGE_TERMS", "NESTED_AGGS", "FULL_SOURCE" })
+    public Workload workload;
+
+    @Param({ "JSON", "SMILE", "CBOR" })
+    public XContentType type;
+
+    private final SearchModule searchModule = new SearchModule();
+
+    private SearchSourceBuilder source;
+
+    private BytesReference rendered;
+
+    @Setup
+    public void setUp() {
+        source = workload.build();
+        rendered = source.buildAsBytes(type);
+    }
+
+    @Benchmark
+    public BytesReference toXContent() {
+        return source.buildAsBytes(type);
+    }
+
+    @Benchmark
+    public SearchSourceBuilder fromXContent() throws IOException {
+        try (XContentParser parser = type.xContent().createParser(searchModule.getNamedXContentRegistry(), rendered)) {
+            QueryParseContext context = new QueryParseContext(parser, ParseFieldMatcher.EMPTY);
+            return SearchSourceBuilder.fromXContent(context, searchModule.getAggregatorParsers(), searchModule.getSuggesters(),
+                    searchModule.getSearchExtRegistry());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.codelibs.elasticsearch.benchmark.search;
+
+import org.codelibs.elasticsearch.index.query.BoolQueryBuilder;
+import org.codelibs.elasticsearch.index.query.QueryBuilder;
+import org.codelibs.elasticsearch.index.query.QueryBuilders;
+import org.codelibs.elasticsearch.search.aggregations.AggregationBuilders;
+import org.codelibs.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.codelibs.elasticsearch.search.builder.SearchSourceBuilder;
+import org.codelibs.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
+import org.codelibs.elasticsearch.search.rescore.QueryRescorerBuilder;
+import org.codelibs.elasticsearch.search.sort.SortBuilders;
+import org.codelibs.elasticsearch.search.sort.SortOrder;
+
+/**
+ * Search bodies shared by the search benchmarks.
+ */
+public enum Workload {
+    /** bool queries nested six levels deep with three clauses of each kind per level */
+    DEEP_BOOL {
+        @Override
+        public SearchSourceBuilder build() {
+            return new SearchSourceBuilder().query(deepBool(6)).size(10);
+        }
+    },
+    /** a terms query with 5000 string terms and one with 5000 long terms */
+    LARGE_TERMS {
+        @Override
+        public SearchSourceBuilder build() {
+            return new SearchSourceBuilder().query(QueryBuilders.boolQuery()
+                    .filter(QueryBuilders.termsQuery("id", IDS))
+                    .filter(QueryBuilders.termsQuery("number", NUMBERS)));
+        }
+    },
+    /** terms, date_histogram and range buckets nested three levels deep with metrics at every level */
+    NESTED_AGGS {
+        @Override
+        public SearchSourceBuilder build() {
+            return new SearchSourceBuilder().size(0)
+                    .aggregation(AggregationBuilders.terms("category").field("category").size(50)
+                            .subAggregation(AggregationBuilders.avg("avg_price").field("price"))
+                            .subAggregation(AggregationBuilders.dateHistogram("per_day").field("date")
+                                    .dateHistogramInterval(DateHistogramInterval.DAY)
+                                    .subAggregation(AggregationBuilders.stats("price_stats").field("price"))
+                                    .subAggregation(AggregationBuilders.range("price_ranges").field("price")
+                                            .addUnboundedTo(10).addRange(10, 100).addUnboundedFrom(100)
+                                            .subAggregation(AggregationBuilders.cardinality("users").field("user"))
+                                            .subAggregation(AggregationBuilders.percentiles("latency").field("latency"))))
+                            .subAggregation(AggregationBuilders.terms("brand").field("brand")
+                                    .subAggregation(AggregationBuilders.max("max_price").field("price"))))
+                    .aggregation(AggregationBuilders.histogram("sizes").field("size").interval(10)
+                            .subAggregation(AggregationBuilders.sum("total").field("amount")));
+        }
+    },
+    /** a typical full text search with highlighting, sorting and rescoring */
+    FULL_SOURCE {
+        @Override
+        public SearchSourceBuilder build() {
+            return new SearchSourceBuilder()
+                    .query(QueryBuilders.boolQuery()
+                            .must(QueryBuilders.multiMatchQuery("quick brown fox").field("title", 3).field("body").field("tags", 2))
+                            .should(QueryBuilders.matchPhraseQuery("body", "quick brown fox").slop(2))
+                            .filter(QueryBuilders.termQuery("status", "published"))
+                            .filter(QueryBuilders.rangeQuery("date").gte("now-30d/d").lt("now/d")))
+                    .postFilter(QueryBuilders.termsQuery("lang", "en", "de", "ja"))
+                    .highlighter(new HighlightBuilder().field("title", 0).field("body", 150, 3)
+                            .preTags("<em>").postTags("</em>").requireFieldMatch(false))
+                    .sort(SortBuilders.scoreSort())
+                    .sort(SortBuilders.fieldSort("date").order(SortOrder.DESC))
+                    .sort(SortBuilders.fieldSort("id").order(SortOrder.ASC))
+                    .addRescorer(new QueryRescorerBuilder(QueryBuilders.matchPhraseQuery("title", "quick brown fox").slop(1))
+                            .windowSize(100).setQueryWeight(0.7f).setRescoreQueryWeight(1.2f))
+                    .fetchSource(new String[] { "title", "date", "url" }, null)
+                    .from(20).size(20);
+        }
+    };
+
+    private static final String[] IDS = new String[5000];
+
+    private static final long[] NUMBERS = new long[5000];
+
+    static {
+        for (int i = 0; i < IDS.length; i++) {
+            IDS[i] = "doc-" + i;
+            NUMBERS[i] = 1000000L + i * 7;
+        }
+    }
+
+    public abstract SearchSourceBuilder build();
+
+    private static QueryBuilder deepBool(int depth) {
+        if (depth == 0) {
+            return QueryBuilders.termQuery("field" + depth, "value");
+        }
+        BoolQueryBuilder bool = QueryBuilders.boolQuery();
+        for (int i = 0; i < 3; i++) {
+            bool.must(QueryBuilders.matchQuery("title" + i, "text " + depth));
+            bool.filter(depth % 2 == 0 ? QueryBuilders.rangeQuery("num" + i).gte(depth).lt(depth * 10)
+                    : QueryBuilders.termQuery("tag" + i, "t" + depth));
+        }
+        bool.should(deepBool(depth - 1));
+        bool.should(deepBool(depth - 1));
+        bool.mustNot(QueryBuilders.existsQuery("deleted"));
+        return bool;
+    }
+}
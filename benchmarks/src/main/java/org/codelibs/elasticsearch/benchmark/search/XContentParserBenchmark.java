@@ -0,0 +1,128 @@
+package org.codelibs.elasticsearch.benchmark.search;
+
+import org.codelibs.elasticsearch.common.bytes.BytesArray;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.codelibs.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.codelibs.elasticsearch.common.xcontent.XContentHelper;
+import org.codelibs.elasticsearch.common.xcontent.XContentParser;
+import org.codelibs.elasticsearch.common.xcontent.XContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures walking all the tokens of the {Workload} search bodies, parsed from the different kinds of byte sources.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class XContentParserBenchmark {
+
+    public enum Source {
+        /** a {BytesArray} */
+        ARRAY,
+        /** the paged bytes of a {BytesStreamOutput} */
+        PAGED,
+        /** a heap {ByteBuffer} */
+        HEAP_BUFFER,
+        /** a direct {ByteBuffer} */
+        DIRECT_BUFFER,
+        /** a file, memory mapped on every parse */
+        MAPPED
+    }
+
+    @Param({ "LARGE_TERMS", "FULL_SOURCE" })
+    public Workload workload;
+
+    @Param({ "JSON", "SMILE" })
+    public XContentType type;
+
+    @Param({ "ARRAY", "PAGED", "HEAP_BUFFER", "DIRECT_BUFFER", "MAPPED" })
+    public Source source;
+
+    private BytesReference bytes;
+
+    private ByteBuffer buffer;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        BytesReference rendered = workload.build().buildAsBytes(type);
+        switch (source) {
+            case ARRAY:
+                bytes = new BytesArray(BytesReference.toBytes(rendered));
+                break;
+            case PAGED:
+                BytesStreamOutput out = new BytesStreamOutput();
+                rendered.writeTo(out);
+                bytes = out.bytes();
+                break;
+            case HEAP_BUFFER:
+                buffer = ByteBuffer.wrap(BytesReference.toBytes(rendered));
+                break;
+            case DIRECT_BUFFER:
+                byte[] content = BytesReference.toBytes(rendered);
+                buffer = ByteBuffer.allocateDirect(content.length);
+                buffer.put(content).flip();
+                break;
+            case MAPPED:
+                file = Files.createTempFile("xcontent", ".bin");
+                Files.write(file, BytesReference.toBytes(rendered));
+                break;
+            default:
+                throw new IllegalArgumentException(source.toString());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (file != null) {
+            Files.delete(file);
+        }
+    }
+
+    private XContentParser createParser() throws IOException {
+        switch (source) {
+            case HEAP_BUFFER:
+            case DIRECT_BUFFER:
+                return XContentHelper.createParser(NamedXContentRegistry.EMPTY, buffer);
+            case MAPPED:
+                return XContentHelper.createParser(NamedXContentRegistry.EMPTY, file);
+            default:
+                return type.xContent().createParser(NamedXContentRegistry.EMPTY, bytes);
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws IOException {
+        try (XContentParser parser = createParser()) {
+            XContentParser.Token token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == XContentParser.Token.VALUE_STRING) {
+                    blackhole.consume(parser.text());
+                }
+            }
+        }
+    }
+}
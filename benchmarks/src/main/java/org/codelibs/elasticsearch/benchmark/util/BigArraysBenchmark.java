@@ -0,0 +1,95 @@
+package org.codelibs.elasticsearch.benchmark.util;
+
+import org.codelibs.elasticsearch.common.unit.ByteSizeUnit;
+import org.codelibs.elasticsearch.common.unit.ByteSizeValue;
+import org.codelibs.elasticsearch.common.util.BigArrays;
+import org.codelibs.elasticsearch.common.util.LongArray;
+import org.codelibs.elasticsearch.common.util.LongHash;
+import org.codelibs.elasticsearch.common.util.PageCacheRecycler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building and releasing the paged arrays of a reduce, such as the {LongHash} of a terms aggregation and a
+ * {LongArray} of counts, with pages that are allocated on the heap or recycled by a {PageCacheRecycler}.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class BigArraysBenchmark {
+
+    @Param({ "NON_RECYCLING", "CONCURRENT" })
+    public String recycler;
+
+    @Param({ "100000" })
+    public int numKeys;
+
+    private long[] keys;
+
+    private PageCacheRecycler pageCacheRecycler;
+
+    private BigArrays bigArrays;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        keys = new long[numKeys];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextInt(numKeys / 2);
+        }
+        if ("NON_RECYCLING".equals(recycler)) {
+            bigArrays = BigArrays.NON_RECYCLING_INSTANCE;
+        } else {
+            pageCacheRecycler = new PageCacheRecycler(PageCacheRecycler.Type.parse(recycler), new ByteSizeValue(64, ByteSizeUnit.MB));
+            bigArrays = new BigArrays(pageCacheRecycler, false);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pageCacheRecycler != null) {
+            pageCacheRecycler.close();
+        }
+    }
+
+    /**
+     * Counts the keys by ord, growing the hash and the counts from their initial size.
+     */
+    @Benchmark
+    public long countKeys() {
+        long total = 0;
+        try (LongHash hash = new LongHash(1, bigArrays)) {
+            LongArray counts = bigArrays.newLongArray(1, true);
+            try {
+                for (long key : keys) {
+                    long ord = hash.add(key);
+                    if (ord < 0) {
+                        ord = -1 - ord;
+                    }
+                    counts = bigArrays.grow(counts, ord + 1);
+                    counts.increment(ord, 1);
+                }
+                total = counts.get(0) + hash.size();
+            } finally {
+                counts.close();
+            }
+        }
+        return total;
+    }
+}
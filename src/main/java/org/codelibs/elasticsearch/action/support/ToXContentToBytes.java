@@ -23,11 +23,20 @@ import org.codelibs.elasticsearch.ElasticsearchException;
 import org.codelibs.elasticsearch.ExceptionsHelper;
 import org.codelibs.elasticsearch.client.Requests;
 import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.io.Streams;
+import org.codelibs.elasticsearch.common.io.stream.ByteBufferStreamOutput;
 import org.codelibs.elasticsearch.common.xcontent.ToXContent;
 import org.codelibs.elasticsearch.common.xcontent.XContentBuilder;
+import org.codelibs.elasticsearch.common.xcontent.XContentBuilderPool;
 import org.codelibs.elasticsearch.common.xcontent.XContentFactory;
 import org.codelibs.elasticsearch.common.xcontent.XContentType;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
 /**
  * Base class for {ToXContent} implementation that also support conversion to {BytesReference} for serialization purposes
  */
@@ -58,13 +67,65 @@ public abstract class ToXContentToBytes implements ToXContent {
      * Builds the request as the provided <code>contentType</code>
      */
     public final BytesReference buildAsBytes(XContentType contentType) {
+        try (XContentBuilderPool.Lease lease = XContentBuilderPool.acquire(contentType)) {
+            toXContent(lease.builder(), ToXContent.EMPTY_PARAMS);
+            return lease.copyBytes();
+        } catch (Exception e) {
+            throw new ElasticsearchException("Failed to build ToXContent", e);
+        }
+    }
+
+    /**
+     * Streams the {ToXContent} output into the given {OutputStream} using the default {XContentType}.
+     * The stream is flushed but not closed.
+     */
+    public final void buildTo(OutputStream os) {
+        buildTo(defaultType, os);
+    }
+
+    /**
+     * Streams the {ToXContent} output into the given {OutputStream} as the provided <code>contentType</code>.
+     * The content is never materialized in memory as a whole; the stream is flushed but not closed.
+     */
+    public final void buildTo(XContentType contentType, OutputStream os) {
         try {
-            XContentBuilder builder = XContentFactory.contentBuilder(contentType);
-            toXContent(builder, ToXContent.EMPTY_PARAMS);
-            return builder.bytes();
+            writeTo(contentType, Streams.noCloseStream(os));
+        } catch (Exception e) {
+            throw new ElasticsearchException("Failed to build ToXContent", e);
+        }
+    }
+
+    /**
+     * Streams the {ToXContent} output into the given {WritableByteChannel} as the provided <code>contentType</code>.
+     * The channel is left open.
+     */
+    public final void buildTo(XContentType contentType, WritableByteChannel channel) {
+        buildTo(contentType, Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Writes the {ToXContent} output into the given {ByteBuffer} as the provided <code>contentType</code>, starting at the
+     * buffer's position. The position is advanced past the written content. If the content cannot be written the
+     * position is reset to where it was, but the bytes after it may have been overwritten.
+     *
+     * @return the number of bytes written
+     * @throws ElasticsearchException if the content does not fit in the remaining space of the buffer
+     */
+    public final int buildTo(XContentType contentType, ByteBuffer buffer) {
+        final int start = buffer.position();
+        try {
+            writeTo(contentType, new ByteBufferStreamOutput(buffer));
         } catch (Exception e) {
+            buffer.position(start);
             throw new ElasticsearchException("Failed to build ToXContent", e);
         }
+        return buffer.position() - start;
+    }
+
+    private void writeTo(XContentType contentType, OutputStream os) throws IOException {
+        try (XContentBuilder builder = XContentFactory.contentBuilder(contentType, os)) {
+            toXContent(builder, ToXContent.EMPTY_PARAMS);
+        }
     }
 
     @Override
@@ -73,13 +134,13 @@ public abstract class ToXContentToBytes implements ToXContent {
     }
 
     public final String toString(Params params) {
-        try {
-            XContentBuilder builder = XContentFactory.jsonBuilder();
+        try (XContentBuilderPool.Lease lease = XContentBuilderPool.acquire(XContentType.JSON)) {
+            XContentBuilder builder = lease.builder();
             if (params.paramAsBoolean("pretty", true)) {
                 builder.prettyPrint();
             }
             toXContent(builder, params);
-            return builder.string();
+            return lease.string();
         } catch (Exception e) {
             // So we have a stack trace logged somewhere
             return "{ \"error\" : \"" + ExceptionsHelper.detailedMessage(e) + "\"}";
@@ -48,12 +48,15 @@ public class ParseField {
      *            accepted when strict matching is used.
      */
     public ParseField(String name, String... deprecatedNames) {
-        this.name = name;
+        // the names are interned like the field names that the parsers read, so that they usually match by identity
+        this.name = name.intern();
         if (deprecatedNames == null || deprecatedNames.length == 0) {
             this.deprecatedNames = Strings.EMPTY_ARRAY;
         } else {
             final HashSet<String> set = new HashSet<>();
-            Collections.addAll(set, deprecatedNames);
+            for (String deprecatedName : deprecatedNames) {
+                set.add(deprecatedName.intern());
+            }
             this.deprecatedNames = set.toArray(new String[set.size()]);
         }
         Set<String> allNames = new HashSet<>();
@@ -105,6 +108,9 @@ public class ParseField {
      *         names for this {ParseField}.
      */
     public boolean match(String fieldName) {
+        if (fieldName == name && allReplacedWith == null) {
+            return true;
+        }
         Objects.requireNonNull(fieldName, "fieldName cannot be null");
         // if this parse field has not been completely deprecated then try to
         // match the preferred name
@@ -66,6 +66,24 @@ final class BytesReferenceStreamInput extends StreamInput {
         }
     }
 
+    @Override
+    public String readString() throws IOException {
+        final int charCount = readArraySize();
+        if (offset < length) {
+            maybeNextSlice();
+            // strings that are within the current slice are decoded off its bytes
+            final int start = slice.offset + sliceOffset;
+            final int end = start + Math.min(slice.length - sliceOffset, length - offset);
+            final String string = decodeString(slice.bytes, start, end, charCount);
+            if (string != null) {
+                sliceOffset += decodedLength();
+                offset += decodedLength();
+                return string;
+            }
+        }
+        return readString(charCount);
+    }
+
     @Override
     public void readBytes(byte[] b, int bOffset, int len) throws IOException {
         if (offset + len > length) {
@@ -28,26 +28,54 @@ import org.codelibs.elasticsearch.common.xcontent.XContentFactory;
 import org.codelibs.elasticsearch.common.xcontent.XContentType;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
+ * Detects which {Compressor} compressed some bytes from their header. {#COMPRESSOR} is the default, {#LZ4} trades some
+ * compression ratio for speed and other compressors can be added with {#registerCompressor(Compressor)}.
  */
 public class CompressorFactory {
 
     public static final Compressor COMPRESSOR = new DeflateCompressor();
 
+    public static final Compressor LZ4 = new LZ4Compressor();
+
+    private static volatile Compressor[] compressors = new Compressor[] { COMPRESSOR, LZ4 };
+
+    /**
+     * Registers a compressor so that the bytes it compresses are detected by {#compressor(BytesReference)}. The header of its
+     * streams must differ from the ones of the registered compressors and must not look like XContent.
+     */
+    public static synchronized void registerCompressor(Compressor compressor) {
+        if (compressor == null) {
+            throw new IllegalArgumentException("[compressor] must not be null");
+        }
+        for (Compressor registered : compressors) {
+            if (registered.getClass() == compressor.getClass()) {
+                // a compressor reads what any other instance of its class compressed
+                return;
+            }
+        }
+        Compressor[] registered = Arrays.copyOf(compressors, compressors.length + 1);
+        registered[registered.length - 1] = compressor;
+        compressors = registered;
+    }
+
     public static boolean isCompressed(BytesReference bytes) {
         return compressor(bytes) != null;
     }
 
     @Nullable
     public static Compressor compressor(BytesReference bytes) {
-            if (COMPRESSOR.isCompressed(bytes)) {
+        for (Compressor compressor : compressors) {
+            if (compressor.isCompressed(bytes)) {
                 // bytes should be either detected as compressed or as xcontent,
                 // if we have bytes that can be either detected as compressed or
                 // as a xcontent, we have a problem
                 assert XContentFactory.xContentType(bytes) == null;
-                return COMPRESSOR;
+                return compressor;
             }
+        }
 
         XContentType contentType = XContentFactory.xContentType(bytes);
         if (contentType == null) {
@@ -20,26 +20,27 @@
 package org.codelibs.elasticsearch.common.compress;
 
 import org.codelibs.elasticsearch.common.bytes.BytesReference;
-import org.codelibs.elasticsearch.common.compress.Compressor;
 import org.codelibs.elasticsearch.common.io.stream.InputStreamStreamInput;
 import org.codelibs.elasticsearch.common.io.stream.OutputStreamStreamOutput;
 import org.codelibs.elasticsearch.common.io.stream.StreamInput;
 import org.codelibs.elasticsearch.common.io.stream.StreamOutput;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Arrays;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
 
 /**
  * {Compressor} implementation based on the DEFLATE compression algorithm.
+ * <p>
+ * The native {Deflater}s and {Inflater}s, along with the buffers of the streams, are leased from bounded pools for the
+ * life of a stream and go back to their pool once the stream is closed, so that compressing or uncompressing a small
+ * body does not allocate native memory.
  */
 public class DeflateCompressor implements Compressor {
 
@@ -49,10 +50,48 @@ public class DeflateCompressor implements Compressor {
     // a XContent
     private static final byte[] HEADER = new byte[] { 'D', 'F', 'L', '\0' };
     // 3 is a good trade-off between speed and compression ratio
-    private static final int LEVEL = 3;
+    private static final int DEFAULT_LEVEL = 3;
     // We use buffering on the input and output of in/def-laters in order to
     // limit the number of JNI calls
     private static final int BUFFER_SIZE = 4096;
+    // the number of streams of each kind that can be open at once without allocating
+    static final int POOL_SIZE = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    static final ResourcePool<Inflating> INFLATERS = new ResourcePool<>("inflater", POOL_SIZE, Inflating::new,
+        inflating -> inflating.inflater.reset(), inflating -> inflating.inflater.end());
+
+    private static final ResourcePool<?>[] DEFLATERS = new ResourcePool<?>[Deflater.BEST_COMPRESSION + 1];
+
+    static {
+        for (int level = Deflater.BEST_SPEED; level <= Deflater.BEST_COMPRESSION; level++) {
+            final int deflaterLevel = level;
+            DEFLATERS[level] = new ResourcePool<>("deflater", POOL_SIZE, () -> new Deflating(deflaterLevel),
+                deflating -> deflating.deflater.reset(), deflating -> deflating.deflater.end());
+        }
+    }
+
+    private final int level;
+
+    public DeflateCompressor() {
+        this(DEFAULT_LEVEL);
+    }
+
+    /**
+     * @param level the compression level, from {Deflater#BEST_SPEED} to {Deflater#BEST_COMPRESSION}. Streams compressed at
+     *              any level are read by any {DeflateCompressor}.
+     */
+    public DeflateCompressor(int level) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("[level] must be between " + Deflater.BEST_SPEED + " and " + Deflater.BEST_COMPRESSION
+                + " but was [" + level + "]");
+        }
+        this.level = level;
+    }
+
+    @SuppressWarnings("unchecked")
+    static ResourcePool<Deflating> deflaters(int level) {
+        return (ResourcePool<Deflating>) DEFLATERS[level];
+    }
 
     @Override
     public boolean isCompressed(BytesReference bytes) {
@@ -81,48 +120,255 @@ public class DeflateCompressor implements Compressor {
         if (len != HEADER.length || Arrays.equals(headerBytes, HEADER) == false) {
             throw new IllegalArgumentException("Input stream is not compressed with DEFLATE!");
         }
+        return new InputStreamStreamInput(new InflateInputStream(in));
+    }
+
+    @Override
+    public StreamOutput streamOutput(StreamOutput out) throws IOException {
+        out.writeBytes(HEADER);
+        return new OutputStreamStreamOutput(new DeflateOutputStream(out, deflaters(level)));
+    }
+
+    static final class Deflating {
+        final Deflater deflater;
+        final byte[] input = new byte[BUFFER_SIZE];
+        final byte[] output = new byte[BUFFER_SIZE];
+
+        Deflating(int level) {
+            final boolean nowrap = true;
+            this.deflater = new Deflater(level, nowrap);
+        }
+    }
+
+    static final class Inflating {
+        final Inflater inflater;
+        final byte[] input = new byte[BUFFER_SIZE];
+        final byte[] output = new byte[BUFFER_SIZE];
+
+        Inflating() {
+            final boolean nowrap = true;
+            this.inflater = new Inflater(nowrap);
+        }
+    }
+
+    /**
+     * Buffers the writes and deflates them with sync flushes, like a {java.util.zip.DeflaterOutputStream} behind a
+     * {java.io.BufferedOutputStream}.
+     */
+    private static final class DeflateOutputStream extends OutputStream {
+        private final StreamOutput out;
+        private final ResourcePool<Deflating>.Lease lease;
+        private final Deflater deflater;
+        private final byte[] buffer;
+        private final byte[] output;
+        private int count;
+        private boolean closed;
+
+        DeflateOutputStream(StreamOutput out, ResourcePool<Deflating> deflaters) {
+            this.out = out;
+            this.lease = deflaters.acquire(this);
+            this.deflater = lease.resource().deflater;
+            this.buffer = lease.resource().input;
+            this.output = lease.resource().output;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureOpen();
+            if (count == buffer.length) {
+                deflateBuffer();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            if (len >= buffer.length) {
+                deflateBuffer();
+                deflate(b, off, len);
+                return;
+            }
+            if (len > buffer.length - count) {
+                deflateBuffer();
+            }
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+
+        private void deflateBuffer() throws IOException {
+            if (count > 0) {
+                deflate(buffer, 0, count);
+                count = 0;
+            }
+        }
+
+        private void deflate(byte[] b, int off, int len) throws IOException {
+            deflater.setInput(b, off, len);
+            while (deflater.needsInput() == false) {
+                final int deflated = deflater.deflate(output, 0, output.length, Deflater.NO_FLUSH);
+                if (deflated > 0) {
+                    out.writeBytes(output, 0, deflated);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            ensureOpen();
+            deflateBuffer();
+            int deflated;
+            while ((deflated = deflater.deflate(output, 0, output.length, Deflater.SYNC_FLUSH)) > 0) {
+                out.writeBytes(output, 0, deflated);
+                if (deflated < output.length) {
+                    break;
+                }
+            }
+            out.flush();
+        }
 
-        final boolean nowrap = true;
-        final Inflater inflater = new Inflater(nowrap);
-        InputStream decompressedIn = new InflaterInputStream(in, inflater, BUFFER_SIZE);
-        decompressedIn = new BufferedInputStream(decompressedIn, BUFFER_SIZE);
-        return new InputStreamStreamInput(decompressedIn) {
-            final AtomicBoolean closed = new AtomicBoolean(false);
-            @Override
-            public void close() throws IOException {
-                try {
-                    super.close();
-                } finally {
-                    if (closed.compareAndSet(false, true)) {
-                        // important to release native memory
-                        inflater.end();
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            boolean success = false;
+            try {
+                deflateBuffer();
+                deflater.finish();
+                while (deflater.finished() == false) {
+                    final int deflated = deflater.deflate(output, 0, output.length);
+                    if (deflated > 0) {
+                        out.writeBytes(output, 0, deflated);
                     }
                 }
+                out.close();
+                success = true;
+            } finally {
+                lease.release(success);
             }
-        };
+        }
     }
 
-    @Override
-    public StreamOutput streamOutput(StreamOutput out) throws IOException {
-        out.writeBytes(HEADER);
-        final boolean nowrap = true;
-        final Deflater deflater = new Deflater(LEVEL, nowrap);
-        final boolean syncFlush = true;
-        OutputStream compressedOut = new DeflaterOutputStream(out, deflater, BUFFER_SIZE, syncFlush);
-        compressedOut = new BufferedOutputStream(compressedOut, BUFFER_SIZE);
-        return new OutputStreamStreamOutput(compressedOut) {
-            final AtomicBoolean closed = new AtomicBoolean(false);
-            @Override
-            public void close() throws IOException {
-                try {
-                    super.close();
-                } finally {
-                    if (closed.compareAndSet(false, true)) {
-                        // important to release native memory
-                        deflater.end();
+    /**
+     * Inflates into a buffer that the reads are served from, like a {java.util.zip.InflaterInputStream} behind a
+     * {java.io.BufferedInputStream}.
+     */
+    private static final class InflateInputStream extends InputStream {
+        private final StreamInput in;
+        private final ResourcePool<Inflating>.Lease lease;
+        private final Inflater inflater;
+        private final byte[] input;
+        private final byte[] buffer;
+        private int position;
+        private int limit;
+        private boolean eof;
+        private boolean closed;
+
+        InflateInputStream(StreamInput in) {
+            this.in = in;
+            this.lease = INFLATERS.acquire(this);
+            this.inflater = lease.resource().inflater;
+            this.input = lease.resource().input;
+            this.buffer = lease.resource().output;
+        }
+
+        @Override
+        public int read() throws IOException {
+            ensureOpen();
+            if (position == limit && fill() == false) {
+                return -1;
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            if (len == 0) {
+                return 0;
+            }
+            if (position == limit) {
+                if (len >= buffer.length) {
+                    // no need to go through the buffer
+                    return inflate(b, off, len);
+                }
+                if (fill() == false) {
+                    return -1;
+                }
+            }
+            final int read = Math.min(len, limit - position);
+            System.arraycopy(buffer, position, b, off, read);
+            position += read;
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            ensureOpen();
+            return limit - position + (eof ? 0 : 1);
+        }
+
+        private boolean fill() throws IOException {
+            final int inflated = inflate(buffer, 0, buffer.length);
+            if (inflated == -1) {
+                return false;
+            }
+            position = 0;
+            limit = inflated;
+            return true;
+        }
+
+        private int inflate(byte[] b, int off, int len) throws IOException {
+            if (eof) {
+                return -1;
+            }
+            try {
+                int inflated;
+                while ((inflated = inflater.inflate(b, off, len)) == 0) {
+                    if (inflater.finished() || inflater.needsDictionary()) {
+                        eof = true;
+                        return -1;
+                    }
+                    if (inflater.needsInput()) {
+                        final int read = in.read(input, 0, input.length);
+                        if (read == -1) {
+                            throw new EOFException("Unexpected end of ZLIB input stream");
+                        }
+                        inflater.setInput(input, 0, read);
                     }
                 }
+                return inflated;
+            } catch (DataFormatException e) {
+                final String message = e.getMessage();
+                throw new ZipException(message != null ? message : "Invalid ZLIB data format");
+            }
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
             }
-        };
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                in.close();
+            } finally {
+                lease.release(true);
+            }
+        }
     }
 }
@@ -0,0 +1,234 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.elasticsearch.common.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A pure Java implementation of the LZ4 block format: a sequence of literals and back references of at least four bytes
+ * within the last 64 KB, found with a single probe into a hash table of four byte sequences. It compresses less than
+ * DEFLATE, but at a fraction of its cost on both ends.
+ */
+final class LZ4 {
+
+    static final int MIN_MATCH = 4;
+    // back references are encoded on two bytes
+    static final int MAX_DISTANCE = 1 << 16;
+    // the last five bytes are always literals and the last match starts at least twelve bytes before the end
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_HASH_LOG = 12;
+    private static final int MIN_HASH_LOG = 8;
+    private static final int RUN_MASK = 15;
+
+    private LZ4() {
+    }
+
+    /**
+     * The maximum number of bytes <code>length</code> bytes may take once compressed.
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * The size of the hash table {#compress} needs for a block of <code>length</code> bytes.
+     */
+    static int hashTableSize(int length) {
+        final int hashLog = 32 - Integer.numberOfLeadingZeros(Math.max(length - 1, 1));
+        return 1 << Math.min(MAX_HASH_LOG, Math.max(MIN_HASH_LOG, hashLog));
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8 | (bytes[offset + 2] & 0xFF) << 16 | bytes[offset + 3] << 24;
+    }
+
+    private static int hash(int i, int hashMask) {
+        return (i * -1640531535) >>> 16 & hashMask;
+    }
+
+    /**
+     * Compresses <code>srcLen</code> bytes of <code>src</code> into <code>dest</code>, which must have room for
+     * {#maxCompressedLength} bytes. The hash table must have at least {#hashTableSize} entries and is overwritten.
+     * Returns the number of compressed bytes.
+     */
+    static int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int[] hashTable) {
+        final int srcEnd = srcOff + srcLen;
+        int anchor = srcOff;
+        int d = destOff;
+        if (srcLen > MF_LIMIT) {
+            final int hashMask = hashTableSize(srcLen) - 1;
+            Arrays.fill(hashTable, 0, hashMask + 1, -1);
+            final int mfLimit = srcEnd - MF_LIMIT;
+            final int matchLimit = srcEnd - LAST_LITERALS;
+            int off = srcOff;
+            while (off < mfLimit) {
+                final int sequence = readInt(src, off);
+                final int h = hash(sequence, hashMask);
+                final int ref = hashTable[h];
+                hashTable[h] = off;
+                if (ref < 0 || off - ref >= MAX_DISTANCE || readInt(src, ref) != sequence) {
+                    // step faster through data that does not compress
+                    off += 1 + ((off - anchor) >>> 6);
+                    continue;
+                }
+                int matchOff = off;
+                int refOff = ref;
+                while (matchOff > anchor && refOff > srcOff && src[matchOff - 1] == src[refOff - 1]) {
+                    matchOff--;
+                    refOff--;
+                }
+                int end = off + MIN_MATCH;
+                int refEnd = ref + MIN_MATCH;
+                while (end < matchLimit && src[end] == src[refEnd]) {
+                    end++;
+                    refEnd++;
+                }
+                d = writeSequence(src, anchor, matchOff - anchor, matchOff - refOff, end - matchOff, dest, d);
+                anchor = off = end;
+                if (off < mfLimit) {
+                    hashTable[hash(readInt(src, off - 2), hashMask)] = off - 2;
+                }
+            }
+        }
+        final int literals = srcEnd - anchor;
+        final int tokenOff = d++;
+        if (literals >= RUN_MASK) {
+            dest[tokenOff] = (byte) (RUN_MASK << 4);
+            d = writeLength(literals - RUN_MASK, dest, d);
+        } else {
+            dest[tokenOff] = (byte) (literals << 4);
+        }
+        System.arraycopy(src, anchor, dest, d, literals);
+        return d + literals - destOff;
+    }
+
+    private static int writeSequence(byte[] src, int literalOff, int literals, int distance, int matchLength, byte[] dest, int d) {
+        final int tokenOff = d++;
+        int token;
+        if (literals >= RUN_MASK) {
+            token = RUN_MASK << 4;
+            d = writeLength(literals - RUN_MASK, dest, d);
+        } else {
+            token = literals << 4;
+        }
+        System.arraycopy(src, literalOff, dest, d, literals);
+        d += literals;
+        dest[d++] = (byte) distance;
+        dest[d++] = (byte) (distance >>> 8);
+        final int length = matchLength - MIN_MATCH;
+        if (length >= RUN_MASK) {
+            token |= RUN_MASK;
+            d = writeLength(length - RUN_MASK, dest, d);
+        } else {
+            token |= length;
+        }
+        dest[tokenOff] = (byte) token;
+        return d;
+    }
+
+    private static int writeLength(int length, byte[] dest, int d) {
+        while (length >= 0xFF) {
+            dest[d++] = (byte) 0xFF;
+            length -= 0xFF;
+        }
+        dest[d++] = (byte) length;
+        return d;
+    }
+
+    /**
+     * Decompresses the <code>srcLen</code> bytes of <code>src</code> into exactly <code>destLen</code> bytes of
+     * <code>dest</code>, and throws an {IOException} if the compressed bytes are corrupt.
+     */
+    static void decompress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int destLen) throws IOException {
+        final int srcEnd = srcOff + srcLen;
+        final int destEnd = destOff + destLen;
+        int s = srcOff;
+        int d = destOff;
+        while (true) {
+            if (s >= srcEnd) {
+                throw corrupted(s - srcOff);
+            }
+            final int token = src[s++] & 0xFF;
+            int literals = token >>> 4;
+            if (literals == RUN_MASK) {
+                int b;
+                do {
+                    if (s >= srcEnd) {
+                        throw corrupted(s - srcOff);
+                    }
+                    b = src[s++] & 0xFF;
+                    literals += b;
+                } while (b == 0xFF);
+            }
+            if (literals < 0 || literals > srcEnd - s || literals > destEnd - d) {
+                throw corrupted(s - srcOff);
+            }
+            System.arraycopy(src, s, dest, d, literals);
+            s += literals;
+            d += literals;
+            if (s == srcEnd) {
+                // the last sequence only has literals
+                if (d != destEnd) {
+                    throw corrupted(s - srcOff);
+                }
+                return;
+            }
+            if (srcEnd - s < 2) {
+                throw corrupted(s - srcOff);
+            }
+            final int distance = (src[s] & 0xFF) | (src[s + 1] & 0xFF) << 8;
+            s += 2;
+            if (distance == 0 || distance > d - destOff) {
+                throw corrupted(s - srcOff);
+            }
+            int length = token & RUN_MASK;
+            if (length == RUN_MASK) {
+                int b;
+                do {
+                    if (s >= srcEnd) {
+                        throw corrupted(s - srcOff);
+                    }
+                    b = src[s++] & 0xFF;
+                    length += b;
+                } while (b == 0xFF);
+            }
+            length += MIN_MATCH;
+            if (length < 0 || length > destEnd - d) {
+                throw corrupted(s - srcOff);
+            }
+            final int ref = d - distance;
+            if (distance >= length) {
+                System.arraycopy(dest, ref, dest, d, length);
+            } else {
+                // the match overlaps the bytes it repeats
+                for (int i = 0; i < length; i++) {
+                    dest[d + i] = dest[ref + i];
+                }
+            }
+            d += length;
+        }
+    }
+
+    private static IOException corrupted(int offset) {
+        return new IOException("Corrupted LZ4 block at offset [" + offset + "]");
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.elasticsearch.common.compress;
+
+import org.codelibs.elasticsearch.common.logging.Loggers;
+import org.codelibs.elasticsearch.querybuilders.mock.log4j.Logger;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, thread-safe pool of resources that are expensive to create, such as the native {java.util.zip.Deflater}s
+ * of {DeflateCompressor} streams. A stream leases a resource for its whole life and releases it when it is closed, which
+ * resets the resource and pools it, unless the pool is full and the resource is destroyed. The lease of a stream that is
+ * garbage collected without being closed is reported as a leak and its resource is destroyed.
+ */
+final class ResourcePool<T> {
+
+    private static final Logger logger = Loggers.getLogger(ResourcePool.class);
+
+    private final String name;
+    private final Supplier<T> factory;
+    private final Consumer<T> reset;
+    private final Consumer<T> destroy;
+    private final ArrayBlockingQueue<T> pooled;
+    private final Set<Lease> leased = ConcurrentHashMap.newKeySet();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+    private final AtomicLong leaks = new AtomicLong();
+
+    /**
+     * @param name     the name of the resources, for the leak reports
+     * @param capacity the maximum number of resources that are kept in the pool
+     * @param factory  creates a resource when the pool is empty
+     * @param reset    resets a released resource before it is pooled
+     * @param destroy  releases the native memory of a resource that is not pooled
+     */
+    ResourcePool(String name, int capacity, Supplier<T> factory, Consumer<T> reset, Consumer<T> destroy) {
+        this.name = name;
+        this.factory = factory;
+        this.reset = reset;
+        this.destroy = destroy;
+        this.pooled = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Leases a resource until {Lease#release(boolean)} is called, or until <code>owner</code> is garbage collected.
+     */
+    Lease acquire(Object owner) {
+        reclaimLeaks();
+        T resource = pooled.poll();
+        if (resource == null) {
+            resource = factory.get();
+        }
+        final Lease lease = new Lease(owner, resource);
+        leased.add(lease);
+        return lease;
+    }
+
+    private void reclaimLeaks() {
+        Reference<?> reference;
+        while ((reference = collected.poll()) != null) {
+            @SuppressWarnings("unchecked")
+            final Lease lease = (Lease) reference;
+            if (leased.remove(lease)) {
+                leaks.incrementAndGet();
+                logger.warn("a stream was garbage collected without being closed and leaked its {}", name);
+                destroy.accept(lease.resource);
+            }
+        }
+    }
+
+    /**
+     * The number of resources that are pooled.
+     */
+    int pooled() {
+        return pooled.size();
+    }
+
+    /**
+     * The number of leases whose owner was garbage collected before they were released, as far as detected.
+     */
+    long leaks() {
+        reclaimLeaks();
+        return leaks.get();
+    }
+
+    final class Lease extends PhantomReference<Object> {
+        private final T resource;
+
+        private Lease(Object owner, T resource) {
+            super(owner, collected);
+            this.resource = resource;
+        }
+
+        T resource() {
+            return resource;
+        }
+
+        /**
+         * Gives the resource back, to be pooled if it is <code>reusable</code> and destroyed otherwise. Only the first call
+         * has an effect.
+         */
+        void release(boolean reusable) {
+            if (leased.remove(this) == false) {
+                return;
+            }
+            clear();
+            if (reusable) {
+                reset.accept(resource);
+                if (pooled.offer(resource)) {
+                    return;
+                }
+            }
+            destroy.accept(resource);
+        }
+    }
+}
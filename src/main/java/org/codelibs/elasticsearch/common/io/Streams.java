@@ -23,6 +23,7 @@ import org.apache.lucene.util.IOUtils;
 import org.codelibs.elasticsearch.common.util.Callback;
 
 import java.io.BufferedReader;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -217,6 +218,25 @@ public abstract class Streams {
         return read;
     }
 
+    /**
+     * Wraps the given {OutputStream} so that closing the wrapper only flushes it. This is useful when
+     * writers that close their target, such as {org.codelibs.elasticsearch.common.xcontent.XContentBuilder},
+     * write into a stream owned by the caller.
+     */
+    public static OutputStream noCloseStream(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
     public static List<String> readAllLines(InputStream input) throws IOException {
         final List<String> lines = new ArrayList<>();
         readAllLines(input, line -> lines.add(line));
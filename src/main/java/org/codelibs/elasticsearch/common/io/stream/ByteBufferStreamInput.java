@@ -18,6 +18,9 @@
  */
 package org.codelibs.elasticsearch.common.io.stream;
 
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -28,6 +31,9 @@ public class ByteBufferStreamInput extends StreamInput {
 
     private final ByteBuffer buffer;
 
+    // a copy of the bytes of direct buffers that strings are decoded from
+    private byte[] stringBytes = BytesRef.EMPTY_BYTES;
+
     public ByteBufferStreamInput(ByteBuffer buffer) {
         this.buffer = buffer;
     }
@@ -78,6 +84,32 @@ public class ByteBufferStreamInput extends StreamInput {
         buffer.get(b, offset, len);
     }
 
+    @Override
+    public String readString() throws IOException {
+        final int charCount = readArraySize();
+        final int position = buffer.position();
+        final String string;
+        if (buffer.hasArray()) {
+            final int offset = buffer.arrayOffset() + position;
+            string = decodeString(buffer.array(), offset, offset + buffer.remaining(), charCount);
+        } else {
+            // a bulk copy of at most 3 bytes per character is still much cheaper than a bounds checked get per byte
+            final int length = (int) Math.min(3L * charCount, buffer.remaining());
+            if (stringBytes.length < length) {
+                stringBytes = new byte[ArrayUtil.oversize(length, Byte.BYTES)];
+            }
+            buffer.get(stringBytes, 0, length);
+            buffer.position(position);
+            string = decodeString(stringBytes, 0, length, charCount);
+        }
+        if (string == null) {
+            throw new EOFException("tried to read a string of " + charCount + " characters but only " + buffer.remaining()
+                + " bytes remaining");
+        }
+        buffer.position(position + decodedLength());
+        return string;
+    }
+
     @Override
     public void reset() throws IOException {
         buffer.reset();
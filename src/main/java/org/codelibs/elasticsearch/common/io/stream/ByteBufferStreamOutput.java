@@ -0,0 +1,67 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.elasticsearch.common.io.stream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {StreamOutput} that writes into a caller supplied {ByteBuffer}, starting at its current position.
+ * Writing past the buffer's limit throws a {java.nio.BufferOverflowException}.
+ */
+public class ByteBufferStreamOutput extends StreamOutput {
+
+    private final ByteBuffer buffer;
+    private final int start;
+
+    public ByteBufferStreamOutput(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.start = buffer.position();
+    }
+
+    @Override
+    public long position() throws IOException {
+        return buffer.position() - start;
+    }
+
+    @Override
+    public void writeByte(byte b) throws IOException {
+        buffer.put(b);
+    }
+
+    @Override
+    public void writeBytes(byte[] b, int offset, int length) throws IOException {
+        buffer.put(b, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+    }
+
+    @Override
+    public void close() throws IOException {
+        // the buffer is owned by the caller
+    }
+
+    @Override
+    public void reset() throws IOException {
+        buffer.position(start);
+    }
+}
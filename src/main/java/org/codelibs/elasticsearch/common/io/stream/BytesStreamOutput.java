@@ -19,6 +19,7 @@
 
 package org.codelibs.elasticsearch.common.io.stream;
 
+import org.apache.lucene.util.BytesRef;
 import org.codelibs.elasticsearch.common.bytes.BytesReference;
 import org.codelibs.elasticsearch.common.bytes.PagedBytesReference;
 import org.codelibs.elasticsearch.common.io.BytesStream;
@@ -38,6 +39,9 @@ public class BytesStreamOutput extends StreamOutput implements BytesStream {
     protected ByteArray bytes;
     protected int count;
 
+    // points at the bytes strings are encoded into
+    private final BytesRef stringBytes = new BytesRef();
+
     /**
      * Create a non recycling {BytesStreamOutput} with an initial capacity of 0.
      */
@@ -96,6 +100,25 @@ public class BytesStreamOutput extends StreamOutput implements BytesStream {
         count += length;
     }
 
+    @Override
+    public void writeString(String str) throws IOException {
+        final int charCount = str.length();
+        final int maxLength = 3 * charCount;
+        if (maxLength > BigArrays.BYTE_PAGE_SIZE) {
+            super.writeString(str);
+            return;
+        }
+        writeVInt(charCount);
+        ensureCapacity(((long) count) + maxLength);
+        // strings are encoded right into the page they go to, unless they span two pages and get a copy of their own
+        final boolean copied = bytes.get(count, maxLength, stringBytes);
+        final int length = encodeString(str, stringBytes.bytes, stringBytes.offset) - stringBytes.offset;
+        if (copied) {
+            bytes.set(count, stringBytes.bytes, stringBytes.offset, length);
+        }
+        count += length;
+    }
+
     @Override
     public void reset() {
         // shrink list of pages
@@ -45,6 +45,11 @@ public abstract class FilterStreamInput extends StreamInput {
         delegate.readBytes(b, offset, len);
     }
 
+    @Override
+    public String readString() throws IOException {
+        return delegate.readString();
+    }
+
     @Override
     public void reset() throws IOException {
         delegate.reset();
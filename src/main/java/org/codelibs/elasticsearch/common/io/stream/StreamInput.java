@@ -45,6 +45,7 @@ import java.io.FileNotFoundException;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.AccessDeniedException;
 import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.DirectoryNotEmptyException;
@@ -336,16 +337,19 @@ public abstract class StreamInput extends InputStream {
     // this prevents calling grow for every character since we don't need this
     private final CharsRef spare = new CharsRef();
 
+    // the number of bytes taken by the last string returned by decodeString
+    private int decodedLength;
+
     public String readString() throws IOException {
-        // TODO it would be nice to not call readByte() for every character but we don't know how much to read up-front
-        // we can make the loop much more complicated but that won't buy us much compared to the bounds checks in readByte()
-        final int charCount = readArraySize();
-        if (spare.chars.length < charCount) {
-            // we don't use ArrayUtils.grow since there is no need to copy the array
-            spare.chars = new char[ArrayUtil.oversize(charCount, Character.BYTES)];
-        }
-        spare.length = charCount;
-        final char[] buffer = spare.chars;
+        return readString(readArraySize());
+    }
+
+    /**
+     * Reads a string of <code>charCount</code> characters one byte at a time. Subclasses that can look at their bytes directly
+     * decode them in bulk with {#decodeString(byte[], int, int, int)} and fall back to this method.
+     */
+    protected final String readString(int charCount) throws IOException {
+        final char[] buffer = charBuffer(charCount);
         for (int i = 0; i < charCount; i++) {
             final int c = readByte() & 0xff;
             switch (c >> 4) {
@@ -367,12 +371,81 @@ public abstract class StreamInput extends InputStream {
                     buffer[i] = ((char) ((c & 0x0F) << 12 | (readByte() & 0x3F) << 6 | (readByte() & 0x3F) << 0));
                     break;
                 default:
-                    new AssertionError("unexpected character: " + c + " hex: " + Integer.toHexString(c));
+                    throw invalidLeadByte(c);
+            }
+        }
+        return spare.toString();
+    }
+
+    private static IOException invalidLeadByte(int c) {
+        return new IOException("Invalid string; unexpected character: " + c + " hex: " + Integer.toHexString(c));
+    }
+
+    private char[] charBuffer(int charCount) {
+        if (spare.chars.length < charCount) {
+            // we don't use ArrayUtils.grow since there is no need to copy the array
+            spare.chars = new char[ArrayUtil.oversize(charCount, Character.BYTES)];
+        }
+        spare.length = charCount;
+        return spare.chars;
+    }
+
+    /**
+     * Decodes a string of <code>charCount</code> characters, as written by {StreamOutput#writeString(String)}, from
+     * <code>bytes</code> starting at <code>offset</code> and without looking at the bytes from <code>end</code> on. Strings
+     * that are all ASCII are copied in one go, others are decoded in a single pass over the array. Returns null if the string
+     * doesn't end before <code>end</code>, otherwise {#decodedLength()} is the number of bytes the string took. Bytes that
+     * cannot start a character are rejected like {#readString(int)} does.
+     */
+    protected final String decodeString(byte[] bytes, int offset, int end, int charCount) throws IOException {
+        if (charCount > end - offset) {
+            return null;
+        }
+        // all characters are single bytes if no byte has the high bit set
+        int bits = 0;
+        for (int i = offset; i < offset + charCount; i++) {
+            bits |= bytes[i];
+        }
+        if (bits >= 0) {
+            decodedLength = charCount;
+            return new String(bytes, offset, charCount, StandardCharsets.ISO_8859_1);
+        }
+        final char[] buffer = charBuffer(charCount);
+        int pos = offset;
+        for (int i = 0; i < charCount; i++) {
+            if (pos >= end) {
+                return null;
+            }
+            final int c = bytes[pos++] & 0xff;
+            if (c < 0x80) {
+                buffer[i] = (char) c;
+            } else if (c < 0xC0) {
+                throw invalidLeadByte(c);
+            } else if (c < 0xE0) {
+                if (pos >= end) {
+                    return null;
+                }
+                buffer[i] = (char) ((c & 0x1F) << 6 | bytes[pos++] & 0x3F);
+            } else if (c < 0xF0) {
+                if (pos + 1 >= end) {
+                    return null;
+                }
+                buffer[i] = (char) ((c & 0x0F) << 12 | (bytes[pos] & 0x3F) << 6 | bytes[pos + 1] & 0x3F);
+                pos += 2;
+            } else {
+                throw invalidLeadByte(c);
             }
         }
+        decodedLength = pos - offset;
         return spare.toString();
     }
 
+    /**
+     * The number of bytes taken by the last string returned by {#decodeString(byte[], int, int, int)}.
+     */
+    protected final int decodedLength() {
+        return decodedLength;
+    }
 
     public final float readFloat() throws IOException {
         return Float.intBitsToFloat(readInt());
@@ -911,7 +984,7 @@ public abstract class StreamInput extends InputStream {
      * Reads a vint via {#readVInt()} and applies basic checks to ensure the read array size is sane.
      * This method uses {#ensureCanReadBytes(int)} to ensure this stream has enough bytes to read for the read array size.
      */
-    private int readArraySize() throws IOException {
+    protected final int readArraySize() throws IOException {
         final int arraySize = readVInt();
         if (arraySize > ArrayUtil.MAX_ARRAY_LENGTH) {
             throw new IllegalStateException("array length must be <= to " + ArrayUtil.MAX_ARRAY_LENGTH  + " but was: " + arraySize);
@@ -346,6 +346,37 @@ public abstract class StreamOutput extends OutputStream {
         writeBytes(buffer, offset);
     }
 
+    /**
+     * Encodes the characters of <code>str</code> the way {#writeString(String)} does into <code>buffer</code> from
+     * <code>offset</code> on, which must have room for three bytes per character. Returns the offset after the last byte.
+     */
+    protected static int encodeString(String str, byte[] buffer, int offset) {
+        final int charCount = str.length();
+        int i = 0;
+        // most strings are ASCII and take a single byte per character
+        for (; i < charCount; i++) {
+            final int c = str.charAt(i);
+            if (c > 0x007F) {
+                break;
+            }
+            buffer[offset++] = (byte) c;
+        }
+        for (; i < charCount; i++) {
+            final int c = str.charAt(i);
+            if (c <= 0x007F) {
+                buffer[offset++] = ((byte) c);
+            } else if (c > 0x07FF) {
+                buffer[offset++] = ((byte) (0xE0 | c >> 12 & 0x0F));
+                buffer[offset++] = ((byte) (0x80 | c >> 6 & 0x3F));
+                buffer[offset++] = ((byte) (0x80 | c >> 0 & 0x3F));
+            } else {
+                buffer[offset++] = ((byte) (0xC0 | c >> 6 & 0x1F));
+                buffer[offset++] = ((byte) (0x80 | c >> 0 & 0x3F));
+            }
+        }
+        return offset;
+    }
+
     public void writeFloat(float v) throws IOException {
         writeInt(Float.floatToIntBits(v));
     }
@@ -38,9 +38,12 @@ public class DateMathParser {
 
     private final FormatDateTimeFormatter dateTimeFormatter;
 
+    private final FastDateTimeParser fastParser;
+
     public DateMathParser(FormatDateTimeFormatter dateTimeFormatter) {
         Objects.requireNonNull(dateTimeFormatter);
         this.dateTimeFormatter = dateTimeFormatter;
+        this.fastParser = FastDateTimeParser.forFormat(dateTimeFormatter.format());
     }
 
     public long parse(String text, LongSupplier now) {
@@ -51,32 +54,42 @@ public class DateMathParser {
     // if it has been used. For instance, the request cache does not cache requests that make
     // use of `now`.
     public long parse(String text, LongSupplier now, boolean roundUp, DateTimeZone timeZone) {
-        long time;
-        String mathString;
+        return compile(text).resolve(now, roundUp, timeZone);
+    }
+
+    /**
+     * Parses the date math expression once, so that it can be resolved for any current time, rounding and time
+     * zone without parsing it again. Syntax errors of the date math are thrown here, while the date is parsed with
+     * the format of this parser as far as it does not depend on the time zone.
+     */
+    public CompiledExpression compile(String text) {
+        final String date;
+        final String mathString;
         if (text.startsWith("now")) {
-            try {
-                time = now.getAsLong();
-            } catch (Exception e) {
-                throw new ElasticsearchParseException("could not read the current timestamp", e);
-            }
+            date = null;
             mathString = text.substring("now".length());
         } else {
             int index = text.indexOf("||");
             if (index == -1) {
-                return parseDateTime(text, timeZone, roundUp);
+                date = text;
+                mathString = null;
+            } else {
+                date = text.substring(0, index);
+                mathString = text.substring(index + 2);
             }
-            time = parseDateTime(text.substring(0, index), timeZone, false);
-            mathString = text.substring(index + 2);
         }
-
-        return parseMath(mathString, time, roundUp, timeZone);
+        final FastDateTimeParser.ParsedDateTime parsedDate = date != null && fastParser != null ? fastParser.parse(date) : null;
+        return mathString == null ? new CompiledExpression(date, parsedDate, null, 0, null, null, null)
+                : compileMath(date, parsedDate, mathString);
     }
 
-    private long parseMath(String mathString, long time, boolean roundUp, DateTimeZone timeZone) throws ElasticsearchParseException {
-        if (timeZone == null) {
-            timeZone = DateTimeZone.UTC;
-        }
-        MutableDateTime dateTime = new MutableDateTime(time, timeZone);
+    private CompiledExpression compileMath(String date, FastDateTimeParser.ParsedDateTime parsedDate, String mathString)
+            throws ElasticsearchParseException {
+        final int maxOperations = mathString.length() / 2;
+        final boolean[] rounds = new boolean[maxOperations];
+        final int[] amounts = new int[maxOperations];
+        final char[] units = new char[maxOperations];
+        int operations = 0;
         for (int i = 0; i < mathString.length(); ) {
             char c = mathString.charAt(i++);
             final boolean round;
@@ -118,76 +131,170 @@ public class DateMathParser {
                 }
             }
             char unit = mathString.charAt(i++);
-            MutableDateTime.Property propertyToRound = null;
             switch (unit) {
                 case 'y':
-                    if (round) {
-                        propertyToRound = dateTime.yearOfCentury();
-                    } else {
-                        dateTime.addYears(sign * num);
-                    }
-                    break;
                 case 'M':
-                    if (round) {
-                        propertyToRound = dateTime.monthOfYear();
-                    } else {
-                        dateTime.addMonths(sign * num);
-                    }
-                    break;
                 case 'w':
-                    if (round) {
-                        propertyToRound = dateTime.weekOfWeekyear();
-                    } else {
-                        dateTime.addWeeks(sign * num);
-                    }
-                    break;
                 case 'd':
-                    if (round) {
-                        propertyToRound = dateTime.dayOfMonth();
-                    } else {
-                        dateTime.addDays(sign * num);
-                    }
-                    break;
                 case 'h':
                 case 'H':
-                    if (round) {
-                        propertyToRound = dateTime.hourOfDay();
-                    } else {
-                        dateTime.addHours(sign * num);
-                    }
-                    break;
                 case 'm':
-                    if (round) {
-                        propertyToRound = dateTime.minuteOfHour();
-                    } else {
-                        dateTime.addMinutes(sign * num);
-                    }
-                    break;
                 case 's':
-                    if (round) {
-                        propertyToRound = dateTime.secondOfMinute();
-                    } else {
-                        dateTime.addSeconds(sign * num);
-                    }
                     break;
                 default:
                     throw new ElasticsearchParseException("unit [{}] not supported for date math [{}]", unit, mathString);
             }
-            if (propertyToRound != null) {
-                if (roundUp) {
-                    // we want to go up to the next whole value, even if we are already on a rounded value
-                    propertyToRound.add(1);
-                    propertyToRound.roundFloor();
-                    dateTime.addMillis(-1); // subtract 1 millisecond to get the largest inclusive value
-                } else {
-                    propertyToRound.roundFloor();
+            rounds[operations] = round;
+            amounts[operations] = sign * num;
+            units[operations] = unit;
+            operations++;
+        }
+        return new CompiledExpression(date, parsedDate, mathString, operations, rounds, amounts, units);
+    }
+
+    /**
+     * A date math expression compiled by {#compile}. It is immutable and can be shared between threads.
+     */
+    public final class CompiledExpression {
+
+        private final String date;
+
+        private final FastDateTimeParser.ParsedDateTime parsedDate;
+
+        private final String mathString;
+
+        private final int operations;
+
+        private final boolean[] rounds;
+
+        private final int[] amounts;
+
+        private final char[] units;
+
+        private CompiledExpression(String date, FastDateTimeParser.ParsedDateTime parsedDate, String mathString, int operations,
+                                   boolean[] rounds, int[] amounts, char[] units) {
+            this.date = date;
+            this.parsedDate = parsedDate;
+            this.mathString = mathString;
+            this.operations = operations;
+            this.rounds = rounds;
+            this.amounts = amounts;
+            this.units = units;
+        }
+
+        /**
+         * Whether the expression is relative to the current time.
+         */
+        public boolean usesNow() {
+            return date == null;
+        }
+
+        public long resolve(LongSupplier now) {
+            return resolve(now, false, null);
+        }
+
+        public long resolve(LongSupplier now, boolean roundUp, DateTimeZone timeZone) {
+            long time;
+            if (date == null) {
+                try {
+                    time = now.getAsLong();
+                } catch (Exception e) {
+                    throw new ElasticsearchParseException("could not read the current timestamp", e);
+                }
+            } else if (mathString == null) {
+                return parseDateTime(date, parsedDate, timeZone, roundUp);
+            } else {
+                time = parseDateTime(date, parsedDate, timeZone, false);
+            }
+            return operations == 0 ? time : applyMath(time, roundUp, timeZone);
+        }
+
+        private long applyMath(long time, boolean roundUp, DateTimeZone timeZone) {
+            if (timeZone == null) {
+                timeZone = DateTimeZone.UTC;
+            }
+            MutableDateTime dateTime = new MutableDateTime(time, timeZone);
+            for (int i = 0; i < operations; i++) {
+                final boolean round = rounds[i];
+                final int amount = amounts[i];
+                MutableDateTime.Property propertyToRound = null;
+                switch (units[i]) {
+                    case 'y':
+                        if (round) {
+                            propertyToRound = dateTime.yearOfCentury();
+                        } else {
+                            dateTime.addYears(amount);
+                        }
+                        break;
+                    case 'M':
+                        if (round) {
+                            propertyToRound = dateTime.monthOfYear();
+                        } else {
+                            dateTime.addMonths(amount);
+                        }
+                        break;
+                    case 'w':
+                        if (round) {
+                            propertyToRound = dateTime.weekOfWeekyear();
+                        } else {
+                            dateTime.addWeeks(amount);
+                        }
+                        break;
+                    case 'd':
+                        if (round) {
+                            propertyToRound = dateTime.dayOfMonth();
+                        } else {
+                            dateTime.addDays(amount);
+                        }
+                        break;
+                    case 'h':
+                    case 'H':
+                        if (round) {
+                            propertyToRound = dateTime.hourOfDay();
+                        } else {
+                            dateTime.addHours(amount);
+                        }
+                        break;
+                    case 'm':
+                        if (round) {
+                            propertyToRound = dateTime.minuteOfHour();
+                        } else {
+                            dateTime.addMinutes(amount);
+                        }
+                        break;
+                    case 's':
+                        if (round) {
+                            propertyToRound = dateTime.secondOfMinute();
+                        } else {
+                            dateTime.addSeconds(amount);
+                        }
+                        break;
+                    default:
+                        throw new IllegalStateException("unexpected unit [" + units[i] + "]");
+                }
+                if (propertyToRound != null) {
+                    if (roundUp) {
+                        // we want to go up to the next whole value, even if we are already on a rounded value
+                        propertyToRound.add(1);
+                        propertyToRound.roundFloor();
+                        dateTime.addMillis(-1); // subtract 1 millisecond to get the largest inclusive value
+                    } else {
+                        propertyToRound.roundFloor();
+                    }
                 }
             }
+            return dateTime.getMillis();
         }
-        return dateTime.getMillis();
     }
 
-    private long parseDateTime(String value, DateTimeZone timeZone, boolean roundUpIfNoTime) {
+    private long parseDateTime(String value, FastDateTimeParser.ParsedDateTime parsedDate, DateTimeZone timeZone,
+                               boolean roundUpIfNoTime) {
+        if (parsedDate != null) {
+            final long millis = parsedDate.toMillis(timeZone, roundUpIfNoTime);
+            if (millis != FastDateTimeParser.NOT_RESOLVED) {
+                return millis;
+            }
+        }
         DateTimeFormatter parser = dateTimeFormatter.parser();
         if (timeZone != null) {
             parser = parser.withZone(timeZone);
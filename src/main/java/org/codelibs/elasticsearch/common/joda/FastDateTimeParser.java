@@ -0,0 +1,318 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.elasticsearch.common.joda;
+
+import org.joda.time.DateTimeConstants;
+import org.joda.time.DateTimeZone;
+
+/**
+ * A hand written parser for the <code>strict_date_optional_time</code> and <code>epoch_millis</code> formats, the
+ * formats of date fields that have no explicit format. It only accepts the common shapes of these formats,
+ * <code>yyyy[-MM[-dd]][T[HH[:mm[:ss[.S+]]]][Z|+HH[[:]mm]]]</code> and plain numbers, and returns <code>null</code>
+ * for anything else so that the caller can fall back to the Joda parser, which also produces the error messages.
+ * Whatever it accepts resolves to the same instant as the Joda parser.
+ */
+final class FastDateTimeParser {
+
+    /**
+     * Returned by {ParsedDateTime#toMillis} when the instant has to be resolved by the Joda parser.
+     */
+    static final long NOT_RESOLVED = Long.MIN_VALUE;
+
+    private static final int NO_OFFSET = Integer.MIN_VALUE;
+
+    private final boolean dates;
+
+    private final boolean epochMillis;
+
+    private FastDateTimeParser(boolean dates, boolean epochMillis) {
+        this.dates = dates;
+        this.epochMillis = epochMillis;
+    }
+
+    /**
+     * Returns a parser for the given format, or <code>null</code> if the format has no fast path.
+     */
+    static FastDateTimeParser forFormat(String format) {
+        switch (format) {
+            case "strict_date_optional_time||epoch_millis":
+            case "strictDateOptionalTime||epoch_millis":
+                return new FastDateTimeParser(true, true);
+            case "strict_date_optional_time":
+            case "strictDateOptionalTime":
+                return new FastDateTimeParser(true, false);
+            case "epoch_millis":
+                return new FastDateTimeParser(false, true);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Parses the text, or returns <code>null</code> if it is left to the Joda parser.
+     */
+    ParsedDateTime parse(String text) {
+        final int length = text.length();
+        if (length == 0) {
+            return null;
+        }
+        final boolean negative = text.charAt(0) == '-';
+        final int digits = countDigits(text, negative ? 1 : 0);
+        if (digits == length - (negative ? 1 : 0)) {
+            // four digits are a year for the date parser, which comes first, and so are signed numbers it can read
+            if (epochMillis && digits > 0 && digits <= 18 && (dates == false || (digits != 4 && negative == false))) {
+                return new ParsedDateTime(Long.parseLong(text));
+            }
+            if (dates && negative == false && digits == 4) {
+                return new ParsedDateTime(number(text, 0, 4), -1, -1, -1, -1, -1, -1, NO_OFFSET);
+            }
+            return null;
+        }
+        return dates ? parseDateOptionalTime(text) : null;
+    }
+
+    private static ParsedDateTime parseDateOptionalTime(String text) {
+        final int length = text.length();
+        int month = -1;
+        int day = -1;
+        int hour = -1;
+        int minute = -1;
+        int second = -1;
+        int millis = -1;
+        int offset = NO_OFFSET;
+        if (length < 4 || countDigits(text, 0) < 4) {
+            return null;
+        }
+        final int year = number(text, 0, 4);
+        int pos = 4;
+        if (pos < length && text.charAt(pos) == '-') {
+            if (isNumber(text, pos + 1, 2) == false) {
+                return null;
+            }
+            month = number(text, pos + 1, 2);
+            pos += 3;
+            if (pos < length && text.charAt(pos) == '-') {
+                if (isNumber(text, pos + 1, 2) == false) {
+                    return null;
+                }
+                day = number(text, pos + 1, 2);
+                pos += 3;
+            }
+        }
+        if (pos < length) {
+            if (text.charAt(pos++) != 'T') {
+                return null;
+            }
+            // joda reads a sign right after the T as the sign of the hour
+            if (pos < length && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) {
+                return null;
+            }
+            if (isNumber(text, pos, 2)) {
+                hour = number(text, pos, 2);
+                pos += 2;
+                if (pos < length && text.charAt(pos) == ':') {
+                    if (isNumber(text, pos + 1, 2) == false) {
+                        return null;
+                    }
+                    minute = number(text, pos + 1, 2);
+                    pos += 3;
+                    if (pos < length && text.charAt(pos) == ':') {
+                        if (isNumber(text, pos + 1, 2) == false) {
+                            return null;
+                        }
+                        second = number(text, pos + 1, 2);
+                        pos += 3;
+                        if (pos < length && text.charAt(pos) == '.') {
+                            final int fraction = countDigits(text, pos + 1);
+                            if (fraction == 0 || fraction > 9) {
+                                return null;
+                            }
+                            // the digits beyond milliseconds are dropped
+                            millis = number(text, pos + 1, Math.min(3, fraction));
+                            for (int i = fraction; i < 3; i++) {
+                                millis *= 10;
+                            }
+                            pos += 1 + fraction;
+                        }
+                    }
+                }
+            }
+            if (pos < length) {
+                final char c = text.charAt(pos);
+                if (c == 'Z' && pos + 1 == length) {
+                    offset = 0;
+                } else if ((c == '+' || c == '-') && isNumber(text, pos + 1, 2)) {
+                    int offsetHours = number(text, pos + 1, 2);
+                    int offsetMinutes = 0;
+                    int end = pos + 3;
+                    if (end < length) {
+                        if (text.charAt(end) == ':') {
+                            end++;
+                        }
+                        if (end + 2 != length || isNumber(text, end, 2) == false) {
+                            return null;
+                        }
+                        offsetMinutes = number(text, end, 2);
+                    }
+                    if (offsetHours > 23 || offsetMinutes > 59) {
+                        return null;
+                    }
+                    offset = (offsetHours * 60 + offsetMinutes) * DateTimeConstants.MILLIS_PER_MINUTE;
+                    if (c == '-') {
+                        offset = -offset;
+                    }
+                } else {
+                    return null;
+                }
+            }
+        }
+        // out of range values are left to the Joda parser to report
+        if (month == 0 || month > 12 || day == 0 || (day > 0 && day > daysInMonth(year, month < 0 ? 1 : month))
+                || hour > 23 || minute > 59 || second > 59) {
+            return null;
+        }
+        return new ParsedDateTime(year, month, day, hour, minute, second, millis, offset);
+    }
+
+    private static int countDigits(String text, int from) {
+        int i = from;
+        while (i < text.length() && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            i++;
+        }
+        return i - from;
+    }
+
+    private static boolean isNumber(String text, int from, int digits) {
+        if (from + digits > text.length()) {
+            return false;
+        }
+        for (int i = from; i < from + digits; i++) {
+            final char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int number(String text, int from, int digits) {
+        int value = 0;
+        for (int i = from; i < from + digits; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * The days since 1970-01-01 of a date of the proleptic gregorian calendar.
+     */
+    static long daysFromCivil(int year, int month, int day) {
+        final int y = month <= 2 ? year - 1 : year;
+        final int era = (y >= 0 ? y : y - 399) / 400;
+        final int yearOfEra = y - era * 400;
+        final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    /**
+     * The fields of a parsed date, which resolve to an instant once the time zone and the rounding are known. Fields
+     * that are missing from the text are <code>-1</code> and take the values of the base date of {DateMathParser},
+     * either the start or the end of 1970-01-01.
+     */
+    static final class ParsedDateTime {
+        private final boolean epoch;
+        private final long epochMillis;
+        private final int year;
+        private final int month;
+        private final int day;
+        private final int hour;
+        private final int minute;
+        private final int second;
+        private final int millis;
+        private final int offset;
+
+        ParsedDateTime(long epochMillis) {
+            this.epoch = true;
+            this.epochMillis = epochMillis;
+            this.year = this.month = this.day = this.hour = this.minute = this.second = this.millis = -1;
+            this.offset = 0;
+        }
+
+        ParsedDateTime(int year, int month, int day, int hour, int minute, int second, int millis, int offset) {
+            this.epoch = false;
+            this.epochMillis = 0;
+            this.year = year;
+            this.month = month;
+            this.day = day;
+            this.hour = hour;
+            this.minute = minute;
+            this.second = second;
+            this.millis = millis;
+            this.offset = offset;
+        }
+
+        /**
+         * The instant in the given time zone, or {#NOT_RESOLVED} if the Joda parser has to decide: epoch millis
+         * outside of UTC are rejected by it and local times in a gap of the time zone fail with its message.
+         */
+        long toMillis(DateTimeZone timeZone, boolean roundUp) {
+            if (timeZone == null) {
+                timeZone = DateTimeZone.UTC;
+            }
+            if (epoch) {
+                return timeZone == DateTimeZone.UTC ? epochMillis : NOT_RESOLVED;
+            }
+            final long days = daysFromCivil(year, month < 0 ? 1 : month, day < 0 ? 1 : day);
+            final long local = days * DateTimeConstants.MILLIS_PER_DAY
+                    + (hour >= 0 ? hour : (roundUp ? 23 : 0)) * (long) DateTimeConstants.MILLIS_PER_HOUR
+                    + (minute >= 0 ? minute : (roundUp ? 59 : 0)) * (long) DateTimeConstants.MILLIS_PER_MINUTE
+                    + (second >= 0 ? second : (roundUp ? 59 : 0)) * (long) DateTimeConstants.MILLIS_PER_SECOND
+                    + (millis >= 0 ? millis : (roundUp ? 999 : 0));
+            if (offset != NO_OFFSET) {
+                return local - offset;
+            }
+            if (timeZone == DateTimeZone.UTC) {
+                return local;
+            }
+            final int zoneOffset = timeZone.getOffsetFromLocal(local);
+            final long instant = local - zoneOffset;
+            return zoneOffset == timeZone.getOffset(instant) ? instant : NOT_RESOLVED;
+        }
+    }
+}
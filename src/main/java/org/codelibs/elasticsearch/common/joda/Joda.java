@@ -20,6 +20,7 @@
 package org.codelibs.elasticsearch.common.joda;
 
 import org.codelibs.elasticsearch.common.Strings;
+import org.codelibs.elasticsearch.common.collect.Tuple;
 import org.joda.time.Chronology;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeField;
@@ -42,18 +43,38 @@ import org.joda.time.format.ISODateTimeFormat;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  *
  */
 public class Joda {
 
+    /**
+     * The maximum number of formatters that {#forPattern} keeps. Formats mostly come from mappings and queries, so
+     * there are few of them, but they are user input and the cache must not grow without bounds.
+     */
+    static final int MAX_CACHED_FORMATTERS = 256;
+
+    /**
+     * Cache hits only read the map and stamp the entry. Misses insert and evict the least recently used formatter under
+     * {#EVICTION_LOCK}, an entry is stamped with the number of misses seen when it was last used.
+     */
+    private static final ConcurrentMap<Tuple<String, Locale>, CachedFormatter> FORMATTERS = new ConcurrentHashMap<>();
+
+    private static final Object EVICTION_LOCK = new Object();
+
+    private static volatile long misses;
+
     public static FormatDateTimeFormatter forPattern(String input) {
         return forPattern(input, Locale.ROOT);
     }
 
     /**
      * Parses a joda based pattern, including some named ones (similar to the built in Joda ISO ones).
+     * Formatters are immutable, so the parsed ones are cached and shared.
      */
     public static FormatDateTimeFormatter forPattern(String input, Locale locale) {
         if (Strings.hasLength(input)) {
@@ -62,6 +83,67 @@ public class Joda {
         if (input == null || input.length() == 0) {
             throw new IllegalArgumentException("No date pattern provided");
         }
+        final Tuple<String, Locale> key = new Tuple<>(input, locale);
+        final CachedFormatter cached = FORMATTERS.get(key);
+        if (cached != null) {
+            cached.touch();
+            return cached.formatter;
+        }
+        // built outside of the lock, a formatter that is built twice concurrently is only cached once
+        final FormatDateTimeFormatter formatter = buildFormatter(input, locale);
+        synchronized (EVICTION_LOCK) {
+            misses++;
+            final CachedFormatter existing = FORMATTERS.putIfAbsent(key, new CachedFormatter(formatter, misses));
+            if (existing != null) {
+                existing.touch();
+                return existing.formatter;
+            }
+            if (FORMATTERS.size() > MAX_CACHED_FORMATTERS) {
+                evictLeastRecentlyUsed();
+            }
+            return formatter;
+        }
+    }
+
+    private static void evictLeastRecentlyUsed() {
+        Map.Entry<Tuple<String, Locale>, CachedFormatter> eldest = null;
+        for (Map.Entry<Tuple<String, Locale>, CachedFormatter> entry : FORMATTERS.entrySet()) {
+            if (eldest == null || entry.getValue().lastUsed < eldest.getValue().lastUsed) {
+                eldest = entry;
+            }
+        }
+        FORMATTERS.remove(eldest.getKey(), eldest.getValue());
+    }
+
+    static int cachedFormatters() {
+        return FORMATTERS.size();
+    }
+
+    static void clearCachedFormatters() {
+        synchronized (EVICTION_LOCK) {
+            FORMATTERS.clear();
+        }
+    }
+
+    private static final class CachedFormatter {
+        private final FormatDateTimeFormatter formatter;
+        private volatile long lastUsed;
+
+        CachedFormatter(FormatDateTimeFormatter formatter, long lastUsed) {
+            this.formatter = formatter;
+            this.lastUsed = lastUsed;
+        }
+
+        void touch() {
+            // only written when a miss happened since, so that hits on hot formatters do not write to shared memory
+            final long now = misses;
+            if (lastUsed != now) {
+                lastUsed = now;
+            }
+        }
+    }
+
+    private static FormatDateTimeFormatter buildFormatter(String input, Locale locale) {
 
         DateTimeFormatter formatter;
         if ("basicDate".equals(input) || "basic_date".equals(input)) {
@@ -18,6 +18,7 @@
  */
 package org.codelibs.elasticsearch.common.rounding;
 
+import org.apache.lucene.util.ArrayUtil;
 import org.codelibs.elasticsearch.ElasticsearchException;
 import org.codelibs.elasticsearch.common.io.stream.StreamInput;
 import org.codelibs.elasticsearch.common.io.stream.StreamOutput;
@@ -28,6 +29,7 @@ import org.joda.time.DateTimeZone;
 import org.joda.time.IllegalInstantException;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -51,6 +53,20 @@ public abstract class Rounding implements Streamable {
      */
     public abstract long nextRoundingValue(long value);
 
+    /**
+     * Returns a rounding that gives the same results as this one, but that looks the rounded values of the given range
+     * up in a table of bucket boundaries instead of computing them with the time zone rules. Values outside of the range
+     * are rounded by this rounding. Preparing visits every bucket of the range, so it pays off when many values are
+     * rounded, e.g. when bucketing timestamps client-side. Roundings that cannot be prepared, or that are as fast as a
+     * lookup such as hours in a fixed time zone, return themselves.
+     *
+     * @param minUtcMillis the smallest value that is looked up
+     * @param maxUtcMillis the largest value that is looked up
+     */
+    public Rounding prepare(long minUtcMillis, long maxUtcMillis) {
+        return this;
+    }
+
     @Override
     public abstract boolean equals(Object obj);
 
@@ -72,6 +88,10 @@ public abstract class Rounding implements Streamable {
 
         private DateTimeZone timeZone = DateTimeZone.UTC;
 
+        private boolean prepared = false;
+        private long preparedMin;
+        private long preparedMax;
+
         public Builder(DateTimeUnit unit) {
             this.unit = unit;
             this.interval = -1;
@@ -93,6 +113,20 @@ public abstract class Rounding implements Streamable {
             return this;
         }
 
+        /**
+         * Precompute the buckets between the given values, see {Rounding#prepare(long, long)}.
+         */
+        public Builder prepare(long minUtcMillis, long maxUtcMillis) {
+            if (minUtcMillis > maxUtcMillis) {
+                throw new IllegalArgumentException("[minUtcMillis] must be less than or equal to [maxUtcMillis] but was ["
+                        + minUtcMillis + "] > [" + maxUtcMillis + "]");
+            }
+            this.prepared = true;
+            this.preparedMin = minUtcMillis;
+            this.preparedMax = maxUtcMillis;
+            return this;
+        }
+
         public Rounding build() {
             Rounding timeZoneRounding;
             if (unit != null) {
@@ -100,6 +134,9 @@ public abstract class Rounding implements Streamable {
             } else {
                 timeZoneRounding = new TimeIntervalRounding(interval, timeZone);
             }
+            if (prepared) {
+                timeZoneRounding = timeZoneRounding.prepare(preparedMin, preparedMax);
+            }
             return timeZoneRounding;
         }
     }
@@ -178,6 +215,15 @@ public abstract class Rounding implements Streamable {
             return next;
         }
 
+        @Override
+        public Rounding prepare(long minUtcMillis, long maxUtcMillis) {
+            if (timeZone.isFixed() && field.getDurationField().isPrecise()) {
+                // rounding is arithmetic already
+                return this;
+            }
+            return new PreparedRounding(this, timeZone, minUtcMillis, maxUtcMillis);
+        }
+
         @Override
         public void readFrom(StreamInput in) throws IOException {
             unit = DateTimeUnit.resolve(in.readByte());
@@ -315,6 +361,15 @@ public abstract class Rounding implements Streamable {
             return timeZone.convertLocalToUTC(next, false);
         }
 
+        @Override
+        public Rounding prepare(long minUtcMillis, long maxUtcMillis) {
+            if (timeZone.isFixed()) {
+                // rounding is arithmetic already
+                return this;
+            }
+            return new PreparedRounding(this, timeZone, minUtcMillis, maxUtcMillis);
+        }
+
         @Override
         public void readFrom(StreamInput in) throws IOException {
             interval = in.readVLong();
@@ -345,6 +400,210 @@ public abstract class Rounding implements Streamable {
         }
     }
 
+    /**
+     * A rounding that looks rounded values up in a table of the buckets of a range of values. Bucket boundaries are
+     * found with the rounding it was prepared from: the next rounding value of a bucket is its end in most cases, and
+     * a binary search over that rounding finds the end otherwise. Values are looked up with an index of equally sized
+     * slots of the range, no larger than half of the average bucket, that gives the first bucket of every slot so that
+     * only a bucket or two have to be skipped. Away from the transitions of the time zone, the
+     * offset is fixed and every value between two boundaries rounds to the same value as the lower boundary. Buckets
+     * close to a transition, where roundings can go back in time, are left to the rounding it was prepared from.
+     */
+    static class PreparedRounding extends Rounding {
+
+        /** The maximum number of buckets of a prepared range, about 16MB of tables. */
+        static final int MAX_BUCKETS = 1 << 20;
+
+        /** Buckets this close to a transition are not looked up, it covers the largest offset changes. */
+        private static final long TRANSITION_MARGIN = TimeValue.timeValueHours(48).millis();
+
+        /** Marks the key of a bucket that is not looked up. */
+        private static final long NOT_PREPARED = Long.MIN_VALUE;
+
+        private final Rounding delegate;
+        private final long minUtcMillis;
+        private final long maxUtcMillis;
+        /**
+         * The smallest value of every bucket, the first bucket starts at the smallest value of the range. The last entry
+         * is {#end}, so that the end of every bucket can be read without a bound check.
+         */
+        private final long[] boundaries;
+        /** The rounded value of every bucket, or {#NOT_PREPARED}. */
+        private final long[] keys;
+        /** The smallest value after the range that is not in the last bucket. */
+        private final long end;
+        /** The first bucket of every slot of the range. */
+        private final int[] slots;
+        /** The binary logarithm of the size of the slots. */
+        private final int slotShift;
+
+        PreparedRounding(Rounding delegate, DateTimeZone timeZone, long minUtcMillis, long maxUtcMillis) {
+            if (minUtcMillis > maxUtcMillis) {
+                throw new IllegalArgumentException("[minUtcMillis] must be less than or equal to [maxUtcMillis] but was ["
+                        + minUtcMillis + "] > [" + maxUtcMillis + "]");
+            }
+            this.delegate = delegate;
+            this.minUtcMillis = minUtcMillis;
+            this.maxUtcMillis = maxUtcMillis;
+            long[] boundaries = new long[16];
+            long[] keys = new long[16];
+            int count = 0;
+            long boundary = minUtcMillis;
+            while (true) {
+                if (count == MAX_BUCKETS) {
+                    throw new IllegalArgumentException("Cannot prepare more than [" + MAX_BUCKETS + "] buckets for "
+                            + delegate + " between [" + minUtcMillis + "] and [" + maxUtcMillis + "]");
+                }
+                if (count == boundaries.length) {
+                    boundaries = ArrayUtil.grow(boundaries, count + 1);
+                    keys = Arrays.copyOf(keys, boundaries.length);
+                }
+                final long key = delegate.round(boundary);
+                boundaries[count] = boundary;
+                keys[count] = key;
+                count++;
+                boundary = nextBoundary(key, boundary);
+                if (boundary > maxUtcMillis) {
+                    break;
+                }
+            }
+            this.boundaries = Arrays.copyOf(boundaries, count + 1);
+            this.boundaries[count] = boundary;
+            this.keys = Arrays.copyOf(keys, count);
+            this.end = boundary;
+
+            final long range = end - minUtcMillis;
+            this.slotShift = 63 - Long.numberOfLeadingZeros(Math.max(1, range / count / 2));
+            this.slots = new int[(int) ((range - 1) >>> slotShift) + 1];
+            for (int slot = 0, bucket = 0; slot < slots.length; slot++) {
+                final long slotStart = minUtcMillis + ((long) slot << slotShift);
+                while (this.boundaries[bucket + 1] <= slotStart) {
+                    bucket++;
+                }
+                slots[slot] = bucket;
+            }
+
+            if (timeZone.isFixed() == false) {
+                long transition = timeZone.nextTransition(Math.min(this.keys[0], minUtcMillis) - TRANSITION_MARGIN);
+                long previous = Long.MIN_VALUE;
+                while (transition != previous && transition <= end + TRANSITION_MARGIN) {
+                    final int from = bucket(transition - TRANSITION_MARGIN);
+                    final int to = bucket(transition + TRANSITION_MARGIN);
+                    Arrays.fill(this.keys, from, to + 1, NOT_PREPARED);
+                    previous = transition;
+                    transition = timeZone.nextTransition(transition);
+                }
+            }
+        }
+
+        /** Returns the bucket of a value, or the first or the last bucket for values out of the range. */
+        private int bucket(long utcMillis) {
+            final int index = Arrays.binarySearch(boundaries, 0, keys.length, utcMillis);
+            return index < 0 ? Math.max(0, -2 - index) : index;
+        }
+
+        /**
+         * Returns the smallest value after <code>from</code> that rounds to a greater value than <code>key</code>, the
+         * rounded value of <code>from</code>.
+         */
+        private long nextBoundary(long key, long from) {
+            final long next = delegate.nextRoundingValue(key);
+            if (next > from && delegate.round(next) > key && delegate.round(next - 1) <= key) {
+                return next;
+            }
+            // find a value that rounds past the bucket, and then its boundary
+            long lo = from;
+            long step = Math.max(1, next - from);
+            long hi = lo + step;
+            while (delegate.round(hi) <= key) {
+                lo = hi;
+                step <<= 1;
+                hi = lo + step;
+            }
+            while (hi - lo > 1) {
+                final long mid = lo + (hi - lo) / 2;
+                if (delegate.round(mid) <= key) {
+                    lo = mid;
+                } else {
+                    hi = mid;
+                }
+            }
+            return hi;
+        }
+
+        @Override
+        public byte id() {
+            return delegate.id();
+        }
+
+        @Override
+        public long round(long utcMillis) {
+            if (utcMillis < minUtcMillis || utcMillis >= end) {
+                return delegate.round(utcMillis);
+            }
+            int index = slots[(int) ((utcMillis - minUtcMillis) >>> slotShift)];
+            while (boundaries[index + 1] <= utcMillis) {
+                index++;
+            }
+            final long key = keys[index];
+            return key == NOT_PREPARED ? delegate.round(utcMillis) : key;
+        }
+
+        @Override
+        public long nextRoundingValue(long utcMillis) {
+            return delegate.nextRoundingValue(utcMillis);
+        }
+
+        @Override
+        public Rounding prepare(long minUtcMillis, long maxUtcMillis) {
+            return delegate.prepare(minUtcMillis, maxUtcMillis);
+        }
+
+        /** Returns the number of buckets that are looked up. */
+        int preparedBuckets() {
+            int count = 0;
+            for (long key : keys) {
+                if (key != NOT_PREPARED) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            throw new IllegalStateException("prepared roundings are read back as the rounding they were prepared from");
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            delegate.writeTo(out);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(delegate, minUtcMillis, maxUtcMillis);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            PreparedRounding other = (PreparedRounding) obj;
+            return Objects.equals(delegate, other.delegate) && minUtcMillis == other.minUtcMillis
+                    && maxUtcMillis == other.maxUtcMillis;
+        }
+
+        @Override
+        public String toString() {
+            return delegate + "[" + minUtcMillis + "-" + maxUtcMillis + "]";
+        }
+    }
+
     public static class Streams {
 
         public static void write(Rounding rounding, StreamOutput out) throws IOException {
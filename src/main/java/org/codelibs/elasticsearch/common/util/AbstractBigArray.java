@@ -22,12 +22,15 @@ package org.codelibs.elasticsearch.common.util;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.RamUsageEstimator;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 /** Common implementation for array lists that slice data into fixed-size blocks. */
 abstract class AbstractBigArray extends AbstractArray {
 
-    private final Object recycler;
+    private static final ByteBuffer[] EMPTY_CACHE = new ByteBuffer[0];
+
+    private final PageCacheRecycler recycler;
+    private ByteBuffer[] cache = EMPTY_CACHE;
 
     private final int pageShift;
     private final int pageMask;
@@ -83,47 +86,48 @@ abstract class AbstractBigArray extends AbstractArray {
     }
 
     protected final byte[] newBytePage(int page) {
-        if (recycler != null) {
-            throw new UnsupportedOperationException("querybuilders does not support this operation.");
-        } else {
-            return new byte[BigArrays.BYTE_PAGE_SIZE];
-        }
+        return new byte[BigArrays.BYTE_PAGE_SIZE];
     }
 
     protected final int[] newIntPage(int page) {
-        if (recycler != null) {
-            throw new UnsupportedOperationException("querybuilders does not support this operation.");
-        } else {
-            return new int[BigArrays.INT_PAGE_SIZE];
-        }
+        return new int[BigArrays.INT_PAGE_SIZE];
     }
 
     protected final long[] newLongPage(int page) {
-        if (recycler != null) {
-            throw new UnsupportedOperationException("querybuilders does not support this operation.");
-        } else {
-            return new long[BigArrays.LONG_PAGE_SIZE];
-        }
+        return new long[BigArrays.LONG_PAGE_SIZE];
     }
 
     protected final Object[] newObjectPage(int page) {
-        if (recycler != null) {
-            throw new UnsupportedOperationException("querybuilders does not support this operation.");
-        } else {
-            return new Object[BigArrays.OBJECT_PAGE_SIZE];
+        return new Object[BigArrays.OBJECT_PAGE_SIZE];
+    }
+
+    /** Obtain a page from the recycler, it is given back on {#releasePage(int)} or when this array is closed. */
+    protected final ByteBuffer newBufferPage(int page) {
+        final ByteBuffer buffer = recycler.obtain();
+        if (page >= cache.length) {
+            cache = ArrayUtil.grow(cache, page + 1);
+        }
+        cache[page] = buffer;
+        if (clearOnResize) {
+            // recycled pages keep the content of their previous owner
+            for (int i = 0; i < BigArrays.PAGE_SIZE_IN_BYTES; i += Long.BYTES) {
+                buffer.putLong(i, 0L);
+            }
         }
+        return buffer;
     }
 
     protected final void releasePage(int page) {
-        if (recycler != null) {
-            throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        if (page < cache.length && cache[page] != null) {
+            recycler.release(cache[page]);
+            cache[page] = null;
         }
     }
 
     @Override
     protected final void doClose() {
-        if (recycler != null) {
-            throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        for (int i = 0; i < cache.length; i++) {
+            releasePage(i);
         }
     }
 
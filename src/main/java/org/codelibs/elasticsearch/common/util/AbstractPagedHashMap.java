@@ -19,6 +19,7 @@
 
 package org.codelibs.elasticsearch.common.util;
 
+import com.carrotsearch.hppc.BitMixer;
 import org.codelibs.elasticsearch.common.lease.Releasable;
 
 /**
@@ -33,7 +34,7 @@ abstract class AbstractPagedHashMap implements Releasable {
     static long hash(long value) {
         // Don't use the value directly. Under some cases eg dates, it could be that the low bits don't carry much value and we would like
         // all bits of the hash to carry as much value
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        return BitMixer.mix64(value);
     }
 
     static long hash(double value) {
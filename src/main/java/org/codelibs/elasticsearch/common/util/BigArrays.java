@@ -22,9 +22,13 @@ package org.codelibs.elasticsearch.common.util;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.RamUsageEstimator;
+import org.codelibs.elasticsearch.common.Nullable;
+import org.codelibs.elasticsearch.common.breaker.CircuitBreaker;
+import org.codelibs.elasticsearch.common.breaker.CircuitBreakingException;
 import org.codelibs.elasticsearch.common.lease.Releasable;
 import org.codelibs.elasticsearch.common.lease.Releasables;
 import org.codelibs.elasticsearch.common.settings.Settings;
+import org.codelibs.elasticsearch.indices.breaker.CircuitBreakerService;
 
 import java.util.Arrays;
 
@@ -360,22 +364,38 @@ public class BigArrays implements Releasable {
 
     }
 
-    final Object recycler;
-    final boolean checkBreaker;
+    final PageCacheRecycler recycler;
+    private final CircuitBreakerService breakerService;
+    private final boolean checkBreaker;
     private final BigArrays circuitBreakingInstance;
 
     public BigArrays(Settings settings) {
+        this(settings, null);
+    }
+
+    public BigArrays(Settings settings, @Nullable final CircuitBreakerService breakerService) {
         // Checking the breaker is disabled if not specified
-        this(new PageCacheRecycler(settings), false);
+        this(new PageCacheRecycler(settings), breakerService, false);
     }
+
     // public for tests
     public BigArrays(PageCacheRecycler recycler, boolean checkBreaker) {
+        this(recycler, null, checkBreaker);
+    }
+
+    /**
+     * @param recycler       the recycler of pages, or <code>null</code> to allocate pages on the heap
+     * @param breakerService the service whose {CircuitBreaker#REQUEST} breaker accounts for the arrays, or <code>null</code>
+     * @param checkBreaker   whether allocating arrays may trip the breaker, or only adds to its estimate
+     */
+    public BigArrays(@Nullable PageCacheRecycler recycler, @Nullable final CircuitBreakerService breakerService, boolean checkBreaker) {
         this.checkBreaker = checkBreaker;
         this.recycler = recycler;
+        this.breakerService = breakerService;
         if (checkBreaker) {
             this.circuitBreakingInstance = this;
         } else {
-            this.circuitBreakingInstance = new BigArrays(recycler, true);
+            this.circuitBreakingInstance = new BigArrays(recycler, breakerService, true);
         }
     }
 
@@ -385,6 +405,34 @@ public class BigArrays implements Releasable {
      * without tripping
      */
     void adjustBreaker(long delta) {
+        if (this.breakerService != null) {
+            CircuitBreaker breaker = this.breakerService.getBreaker(CircuitBreaker.REQUEST);
+            if (this.checkBreaker) {
+                // checking breaker means potentially tripping, but it doesn't
+                // have to if the delta is negative
+                if (delta > 0) {
+                    try {
+                        breaker.addEstimateBytesAndMaybeBreak(delta, "<reused_arrays>");
+                    } catch (CircuitBreakingException e) {
+                        // since we've already created the data, we need to
+                        // add it so closing the stream re-adjusts properly
+                        breaker.addWithoutBreaking(delta);
+                        // re-throw the original exception
+                        throw e;
+                    }
+                } else {
+                    breaker.addWithoutBreaking(delta);
+                }
+            } else {
+                // even if we are not checking the breaker, we need to adjust
+                // its totals, so add without breaking
+                breaker.addWithoutBreaking(delta);
+            }
+        }
+    }
+
+    public CircuitBreakerService breakerService() {
+        return this.circuitBreakingInstance.breakerService;
     }
 
     /**
@@ -424,8 +472,6 @@ public class BigArrays implements Releasable {
         final ByteArray array;
         if (size > BYTE_PAGE_SIZE) {
             array = new BigByteArray(size, this, clearOnResize);
-        } else if (size >= BYTE_PAGE_SIZE / 2 && recycler != null) {
-            throw new UnsupportedOperationException("querybuilders does not support this operation.");
         } else {
             array = new ByteArrayWrapper(this, new byte[(int) size], size, clearOnResize);
         }
@@ -503,10 +549,10 @@ public class BigArrays implements Releasable {
      */
     public IntArray newIntArray(long size, boolean clearOnResize) {
         final IntArray array;
-        if (size > INT_PAGE_SIZE) {
+        if (size >= INT_PAGE_SIZE / 2 && recycler != null) {
+            array = new BufferIntArray(size, this, clearOnResize);
+        } else if (size > INT_PAGE_SIZE) {
             array = new BigIntArray(size, this, clearOnResize);
-        } else if (size >= INT_PAGE_SIZE / 2 && recycler != null) {
-            throw new UnsupportedOperationException("querybuilders does not support this operation.");
         } else {
             array = new IntArrayWrapper(this, new int[(int) size], size, clearOnResize);
         }
@@ -525,6 +571,8 @@ public class BigArrays implements Releasable {
     public IntArray resize(IntArray array, long size) {
         if (array instanceof BigIntArray) {
             return resizeInPlace((BigIntArray) array, size);
+        } else if (array instanceof BufferIntArray) {
+            return resizeInPlace((BufferIntArray) array, size);
         } else {
             AbstractArray arr = (AbstractArray) array;
             final IntArray newArray = newIntArray(size, arr.clearOnResize);
@@ -552,10 +600,10 @@ public class BigArrays implements Releasable {
      */
     public LongArray newLongArray(long size, boolean clearOnResize) {
         final LongArray array;
-        if (size > LONG_PAGE_SIZE) {
+        if (size >= LONG_PAGE_SIZE / 2 && recycler != null) {
+            array = new BufferLongArray(size, this, clearOnResize);
+        } else if (size > LONG_PAGE_SIZE) {
             array = new BigLongArray(size, this, clearOnResize);
-        } else if (size >= LONG_PAGE_SIZE / 2 && recycler != null) {
-            throw new UnsupportedOperationException("querybuilders does not support this operation.");
         } else {
             array = new LongArrayWrapper(this, new long[(int) size], size, clearOnResize);
         }
@@ -574,6 +622,8 @@ public class BigArrays implements Releasable {
     public LongArray resize(LongArray array, long size) {
         if (array instanceof BigLongArray) {
             return resizeInPlace((BigLongArray) array, size);
+        } else if (array instanceof BufferLongArray) {
+            return resizeInPlace((BufferLongArray) array, size);
         } else {
             AbstractArray arr = (AbstractArray) array;
             final LongArray newArray = newLongArray(size, arr.clearOnResize);
@@ -601,10 +651,10 @@ public class BigArrays implements Releasable {
      */
     public DoubleArray newDoubleArray(long size, boolean clearOnResize) {
         final DoubleArray arr;
-        if (size > LONG_PAGE_SIZE) {
+        if (size >= LONG_PAGE_SIZE / 2 && recycler != null) {
+            arr = new BufferDoubleArray(size, this, clearOnResize);
+        } else if (size > LONG_PAGE_SIZE) {
             arr = new BigDoubleArray(size, this, clearOnResize);
-        } else if (size >= LONG_PAGE_SIZE / 2 && recycler != null) {
-            throw new UnsupportedOperationException("querybuilders does not support this operation.");
         } else {
             arr = new DoubleArrayWrapper(this, new long[(int) size], size, clearOnResize);
         }
@@ -620,6 +670,8 @@ public class BigArrays implements Releasable {
     public DoubleArray resize(DoubleArray array, long size) {
         if (array instanceof BigDoubleArray) {
             return resizeInPlace((BigDoubleArray) array, size);
+        } else if (array instanceof BufferDoubleArray) {
+            return resizeInPlace((BufferDoubleArray) array, size);
         } else {
             AbstractArray arr = (AbstractArray) array;
             final DoubleArray newArray = newDoubleArray(size, arr.clearOnResize);
@@ -647,10 +699,10 @@ public class BigArrays implements Releasable {
      */
     public FloatArray newFloatArray(long size, boolean clearOnResize) {
         final FloatArray array;
-        if (size > INT_PAGE_SIZE) {
+        if (size >= INT_PAGE_SIZE / 2 && recycler != null) {
+            array = new BufferFloatArray(size, this, clearOnResize);
+        } else if (size > INT_PAGE_SIZE) {
             array = new BigFloatArray(size, this, clearOnResize);
-        } else if (size >= INT_PAGE_SIZE / 2 && recycler != null) {
-            throw new UnsupportedOperationException("querybuilders does not support this operation.");
         } else {
             array = new FloatArrayWrapper(this, new int[(int) size], size, clearOnResize);
         }
@@ -666,6 +718,8 @@ public class BigArrays implements Releasable {
     public FloatArray resize(FloatArray array, long size) {
         if (array instanceof BigFloatArray) {
             return resizeInPlace((BigFloatArray) array, size);
+        } else if (array instanceof BufferFloatArray) {
+            return resizeInPlace((BufferFloatArray) array, size);
         } else {
             AbstractArray arr = (AbstractArray) array;
             final FloatArray newArray = newFloatArray(size, arr.clearOnResize);
@@ -694,8 +748,6 @@ public class BigArrays implements Releasable {
         final ObjectArray<T> array;
         if (size > OBJECT_PAGE_SIZE) {
             array = new BigObjectArray<>(size, this);
-        } else if (size >= OBJECT_PAGE_SIZE / 2 && recycler != null) {
-            throw new UnsupportedOperationException("querybuilders does not support this operation.");
         } else {
             array = new ObjectArrayWrapper<>(this, new Object[(int) size], size);
         }
@@ -19,79 +19,184 @@
 
 package org.codelibs.elasticsearch.common.util;
 
+import com.carrotsearch.hppc.BitMixer;
 import org.codelibs.elasticsearch.common.lease.Releasable;
 import org.codelibs.elasticsearch.common.settings.Setting;
 import org.codelibs.elasticsearch.common.settings.Setting.Property;
 import org.codelibs.elasticsearch.common.settings.Settings;
 import org.codelibs.elasticsearch.common.unit.ByteSizeValue;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-/** A recycler of fixed-size pages. */
+/**
+ * A recycler of fixed-size pages.
+ *
+ * Pages are direct {ByteBuffer}s of {BigArrays#PAGE_SIZE_IN_BYTES} bytes in the native byte order, so a single pool serves
+ * the int, long, float and double arrays of {BigArrays} through typed views of the same pages, and the pooled pages live
+ * outside of the heap where they are not copied around by the garbage collector. Released pages are kept in stacks that
+ * are striped across threads so that obtaining and releasing a page are constant-time operations that rarely contend.
+ *
+ * At most {#LIMIT_HEAP_SETTING} bytes of pages are allocated outside of the heap. Once that many pages are in use, new
+ * pages are allocated on the heap and left to the garbage collector on release.
+ */
 public class PageCacheRecycler implements Releasable {
 
     public static final Setting<Type> TYPE_SETTING =
         new Setting<>("cache.recycler.page.type", Type.CONCURRENT.name(), Type::parse, Property.NodeScope);
     public static final Setting<ByteSizeValue> LIMIT_HEAP_SETTING  =
         Setting.memorySizeSetting("cache.recycler.page.limit.heap", "10%", Property.NodeScope);
+    /** Pages are shared by all types, the weights of the types are ignored. */
+    @Deprecated
     public static final Setting<Double> WEIGHT_BYTES_SETTING  =
         Setting.doubleSetting("cache.recycler.page.weight.bytes", 1d, 0d, Property.NodeScope);
+    /** Pages are shared by all types, the weights of the types are ignored. */
+    @Deprecated
     public static final Setting<Double> WEIGHT_LONG_SETTING  =
         Setting.doubleSetting("cache.recycler.page.weight.longs", 1d, 0d, Property.NodeScope);
+    /** Pages are shared by all types, the weights of the types are ignored. */
+    @Deprecated
     public static final Setting<Double> WEIGHT_INT_SETTING  =
         Setting.doubleSetting("cache.recycler.page.weight.ints", 1d, 0d, Property.NodeScope);
-    // object pages are less useful to us so we give them a lower weight by default
+    /** Pages are shared by all types, the weights of the types are ignored. */
+    @Deprecated
     public static final Setting<Double> WEIGHT_OBJECTS_SETTING  =
         Setting.doubleSetting("cache.recycler.page.weight.objects", 0.1d, 0d, Property.NodeScope);
 
-    @Override
-    public void close() {
+    private final Type type;
+    private final int maxPageCount;
+    private final ArrayDeque<ByteBuffer>[] stripes;
+    private final int stripeMask;
+
+    /** Number of pages that were allocated outside of the heap, pooled or in use. */
+    private final AtomicInteger allocatedPages = new AtomicInteger();
+    /** Number of pages that were obtained and not released yet. */
+    private final AtomicLong outstandingPages = new AtomicLong();
+
+    private volatile boolean closed;
+
+    public PageCacheRecycler(Settings settings) {
+        this(TYPE_SETTING.get(settings), LIMIT_HEAP_SETTING.get(settings));
     }
 
-    protected PageCacheRecycler(Settings settings) {
-        TYPE_SETTING .get(settings);
-        final long limit = LIMIT_HEAP_SETTING .get(settings).getBytes();
+    /**
+     * @param type  how released pages are pooled
+     * @param limit the maximum amount of memory to allocate outside of the heap
+     */
+    public PageCacheRecycler(Type type, ByteSizeValue limit) {
+        this.type = type;
+        this.maxPageCount = type == Type.NONE ? 0 : (int) Math.min(Integer.MAX_VALUE, limit.getBytes() / BigArrays.PAGE_SIZE_IN_BYTES);
+        final int numStripes = type.numStripes();
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        final ArrayDeque<ByteBuffer>[] stripes = new ArrayDeque[numStripes];
+        for (int i = 0; i < numStripes; i++) {
+            stripes[i] = new ArrayDeque<>();
+        }
+        this.stripes = stripes;
+        this.stripeMask = numStripes - 1;
+    }
 
-        // We have a global amount of memory that we need to divide across data types.
-        // Since some types are more useful than other ones we give them different weights.
-        // Trying to store all of them in a single stack would be problematic because eg.
-        // a work load could fill the recycler with only byte[] pages and then another
-        // workload that would work with double[] pages couldn't recycle them because there
-        // is no space left in the stack/queue. LRU/LFU policies are not an option either
-        // because they would make obtain/release too costly: we really need constant-time
-        // operations.
-        // Ultimately a better solution would be to only store one kind of data and have the
-        // ability to interpret it either as a source of bytes, doubles, longs, etc. eg. thanks
-        // to direct ByteBuffers or sun.misc.Unsafe on a byte[] but this would have other issues
-        // that would need to be addressed such as garbage collection of native memory or safety
-        // of Unsafe writes.
-        final double bytesWeight = WEIGHT_BYTES_SETTING .get(settings);
-        final double intsWeight = WEIGHT_INT_SETTING .get(settings);
-        final double longsWeight = WEIGHT_LONG_SETTING .get(settings);
-        final double objectsWeight = WEIGHT_OBJECTS_SETTING .get(settings);
+    /**
+     * Return a page of {BigArrays#PAGE_SIZE_IN_BYTES} bytes in the native byte order. The content of a recycled page is
+     * not cleared.
+     */
+    public ByteBuffer obtain() {
+        outstandingPages.incrementAndGet();
+        if (maxPageCount > 0) {
+            final ArrayDeque<ByteBuffer> stripe = stripe();
+            ByteBuffer page;
+            synchronized (stripe) {
+                page = stripe.pollLast();
+            }
+            if (page != null) {
+                return page;
+            }
+            if (allocatedPages.incrementAndGet() <= maxPageCount) {
+                return ByteBuffer.allocateDirect(BigArrays.PAGE_SIZE_IN_BYTES).order(ByteOrder.nativeOrder());
+            }
+            allocatedPages.decrementAndGet();
+        }
+        return ByteBuffer.allocate(BigArrays.PAGE_SIZE_IN_BYTES).order(ByteOrder.nativeOrder());
+    }
 
-        final double totalWeight = bytesWeight + intsWeight + longsWeight + objectsWeight;
-        final int maxPageCount = (int) Math.min(Integer.MAX_VALUE, limit / BigArrays.PAGE_SIZE_IN_BYTES);
+    /**
+     * Give back a page that was returned by {#obtain()}. The page must not be used anymore.
+     */
+    public void release(ByteBuffer page) {
+        outstandingPages.decrementAndGet();
+        if (page.isDirect()) {
+            final ArrayDeque<ByteBuffer> stripe = stripe();
+            synchronized (stripe) {
+                if (closed) {
+                    allocatedPages.decrementAndGet();
+                } else {
+                    stripe.addLast(page);
+                }
+            }
+        }
+    }
 
-        final int maxBytePageCount = (int) (bytesWeight * maxPageCount / totalWeight);
+    private ArrayDeque<ByteBuffer> stripe() {
+        return stripes[BitMixer.mix((int) Thread.currentThread().getId()) & stripeMask];
+    }
 
-        final int maxIntPageCount = (int) (intsWeight * maxPageCount / totalWeight);
+    /** Return the type of this recycler. */
+    public Type getType() {
+        return type;
+    }
 
-        final int maxLongPageCount = (int) (longsWeight * maxPageCount / totalWeight);
+    /** Return the number of pages that were obtained and not released yet. */
+    public long outstandingPages() {
+        return outstandingPages.get();
+    }
 
-        final int maxObjectPageCount = (int) (objectsWeight * maxPageCount / totalWeight);
+    /** Return the number of bytes of pages that are allocated outside of the heap, whether they are pooled or in use. */
+    public long offHeapSizeInBytes() {
+        return (long) allocatedPages.get() * BigArrays.PAGE_SIZE_IN_BYTES;
+    }
 
-        assert BigArrays.PAGE_SIZE_IN_BYTES * (maxBytePageCount + maxIntPageCount + maxLongPageCount + maxObjectPageCount) <= limit;
+    /**
+     * Drop the pooled pages. Their memory is freed once they are garbage collected, pages that are still in use are not
+     * pooled anymore when they are released.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (ArrayDeque<ByteBuffer> stripe : stripes) {
+            synchronized (stripe) {
+                allocatedPages.addAndGet(-stripe.size());
+                stripe.clear();
+            }
+        }
     }
 
     public enum Type {
         QUEUE {
+            @Override
+            int numStripes() {
+                return 1;
+            }
         },
         CONCURRENT {
+            @Override
+            int numStripes() {
+                // a power of two of two to four times as many stripes as processors, to keep contention low
+                return Integer.highestOneBit(Runtime.getRuntime().availableProcessors()) << 2;
+            }
         },
         NONE {
+            @Override
+            int numStripes() {
+                return 1;
+            }
         };
 
+        abstract int numStripes();
+
         public static Type parse(String type) {
             try {
                 return Type.valueOf(type.toUpperCase(Locale.ROOT));
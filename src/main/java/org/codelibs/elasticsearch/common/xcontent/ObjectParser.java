@@ -81,7 +81,11 @@ public final class ObjectParser<Value, Context extends ParseFieldMatcherSupplier
         };
     }
 
-    private final Map<String, FieldParser> fieldParserMap = new HashMap<>();
+    private final Map<String, FieldParser<Value>> fieldParserMap = new HashMap<>();
+    /**
+     * The declared fields compiled for the lookups of {#parse}, rebuilt after fields were declared.
+     */
+    private volatile FieldTable<Value> fieldTable;
     private final String name;
     private final Supplier<Value> valueSupplier;
     /**
@@ -153,12 +157,23 @@ public final class ObjectParser<Value, Context extends ParseFieldMatcherSupplier
             }
         }
 
+        FieldTable<Value> fieldTable = this.fieldTable;
+        if (fieldTable == null) {
+            fieldTable = compileFields();
+        }
         FieldParser<Value> fieldParser = null;
+        boolean preferredName = false;
         String currentFieldName = null;
         while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
             if (token == XContentParser.Token.FIELD_NAME) {
                 currentFieldName = parser.currentName();
-                fieldParser = getParser(currentFieldName);
+                final int slot = fieldTable.slot(currentFieldName);
+                if (slot < 0) {
+                    fieldParser = getParser(currentFieldName);
+                } else {
+                    fieldParser = fieldTable.parsers[slot];
+                    preferredName = fieldTable.preferred[slot];
+                }
             } else {
                 if (currentFieldName == null) {
                     throw new IllegalStateException("[" + name  + "] no field found");
@@ -167,15 +182,28 @@ public final class ObjectParser<Value, Context extends ParseFieldMatcherSupplier
                     assert ignoreUnknownFields : "this should only be possible if configured to ignore known fields";
                     parser.skipChildren(); // noop if parser points to a value, skips children if parser is start object or start array
                 } else {
-                    fieldParser.assertSupports(name, token, currentFieldName, context.getParseFieldMatcher());
+                    if (preferredName) {
+                        // only deprecated names need the checks and the warnings of the parse field
+                        fieldParser.assertSupportsToken(name, token, currentFieldName);
+                    } else {
+                        fieldParser.assertSupports(name, token, currentFieldName, context.getParseFieldMatcher());
+                    }
                     parseSub(parser, fieldParser, currentFieldName, value, context);
                 }
                 fieldParser = null;
+                preferredName = false;
             }
         }
         return value;
     }
 
+    private synchronized FieldTable<Value> compileFields() {
+        if (fieldTable == null) {
+            fieldTable = new FieldTable<>(fieldParserMap);
+        }
+        return fieldTable;
+    }
+
     @Override
     public Value apply(XContentParser parser, Context context) {
         if (valueSupplier == null) {
@@ -198,9 +226,12 @@ public final class ObjectParser<Value, Context extends ParseFieldMatcherSupplier
         if (type == null) {
             throw new IllegalArgumentException("[type] is required");
         }
-        FieldParser fieldParser = new FieldParser(p, type.supportedTokens(), parseField, type);
-        for (String fieldValue : parseField.getAllNamesIncludedDeprecated()) {
-            fieldParserMap.putIfAbsent(fieldValue, fieldParser);
+        FieldParser<Value> fieldParser = new FieldParser<>(p, type.supportedTokens(), parseField, type);
+        synchronized (this) {
+            for (String fieldValue : parseField.getAllNamesIncludedDeprecated()) {
+                fieldParserMap.putIfAbsent(fieldValue, fieldParser);
+            }
+            fieldTable = null;
         }
     }
 
@@ -395,7 +426,7 @@ public final class ObjectParser<Value, Context extends ParseFieldMatcherSupplier
         }
     }
 
-    private FieldParser getParser(String fieldName) {
+    private FieldParser<Value> getParser(String fieldName) {
         FieldParser<Value> parser = fieldParserMap.get(fieldName);
         if (parser == null && false == ignoreUnknownFields) {
             throw new IllegalArgumentException("[" + name  + "] unknown field [" + fieldName + "], parser not found");
@@ -420,6 +451,10 @@ public final class ObjectParser<Value, Context extends ParseFieldMatcherSupplier
             if (parseField.match(currentFieldName) == false) {
                 throw new IllegalStateException("[" + parserName  + "] parsefield doesn't accept: " + currentFieldName);
             }
+            assertSupportsToken(parserName, token, currentFieldName);
+        }
+
+        void assertSupportsToken(String parserName, XContentParser.Token token, String currentFieldName) {
             if (supportedTokens.contains(token) == false) {
                 throw new IllegalArgumentException(
                         "[" + parserName + "] " + currentFieldName + " doesn't support values of type: " + token);
@@ -444,6 +479,85 @@ public final class ObjectParser<Value, Context extends ParseFieldMatcherSupplier
         }
     }
 
+    /**
+     * An immutable open addressing table of the declared field names. The seed of the hash is chosen so that every name
+     * has a slot of its own if possible, so that a lookup is a single probe, and names are compared by identity first
+     * since the parsers intern the field names they read. Names that are only accepted through the deprecation
+     * checks of their {ParseField} are not flagged as preferred.
+     */
+    static final class FieldTable<Value> {
+        private static final int MAX_SEEDS = 64;
+
+        private final String[] names;
+        private final FieldParser<Value>[] parsers;
+        private final boolean[] preferred;
+        private final int mask;
+        private final int seed;
+
+        FieldTable(Map<String, FieldParser<Value>> fieldParsers) {
+            final int size = Integer.highestOneBit(Math.max(fieldParsers.size(), 1) * 4 - 1) << 1;
+            final String[] keys = fieldParsers.keySet().toArray(new String[fieldParsers.size()]);
+            this.mask = size - 1;
+            this.seed = perfectSeed(keys, mask);
+            this.names = new String[size];
+            @SuppressWarnings("unchecked")
+            final FieldParser<Value>[] parsers = (FieldParser<Value>[]) new FieldParser<?>[size];
+            this.parsers = parsers;
+            this.preferred = new boolean[size];
+            for (Map.Entry<String, FieldParser<Value>> entry : fieldParsers.entrySet()) {
+                int slot = hash(entry.getKey(), seed) & mask;
+                while (names[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                final ParseField parseField = entry.getValue().parseField;
+                names[slot] = entry.getKey();
+                parsers[slot] = entry.getValue();
+                preferred[slot] = parseField.getAllReplacedWith() == null && parseField.getPreferredName().equals(entry.getKey());
+            }
+        }
+
+        private static int perfectSeed(String[] keys, int mask) {
+            final boolean[] used = new boolean[mask + 1];
+            for (int seed = 0; seed < MAX_SEEDS; seed++) {
+                Arrays.fill(used, false);
+                boolean perfect = true;
+                for (String key : keys) {
+                    final int slot = hash(key, seed) & mask;
+                    if (used[slot]) {
+                        perfect = false;
+                        break;
+                    }
+                    used[slot] = true;
+                }
+                if (perfect) {
+                    return seed;
+                }
+            }
+            // names with the same hash code, the lookups probe the next slots
+            return 0;
+        }
+
+        private static int hash(String name, int seed) {
+            final int h = (name.hashCode() + seed) * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        /**
+         * Returns the slot of the field name, or -1 if it was not declared.
+         */
+        int slot(String name) {
+            int slot = hash(name, seed) & mask;
+            String candidate;
+            while ((candidate = names[slot]) != null) {
+                if (candidate == name || candidate.equals(name)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+    }
+
     public enum ValueType {
         STRING(VALUE_STRING),
         STRING_OR_NULL(VALUE_STRING, VALUE_NULL),
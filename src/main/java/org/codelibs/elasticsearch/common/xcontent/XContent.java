@@ -19,12 +19,16 @@
 
 package org.codelibs.elasticsearch.common.xcontent;
 
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
 import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.io.stream.ByteBufferStreamInput;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.Set;
 
@@ -79,9 +83,30 @@ public interface XContent {
     XContentParser createParser(NamedXContentRegistry xContentRegistry, byte[] data, int offset, int length) throws IOException;
 
     /**
-     * Creates a parser over the provided bytes.
+     * Creates a parser over the provided bytes. Bytes backed by a single array are parsed in place, other bytes are
+     * read page by page.
+     */
+    default XContentParser createParser(NamedXContentRegistry xContentRegistry, BytesReference bytes) throws IOException {
+        final BytesRefIterator iterator = bytes.iterator();
+        final BytesRef first = iterator.next();
+        if (first == null) {
+            return createParser(xContentRegistry, BytesRef.EMPTY_BYTES);
+        } else if (iterator.next() == null) {
+            return createParser(xContentRegistry, first.bytes, first.offset, first.length);
+        }
+        return createParser(xContentRegistry, bytes.streamInput());
+    }
+
+    /**
+     * Creates a parser over the remaining bytes of the provided buffer, without changing its position. A heap buffer is
+     * parsed in place, the content of a direct or memory-mapped buffer is read without copying it to the heap first.
      */
-    XContentParser createParser(NamedXContentRegistry xContentRegistry, BytesReference bytes) throws IOException;
+    default XContentParser createParser(NamedXContentRegistry xContentRegistry, ByteBuffer buffer) throws IOException {
+        if (buffer.hasArray()) {
+            return createParser(xContentRegistry, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        return createParser(xContentRegistry, new ByteBufferStreamInput(buffer.duplicate()));
+    }
 
     /**
      * Creates a parser over the provided reader.
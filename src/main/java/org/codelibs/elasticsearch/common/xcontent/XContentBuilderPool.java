@@ -0,0 +1,177 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.elasticsearch.common.xcontent;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.codelibs.elasticsearch.common.bytes.BytesArray;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.codelibs.elasticsearch.common.lease.Releasable;
+import org.codelibs.elasticsearch.common.util.BigArrays;
+
+import java.io.IOException;
+
+/**
+ * A per-thread cache of the output buffers backing short lived {XContentBuilder}s.
+ * <p>
+ * Each thread keeps at most one {BytesStreamOutput}. {#acquire(XContentType)} takes it out of the
+ * thread's slot and wraps it into a fresh {XContentBuilder}; closing the returned {Lease} resets the
+ * buffer and puts it back. Nested or leaked leases never share a buffer: when the slot is empty a new
+ * buffer is allocated, and a buffer that grew beyond {#MAX_RETAINED_BYTES} is dropped instead of being
+ * kept around.
+ */
+public final class XContentBuilderPool {
+
+    /** Buffers that grew larger than this are released to the garbage collector rather than cached. */
+    public static final int MAX_RETAINED_BYTES = 4 * BigArrays.PAGE_SIZE_IN_BYTES;
+
+    private static final ThreadLocal<Slot> SLOTS = ThreadLocal.withInitial(Slot::new);
+
+    private XContentBuilderPool() {
+    }
+
+    /**
+     * Returns a {Lease} holding an empty {XContentBuilder} of the given type. The lease must be closed
+     * once the rendered content has been consumed, see {Lease#copyBytes()} and {Lease#string()}.
+     */
+    public static Lease acquire(XContentType type) throws IOException {
+        return acquire(type.xContent());
+    }
+
+    /**
+     * Returns a {Lease} holding an empty {XContentBuilder} of the given {XContent}, for content types that are
+     * configured differently from the default of their {XContentType}.
+     */
+    public static Lease acquire(XContent xContent) throws IOException {
+        final Slot slot = SLOTS.get();
+        BytesStreamOutput buffer = slot.buffer;
+        if (buffer == null) {
+            buffer = new BytesStreamOutput(BigArrays.PAGE_SIZE_IN_BYTES);
+        } else {
+            slot.buffer = null;
+        }
+        return new Lease(xContent, buffer);
+    }
+
+    private static void release(BytesStreamOutput buffer) {
+        if (buffer.ramBytesUsed() > MAX_RETAINED_BYTES) {
+            return;
+        }
+        final Slot slot = SLOTS.get();
+        if (slot.buffer == null) {
+            buffer.reset();
+            slot.buffer = buffer;
+        }
+    }
+
+    /**
+     * Returns the number of buffers cached for the current thread, either 0 or 1.
+     */
+    static int pooledBuffers() {
+        return SLOTS.get().buffer == null ? 0 : 1;
+    }
+
+    /**
+     * Drops the buffer cached for the current thread.
+     */
+    static void clear() {
+        SLOTS.get().buffer = null;
+    }
+
+    private static final class Slot {
+        private BytesStreamOutput buffer;
+    }
+
+    /**
+     * A builder borrowed from the pool. Bytes produced by {#bytes()} are only valid until the lease is closed.
+     */
+    public static final class Lease implements Releasable {
+
+        private final XContentBuilder builder;
+        private final BytesStreamOutput buffer;
+        private boolean closed = false;
+
+        private Lease(XContent xContent, BytesStreamOutput buffer) throws IOException {
+            this.buffer = buffer;
+            this.builder = new XContentBuilder(xContent, buffer);
+        }
+
+        BytesStreamOutput buffer() {
+            return buffer;
+        }
+
+        public XContentBuilder builder() {
+            ensureOpen();
+            return builder;
+        }
+
+        /**
+         * Returns the rendered content backed by the pooled buffer, without copying.
+         */
+        public BytesReference bytes() {
+            ensureOpen();
+            return builder.bytes();
+        }
+
+        /**
+         * Returns a copy of the rendered content that stays valid after the lease is closed.
+         */
+        public BytesReference copyBytes() throws IOException {
+            final BytesReference bytes = bytes();
+            final byte[] copy = new byte[bytes.length()];
+            final BytesRefIterator iterator = bytes.iterator();
+            int offset = 0;
+            BytesRef ref;
+            while ((ref = iterator.next()) != null) {
+                System.arraycopy(ref.bytes, ref.offset, copy, offset, ref.length);
+                offset += ref.length;
+            }
+            return new BytesArray(copy);
+        }
+
+        /**
+         * Returns the rendered content as a string (only applicable for text based xcontent).
+         */
+        public String string() {
+            return bytes().utf8ToString();
+        }
+
+        private void ensureOpen() {
+            if (closed) {
+                throw new IllegalStateException("pooled XContentBuilder has already been released");
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed == false) {
+                closed = true;
+                try {
+                    builder.close();
+                } catch (IllegalStateException e) {
+                    // rendering failed half-way, don't keep a buffer in an unknown state
+                    return;
+                }
+                release(buffer);
+            }
+        }
+    }
+}
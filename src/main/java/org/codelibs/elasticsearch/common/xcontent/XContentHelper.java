@@ -21,15 +21,22 @@ package org.codelibs.elasticsearch.common.xcontent;
 
 import org.codelibs.elasticsearch.ElasticsearchException;
 import org.codelibs.elasticsearch.ElasticsearchParseException;
+import org.codelibs.elasticsearch.common.bytes.BytesArray;
 import org.codelibs.elasticsearch.common.bytes.BytesReference;
 import org.codelibs.elasticsearch.common.collect.Tuple;
 import org.codelibs.elasticsearch.common.compress.Compressor;
 import org.codelibs.elasticsearch.common.compress.CompressorFactory;
+import org.codelibs.elasticsearch.common.io.stream.ByteBufferStreamInput;
+import org.codelibs.elasticsearch.common.io.stream.StreamInput;
 import org.codelibs.elasticsearch.common.xcontent.ToXContent.Params;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -44,20 +51,58 @@ import static org.codelibs.elasticsearch.common.xcontent.ToXContent.EMPTY_PARAMS
 @SuppressWarnings("unchecked")
 public class XContentHelper {
 
+    private static final int GUESS_HEADER_LENGTH = 20;
+
     public static XContentParser createParser(NamedXContentRegistry xContentRegistry, BytesReference bytes) throws IOException {
         Compressor compressor = CompressorFactory.compressor(bytes);
         if (compressor != null) {
-            InputStream compressedInput = compressor.streamInput(bytes.streamInput());
-            if (compressedInput.markSupported() == false) {
-                compressedInput = new BufferedInputStream(compressedInput);
-            }
-            XContentType contentType = XContentFactory.xContentType(compressedInput);
-            return XContentFactory.xContent(contentType).createParser(xContentRegistry, compressedInput);
+            return createCompressedParser(xContentRegistry, compressor, bytes.streamInput());
+        } else {
+            return XContentFactory.xContent(bytes).createParser(xContentRegistry, bytes);
+        }
+    }
+
+    /**
+     * Creates a parser over the remaining bytes of the provided buffer, without changing its position.
+     * {XContent#createParser(NamedXContentRegistry, ByteBuffer)} explains how the buffer is read.
+     */
+    public static XContentParser createParser(NamedXContentRegistry xContentRegistry, ByteBuffer buffer) throws IOException {
+        if (buffer.hasArray()) {
+            return createParser(xContentRegistry,
+                    new BytesArray(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining()));
+        }
+        // only the header is copied to detect the content type
+        final byte[] header = new byte[Math.min(buffer.remaining(), GUESS_HEADER_LENGTH)];
+        buffer.duplicate().get(header);
+        final BytesArray headerBytes = new BytesArray(header);
+        Compressor compressor = CompressorFactory.compressor(headerBytes);
+        if (compressor != null) {
+            return createCompressedParser(xContentRegistry, compressor, new ByteBufferStreamInput(buffer.duplicate()));
         } else {
-            return XContentFactory.xContent(bytes).createParser(xContentRegistry, bytes.streamInput());
+            return XContentFactory.xContent(headerBytes).createParser(xContentRegistry, buffer);
         }
     }
 
+    /**
+     * Creates a parser over the content of the provided file, which is memory-mapped rather than read.
+     */
+    public static XContentParser createParser(NamedXContentRegistry xContentRegistry, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return createParser(xContentRegistry, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private static XContentParser createCompressedParser(NamedXContentRegistry xContentRegistry, Compressor compressor,
+            StreamInput bytes) throws IOException {
+        InputStream compressedInput = compressor.streamInput(bytes);
+        if (compressedInput.markSupported() == false) {
+            compressedInput = new BufferedInputStream(compressedInput);
+        }
+        XContentType contentType = XContentFactory.xContentType(compressedInput);
+        return XContentFactory.xContent(contentType).createParser(xContentRegistry, compressedInput);
+    }
+
     public static Tuple<XContentType, Map<String, Object>> convertToMap(BytesReference bytes, boolean ordered)
             throws ElasticsearchParseException {
         try {
@@ -372,8 +417,10 @@ public class XContentHelper {
     public static void writeRawField(String field, BytesReference source, XContentBuilder builder, ToXContent.Params params) throws IOException {
         Compressor compressor = CompressorFactory.compressor(source);
         if (compressor != null) {
-            InputStream compressedStreamInput = compressor.streamInput(source.streamInput());
-            builder.rawField(field, compressedStreamInput);
+            // closing the stream gives its inflater back
+            try (InputStream compressedStreamInput = compressor.streamInput(source.streamInput())) {
+                builder.rawField(field, compressedStreamInput);
+            }
         } else {
             builder.rawField(field, source);
         }
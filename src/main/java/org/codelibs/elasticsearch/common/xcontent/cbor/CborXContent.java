@@ -23,7 +23,6 @@ import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.codelibs.elasticsearch.ElasticsearchParseException;
-import org.codelibs.elasticsearch.common.bytes.BytesReference;
 import org.codelibs.elasticsearch.common.io.FastStringReader;
 import org.codelibs.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.codelibs.elasticsearch.common.xcontent.XContent;
@@ -52,6 +51,9 @@ public class CborXContent implements XContent {
 
     static {
         cborFactory = new CBORFactory();
+        // field names are canonical like the ones of {JsonXContent}
+        cborFactory.configure(CBORFactory.Feature.CANONICALIZE_FIELD_NAMES, true);
+        cborFactory.configure(CBORFactory.Feature.INTERN_FIELD_NAMES, true);
         cborFactory.configure(CBORFactory.Feature.FAIL_ON_SYMBOL_HASH_OVERFLOW, false); // this trips on many mappings now...
         // Do not automatically close unclosed objects/arrays in com.fasterxml.jackson.dataformat.cbor.CBORGenerator#close() method
         cborFactory.configure(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT, false);
@@ -96,11 +98,6 @@ public class CborXContent implements XContent {
         return new CborXContentParser(xContentRegistry, cborFactory.createParser(data, offset, length));
     }
 
-    @Override
-    public XContentParser createParser(NamedXContentRegistry xContentRegistry, BytesReference bytes) throws IOException {
-        return createParser(xContentRegistry, bytes.streamInput());
-    }
-
     @Override
     public XContentParser createParser(NamedXContentRegistry xContentRegistry, Reader reader) throws IOException {
         return new CborXContentParser(xContentRegistry, cborFactory.createParser(reader));
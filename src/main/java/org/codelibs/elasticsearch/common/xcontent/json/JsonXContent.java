@@ -23,7 +23,6 @@ import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
-import org.codelibs.elasticsearch.common.bytes.BytesReference;
 import org.codelibs.elasticsearch.common.io.FastStringReader;
 import org.codelibs.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.codelibs.elasticsearch.common.xcontent.XContent;
@@ -74,6 +73,10 @@ public class JsonXContent implements XContent {
         }
         jsonFactory.configure(JsonGenerator.Feature.QUOTE_FIELD_NAMES, true);
         jsonFactory.configure(JsonParser.Feature.ALLOW_COMMENTS, true);
+        // field names come back as the canonical, interned instances of the shared symbol table, so that parse fields
+        // match them by identity and parsing does not allocate a string per field name
+        jsonFactory.configure(JsonFactory.Feature.CANONICALIZE_FIELD_NAMES, true);
+        jsonFactory.configure(JsonFactory.Feature.INTERN_FIELD_NAMES, true);
         jsonFactory.configure(JsonFactory.Feature.FAIL_ON_SYMBOL_HASH_OVERFLOW, false); // this trips on many mappings now...
         // Do not automatically close unclosed objects/arrays in com.fasterxml.jackson.core.json.UTF8JsonGenerator#close() method
         jsonFactory.configure(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT, false);
@@ -118,11 +121,6 @@ public class JsonXContent implements XContent {
         return new JsonXContentParser(xContentRegistry, jsonFactory.createParser(data, offset, length));
     }
 
-    @Override
-    public XContentParser createParser(NamedXContentRegistry xContentRegistry, BytesReference bytes) throws IOException {
-        return createParser(xContentRegistry, bytes.streamInput());
-    }
-
     @Override
     public XContentParser createParser(NamedXContentRegistry xContentRegistry, Reader reader) throws IOException {
         return new JsonXContentParser(xContentRegistry, jsonFactory.createParser(reader));
@@ -23,7 +23,6 @@ import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
-import org.codelibs.elasticsearch.common.bytes.BytesReference;
 import org.codelibs.elasticsearch.common.io.FastStringReader;
 import org.codelibs.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.codelibs.elasticsearch.common.xcontent.XContent;
@@ -49,17 +48,47 @@ public class SmileXContent implements XContent {
 
     static final SmileFactory smileFactory;
     public static final SmileXContent smileXContent;
+    /**
+     * Writes string values that repeat within a document as back references, like field names always are. This pays
+     * off for bodies that repeat values, such as the field names of many aggregations, and any Smile parser reads it.
+     */
+    public static final SmileXContent smileXContentWithSharedValues;
 
     static {
-        smileFactory = new SmileFactory();
-        smileFactory.configure(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT, false); // for now, this is an overhead, might make sense for web sockets
-        smileFactory.configure(SmileFactory.Feature.FAIL_ON_SYMBOL_HASH_OVERFLOW, false); // this trips on many mappings now...
+        smileFactory = newFactory();
+        smileXContent = new SmileXContent(smileFactory);
+        SmileFactory sharedValuesFactory = newFactory();
+        sharedValuesFactory.configure(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES, true);
+        smileXContentWithSharedValues = new SmileXContent(sharedValuesFactory);
+    }
+
+    /**
+     * Returns a Smile content backed by the given factory, configured like the factory of {#smileXContent}. This is
+     * for callers that need a {SmileFactory} subclass, for example one that recycles buffers differently.
+     */
+    public static SmileXContent newSmileXContent(SmileFactory factory) {
+        return new SmileXContent(configure(factory));
+    }
+
+    private static SmileFactory newFactory() {
+        return configure(new SmileFactory());
+    }
+
+    private static SmileFactory configure(SmileFactory factory) {
+        factory.configure(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT, false); // for now, this is an overhead, might make sense for web sockets
+        // field names are canonical like the ones of {JsonXContent}
+        factory.configure(SmileFactory.Feature.CANONICALIZE_FIELD_NAMES, true);
+        factory.configure(SmileFactory.Feature.INTERN_FIELD_NAMES, true);
+        factory.configure(SmileFactory.Feature.FAIL_ON_SYMBOL_HASH_OVERFLOW, false); // this trips on many mappings now...
         // Do not automatically close unclosed objects/arrays in com.fasterxml.jackson.dataformat.smile.SmileGenerator#close() method
-        smileFactory.configure(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT, false);
-        smileXContent = new SmileXContent();
+        factory.configure(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT, false);
+        return factory;
     }
 
-    private SmileXContent() {
+    private final SmileFactory factory;
+
+    private SmileXContent(SmileFactory factory) {
+        this.factory = factory;
     }
 
     @Override
@@ -74,36 +103,31 @@ public class SmileXContent implements XContent {
 
     @Override
     public XContentGenerator createGenerator(OutputStream os, Set<String> includes, Set<String> excludes) throws IOException {
-        return new SmileXContentGenerator(smileFactory.createGenerator(os, JsonEncoding.UTF8), os, includes, excludes);
+        return new SmileXContentGenerator(factory.createGenerator(os, JsonEncoding.UTF8), os, includes, excludes);
     }
 
     @Override
     public XContentParser createParser(NamedXContentRegistry xContentRegistry, String content) throws IOException {
-        return new SmileXContentParser(xContentRegistry, smileFactory.createParser(new FastStringReader(content)));
+        return new SmileXContentParser(xContentRegistry, factory.createParser(new FastStringReader(content)));
     }
 
     @Override
     public XContentParser createParser(NamedXContentRegistry xContentRegistry, InputStream is) throws IOException {
-        return new SmileXContentParser(xContentRegistry, smileFactory.createParser(is));
+        return new SmileXContentParser(xContentRegistry, factory.createParser(is));
     }
 
     @Override
     public XContentParser createParser(NamedXContentRegistry xContentRegistry, byte[] data) throws IOException {
-        return new SmileXContentParser(xContentRegistry, smileFactory.createParser(data));
+        return new SmileXContentParser(xContentRegistry, factory.createParser(data));
     }
 
     @Override
     public XContentParser createParser(NamedXContentRegistry xContentRegistry, byte[] data, int offset, int length) throws IOException {
-        return new SmileXContentParser(xContentRegistry, smileFactory.createParser(data, offset, length));
-    }
-
-    @Override
-    public XContentParser createParser(NamedXContentRegistry xContentRegistry, BytesReference bytes) throws IOException {
-        return createParser(xContentRegistry, bytes.streamInput());
+        return new SmileXContentParser(xContentRegistry, factory.createParser(data, offset, length));
     }
 
     @Override
     public XContentParser createParser(NamedXContentRegistry xContentRegistry, Reader reader) throws IOException {
-        return new SmileXContentParser(xContentRegistry, smileFactory.createParser(reader));
+        return new SmileXContentParser(xContentRegistry, factory.createParser(reader));
     }
 }
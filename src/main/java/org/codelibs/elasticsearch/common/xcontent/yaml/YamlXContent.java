@@ -22,7 +22,6 @@ package org.codelibs.elasticsearch.common.xcontent.yaml;
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import org.codelibs.elasticsearch.ElasticsearchParseException;
-import org.codelibs.elasticsearch.common.bytes.BytesReference;
 import org.codelibs.elasticsearch.common.io.FastStringReader;
 import org.codelibs.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.codelibs.elasticsearch.common.xcontent.XContent;
@@ -92,11 +91,6 @@ public class YamlXContent implements XContent {
         return new YamlXContentParser(xContentRegistry, yamlFactory.createParser(data, offset, length));
     }
 
-    @Override
-    public XContentParser createParser(NamedXContentRegistry xContentRegistry, BytesReference bytes) throws IOException {
-        return createParser(xContentRegistry, bytes.streamInput());
-    }
-
     @Override
     public XContentParser createParser(NamedXContentRegistry xContentRegistry, Reader reader) throws IOException {
         return new YamlXContentParser(xContentRegistry, yamlFactory.createParser(reader));
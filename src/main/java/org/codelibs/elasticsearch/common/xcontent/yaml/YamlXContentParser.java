@@ -25,6 +25,8 @@ import org.codelibs.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.codelibs.elasticsearch.common.xcontent.XContentType;
 import org.codelibs.elasticsearch.common.xcontent.json.JsonXContentParser;
 
+import java.io.IOException;
+
 /**
  *
  */
@@ -38,4 +40,27 @@ public class YamlXContentParser extends JsonXContentParser {
     public XContentType contentType() {
         return XContentType.YAML;
     }
+
+    // the last name returned by the YAML parser and its interned instance
+    private String parsedName;
+    private String internedName;
+
+    /**
+     * The YAML parser has no symbol table, so the field names are interned here to give the same canonical instances
+     * as the other content types. The parser returns the same instance for a field name and its value, so every field
+     * name is interned once, when it is first asked for.
+     */
+    @Override
+    public String currentName() throws IOException {
+        final String name = super.currentName();
+        if (name == null) {
+            // array elements have no name, which keeps the name of the array cached
+            return null;
+        }
+        if (name != parsedName) {
+            parsedName = name;
+            internedName = name.intern();
+        }
+        return internedName;
+    }
 }
@@ -0,0 +1,174 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.elasticsearch.index.mapper;
+
+import org.codelibs.elasticsearch.common.joda.Joda;
+import org.codelibs.elasticsearch.common.lucene.Lucene;
+import org.codelibs.elasticsearch.common.regex.Regex;
+import org.codelibs.elasticsearch.index.analysis.NamedAnalyzer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable mapping from field names to their {MappedFieldType}, together with the analyzers that queries
+ * may refer to by name. This is a simple stand-in for the mapper service of an index and is what a local
+ * {org.codelibs.elasticsearch.index.query.QueryShardContext} resolves fields against.
+ */
+public final class FieldTypeLookup implements Iterable<MappedFieldType> {
+
+    private final Map<String, MappedFieldType> fullNameToFieldType;
+
+    private final Map<String, NamedAnalyzer> analyzers;
+
+    private final NamedAnalyzer defaultSearchAnalyzer;
+
+    private FieldTypeLookup(Map<String, MappedFieldType> fullNameToFieldType, Map<String, NamedAnalyzer> analyzers,
+            NamedAnalyzer defaultSearchAnalyzer) {
+        this.fullNameToFieldType = Collections.unmodifiableMap(fullNameToFieldType);
+        this.analyzers = Collections.unmodifiableMap(analyzers);
+        this.defaultSearchAnalyzer = defaultSearchAnalyzer;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Returns the field type for the given field, or {@code null} if the field is not mapped. */
+    public MappedFieldType get(String field) {
+        return fullNameToFieldType.get(field);
+    }
+
+    /** Returns the names of all mapped fields that match the given simple match pattern. */
+    public Collection<String> simpleMatchToFullName(String pattern) {
+        if (Regex.isSimpleMatchPattern(pattern) == false) {
+            return fullNameToFieldType.containsKey(pattern) ? Collections.singletonList(pattern) : Collections.emptyList();
+        }
+        List<String> fields = new ArrayList<>();
+        for (String field : fullNameToFieldType.keySet()) {
+            if (Regex.simpleMatch(pattern, field)) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /** Returns the analyzer registered under the given name, or {@code null} if there is none. */
+    public NamedAnalyzer getAnalyzer(String name) {
+        return analyzers.get(name);
+    }
+
+    /** The analyzer used for queries on unmapped fields and on fields without a search analyzer. */
+    public NamedAnalyzer defaultSearchAnalyzer() {
+        return defaultSearchAnalyzer;
+    }
+
+    @Override
+    public Iterator<MappedFieldType> iterator() {
+        return fullNameToFieldType.values().iterator();
+    }
+
+    public static class Builder {
+        private final Map<String, MappedFieldType> fullNameToFieldType = new HashMap<>();
+
+        private final Map<String, NamedAnalyzer> analyzers = new HashMap<>();
+
+        private NamedAnalyzer defaultSearchAnalyzer = Lucene.STANDARD_ANALYZER;
+
+        private Builder() {
+            analyzer(Lucene.STANDARD_ANALYZER);
+            analyzer(Lucene.KEYWORD_ANALYZER);
+            analyzers.put("standard", Lucene.STANDARD_ANALYZER);
+            analyzers.put("keyword", Lucene.KEYWORD_ANALYZER);
+        }
+
+        /** Adds a copy of the given field type; the field type must have a name. */
+        public Builder add(MappedFieldType fieldType) {
+            if (fieldType.name() == null) {
+                throw new IllegalArgumentException("field type must have a name");
+            }
+            MappedFieldType copy = fieldType.clone();
+            copy.freeze();
+            if (fullNameToFieldType.putIfAbsent(copy.name(), copy) != null) {
+                throw new IllegalArgumentException("field [" + copy.name() + "] is already mapped");
+            }
+            return this;
+        }
+
+        public Builder keyword(String name) {
+            return add(name, KeywordFieldMapper.Defaults.FIELD_TYPE.clone());
+        }
+
+        public Builder text(String name) {
+            return text(name, defaultSearchAnalyzer);
+        }
+
+        public Builder text(String name, NamedAnalyzer analyzer) {
+            MappedFieldType fieldType = TextFieldMapper.Defaults.FIELD_TYPE.clone();
+            fieldType.setIndexAnalyzer(analyzer);
+            fieldType.setSearchAnalyzer(analyzer);
+            fieldType.setSearchQuoteAnalyzer(analyzer);
+            return add(name, fieldType);
+        }
+
+        public Builder number(String name, NumberFieldMapper.NumberType type) {
+            return add(name, new NumberFieldMapper.NumberFieldType(type));
+        }
+
+        public Builder date(String name) {
+            return add(name, new DateFieldMapper.Builder(name).fieldType().clone());
+        }
+
+        public Builder date(String name, String format) {
+            DateFieldMapper.DateFieldType fieldType = new DateFieldMapper.Builder(name).fieldType();
+            fieldType.setDateTimeFormatter(Joda.forPattern(format));
+            return add(name, fieldType.clone());
+        }
+
+        public Builder ip(String name) {
+            return add(name, new IpFieldMapper.Builder(name).fieldType().clone());
+        }
+
+        /** Registers an analyzer that match queries can refer to by its name. */
+        public Builder analyzer(NamedAnalyzer analyzer) {
+            analyzers.put(analyzer.name(), analyzer);
+            return this;
+        }
+
+        public Builder defaultSearchAnalyzer(NamedAnalyzer analyzer) {
+            this.defaultSearchAnalyzer = analyzer;
+            return analyzer(analyzer);
+        }
+
+        private Builder add(String name, MappedFieldType fieldType) {
+            fieldType.setName(name);
+            return add(fieldType);
+        }
+
+        public FieldTypeLookup build() {
+            return new FieldTypeLookup(new HashMap<>(fullNameToFieldType), new HashMap<>(analyzers), defaultSearchAnalyzer);
+        }
+    }
+}
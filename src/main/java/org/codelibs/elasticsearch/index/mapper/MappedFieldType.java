@@ -354,6 +354,13 @@ public abstract class MappedFieldType extends FieldType {
      * @throws IllegalArgumentException if the wrapped query is not a {TermQuery}
      */
     public static Term extractTerm(Query termQuery) {
-        throw new UnsupportedOperationException();
+        while (termQuery instanceof BoostQuery) {
+            termQuery = ((BoostQuery) termQuery).getQuery();
+        }
+        if (termQuery instanceof TermQuery == false) {
+            throw new IllegalArgumentException("Cannot extract a term from a query of type "
+                    + termQuery.getClass() + ": " + termQuery);
+        }
+        return ((TermQuery) termQuery).getTerm();
     }
 }
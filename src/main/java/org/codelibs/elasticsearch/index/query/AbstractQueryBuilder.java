@@ -19,7 +19,10 @@
 
 package org.codelibs.elasticsearch.index.query;
 
+import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.spans.SpanBoostQuery;
+import org.apache.lucene.search.spans.SpanQuery;
 import org.apache.lucene.util.BytesRef;
 import org.codelibs.elasticsearch.action.support.ToXContentToBytes;
 import org.codelibs.elasticsearch.common.ParseField;
@@ -54,6 +57,12 @@ public abstract class AbstractQueryBuilder<QB extends AbstractQueryBuilder<QB>>
     protected String queryName;
     protected float boost = DEFAULT_BOOST;
 
+    /**
+     * The cached {#hashCode()} of builders that {#cacheHashCode()}, 0 when it has not been computed yet or the boost or
+     * query name changed since.
+     */
+    private int hashCode;
+
     protected AbstractQueryBuilder() {
         super(XContentType.JSON);
     }
@@ -91,12 +100,33 @@ public abstract class AbstractQueryBuilder<QB extends AbstractQueryBuilder<QB>>
 
     @Override
     public final Query toQuery(QueryShardContext context) throws IOException {
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        Query query = doToQuery(context);
+        if (query != null) {
+            if (boost != DEFAULT_BOOST) {
+                if (query instanceof SpanQuery) {
+                    query = new SpanBoostQuery((SpanQuery) query, boost);
+                } else {
+                    query = new BoostQuery(query, boost);
+                }
+            }
+            if (queryName != null) {
+                context.addNamedQuery(queryName, query);
+            }
+        }
+        return query;
     }
 
     @Override
     public final Query toFilter(QueryShardContext context) throws IOException {
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        Query result = null;
+        final boolean originalIsFilter = context.isFilter();
+        try {
+            context.setIsFilter(true);
+            result = toQuery(context);
+        } finally {
+            context.setIsFilter(originalIsFilter);
+        }
+        return result;
     }
 
     protected abstract Query doToQuery(QueryShardContext context) throws IOException;
@@ -108,6 +138,7 @@ public abstract class AbstractQueryBuilder<QB extends AbstractQueryBuilder<QB>>
     @Override
     public final QB queryName(String queryName) {
         this.queryName = queryName;
+        this.hashCode = 0;
         return (QB) this;
     }
 
@@ -135,6 +166,7 @@ public abstract class AbstractQueryBuilder<QB extends AbstractQueryBuilder<QB>>
     @Override
     public final QB boost(float boost) {
         this.boost = boost;
+        this.hashCode = 0;
         return (QB) this;
     }
 
@@ -152,6 +184,10 @@ public abstract class AbstractQueryBuilder<QB extends AbstractQueryBuilder<QB>>
         }
         @SuppressWarnings("unchecked")
         QB other = (QB) obj;
+        final int otherHashCode = ((AbstractQueryBuilder<?>) other).hashCode;
+        if (hashCode != 0 && otherHashCode != 0 && hashCode != otherHashCode) {
+            return false;
+        }
         return Objects.equals(queryName, other.queryName) &&
                 Objects.equals(boost, other.boost) &&
                 doEquals(other);
@@ -164,11 +200,28 @@ public abstract class AbstractQueryBuilder<QB extends AbstractQueryBuilder<QB>>
 
     @Override
     public final int hashCode() {
-        return Objects.hash(getClass(), queryName, boost, doHashCode());
+        int h = hashCode;
+        if (h == 0) {
+            h = Objects.hash(getClass(), queryName, boost, doHashCode());
+            if (cacheHashCode()) {
+                hashCode = h;
+            }
+        }
+        return h;
     }
 
     protected abstract int doHashCode();
 
+    /**
+     * Whether {#hashCode()} can be computed once and reused until the boost or the query name change. Only builders
+     * whose {#doHashCode()} reads state that is fixed at construction may return <tt>true</tt>. Builders that hold
+     * inner queries must not, as the inner queries can change without them knowing, but their hash is cheap to combine
+     * from the cached hashes of their leaves.
+     */
+    protected boolean cacheHashCode() {
+        return false;
+    }
+
     /**
      * This helper method checks if the object passed in is a string, if so it
      * converts it to a {BytesRef}.
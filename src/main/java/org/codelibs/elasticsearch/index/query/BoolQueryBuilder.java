@@ -28,11 +28,13 @@ import org.codelibs.elasticsearch.common.ParseField;
 import org.codelibs.elasticsearch.common.ParsingException;
 import org.codelibs.elasticsearch.common.io.stream.StreamInput;
 import org.codelibs.elasticsearch.common.io.stream.StreamOutput;
+import org.codelibs.elasticsearch.common.lucene.search.Queries;
 import org.codelibs.elasticsearch.common.xcontent.XContentBuilder;
 import org.codelibs.elasticsearch.common.xcontent.XContentParser;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -71,6 +73,8 @@ public class BoolQueryBuilder extends AbstractQueryBuilder<BoolQueryBuilder> {
 
     private String minimumShouldMatch;
 
+    private boolean ignoreClauseOrder = false;
+
     /**
      * Build an empty bool query.
      */
@@ -277,6 +281,23 @@ public class BoolQueryBuilder extends AbstractQueryBuilder<BoolQueryBuilder> {
         return this.adjustPureNegative;
     }
 
+    /**
+     * Compares this query in its canonical form, where the order in which the clauses of each occurrence were added
+     * does not affect {#equals(Object)} and {#hashCode()}. Only queries that both ignore the clause order compare
+     * equal this way. This does not change the rendered query. The default is <code>false</code>.
+     */
+    public BoolQueryBuilder ignoreClauseOrder(boolean ignoreClauseOrder) {
+        this.ignoreClauseOrder = ignoreClauseOrder;
+        return this;
+    }
+
+    /**
+     * @return whether the order of clauses is ignored when comparing this query
+     */
+    public boolean ignoreClauseOrder() {
+        return this.ignoreClauseOrder;
+    }
+
     @Override
     protected void doXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(NAME);
@@ -408,17 +429,70 @@ public class BoolQueryBuilder extends AbstractQueryBuilder<BoolQueryBuilder> {
 
     @Override
     protected Query doToQuery(QueryShardContext context) throws IOException {
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        BooleanQuery.Builder booleanQueryBuilder = new BooleanQuery.Builder();
+        booleanQueryBuilder.setDisableCoord(disableCoord);
+        addBooleanClauses(context, booleanQueryBuilder, mustClauses, BooleanClause.Occur.MUST);
+        addBooleanClauses(context, booleanQueryBuilder, mustNotClauses, BooleanClause.Occur.MUST_NOT);
+        addBooleanClauses(context, booleanQueryBuilder, shouldClauses, BooleanClause.Occur.SHOULD);
+        addBooleanClauses(context, booleanQueryBuilder, filterClauses, BooleanClause.Occur.FILTER);
+        BooleanQuery booleanQuery = booleanQueryBuilder.build();
+        if (booleanQuery.clauses().isEmpty()) {
+            return new MatchAllDocsQuery();
+        }
+
+        final String minimumShouldMatch;
+        if (context.isFilter() && this.minimumShouldMatch == null && shouldClauses.size() > 0) {
+            minimumShouldMatch = "1";
+        } else {
+            minimumShouldMatch = this.minimumShouldMatch;
+        }
+        Query query = Queries.applyMinimumShouldMatch(booleanQuery, minimumShouldMatch);
+        return adjustPureNegative ? Queries.fixNegativeQueryIfNeeded(query) : query;
+    }
+
+    private static void addBooleanClauses(QueryShardContext context, BooleanQuery.Builder booleanQueryBuilder,
+                                          List<QueryBuilder> clauses, Occur occurs) throws IOException {
+        for (QueryBuilder query : clauses) {
+            Query luceneQuery = null;
+            switch (occurs) {
+                case MUST:
+                case SHOULD:
+                    luceneQuery = query.toQuery(context);
+                    break;
+                case FILTER:
+                case MUST_NOT:
+                    luceneQuery = query.toFilter(context);
+                    break;
+            }
+            booleanQueryBuilder.add(new BooleanClause(luceneQuery, occurs));
+        }
     }
 
     @Override
     protected int doHashCode() {
+        if (ignoreClauseOrder) {
+            return Objects.hash(adjustPureNegative, disableCoord, minimumShouldMatch, ignoreClauseOrder,
+                    unorderedHashCode(mustClauses), unorderedHashCode(shouldClauses),
+                    unorderedHashCode(mustNotClauses), unorderedHashCode(filterClauses));
+        }
         return Objects.hash(adjustPureNegative, disableCoord,
                 minimumShouldMatch, mustClauses, shouldClauses, mustNotClauses, filterClauses);
     }
 
     @Override
     protected boolean doEquals(BoolQueryBuilder other) {
+        if (ignoreClauseOrder != other.ignoreClauseOrder) {
+            return false;
+        }
+        if (ignoreClauseOrder) {
+            return Objects.equals(adjustPureNegative, other.adjustPureNegative) &&
+                    Objects.equals(disableCoord, other.disableCoord) &&
+                    Objects.equals(minimumShouldMatch, other.minimumShouldMatch) &&
+                    unorderedEquals(mustClauses, other.mustClauses) &&
+                    unorderedEquals(shouldClauses, other.shouldClauses) &&
+                    unorderedEquals(mustNotClauses, other.mustNotClauses) &&
+                    unorderedEquals(filterClauses, other.filterClauses);
+        }
         return Objects.equals(adjustPureNegative, other.adjustPureNegative) &&
                 Objects.equals(disableCoord, other.disableCoord) &&
                 Objects.equals(minimumShouldMatch, other.minimumShouldMatch) &&
@@ -428,6 +502,42 @@ public class BoolQueryBuilder extends AbstractQueryBuilder<BoolQueryBuilder> {
                 Objects.equals(filterClauses, other.filterClauses);
     }
 
+    private static int unorderedHashCode(List<QueryBuilder> clauses) {
+        int hashCode = 0;
+        for (QueryBuilder clause : clauses) {
+            hashCode += clause.hashCode();
+        }
+        return hashCode;
+    }
+
+    /**
+     * Whether both lists hold the same clauses the same number of times, in any order.
+     */
+    private static boolean unorderedEquals(List<QueryBuilder> clauses, List<QueryBuilder> otherClauses) {
+        if (clauses.size() != otherClauses.size()) {
+            return false;
+        }
+        if (clauses.equals(otherClauses)) {
+            return true;
+        }
+        Map<QueryBuilder, Integer> counts = new HashMap<>(clauses.size());
+        for (QueryBuilder clause : clauses) {
+            counts.merge(clause, 1, Integer::sum);
+        }
+        for (QueryBuilder clause : otherClauses) {
+            Integer count = counts.get(clause);
+            if (count == null) {
+                return false;
+            }
+            if (count == 1) {
+                counts.remove(clause);
+            } else {
+                counts.put(clause, count - 1);
+            }
+        }
+        return counts.isEmpty();
+    }
+
     @Override
     protected QueryBuilder doRewrite(QueryRewriteContext queryRewriteContext) throws IOException {
         BoolQueryBuilder newBuilder = new BoolQueryBuilder();
@@ -445,6 +555,7 @@ public class BoolQueryBuilder extends AbstractQueryBuilder<BoolQueryBuilder> {
             newBuilder.adjustPureNegative = adjustPureNegative;
             newBuilder.disableCoord = disableCoord;
             newBuilder.minimumShouldMatch = minimumShouldMatch;
+            newBuilder.ignoreClauseOrder = ignoreClauseOrder;
             newBuilder.boost(boost());
             newBuilder.queryName(queryName());
             return newBuilder;
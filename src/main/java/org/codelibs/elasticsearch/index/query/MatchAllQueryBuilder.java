@@ -82,6 +82,11 @@ public class MatchAllQueryBuilder extends AbstractQueryBuilder<MatchAllQueryBuil
         return true;
     }
 
+    @Override
+    protected boolean cacheHashCode() {
+        return true;
+    }
+
     @Override
     protected int doHashCode() {
         return 0;
@@ -99,6 +99,11 @@ public class MatchNoneQueryBuilder extends AbstractQueryBuilder<MatchNoneQueryBu
         return true;
     }
 
+    @Override
+    protected boolean cacheHashCode() {
+        return true;
+    }
+
     @Override
     protected int doHashCode() {
         return 0;
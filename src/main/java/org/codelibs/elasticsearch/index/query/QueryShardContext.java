@@ -19,8 +19,144 @@
 
 package org.codelibs.elasticsearch.index.query;
 
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Query;
+import org.codelibs.elasticsearch.common.Nullable;
+import org.codelibs.elasticsearch.common.ParseFieldMatcher;
+import org.codelibs.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.codelibs.elasticsearch.common.xcontent.XContentParser;
+import org.codelibs.elasticsearch.index.analysis.NamedAnalyzer;
+import org.codelibs.elasticsearch.index.mapper.FieldTypeLookup;
+import org.codelibs.elasticsearch.index.mapper.MappedFieldType;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
 /**
  * Context object used to create lucene queries on the shard level.
+ * <p>
+ * Fields are resolved against a {FieldTypeLookup}, so that {QueryBuilder#toQuery(QueryShardContext)} produces the
+ * same lucene queries for a local index as a shard with the equivalent mapping would. A context keeps per-query state
+ * and is not thread safe; create one per query.
  */
 public class QueryShardContext extends QueryRewriteContext {
+
+    private final FieldTypeLookup fieldTypes;
+
+    private final IndexReader reader;
+
+    private final LongSupplier nowInMillis;
+
+    private final NamedXContentRegistry xContentRegistry;
+
+    private final Map<String, Query> namedQueries = new HashMap<>();
+
+    private boolean isFilter;
+
+    public QueryShardContext(FieldTypeLookup fieldTypes, @Nullable IndexReader reader) {
+        this(fieldTypes, reader, System::currentTimeMillis, NamedXContentRegistry.EMPTY);
+    }
+
+    public QueryShardContext(FieldTypeLookup fieldTypes, @Nullable IndexReader reader, LongSupplier nowInMillis,
+            NamedXContentRegistry xContentRegistry) {
+        this.fieldTypes = fieldTypes;
+        this.reader = reader;
+        this.nowInMillis = nowInMillis;
+        this.xContentRegistry = xContentRegistry;
+    }
+
+    @Override
+    public IndexReader getIndexReader() {
+        return reader;
+    }
+
+    @Override
+    public ParseFieldMatcher getParseFieldMatcher() {
+        return ParseFieldMatcher.EMPTY;
+    }
+
+    @Override
+    public NamedXContentRegistry getXContentRegistry() {
+        return xContentRegistry;
+    }
+
+    @Override
+    public QueryParseContext newParseContext(XContentParser parser) {
+        return new QueryParseContext(parser, getParseFieldMatcher());
+    }
+
+    @Override
+    public long nowInMillis() {
+        return nowInMillis.getAsLong();
+    }
+
+    public FieldTypeLookup getFieldTypes() {
+        return fieldTypes;
+    }
+
+    /**
+     * Returns the field type of the given field, or {@code null} if the field is not mapped.
+     */
+    public MappedFieldType fieldMapper(String name) {
+        return fieldTypes.get(name);
+    }
+
+    /**
+     * Returns all the fields that match the given pattern. If the pattern is not a simple match pattern, the pattern
+     * itself is returned when it is a mapped field.
+     */
+    public Collection<String> simpleMatchToIndexNames(String pattern) {
+        return fieldTypes.simpleMatchToFullName(pattern);
+    }
+
+    /**
+     * Returns the analyzer registered under the given name, or {@code null} if there is none.
+     */
+    public NamedAnalyzer getAnalyzer(String name) {
+        return fieldTypes.getAnalyzer(name);
+    }
+
+    /**
+     * Gets the search analyzer for the given field, or the default search analyzer if none is defined.
+     */
+    public Analyzer getSearchAnalyzer(MappedFieldType fieldType) {
+        if (fieldType.searchAnalyzer() != null) {
+            return fieldType.searchAnalyzer();
+        }
+        return fieldTypes.defaultSearchAnalyzer();
+    }
+
+    /**
+     * Gets the search quote analyzer for the given field, or the default search analyzer if none is defined.
+     */
+    public Analyzer getSearchQuoteAnalyzer(MappedFieldType fieldType) {
+        if (fieldType.searchQuoteAnalyzer() != null) {
+            return fieldType.searchQuoteAnalyzer();
+        }
+        return getSearchAnalyzer(fieldType);
+    }
+
+    /**
+     * Return whether we are currently parsing a filter or a query.
+     */
+    public boolean isFilter() {
+        return isFilter;
+    }
+
+    void setIsFilter(boolean isFilter) {
+        this.isFilter = isFilter;
+    }
+
+    public void addNamedQuery(String name, Query query) {
+        if (query != null) {
+            namedQueries.put(name, query);
+        }
+    }
+
+    public Map<String, Query> copyNamedQueries() {
+        return new HashMap<>(namedQueries);
+    }
 }
@@ -20,6 +20,7 @@
 package org.codelibs.elasticsearch.index.query;
 
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermRangeQuery;
 import org.apache.lucene.util.BytesRef;
 import org.codelibs.elasticsearch.Version;
 import org.codelibs.elasticsearch.common.ParseField;
@@ -31,8 +32,10 @@ import org.codelibs.elasticsearch.common.io.stream.StreamOutput;
 import org.codelibs.elasticsearch.common.joda.DateMathParser;
 import org.codelibs.elasticsearch.common.joda.FormatDateTimeFormatter;
 import org.codelibs.elasticsearch.common.joda.Joda;
+import org.codelibs.elasticsearch.common.lucene.BytesRefs;
 import org.codelibs.elasticsearch.common.xcontent.XContentBuilder;
 import org.codelibs.elasticsearch.common.xcontent.XContentParser;
+import org.codelibs.elasticsearch.index.mapper.DateFieldMapper;
 import org.codelibs.elasticsearch.index.mapper.MappedFieldType;
 import org.joda.time.DateTimeZone;
 
@@ -468,7 +471,33 @@ public class RangeQueryBuilder extends AbstractQueryBuilder<RangeQueryBuilder> i
 
     @Override
     protected Query doToQuery(QueryShardContext context) throws IOException {
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        Query query = null;
+        MappedFieldType mapper = context.fieldMapper(this.fieldName);
+        if (mapper != null) {
+            if (mapper instanceof DateFieldMapper.DateFieldType) {
+                DateMathParser forcedDateParser = getForceDateParser();
+                query = ((DateFieldMapper.DateFieldType) mapper).rangeQuery(from, to, includeLower, includeUpper,
+                        timeZone, forcedDateParser, context);
+            } else {
+                if (timeZone != null) {
+                    throw new QueryShardException(context, "[range] time_zone can not be applied to non date field ["
+                            + fieldName + "]");
+                }
+                query = mapper.rangeQuery(from, to, includeLower, includeUpper, context);
+            }
+        } else {
+            if (timeZone != null) {
+                throw new QueryShardException(context, "[range] time_zone can not be applied to non unmapped field ["
+                        + fieldName + "]");
+            }
+        }
+
+        if (query == null) {
+            query = new TermRangeQuery(this.fieldName,
+                    BytesRefs.toBytesRef(from), BytesRefs.toBytesRef(to),
+                    includeLower, includeUpper);
+        }
+        return query;
     }
 
     @Override
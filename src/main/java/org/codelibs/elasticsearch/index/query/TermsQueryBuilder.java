@@ -19,6 +19,7 @@
 
 package org.codelibs.elasticsearch.index.query;
 
+import org.apache.lucene.queries.TermsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
@@ -29,8 +30,11 @@ import org.codelibs.elasticsearch.common.bytes.BytesReference;
 import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.codelibs.elasticsearch.common.io.stream.StreamInput;
 import org.codelibs.elasticsearch.common.io.stream.StreamOutput;
+import org.codelibs.elasticsearch.common.lucene.BytesRefs;
+import org.codelibs.elasticsearch.common.lucene.search.Queries;
 import org.codelibs.elasticsearch.common.xcontent.XContentBuilder;
 import org.codelibs.elasticsearch.common.xcontent.XContentParser;
+import org.codelibs.elasticsearch.index.mapper.MappedFieldType;
 import java.io.IOException;
 import java.util.AbstractList;
 import java.util.ArrayList;
@@ -38,6 +42,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -192,16 +197,7 @@ public class TermsQueryBuilder extends AbstractQueryBuilder<TermsQueryBuilder> {
         final boolean allNumbers = list.stream().allMatch(o -> o != null && INTEGER_TYPES.contains(o.getClass()));
         if (allNumbers) {
             final long[] elements = list.stream().mapToLong(o -> ((Number) o).longValue()).toArray();
-            return new AbstractList<Object>() {
-                @Override
-                public Object get(int index) {
-                    return elements[index];
-                }
-                @Override
-                public int size() {
-                    return elements.length;
-                }
-            };
+            return new LongValues(elements);
         }
 
         final boolean allStrings = list.stream().allMatch(o -> o != null && STRING_TYPES.contains(o.getClass()));
@@ -209,6 +205,7 @@ public class TermsQueryBuilder extends AbstractQueryBuilder<TermsQueryBuilder> {
             final BytesRefBuilder builder = new BytesRefBuilder();
             try (final BytesStreamOutput bytesOut = new BytesStreamOutput()) {
                 final int[] endOffsets = new int[list.size()];
+                int hashCode = 1;
                 int i = 0;
                 for (Object o : list) {
                     BytesRef b;
@@ -219,6 +216,7 @@ public class TermsQueryBuilder extends AbstractQueryBuilder<TermsQueryBuilder> {
                         b = builder.get();
                     }
                     bytesOut.writeBytes(b.bytes, b.offset, b.length);
+                    hashCode = 31 * hashCode + b.hashCode();
                     if (i == 0) {
                         endOffsets[0] = b.length;
                     } else {
@@ -226,25 +224,95 @@ public class TermsQueryBuilder extends AbstractQueryBuilder<TermsQueryBuilder> {
                     }
                     ++i;
                 }
-                final BytesReference bytes = bytesOut.bytes();
-                return new AbstractList<Object>() {
-                    @Override
-                    public Object get(int i) {
-                        final int startOffset = i == 0 ? 0 : endOffsets[i-1];
-                        final int endOffset = endOffsets[i];
-                        return bytes.slice(startOffset, endOffset - startOffset).toBytesRef();
-                    }
-                    @Override
-                    public int size() {
-                        return endOffsets.length;
-                    }
-                };
+                return new BytesRefValues(bytesOut.bytes(), endOffsets, hashCode);
             }
         }
 
         return list.stream().map(o -> o instanceof String ? new BytesRef(o.toString()) : o).collect(Collectors.toList());
     }
 
+    /**
+     * Integer values, stored as a <tt>long[]</tt>.
+     */
+    private static final class LongValues extends AbstractList<Object> {
+        private final long[] elements;
+        private final int hashCode;
+
+        LongValues(long[] elements) {
+            this.elements = elements;
+            int hashCode = 1;
+            for (long element : elements) {
+                hashCode = 31 * hashCode + Long.hashCode(element);
+            }
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public Object get(int index) {
+            return elements[index];
+        }
+
+        @Override
+        public int size() {
+            return elements.length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof LongValues) {
+                return Arrays.equals(elements, ((LongValues) o).elements);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * String values, stored as their concatenated utf8 bytes and the end offset of every value. The list hash is
+     * computed while the bytes are written as reading a value back allocates.
+     */
+    private static final class BytesRefValues extends AbstractList<Object> {
+        private final BytesReference bytes;
+        private final int[] endOffsets;
+        private final int hashCode;
+
+        BytesRefValues(BytesReference bytes, int[] endOffsets, int hashCode) {
+            this.bytes = bytes;
+            this.endOffsets = endOffsets;
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public Object get(int i) {
+            final int startOffset = i == 0 ? 0 : endOffsets[i-1];
+            final int endOffset = endOffsets[i];
+            return bytes.slice(startOffset, endOffset - startOffset).toBytesRef();
+        }
+
+        @Override
+        public int size() {
+            return endOffsets.length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof BytesRefValues) {
+                BytesRefValues other = (BytesRefValues) o;
+                return hashCode == other.hashCode && Arrays.equals(endOffsets, other.endOffsets) && bytes.equals(other.bytes);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
     /**
      * Convert the internal {List} of values back to a user-friendly list.
      * Integers are kept as-is since the terms query does not make any difference
@@ -279,7 +347,66 @@ public class TermsQueryBuilder extends AbstractQueryBuilder<TermsQueryBuilder> {
     }
 
     public static Optional<TermsQueryBuilder> fromXContent(QueryParseContext parseContext) throws IOException {
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        XContentParser parser = parseContext.parser();
+
+        String fieldName = null;
+        List<Object> values = null;
+
+        String queryName = null;
+        float boost = AbstractQueryBuilder.DEFAULT_BOOST;
+
+        XContentParser.Token token;
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (parseContext.isDeprecatedSetting(currentFieldName)) {
+                // skip
+            } else if (token == XContentParser.Token.START_ARRAY) {
+                if  (fieldName != null) {
+                    throw new ParsingException(parser.getTokenLocation(),
+                            "[" + TermsQueryBuilder.NAME + "] query does not support multiple fields");
+                }
+                fieldName = currentFieldName;
+                values = parseValues(parser);
+            } else if (token == XContentParser.Token.START_OBJECT) {
+                // terms lookups are resolved on the cluster and are not supported by this library
+                throw new ParsingException(parser.getTokenLocation(),
+                        "[" + TermsQueryBuilder.NAME + "] query does not support terms lookup [" + currentFieldName + "]");
+            } else if (token.isValue()) {
+                if (AbstractQueryBuilder.BOOST_FIELD.match(currentFieldName)) {
+                    boost = parser.floatValue();
+                } else if (AbstractQueryBuilder.NAME_FIELD.match(currentFieldName)) {
+                    queryName = parser.text();
+                } else {
+                    throw new ParsingException(parser.getTokenLocation(),
+                            "[" + TermsQueryBuilder.NAME + "] query does not support [" + currentFieldName + "]");
+                }
+            } else {
+                throw new ParsingException(parser.getTokenLocation(),
+                        "[" + TermsQueryBuilder.NAME + "] unknown token [" + token + "] after [" + currentFieldName + "]");
+            }
+        }
+
+        if (fieldName == null) {
+            throw new ParsingException(parser.getTokenLocation(), "[" + TermsQueryBuilder.NAME + "] query requires a field name, " +
+                    "followed by array of terms");
+        }
+        return Optional.of(new TermsQueryBuilder(fieldName, values)
+                .boost(boost)
+                .queryName(queryName));
+    }
+
+    private static List<Object> parseValues(XContentParser parser) throws IOException {
+        List<Object> values = new ArrayList<>();
+        while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+            Object value = parser.objectBytes();
+            if (value == null) {
+                throw new ParsingException(parser.getTokenLocation(), "No value specified for terms query");
+            }
+            values.add(value);
+        }
+        return values;
     }
 
     @Override
@@ -289,18 +416,35 @@ public class TermsQueryBuilder extends AbstractQueryBuilder<TermsQueryBuilder> {
 
     @Override
     protected Query doToQuery(QueryShardContext context) throws IOException {
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        if (values == null || values.isEmpty()) {
+            return Queries.newMatchNoDocsQuery("No terms supplied for \"" + getName() + "\" query.");
+        }
+        MappedFieldType fieldType = context.fieldMapper(fieldName);
+        if (fieldType != null) {
+            return fieldType.termsQuery(values, context);
+        }
+        BytesRef[] filterValues = new BytesRef[values.size()];
+        for (int i = 0; i < filterValues.length; i++) {
+            filterValues[i] = BytesRefs.toBytesRef(values.get(i));
+        }
+        return new TermsQuery(fieldName, filterValues);
     }
 
 
+    @Override
+    protected boolean cacheHashCode() {
+        return true;
+    }
+
     @Override
     protected int doHashCode() {
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        return Objects.hash(fieldName, values);
     }
 
     @Override
     protected boolean doEquals(TermsQueryBuilder other) {
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        return Objects.equals(fieldName, other.fieldName) &&
+                Objects.equals(values, other.values);
     }
 
     @Override
@@ -128,6 +128,11 @@ public class TypeQueryBuilder extends AbstractQueryBuilder<TypeQueryBuilder> {
         throw new UnsupportedOperationException("querybuilders does not support this operation.");
     }
 
+    @Override
+    protected boolean cacheHashCode() {
+        return true;
+    }
+
     @Override
     protected int doHashCode() {
         return Objects.hash(type);
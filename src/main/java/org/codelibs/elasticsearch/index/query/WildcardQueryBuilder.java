@@ -19,14 +19,20 @@
 
 package org.codelibs.elasticsearch.index.query;
 
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.MultiTermQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.WildcardQuery;
 import org.codelibs.elasticsearch.common.ParseField;
 import org.codelibs.elasticsearch.common.ParsingException;
 import org.codelibs.elasticsearch.common.Strings;
 import org.codelibs.elasticsearch.common.io.stream.StreamInput;
 import org.codelibs.elasticsearch.common.io.stream.StreamOutput;
+import org.codelibs.elasticsearch.common.lucene.BytesRefs;
 import org.codelibs.elasticsearch.common.xcontent.XContentBuilder;
 import org.codelibs.elasticsearch.common.xcontent.XContentParser;
+import org.codelibs.elasticsearch.index.mapper.MappedFieldType;
+import org.codelibs.elasticsearch.index.query.support.QueryParsers;
 import java.io.IOException;
 import java.util.Objects;
 import java.util.Optional;
@@ -178,7 +184,19 @@ public class WildcardQueryBuilder extends AbstractQueryBuilder<WildcardQueryBuil
 
     @Override
     protected Query doToQuery(QueryShardContext context) throws IOException {
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        MappedFieldType fieldType = context.fieldMapper(fieldName);
+        Term term;
+        if (fieldType == null) {
+            term = new Term(fieldName, BytesRefs.toBytesRef(value));
+        } else {
+            Query termQuery = fieldType.termQuery(value, context);
+            term = MappedFieldType.extractTerm(termQuery);
+        }
+
+        WildcardQuery query = new WildcardQuery(term);
+        MultiTermQuery.RewriteMethod rewriteMethod = QueryParsers.parseRewriteMethod(rewrite, null);
+        QueryParsers.setRewriteMethod(query, rewriteMethod);
+        return query;
     }
 
     @Override
@@ -149,6 +149,11 @@ public class WrapperQueryBuilder extends AbstractQueryBuilder<WrapperQueryBuilde
         throw new UnsupportedOperationException("this query must be rewritten first");
     }
 
+    @Override
+    protected boolean cacheHashCode() {
+        return true;
+    }
+
     @Override
     protected int doHashCode() {
         return Arrays.hashCode(source);
@@ -21,6 +21,7 @@ package org.codelibs.elasticsearch.index.search;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.CommonTermsQuery;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
@@ -206,11 +207,71 @@ public class MatchQuery {
     }
 
     protected Analyzer getAnalyzer(MappedFieldType fieldType) {
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        if (this.analyzer == null) {
+            if (fieldType != null) {
+                return context.getSearchAnalyzer(fieldType);
+            }
+            return context.getFieldTypes().defaultSearchAnalyzer();
+        } else {
+            Analyzer analyzer = context.getAnalyzer(this.analyzer);
+            if (analyzer == null) {
+                throw new IllegalArgumentException("No analyzer found for [" + this.analyzer + "]");
+            }
+            return analyzer;
+        }
     }
 
     public Query parse(Type type, String fieldName, Object value) throws IOException {
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        final String field;
+        MappedFieldType fieldType = context.fieldMapper(fieldName);
+        if (fieldType != null) {
+            field = fieldType.name();
+        } else {
+            field = fieldName;
+        }
+
+        /*
+         * If the user forced an analyzer we really don't care if they are
+         * searching a type that wants term queries to be used with query string
+         * because the QueryBuilder will take care of it. If they haven't forced
+         * an analyzer then types like NumberFieldType that want terms with
+         * query string will blow up because their analyzer isn't capable of
+         * passing through QueryBuilder.
+         */
+        boolean noForcedAnalyzer = this.analyzer == null;
+        if (fieldType != null && fieldType.tokenized() == false && noForcedAnalyzer) {
+            return blendTermQuery(new Term(fieldName, value.toString()), fieldType);
+        }
+
+        Analyzer analyzer = getAnalyzer(fieldType);
+        assert analyzer != null;
+        MatchQueryBuilder builder = new MatchQueryBuilder(analyzer, fieldType);
+        builder.setEnablePositionIncrements(this.enablePositionIncrements);
+
+        Query query = null;
+        switch (type) {
+            case BOOLEAN:
+                if (commonTermsCutoff == null) {
+                    query = builder.createBooleanQuery(field, value.toString(), occur);
+                } else {
+                    query = builder.createCommonTermsQuery(field, value.toString(), occur, occur, commonTermsCutoff);
+                }
+                break;
+            case PHRASE:
+                query = builder.createPhraseQuery(field, value.toString(), phraseSlop);
+                break;
+            case PHRASE_PREFIX:
+                query = builder.createPhrasePrefixQuery(field, value.toString(), phraseSlop, maxExpansions);
+                break;
+            default:
+                throw new IllegalStateException("No type found for [" + type + "]");
+        }
+
+        if (query == null) {
+            return zeroTermsQuery();
+        } else {
+            return query;
+        }
     }
 
     protected final Query termQuery(MappedFieldType fieldType, Object value, boolean lenient) {
@@ -266,4 +327,81 @@ public class MatchQuery {
         return new TermQuery(term);
     }
 
+    private class MatchQueryBuilder extends QueryBuilder {
+
+        private final MappedFieldType mapper;
+
+        /**
+         * Creates a new QueryBuilder using the given analyzer.
+         */
+        MatchQueryBuilder(Analyzer analyzer, @Nullable MappedFieldType mapper) {
+            super(analyzer);
+            this.mapper = mapper;
+        }
+
+        @Override
+        protected Query newTermQuery(Term term) {
+            return blendTermQuery(term, mapper);
+        }
+
+        @Override
+        protected Query newSynonymQuery(Term[] terms) {
+            return blendTermsQuery(terms, mapper);
+        }
+
+        public Query createPhrasePrefixQuery(String field, String queryText, int phraseSlop, int maxExpansions) {
+            final Query query = createFieldQuery(getAnalyzer(), Occur.MUST, field, queryText, true, phraseSlop);
+            float boost = 1;
+            Query innerQuery = query;
+            while (innerQuery instanceof BoostQuery) {
+                BoostQuery bq = (BoostQuery) innerQuery;
+                boost *= bq.getBoost();
+                innerQuery = bq.getQuery();
+            }
+            final MultiPhrasePrefixQuery prefixQuery = new MultiPhrasePrefixQuery();
+            prefixQuery.setMaxExpansions(maxExpansions);
+            prefixQuery.setSlop(phraseSlop);
+            if (innerQuery instanceof PhraseQuery) {
+                PhraseQuery pq = (PhraseQuery) innerQuery;
+                Term[] terms = pq.getTerms();
+                int[] positions = pq.getPositions();
+                for (int i = 0; i < terms.length; i++) {
+                    prefixQuery.add(new Term[] {terms[i]}, positions[i]);
+                }
+                return boost == 1 ? prefixQuery : new BoostQuery(prefixQuery, boost);
+            } else if (innerQuery instanceof MultiPhraseQuery) {
+                MultiPhraseQuery pq = (MultiPhraseQuery) innerQuery;
+                Term[][] terms = pq.getTermArrays();
+                int[] positions = pq.getPositions();
+                for (int i = 0; i < terms.length; i++) {
+                    prefixQuery.add(terms[i], positions[i]);
+                }
+                return boost == 1 ? prefixQuery : new BoostQuery(prefixQuery, boost);
+            } else if (innerQuery instanceof TermQuery) {
+                prefixQuery.add(((TermQuery) innerQuery).getTerm());
+                return boost == 1 ? prefixQuery : new BoostQuery(prefixQuery, boost);
+            } else if (innerQuery instanceof AllTermQuery) {
+                prefixQuery.add(((AllTermQuery) innerQuery).getTerm());
+                return boost == 1 ? prefixQuery : new BoostQuery(prefixQuery, boost);
+            }
+            return query;
+        }
+
+        public Query createCommonTermsQuery(String field, String queryText, Occur highFreqOccur, Occur lowFreqOccur,
+                float maxTermFrequency) {
+            Query booleanQuery = createBooleanQuery(field, queryText, lowFreqOccur);
+            if (booleanQuery != null && booleanQuery instanceof BooleanQuery) {
+                BooleanQuery bq = (BooleanQuery) booleanQuery;
+                CommonTermsQuery query = new CommonTermsQuery(highFreqOccur, lowFreqOccur, maxTermFrequency, bq.isCoordDisabled());
+                for (BooleanClause clause : bq.clauses()) {
+                    if (!(clause.getQuery() instanceof TermQuery)) {
+                        return booleanQuery;
+                    }
+                    query.add(((TermQuery) clause.getQuery()).getTerm());
+                }
+                return query;
+            }
+            return booleanQuery;
+        }
+    }
 }
@@ -0,0 +1,183 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.elasticsearch.indices.breaker;
+
+import org.codelibs.elasticsearch.common.breaker.ChildMemoryCircuitBreaker;
+import org.codelibs.elasticsearch.common.breaker.CircuitBreaker;
+import org.codelibs.elasticsearch.common.breaker.CircuitBreakingException;
+import org.codelibs.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.codelibs.elasticsearch.common.settings.Setting;
+import org.codelibs.elasticsearch.common.settings.Setting.Property;
+import org.codelibs.elasticsearch.common.settings.Settings;
+import org.codelibs.elasticsearch.common.unit.ByteSizeValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CircuitBreakerService that keeps a child breaker per purpose under a parent
+ * breaker. The parent breaker trips when the estimates of all of its children
+ * together go over its limit, even if none of the children did.
+ */
+public class HierarchyCircuitBreakerService extends CircuitBreakerService {
+
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public static final Setting<ByteSizeValue> TOTAL_CIRCUIT_BREAKER_LIMIT_SETTING =
+        Setting.memorySizeSetting("indices.breaker.total.limit", "70%", Property.NodeScope);
+
+    public static final Setting<ByteSizeValue> REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING =
+        Setting.memorySizeSetting("indices.breaker.request.limit", "60%", Property.NodeScope);
+    public static final Setting<Double> REQUEST_CIRCUIT_BREAKER_OVERHEAD_SETTING =
+        Setting.doubleSetting("indices.breaker.request.overhead", 1.0d, 0.0d, Property.NodeScope);
+    public static final Setting<CircuitBreaker.Type> REQUEST_CIRCUIT_BREAKER_TYPE_SETTING =
+        new Setting<>("indices.breaker.request.type", "memory", CircuitBreaker.Type::parseValue, Property.NodeScope);
+
+    private final BreakerSettings parentSettings;
+
+    // Tripped count for when redistribution was attempted but wasn't successful
+    private final AtomicLong parentTripCount = new AtomicLong(0);
+
+    public HierarchyCircuitBreakerService(Settings settings) {
+        this(new BreakerSettings(CircuitBreaker.PARENT, TOTAL_CIRCUIT_BREAKER_LIMIT_SETTING.get(settings).getBytes(), 1.0,
+                CircuitBreaker.Type.PARENT),
+            new BreakerSettings(CircuitBreaker.REQUEST, REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.get(settings).getBytes(),
+                REQUEST_CIRCUIT_BREAKER_OVERHEAD_SETTING.get(settings), REQUEST_CIRCUIT_BREAKER_TYPE_SETTING.get(settings)));
+    }
+
+    /**
+     * @param parentSettings the limit of all children together
+     * @param childSettings  the children to register, such as the {CircuitBreaker#REQUEST} breaker used by {BigArrays}
+     */
+    public HierarchyCircuitBreakerService(BreakerSettings parentSettings, BreakerSettings... childSettings) {
+        super();
+        this.parentSettings = parentSettings;
+        for (BreakerSettings child : childSettings) {
+            registerBreaker(child);
+        }
+    }
+
+    /**
+     * Validate that child settings are valid
+     */
+    public static void validateSettings(BreakerSettings[] childrenSettings) throws IllegalStateException {
+        for (BreakerSettings childSettings : childrenSettings) {
+            // If the child is disabled, ignore it
+            if (childSettings.getLimit() == -1) {
+                continue;
+            }
+
+            if (childSettings.getOverhead() < 0) {
+                throw new IllegalStateException("Child breaker overhead " + childSettings + " must be non-negative");
+            }
+        }
+    }
+
+    @Override
+    public CircuitBreaker getBreaker(String name) {
+        return this.breakers.get(name);
+    }
+
+    @Override
+    public AllCircuitBreakerStats stats() {
+        long parentEstimated = 0;
+        List<CircuitBreakerStats> allStats = new ArrayList<>();
+        // Gather the "estimated" count for the parent breaker by adding the
+        // estimations for each individual breaker
+        for (CircuitBreaker breaker : this.breakers.values()) {
+            allStats.add(stats(breaker.getName()));
+            parentEstimated += breaker.getUsed();
+        }
+        // Manually add the parent breaker settings since they aren't part of the breaker map
+        allStats.add(new CircuitBreakerStats(CircuitBreaker.PARENT, parentSettings.getLimit(),
+                parentEstimated, 1.0, parentTripCount.get()));
+        return new AllCircuitBreakerStats(allStats.toArray(new CircuitBreakerStats[allStats.size()]));
+    }
+
+    @Override
+    public CircuitBreakerStats stats(String name) {
+        if (CircuitBreaker.PARENT.equals(name)) {
+            long parentEstimated = 0;
+            for (CircuitBreaker breaker : this.breakers.values()) {
+                parentEstimated += breaker.getUsed();
+            }
+            return new CircuitBreakerStats(CircuitBreaker.PARENT, parentSettings.getLimit(), parentEstimated, 1.0,
+                    parentTripCount.get());
+        }
+        CircuitBreaker breaker = this.breakers.get(name);
+        return new CircuitBreakerStats(breaker.getName(), breaker.getLimit(), breaker.getUsed(), breaker.getOverhead(),
+                breaker.getTrippedCount());
+    }
+
+    /**
+     * Checks whether the parent breaker has been tripped
+     */
+    public void checkParentLimit(String label) throws CircuitBreakingException {
+        long totalUsed = 0;
+        for (CircuitBreaker breaker : this.breakers.values()) {
+            totalUsed += (breaker.getUsed() * breaker.getOverhead());
+        }
+
+        long parentLimit = this.parentSettings.getLimit();
+        if (totalUsed > parentLimit) {
+            this.parentTripCount.incrementAndGet();
+            final String message = "[parent] Data too large, data for [" + label + "]" +
+                    " would be [" + totalUsed + "/" + new ByteSizeValue(totalUsed) + "]" +
+                    ", which is larger than the limit of [" +
+                    parentLimit + "/" + new ByteSizeValue(parentLimit) + "]";
+            throw new CircuitBreakingException(message, totalUsed, parentLimit);
+        }
+    }
+
+    /**
+     * Allows to register a custom circuit breaker.
+     * Warning: Will overwrite any existing custom breaker with the same name.
+     */
+    @Override
+    public void registerBreaker(BreakerSettings breakerSettings) {
+        // Validate the settings
+        validateSettings(new BreakerSettings[] {breakerSettings});
+
+        if (breakerSettings.getType() == CircuitBreaker.Type.NOOP) {
+            CircuitBreaker breaker = new NoopCircuitBreaker(breakerSettings.getName());
+            breakers.put(breakerSettings.getName(), breaker);
+        } else {
+            CircuitBreaker oldBreaker;
+            CircuitBreaker breaker = new ChildMemoryCircuitBreaker(breakerSettings, this, breakerSettings.getName());
+
+            for (;;) {
+                oldBreaker = breakers.putIfAbsent(breakerSettings.getName(), breaker);
+                if (oldBreaker == null) {
+                    return;
+                }
+                breaker = new ChildMemoryCircuitBreaker(breakerSettings,
+                        oldBreaker instanceof ChildMemoryCircuitBreaker ? (ChildMemoryCircuitBreaker) oldBreaker : null,
+                        this, breakerSettings.getName());
+
+                if (breakers.replace(breakerSettings.getName(), oldBreaker, breaker)) {
+                    return;
+                }
+            }
+        }
+    }
+}
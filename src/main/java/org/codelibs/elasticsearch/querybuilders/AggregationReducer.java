@@ -0,0 +1,259 @@
+package org.codelibs.elasticsearch.querybuilders;
+
+import org.codelibs.elasticsearch.common.Nullable;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.codelibs.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.codelibs.elasticsearch.common.io.stream.StreamInput;
+import org.codelibs.elasticsearch.common.util.BigArrays;
+import org.codelibs.elasticsearch.search.aggregations.InternalAggregation;
+import org.codelibs.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.codelibs.elasticsearch.search.aggregations.InternalAggregations;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.SiblingPipelineAggregator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reduces the aggregation results of many shards or clusters into a single {InternalAggregations}, the way the
+ * coordinating node of a search does.
+ * <p>
+ * Results are reduced in batches of at most {#getBatchSize()} results. Every batch is partially reduced into one result
+ * which keeps all the buckets, so that the final reduce, which applies sizes, <tt>min_doc_count</tt>, ordering and
+ * pipeline aggregations, gives the same result as reducing all the results at once. When a {ForkJoinPool} is given,
+ * {#reduce(List)} reduces the batches in parallel; {#newBuffer()} consumes results one by one so that only a single
+ * batch is kept in memory.
+ * <pre>
+ * AggregationReducer reducer = new AggregationReducer(new SearchModule().getNamedWriteableRegistry());
+ * AggregationReducer.Buffer buffer = reducer.newBuffer();
+ * for (BytesReference response : responses) {
+ *     buffer.add(response);
+ * }
+ * InternalAggregations aggregations = buffer.reduce();
+ * </pre>
+ * Reducing takes ownership of the given results: buckets of the inputs may be modified and must not be used afterwards.
+ */
+public class AggregationReducer {
+
+    public static final int DEFAULT_BATCH_SIZE = 32;
+
+    private final NamedWriteableRegistry namedWriteableRegistry;
+
+    private final BigArrays bigArrays;
+
+    private final int batchSize;
+
+    private final ForkJoinPool pool;
+
+    public AggregationReducer(NamedWriteableRegistry namedWriteableRegistry) {
+        this(namedWriteableRegistry, BigArrays.NON_RECYCLING_INSTANCE, DEFAULT_BATCH_SIZE, null);
+    }
+
+    /**
+     * @param namedWriteableRegistry registry used to read serialized results
+     * @param bigArrays              arrays used by the reductions, e.g. for terms and geohash grids. Allocations check the
+     *                               circuit breaker of the arrays, if any, so that a reduction that grows too large fails
+     *                               fast
+     * @param batchSize              the maximum number of results reduced at once, at least 2
+     * @param pool                   pool to reduce batches in parallel, or <code>null</code> to reduce on the calling thread
+     */
+    public AggregationReducer(NamedWriteableRegistry namedWriteableRegistry, BigArrays bigArrays, int batchSize,
+            @Nullable ForkJoinPool pool) {
+        if (batchSize < 2) {
+            throw new IllegalArgumentException("[batchSize] must be at least 2 but was [" + batchSize + "]");
+        }
+        this.namedWriteableRegistry = namedWriteableRegistry;
+        this.bigArrays = bigArrays.withCircuitBreaking();
+        this.batchSize = batchSize;
+        this.pool = pool;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Reads aggregations written by {InternalAggregations#writeTo}.
+     */
+    public InternalAggregations readAggregations(StreamInput in) throws IOException {
+        return InternalAggregations.readAggregations(new NamedWriteableAwareStreamInput(in, namedWriteableRegistry));
+    }
+
+    /**
+     * Reads aggregations written by {InternalAggregations#writeTo}.
+     */
+    public InternalAggregations readAggregations(BytesReference bytes) throws IOException {
+        try (StreamInput in = bytes.streamInput()) {
+            return readAggregations(in);
+        }
+    }
+
+    /**
+     * Reduces the given results into the final result.
+     */
+    public InternalAggregations reduce(List<InternalAggregations> results) {
+        return reduce(results, Collections.emptyList());
+    }
+
+    /**
+     * Reduces the given results into the final result and appends the results of the top level sibling pipeline
+     * aggregators to it.
+     */
+    public InternalAggregations reduce(List<InternalAggregations> results, List<SiblingPipelineAggregator> pipelineAggregators) {
+        if (results.size() > batchSize) {
+            results = Collections.singletonList(partialReduce(results));
+        }
+        return finalReduce(results, pipelineAggregators);
+    }
+
+    /**
+     * Reduces the given results into a single result that keeps all buckets. A partial result can be reduced again
+     * together with other results.
+     */
+    public InternalAggregations partialReduce(List<InternalAggregations> results) {
+        if (results.isEmpty()) {
+            return InternalAggregations.EMPTY;
+        }
+        if (pool != null && results.size() > batchSize) {
+            return pool.invoke(new PartialReduceTask(results, 0, results.size()));
+        }
+        Buffer buffer = newBuffer();
+        for (InternalAggregations result : results) {
+            buffer.add(result);
+        }
+        return buffer.partialReduce();
+    }
+
+    /**
+     * Creates a buffer to reduce results as they arrive.
+     */
+    public Buffer newBuffer() {
+        return new Buffer();
+    }
+
+    private InternalAggregations doReduce(List<InternalAggregations> results, boolean isFinalReduce) {
+        if (results.isEmpty()) {
+            return InternalAggregations.EMPTY;
+        }
+        if (results.size() == 1 && isFinalReduce == false) {
+            return results.get(0);
+        }
+        return InternalAggregations.reduce(results, new ReduceContext(bigArrays, isFinalReduce));
+    }
+
+    private InternalAggregations finalReduce(List<InternalAggregations> results, List<SiblingPipelineAggregator> pipelineAggregators) {
+        InternalAggregations aggregations = doReduce(results, true);
+        if (pipelineAggregators.isEmpty()) {
+            return aggregations;
+        }
+        ReduceContext reduceContext = new ReduceContext(bigArrays, true);
+        List<InternalAggregation> newAggs = new ArrayList<>();
+        aggregations.forEach(aggregation -> newAggs.add((InternalAggregation) aggregation));
+        for (SiblingPipelineAggregator pipelineAggregator : pipelineAggregators) {
+            InternalAggregation newAgg = pipelineAggregator.doReduce(new InternalAggregations(newAggs), reduceContext);
+            newAggs.add(newAgg);
+        }
+        return new InternalAggregations(newAggs);
+    }
+
+    /**
+     * Collects results and partially reduces them whenever a batch is full, so that the memory used stays bounded by
+     * the batch size no matter how many results are added. The methods are synchronized, results can be added from
+     * several threads. A buffer is reduced once, after all results have been added.
+     */
+    public final class Buffer {
+
+        private final InternalAggregations[] buffer = new InternalAggregations[batchSize];
+
+        private int index;
+
+        private int numResults;
+
+        private Buffer() {
+        }
+
+        public synchronized Buffer add(InternalAggregations result) {
+            if (index == buffer.length) {
+                InternalAggregations partial = doReduce(Arrays.asList(buffer), false);
+                Arrays.fill(buffer, null);
+                buffer[0] = partial;
+                index = 1;
+            }
+            buffer[index++] = result;
+            numResults++;
+            return this;
+        }
+
+        public Buffer add(BytesReference bytes) throws IOException {
+            return add(readAggregations(bytes));
+        }
+
+        /**
+         * Returns the number of results added to this buffer.
+         */
+        public synchronized int getNumResults() {
+            return numResults;
+        }
+
+        /**
+         * Reduces the results added so far into the final result.
+         */
+        public InternalAggregations reduce() {
+            return reduce(Collections.emptyList());
+        }
+
+        /**
+         * Reduces the results added so far into the final result and appends the results of the top level sibling
+         * pipeline aggregators to it.
+         */
+        public synchronized InternalAggregations reduce(List<SiblingPipelineAggregator> pipelineAggregators) {
+            return finalReduce(Arrays.asList(buffer).subList(0, index), pipelineAggregators);
+        }
+
+        synchronized InternalAggregations partialReduce() {
+            return doReduce(Arrays.asList(buffer).subList(0, index), false);
+        }
+    }
+
+    @SuppressWarnings("serial") // tasks are never serialized
+    private class PartialReduceTask extends RecursiveTask<InternalAggregations> {
+
+        private final List<InternalAggregations> results;
+
+        private final int from;
+
+        private final int to;
+
+        PartialReduceTask(List<InternalAggregations> results, int from, int to) {
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected InternalAggregations compute() {
+            int size = to - from;
+            if (size <= batchSize) {
+                return doReduce(results.subList(from, to), false);
+            }
+            // split into at most batchSize slices, each of them is reduced into one partial result
+            int numSlices = Math.min(batchSize, (size + batchSize - 1) / batchSize);
+            List<PartialReduceTask> tasks = new ArrayList<>(numSlices);
+            for (int i = 0; i < numSlices; i++) {
+                tasks.add(new PartialReduceTask(results, from + (int) ((long) size * i / numSlices),
+                        from + (int) ((long) size * (i + 1) / numSlices)));
+            }
+            invokeAll(tasks);
+            List<InternalAggregations> partials = new ArrayList<>(numSlices);
+            for (PartialReduceTask task : tasks) {
+                partials.add(task.join());
+            }
+            return doReduce(partials, false);
+        }
+    }
+}
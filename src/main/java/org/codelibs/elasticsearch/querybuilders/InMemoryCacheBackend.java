@@ -0,0 +1,245 @@
+package org.codelibs.elasticsearch.querybuilders;
+
+import org.codelibs.elasticsearch.common.unit.ByteSizeValue;
+import org.codelibs.elasticsearch.common.unit.TimeValue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * A {SearchResultCache.Backend} that keeps the entries on the heap, within a budget of bytes as estimated by a weigher.
+ * Entries expire after their time to live and the least recently used entries are evicted first. With
+ * {EvictionPolicy#TINY_LFU} a new entry is only admitted if it was requested more often recently than the entries it
+ * would evict, which keeps one-off searches from flushing the entries of searches that are repeated.
+ */
+public class InMemoryCacheBackend<V> implements SearchResultCache.Backend<V> {
+
+    /**
+     * Estimated overhead of an entry on top of the weight of its value.
+     */
+    static final long ENTRY_OVERHEAD = 128;
+
+    public enum EvictionPolicy {
+        /** Always admit new entries and evict the least recently used ones. */
+        LRU,
+        /** Evict the least recently used entries, but only for a new entry that is requested more often than them. */
+        TINY_LFU
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long weight;
+        final long expiresAt;
+
+        Entry(V value, long weight, long expiresAt) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final long budget;
+
+    private final ToLongFunction<V> weigher;
+
+    private final EvictionPolicy policy;
+
+    private final LongSupplier clock;
+
+    private final LinkedHashMap<SearchResultCache.Fingerprint, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final FrequencySketch sketch = new FrequencySketch();
+
+    private long sizeInBytes;
+
+    private long evictions;
+
+    public InMemoryCacheBackend(ByteSizeValue budget, ToLongFunction<V> weigher, EvictionPolicy policy) {
+        this(budget, weigher, policy, System::currentTimeMillis);
+    }
+
+    /**
+     * @param budget  the maximum estimated size of the entries
+     * @param weigher estimates the size of a value in bytes
+     * @param policy  decides which entries are evicted
+     * @param clock   the current time in milliseconds, to expire entries
+     */
+    public InMemoryCacheBackend(ByteSizeValue budget, ToLongFunction<V> weigher, EvictionPolicy policy, LongSupplier clock) {
+        if (budget.getBytes() <= 0) {
+            throw new IllegalArgumentException("[budget] must be positive but was [" + budget + "]");
+        }
+        this.budget = budget.getBytes();
+        this.weigher = weigher;
+        this.policy = policy;
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized V get(SearchResultCache.Fingerprint key) {
+        sketch.increment(key);
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt - clock.getAsLong() <= 0) {
+            remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public synchronized void put(SearchResultCache.Fingerprint key, V value, TimeValue timeToLive) {
+        final long weight = weigher.applyAsLong(value) + ENTRY_OVERHEAD;
+        // a replaced entry was admitted already
+        final boolean admitted = entries.containsKey(key);
+        remove(key);
+        if (weight > budget) {
+            evictions++;
+            return;
+        }
+        if (sizeInBytes + weight > budget) {
+            // the least recently used entries that have to go to make room
+            final List<SearchResultCache.Fingerprint> victims = new ArrayList<>();
+            final int frequency = sketch.frequency(key);
+            long freed = 0;
+            for (Map.Entry<SearchResultCache.Fingerprint, Entry<V>> victim : entries.entrySet()) {
+                if (policy == EvictionPolicy.TINY_LFU && admitted == false && sketch.frequency(victim.getKey()) >= frequency) {
+                    evictions++;
+                    return;
+                }
+                victims.add(victim.getKey());
+                freed += victim.getValue().weight;
+                if (sizeInBytes - freed + weight <= budget) {
+                    break;
+                }
+            }
+            for (SearchResultCache.Fingerprint victim : victims) {
+                remove(victim);
+                evictions++;
+            }
+        }
+        entries.put(key, new Entry<>(value, weight, clock.getAsLong() + timeToLive.millis()));
+        sizeInBytes += weight;
+        sketch.ensureCapacity(entries.size());
+    }
+
+    private void remove(SearchResultCache.Fingerprint key) {
+        Entry<V> entry = entries.remove(key);
+        if (entry != null) {
+            sizeInBytes -= entry.weight;
+        }
+    }
+
+    @Override
+    public synchronized void invalidate(SearchResultCache.Fingerprint key) {
+        remove(key);
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        entries.clear();
+        sizeInBytes = 0;
+    }
+
+    /**
+     * Removes the expired entries. Expired entries are otherwise only removed when they are requested or evicted.
+     */
+    public synchronized void removeExpired() {
+        final long now = clock.getAsLong();
+        for (Iterator<Entry<V>> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry<V> entry = it.next();
+            if (entry.expiresAt - now <= 0) {
+                sizeInBytes -= entry.weight;
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized long count() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * A count-min sketch of how often keys were requested recently, with four 4 bit counters per key. All counters are
+     * halved once the number of increments reaches ten times the number of keys the sketch is sized for, so that the
+     * frequencies follow the recent requests.
+     */
+    static final class FrequencySketch {
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+        private long[] table = new long[16];
+        private int sampleSize = 10 * table.length;
+        private int size;
+
+        /**
+         * Grows the sketch to count the frequency of about <code>maximumSize</code> keys. Growing resets all counters.
+         */
+        void ensureCapacity(int maximumSize) {
+            if (maximumSize <= table.length) {
+                return;
+            }
+            int length = Integer.highestOneBit(Math.min(maximumSize, 1 << 28) - 1) << 1;
+            table = new long[length];
+            sampleSize = 10 * length;
+            size = 0;
+        }
+
+        int frequency(SearchResultCache.Fingerprint key) {
+            final long hash = hash(key);
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < SEEDS.length; i++) {
+                final int counter = counter(hash, i);
+                frequency = Math.min(frequency, (int) ((table[counter >>> 4] >>> ((counter & 15) << 2)) & 0xF));
+            }
+            return frequency;
+        }
+
+        void increment(SearchResultCache.Fingerprint key) {
+            final long hash = hash(key);
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                final int counter = counter(hash, i);
+                final int index = counter >>> 4;
+                final int shift = (counter & 15) << 2;
+                if (((table[index] >>> shift) & 0xF) != 0xF) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++size == sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                size /= 2;
+            }
+        }
+
+        private int counter(long hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h ^= h >>> 32;
+            return (int) h & ((table.length << 4) - 1);
+        }
+
+        private static long hash(SearchResultCache.Fingerprint key) {
+            return key.getHigh() * 31 + key.getLow();
+        }
+    }
+}
@@ -0,0 +1,716 @@
+package org.codelibs.elasticsearch.querybuilders;
+
+import com.fasterxml.jackson.core.util.BufferRecycler;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.codelibs.elasticsearch.ElasticsearchException;
+import org.codelibs.elasticsearch.common.bytes.BytesArray;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.xcontent.ToXContent;
+import org.codelibs.elasticsearch.common.xcontent.XContent;
+import org.codelibs.elasticsearch.common.xcontent.XContentBuilder;
+import org.codelibs.elasticsearch.common.xcontent.XContentBuilderPool;
+import org.codelibs.elasticsearch.common.xcontent.XContentType;
+import org.codelibs.elasticsearch.common.xcontent.smile.SmileXContent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A builder tree rendered once into pre-encoded bytes with typed parameter slots.
+ * <p>
+ * Slots are declared with {Slots} and placed in the builder tree like ordinary values. The tree is rendered by
+ * {#compile(XContentType, ToXContent, Slots)} and every slot is cut out of the output, so that rendering a
+ * template with {Bindings} only copies the literal bytes and encodes the bound values. The output is the same as
+ * the builder tree built with these values would produce with toXContent. JSON (not pretty printed) and SMILE are
+ * supported; SMILE is rendered with {#SMILE}, whatever output buffer Jackson recycled on the thread before.
+ * <pre>
+ * QueryTemplate.Slots slots = new QueryTemplate.Slots();
+ * QueryTemplate template = QueryTemplate.compile(XContentType.JSON,
+ *         boolQuery().filter(termQuery("user", slots.string("user"))).filter(rangeQuery("age").gte(slots.longValue("age"))),
+ *         slots);
+ * QueryTemplate.Bindings bindings = template.newBindings();
+ * bindings.set("user", "kimchy").set("age", 20).writeTo(out);
+ * </pre>
+ * A template is immutable and can be shared between threads, {Bindings} are not thread safe and are meant to be
+ * reused by a single thread.
+ */
+public class QueryTemplate {
+
+    public enum SlotType {
+        STRING, LONG, DOUBLE, DATE, STRING_ARRAY, LONG_ARRAY
+    }
+
+    /**
+     * Output buffer size of Jackson's SMILE generator. Strings that may not fit into it are always written as long
+     * unicode strings, which has to be reproduced to stay byte identical.
+     */
+    static final int SMILE_OUTPUT_BUFFER_SIZE = 8000;
+
+    /**
+     * The SMILE content templates are compiled with. Jackson recycles output buffers per thread across formats, and a
+     * generator that takes over the larger buffer of a CBOR generator encodes long strings differently, so its
+     * generators recycle their own buffers, which always have {#SMILE_OUTPUT_BUFFER_SIZE} bytes.
+     */
+    static final XContent SMILE = SmileXContent.newSmileXContent(new TemplateSmileFactory());
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] LONG_MIN_VALUE = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private final XContentType type;
+
+    private final byte[] literals;
+
+    /** the literal bytes before slot i are [literalEnds[i - 1], literalEnds[i]), the trailing literal ends with the array */
+    private final int[] literalEnds;
+
+    /** slot index of each occurrence, in output order */
+    private final int[] occurrences;
+
+    private final String[] names;
+
+    private final SlotType[] types;
+
+    private final Map<String, Integer> slotIndexes;
+
+    private QueryTemplate(XContentType type, byte[] literals, int[] literalEnds, int[] occurrences, String[] names,
+            SlotType[] types) {
+        this.type = type;
+        this.literals = literals;
+        this.literalEnds = literalEnds;
+        this.occurrences = occurrences;
+        this.names = names;
+        this.types = types;
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            indexes.put(names[i], i);
+        }
+        this.slotIndexes = Collections.unmodifiableMap(indexes);
+    }
+
+    /**
+     * Renders the given builder tree and compiles it into a template. Every slot declared in {@code slots} must appear
+     * in the output as a plain string value at least once.
+     */
+    public static QueryTemplate compile(XContentType type, ToXContent content, Slots slots) {
+        if (type != XContentType.JSON && type != XContentType.SMILE) {
+            throw new IllegalArgumentException("query templates do not support content type [" + type + "]");
+        }
+        final byte[] rendered;
+        try (XContentBuilderPool.Lease lease = XContentBuilderPool.acquire(type == XContentType.SMILE ? SMILE : type.xContent())) {
+            XContentBuilder builder = lease.builder();
+            content.toXContent(builder, ToXContent.EMPTY_PARAMS);
+            rendered = BytesReference.toBytes(lease.bytes());
+        } catch (IOException e) {
+            throw new ElasticsearchException("Failed to compile query template", e);
+        }
+
+        final byte[] marker = slots.markerPrefix.getBytes(StandardCharsets.US_ASCII);
+        final ByteArrayBuilder literals = new ByteArrayBuilder(rendered.length);
+        final List<Integer> literalEnds = new ArrayList<>();
+        final List<Integer> occurrences = new ArrayList<>();
+        final boolean[] found = new boolean[slots.names.size()];
+        int copied = 0;
+        int pos = indexOf(rendered, marker, 0);
+        while (pos >= 0) {
+            int digits = pos + marker.length;
+            int end = digits;
+            int slot = 0;
+            while (end < rendered.length && rendered[end] >= '0' && rendered[end] <= '9') {
+                slot = slot * 10 + (rendered[end++] - '0');
+            }
+            if (end == digits || end >= rendered.length || rendered[end] != '$' || slot >= found.length) {
+                throw new IllegalArgumentException("malformed slot marker at offset [" + pos + "]");
+            }
+            end++;
+            final int tokenStart;
+            final int tokenEnd;
+            final int markerLength = end - pos;
+            if (type == XContentType.JSON) {
+                tokenStart = pos - 1;
+                tokenEnd = end + 1;
+                if (tokenStart < copied || rendered[tokenStart] != '"' || tokenEnd > rendered.length || rendered[end] != '"') {
+                    throw new IllegalArgumentException("slot [" + slots.names.get(slot) + "] is not rendered as a string value");
+                }
+            } else {
+                tokenStart = pos - 1;
+                tokenEnd = end;
+                if (tokenStart < copied || (rendered[tokenStart] & 0xFF) != 0x40 + markerLength - 1) {
+                    throw new IllegalArgumentException("slot [" + slots.names.get(slot) + "] is not rendered as a string value");
+                }
+            }
+            literals.append(rendered, copied, tokenStart - copied);
+            literalEnds.add(literals.length());
+            occurrences.add(slot);
+            found[slot] = true;
+            copied = tokenEnd;
+            pos = indexOf(rendered, marker, copied);
+        }
+        literals.append(rendered, copied, rendered.length - copied);
+
+        for (int i = 0; i < found.length; i++) {
+            if (found[i] == false) {
+                throw new IllegalArgumentException("slot [" + slots.names.get(i) + "] does not appear in the rendered content");
+            }
+        }
+        int[] ends = new int[literalEnds.size()];
+        int[] slotOccurrences = new int[occurrences.size()];
+        for (int i = 0; i < ends.length; i++) {
+            ends[i] = literalEnds.get(i);
+            slotOccurrences[i] = occurrences.get(i);
+        }
+        return new QueryTemplate(type, literals.toArray(), ends, slotOccurrences, slots.names.toArray(new String[0]),
+                slots.types.toArray(new SlotType[0]));
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern, int from) {
+        final byte first = pattern[0];
+        final int last = bytes.length - pattern.length;
+        outer: for (int i = from; i <= last; i++) {
+            if (bytes[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < pattern.length; j++) {
+                if (bytes[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    public XContentType type() {
+        return type;
+    }
+
+    public int slotCount() {
+        return names.length;
+    }
+
+    /**
+     * Returns the index of the given slot, which can be used to bind values without a name lookup.
+     */
+    public int slot(String name) {
+        Integer index = slotIndexes.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("unknown slot [" + name + "]");
+        }
+        return index;
+    }
+
+    public String slotName(int slot) {
+        return names[slot];
+    }
+
+    public SlotType slotType(int slot) {
+        return types[slot];
+    }
+
+    public Bindings newBindings() {
+        return new Bindings(this);
+    }
+
+    /**
+     * Declares the slots of a template. Each method returns a marker value that is placed into the builder tree
+     * where the value should go; markers are unique to this instance.
+     */
+    public static class Slots {
+        private final String markerPrefix = "$QT" + Long.toHexString(ThreadLocalRandom.current().nextLong()) + "$";
+
+        private final List<String> names = new ArrayList<>();
+
+        private final List<SlotType> types = new ArrayList<>();
+
+        public String string(String name) {
+            return add(name, SlotType.STRING);
+        }
+
+        public String longValue(String name) {
+            return add(name, SlotType.LONG);
+        }
+
+        public String doubleValue(String name) {
+            return add(name, SlotType.DOUBLE);
+        }
+
+        /**
+         * A date slot is bound either with epoch millis, which are printed like XContentBuilder prints dates, or with
+         * a string such as a date math expression.
+         */
+        public String date(String name) {
+            return add(name, SlotType.DATE);
+        }
+
+        /**
+         * The marker of an array slot must be the only element of its array, e.g. termsQuery("tags", slots.strings("tags")).
+         */
+        public String strings(String name) {
+            return add(name, SlotType.STRING_ARRAY);
+        }
+
+        public String longs(String name) {
+            return add(name, SlotType.LONG_ARRAY);
+        }
+
+        private String add(String name, SlotType type) {
+            int index = names.indexOf(name);
+            if (index >= 0) {
+                if (types.get(index) != type) {
+                    throw new IllegalArgumentException("slot [" + name + "] is already declared as [" + types.get(index) + "]");
+                }
+            } else {
+                index = names.size();
+                names.add(name);
+                types.add(type);
+            }
+            return markerPrefix + index + "$";
+        }
+    }
+
+    /**
+     * Values bound to the slots of a template. Bindings keep their values and output buffer between renderings, so
+     * rendering the same shape again does not allocate once the buffer has grown to size.
+     */
+    public static class Bindings {
+        private final QueryTemplate template;
+
+        private final boolean[] bound;
+
+        private final long[] longValues;
+
+        private final Object[] values;
+
+        private final StringBuilder dateBuffer = new StringBuilder(32);
+
+        private byte[] buffer;
+
+        private int length;
+
+        Bindings(QueryTemplate template) {
+            this.template = template;
+            int slots = template.names.length;
+            this.bound = new boolean[slots];
+            this.longValues = new long[slots];
+            this.values = new Object[slots];
+            this.buffer = new byte[template.literals.length + 16 * template.occurrences.length + 16];
+        }
+
+        public QueryTemplate template() {
+            return template;
+        }
+
+        public Bindings set(String name, String value) {
+            return set(template.slot(name), value);
+        }
+
+        public Bindings set(int slot, String value) {
+            checkType(slot, SlotType.STRING, SlotType.DATE);
+            if (value == null) {
+                throw new IllegalArgumentException("slot [" + template.names[slot] + "] cannot be bound to null");
+            }
+            values[slot] = value;
+            bound[slot] = true;
+            return this;
+        }
+
+        public Bindings set(String name, long value) {
+            return set(template.slot(name), value);
+        }
+
+        public Bindings set(int slot, long value) {
+            checkType(slot, SlotType.LONG, SlotType.DATE);
+            longValues[slot] = value;
+            values[slot] = null;
+            bound[slot] = true;
+            return this;
+        }
+
+        public Bindings set(String name, double value) {
+            return set(template.slot(name), value);
+        }
+
+        public Bindings set(int slot, double value) {
+            checkType(slot, SlotType.DOUBLE, SlotType.DOUBLE);
+            longValues[slot] = Double.doubleToRawLongBits(value);
+            bound[slot] = true;
+            return this;
+        }
+
+        public Bindings setStrings(String name, String... value) {
+            return setStrings(template.slot(name), value);
+        }
+
+        public Bindings setStrings(int slot, String... value) {
+            checkType(slot, SlotType.STRING_ARRAY, SlotType.STRING_ARRAY);
+            for (String s : value) {
+                if (s == null) {
+                    throw new IllegalArgumentException("slot [" + template.names[slot] + "] cannot contain null");
+                }
+            }
+            values[slot] = value;
+            bound[slot] = true;
+            return this;
+        }
+
+        public Bindings setLongs(String name, long... value) {
+            return setLongs(template.slot(name), value);
+        }
+
+        public Bindings setLongs(int slot, long... value) {
+            checkType(slot, SlotType.LONG_ARRAY, SlotType.LONG_ARRAY);
+            values[slot] = value;
+            bound[slot] = true;
+            return this;
+        }
+
+        public Bindings clear() {
+            Arrays.fill(bound, false);
+            Arrays.fill(values, null);
+            return this;
+        }
+
+        private void checkType(int slot, SlotType expected, SlotType alternative) {
+            SlotType type = template.types[slot];
+            if (type != expected && type != alternative) {
+                throw new IllegalArgumentException("slot [" + template.names[slot] + "] is of type [" + type + "]");
+            }
+        }
+
+        /**
+         * Renders the template. The returned bytes are backed by the internal buffer of these bindings and are only
+         * valid until they are rendered again.
+         */
+        public BytesReference bytes() {
+            render();
+            return new BytesArray(buffer, 0, length);
+        }
+
+        public String string() {
+            render();
+            return new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+
+        public void writeTo(OutputStream os) throws IOException {
+            render();
+            os.write(buffer, 0, length);
+        }
+
+        private void render() {
+            final QueryTemplate t = template;
+            for (int i = 0; i < bound.length; i++) {
+                if (bound[i] == false) {
+                    throw new IllegalStateException("slot [" + t.names[i] + "] is not bound");
+                }
+            }
+            length = 0;
+            int literalStart = 0;
+            for (int i = 0; i < t.occurrences.length; i++) {
+                int literalEnd = t.literalEnds[i];
+                writeBytes(t.literals, literalStart, literalEnd - literalStart);
+                literalStart = literalEnd;
+                writeSlot(t.occurrences[i]);
+            }
+            writeBytes(t.literals, literalStart, t.literals.length - literalStart);
+        }
+
+        private void writeSlot(int slot) {
+            final boolean json = template.type == XContentType.JSON;
+            switch (template.types[slot]) {
+            case STRING:
+                writeString((String) values[slot], json);
+                break;
+            case LONG:
+                writeLong(longValues[slot], json);
+                break;
+            case DOUBLE:
+                writeDouble(Double.longBitsToDouble(longValues[slot]), json);
+                break;
+            case DATE:
+                if (values[slot] != null) {
+                    writeString((String) values[slot], json);
+                } else {
+                    dateBuffer.setLength(0);
+                    XContentBuilder.DEFAULT_DATE_PRINTER.printTo(dateBuffer, longValues[slot]);
+                    writeString(dateBuffer, json);
+                }
+                break;
+            case STRING_ARRAY:
+                String[] strings = (String[]) values[slot];
+                for (int i = 0; i < strings.length; i++) {
+                    if (json && i > 0) {
+                        writeByte(',');
+                    }
+                    writeString(strings[i], json);
+                }
+                break;
+            case LONG_ARRAY:
+                long[] longs = (long[]) values[slot];
+                for (int i = 0; i < longs.length; i++) {
+                    if (json && i > 0) {
+                        writeByte(',');
+                    }
+                    writeLong(longs[i], json);
+                }
+                break;
+            default:
+                throw new IllegalStateException("unknown slot type [" + template.types[slot] + "]");
+            }
+        }
+
+        private void writeString(CharSequence value, boolean json) {
+            if (json) {
+                writeJsonString(value);
+            } else {
+                writeSmileString(value);
+            }
+        }
+
+        private void writeJsonString(CharSequence value) {
+            writeByte('"');
+            final int len = value.length();
+            for (int i = 0; i < len; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    if (c == '"' || c == '\\') {
+                        ensureCapacity(2);
+                        buffer[length++] = '\\';
+                        buffer[length++] = (byte) c;
+                    } else if (c >= 0x20) {
+                        writeByte(c);
+                    } else {
+                        writeJsonControl(c);
+                    }
+                } else if (Character.isSurrogate(c)) {
+                    // Jackson escapes surrogates in JSON instead of encoding the code point
+                    ensureCapacity(6);
+                    buffer[length++] = '\\';
+                    buffer[length++] = 'u';
+                    buffer[length++] = HEX[c >> 12];
+                    buffer[length++] = HEX[(c >> 8) & 0xF];
+                    buffer[length++] = HEX[(c >> 4) & 0xF];
+                    buffer[length++] = HEX[c & 0xF];
+                } else {
+                    i = writeUtf8(value, i, len);
+                }
+            }
+            writeByte('"');
+        }
+
+        private void writeJsonControl(char c) {
+            final char escape;
+            switch (c) {
+            case '\b':
+                escape = 'b';
+                break;
+            case '\t':
+                escape = 't';
+                break;
+            case '\n':
+                escape = 'n';
+                break;
+            case '\f':
+                escape = 'f';
+                break;
+            case '\r':
+                escape = 'r';
+                break;
+            default:
+                ensureCapacity(6);
+                buffer[length++] = '\\';
+                buffer[length++] = 'u';
+                buffer[length++] = '0';
+                buffer[length++] = '0';
+                buffer[length++] = HEX[c >> 4];
+                buffer[length++] = HEX[c & 0xF];
+                return;
+            }
+            ensureCapacity(2);
+            buffer[length++] = '\\';
+            buffer[length++] = (byte) escape;
+        }
+
+        private void writeSmileString(CharSequence value) {
+            final int len = value.length();
+            if (len == 0) {
+                writeByte(0x20);
+                return;
+            }
+            // mirrors SmileGenerator.writeString: the type token depends on the encoded length
+            final int tokenOffset = length;
+            writeByte(0);
+            final int start = length;
+            for (int i = 0; i < len; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    writeByte(c);
+                } else {
+                    i = writeUtf8(value, i, len);
+                }
+            }
+            final int byteLength = length - start;
+            final boolean ascii = byteLength == len;
+            if (len > 65 && len * 3 + 2 > SMILE_OUTPUT_BUFFER_SIZE) {
+                buffer[tokenOffset] = (byte) 0xE4;
+                writeByte(0xFC);
+            } else if (len <= 65 && byteLength <= 64) {
+                buffer[tokenOffset] = (byte) (ascii ? 0x40 - 1 + byteLength : 0x80 - 2 + byteLength);
+            } else {
+                buffer[tokenOffset] = (byte) (ascii ? 0xE0 : 0xE4);
+                writeByte(0xFC);
+            }
+        }
+
+        private int writeUtf8(CharSequence value, int i, int len) {
+            char c = value.charAt(i);
+            ensureCapacity(4);
+            if (c < 0x800) {
+                buffer[length++] = (byte) (0xC0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                buffer[length++] = (byte) (0xF0 | (cp >> 18));
+                buffer[length++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buffer[length++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                throw new IllegalArgumentException("invalid surrogate in slot value");
+            } else {
+                buffer[length++] = (byte) (0xE0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+            return i;
+        }
+
+        private void writeLong(long value, boolean json) {
+            if (json) {
+                writeJsonLong(value);
+            } else {
+                writeSmileLong(value);
+            }
+        }
+
+        private void writeJsonLong(long value) {
+            if (value == Long.MIN_VALUE) {
+                writeBytes(LONG_MIN_VALUE, 0, LONG_MIN_VALUE.length);
+                return;
+            }
+            ensureCapacity(20);
+            if (value < 0) {
+                buffer[length++] = '-';
+                value = -value;
+            }
+            int digits = 1;
+            for (long v = value / 10; v != 0; v /= 10) {
+                digits++;
+            }
+            int pos = length + digits;
+            length = pos;
+            do {
+                buffer[--pos] = (byte) ('0' + (value % 10));
+                value /= 10;
+            } while (value != 0);
+        }
+
+        private void writeSmileLong(long value) {
+            final long zigzag = (value << 1) ^ (value >> 63);
+            final boolean isInt = value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+            if (isInt && zigzag <= 0x1F) {
+                writeByte(0xC0 + (int) zigzag);
+                return;
+            }
+            ensureCapacity(11);
+            buffer[length++] = (byte) (isInt ? 0x24 : 0x25);
+            // big endian variable length: 7 bits per byte, the last byte holds 6 bits and has the high bit set
+            int groups = 1;
+            for (long v = zigzag >>> 6; v != 0; v >>>= 7) {
+                groups++;
+            }
+            for (int g = groups - 1; g > 0; g--) {
+                buffer[length++] = (byte) ((zigzag >>> (6 + 7 * (g - 1))) & 0x7F);
+            }
+            buffer[length++] = (byte) (0x80 | (zigzag & 0x3F));
+        }
+
+        private void writeDouble(double value, boolean json) {
+            if (json) {
+                String s = Double.toString(value);
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    writeJsonString(s);
+                } else {
+                    ensureCapacity(s.length());
+                    for (int i = 0; i < s.length(); i++) {
+                        buffer[length++] = (byte) s.charAt(i);
+                    }
+                }
+            } else {
+                final long bits = Double.doubleToRawLongBits(value);
+                ensureCapacity(11);
+                buffer[length++] = 0x29;
+                for (int g = 9; g >= 0; g--) {
+                    buffer[length++] = (byte) ((bits >>> (7 * g)) & 0x7F);
+                }
+            }
+        }
+
+        private void writeByte(int b) {
+            ensureCapacity(1);
+            buffer[length++] = (byte) b;
+        }
+
+        private void writeBytes(byte[] bytes, int offset, int len) {
+            ensureCapacity(len);
+            System.arraycopy(bytes, offset, buffer, length, len);
+            length += len;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, length + extra));
+            }
+        }
+    }
+
+    private static class ByteArrayBuilder {
+        private byte[] bytes;
+
+        private int length;
+
+        ByteArrayBuilder(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void append(byte[] src, int offset, int len) {
+            System.arraycopy(src, offset, bytes, length, len);
+            length += len;
+        }
+
+        int length() {
+            return length;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+
+    @SuppressWarnings("serial") // factories of templates are never serialized
+    private static final class TemplateSmileFactory extends SmileFactory {
+
+        private static final ThreadLocal<BufferRecycler> RECYCLERS = ThreadLocal.withInitial(BufferRecycler::new);
+
+        @Override
+        public BufferRecycler _getBufferRecycler() {
+            return RECYCLERS.get();
+        }
+    }
+}
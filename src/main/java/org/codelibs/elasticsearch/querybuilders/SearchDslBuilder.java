@@ -2,8 +2,16 @@ package org.codelibs.elasticsearch.querybuilders;
 
 import org.codelibs.elasticsearch.ElasticsearchException;
 import org.codelibs.elasticsearch.common.Nullable;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.io.Streams;
+import org.codelibs.elasticsearch.common.io.stream.ByteBufferStreamOutput;
 import org.codelibs.elasticsearch.common.unit.TimeValue;
-import org.codelibs.elasticsearch.common.xcontent.XContentHelper;
+import org.codelibs.elasticsearch.common.xcontent.ToXContent;
+import org.codelibs.elasticsearch.common.xcontent.XContent;
+import org.codelibs.elasticsearch.common.xcontent.XContentBuilder;
+import org.codelibs.elasticsearch.common.xcontent.XContentBuilderPool;
+import org.codelibs.elasticsearch.common.xcontent.XContentType;
+import org.codelibs.elasticsearch.common.xcontent.smile.SmileXContent;
 import org.codelibs.elasticsearch.index.query.QueryBuilder;
 import org.codelibs.elasticsearch.script.Script;
 import org.codelibs.elasticsearch.search.SearchExtBuilder;
@@ -20,12 +28,18 @@ import org.codelibs.elasticsearch.search.sort.SortOrder;
 import org.codelibs.elasticsearch.search.suggest.SuggestBuilder;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 import java.util.function.Supplier;
 
 public class SearchDslBuilder {
     public SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
 
+    private boolean sharedStringValues = false;
+
     private SearchDslBuilder() {
     }
 
@@ -226,14 +240,141 @@ public class SearchDslBuilder {
     }
 
 
+    /**
+     * Whether SMILE output writes string values that repeat within the source, like field names of aggregations and
+     * sorts, as back references to their first occurrence. Field names are always shared. Defaults to <code>false</code>.
+     */
+    public SearchDslBuilder sharedStringValues(boolean sharedStringValues) {
+        this.sharedStringValues = sharedStringValues;
+        return this;
+    }
+
+    /**
+     * Renders the search source as compact JSON.
+     */
     public String build() {
-        try {
-            return XContentHelper.convertToJson(searchSourceBuilder.buildAsBytes(), true);
+        return build(false);
+    }
+
+    /**
+     * Renders the search source as JSON, pretty printed if <code>pretty</code> is true.
+     * The source is written straight into a JSON builder, so no intermediate binary form is parsed again.
+     */
+    public String build(boolean pretty) {
+        try (XContentBuilderPool.Lease lease = render(pretty)) {
+            return lease.string();
         } catch (IOException e) {
             throw new ElasticsearchException("Failed to build source.", e);
         }
     }
 
+    /**
+     * Renders the search source as compact JSON bytes.
+     */
+    public BytesReference buildAsBytes() {
+        return buildAsBytes(false);
+    }
+
+    /**
+     * Renders the search source as JSON bytes, pretty printed if <code>pretty</code> is true.
+     */
+    public BytesReference buildAsBytes(boolean pretty) {
+        try (XContentBuilderPool.Lease lease = render(pretty)) {
+            return lease.copyBytes();
+        } catch (IOException e) {
+            throw new ElasticsearchException("Failed to build source.", e);
+        }
+    }
+
+    /**
+     * Renders the search source as bytes of the provided <code>contentType</code>, for example SMILE for a smaller body
+     * that is faster to encode than JSON.
+     */
+    public BytesReference buildAsBytes(XContentType contentType) {
+        try (XContentBuilderPool.Lease lease = XContentBuilderPool.acquire(xContent(contentType))) {
+            searchSourceBuilder.toXContent(lease.builder(), ToXContent.EMPTY_PARAMS);
+            return lease.copyBytes();
+        } catch (IOException e) {
+            throw new ElasticsearchException("Failed to build source.", e);
+        }
+    }
+
+    /**
+     * Streams the search source as JSON into the given {OutputStream}, which is flushed but not closed.
+     */
+    public void build(OutputStream os) {
+        build(XContentType.JSON, os);
+    }
+
+    /**
+     * Streams the search source into the given {OutputStream} as the provided <code>contentType</code>.
+     */
+    public void build(XContentType contentType, OutputStream os) {
+        if (usesSharedStringValues(contentType)) {
+            try (XContentBuilder builder = new XContentBuilder(xContent(contentType), Streams.noCloseStream(os))) {
+                searchSourceBuilder.toXContent(builder, ToXContent.EMPTY_PARAMS);
+            } catch (Exception e) {
+                throw new ElasticsearchException("Failed to build source.", e);
+            }
+        } else {
+            searchSourceBuilder.buildTo(contentType, os);
+        }
+    }
+
+    /**
+     * Streams the search source into the given {WritableByteChannel} as the provided <code>contentType</code>.
+     */
+    public void build(XContentType contentType, WritableByteChannel channel) {
+        build(contentType, Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Writes the search source into the given {ByteBuffer} as the provided <code>contentType</code>, starting at the
+     * buffer's position. If the source does not fit, the position is reset to where it was.
+     *
+     * @return the number of bytes written
+     * @throws ElasticsearchException if the source does not fit in the remaining space of the buffer
+     */
+    public int build(XContentType contentType, ByteBuffer buffer) {
+        if (usesSharedStringValues(contentType)) {
+            final int start = buffer.position();
+            try {
+                build(contentType, new ByteBufferStreamOutput(buffer));
+            } catch (ElasticsearchException e) {
+                buffer.position(start);
+                throw e;
+            }
+            return buffer.position() - start;
+        }
+        return searchSourceBuilder.buildTo(contentType, buffer);
+    }
+
+    private boolean usesSharedStringValues(XContentType contentType) {
+        return sharedStringValues && contentType == XContentType.SMILE;
+    }
+
+    private XContent xContent(XContentType contentType) {
+        return usesSharedStringValues(contentType) ? SmileXContent.smileXContentWithSharedValues : contentType.xContent();
+    }
+
+    private XContentBuilderPool.Lease render(boolean pretty) throws IOException {
+        XContentBuilderPool.Lease lease = XContentBuilderPool.acquire(XContentType.JSON);
+        boolean success = false;
+        try {
+            XContentBuilder builder = lease.builder();
+            if (pretty) {
+                builder.prettyPrint();
+            }
+            searchSourceBuilder.toXContent(builder, ToXContent.EMPTY_PARAMS);
+            success = true;
+            return lease;
+        } finally {
+            if (success == false) {
+                lease.close();
+            }
+        }
+    }
+
     public static SearchDslBuilder builder() {
         return new SearchDslBuilder();
     }
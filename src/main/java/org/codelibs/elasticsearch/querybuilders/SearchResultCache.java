@@ -0,0 +1,514 @@
+package org.codelibs.elasticsearch.querybuilders;
+
+import org.codelibs.elasticsearch.ElasticsearchParseException;
+import org.codelibs.elasticsearch.common.Nullable;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.joda.DateMathParser;
+import org.codelibs.elasticsearch.common.unit.TimeValue;
+import org.codelibs.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.codelibs.elasticsearch.common.xcontent.XContentParser;
+import org.codelibs.elasticsearch.common.xcontent.XContentType;
+import org.codelibs.elasticsearch.index.mapper.DateFieldMapper;
+import org.codelibs.elasticsearch.search.builder.SearchSourceBuilder;
+import org.joda.time.DateTimeZone;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Caches the results of searches on the client, keyed by a {Fingerprint} of their {SearchSourceBuilder}, so that
+ * repeated searches, e.g. of dashboards or autocompletion, are answered without a round-trip to the cluster.
+ * <p>
+ * The fingerprint is a 128 bit digest of the canonical form of the search source: its rendered content with the keys
+ * of the bodies of <tt>range</tt> queries sorted and their <tt>now</tt> based bounds resolved against the current time
+ * pinned to {#getNowResolution()}. A search for <tt>now-1d/d</tt> keeps the same fingerprint for the whole day and a
+ * search for <tt>now-15m</tt> for one resolution interval, which is as stale as a cached result for it can get. Any
+ * other value that starts with <tt>now</tt>, e.g. the bounds of a <tt>date_range</tt> aggregation, adds the pinned
+ * time itself to the fingerprint.
+ * <pre>
+ * SearchResultCache&lt;BytesReference&gt; cache = new SearchResultCache&lt;&gt;(new InMemoryCacheBackend&lt;&gt;(
+ *         new ByteSizeValue(64, ByteSizeUnit.MB), BytesReference::length, InMemoryCacheBackend.EvictionPolicy.TINY_LFU));
+ * SearchResultCache.Fingerprint key = cache.fingerprint(source, "index");
+ * BytesReference response = cache.computeIfAbsent(key, () -&gt; search("index", source));
+ * </pre>
+ * Entries are stored in a {Backend}, which bounds their size and evicts them. Concurrent loads of the same
+ * fingerprint are coalesced into a single load.
+ */
+public class SearchResultCache<V> {
+
+    public static final TimeValue DEFAULT_TIME_TO_LIVE = TimeValue.timeValueMinutes(5);
+
+    public static final TimeValue DEFAULT_NOW_RESOLUTION = TimeValue.timeValueMinutes(1);
+
+    private static final DateMathParser DATE_MATH_PARSER = new DateMathParser(DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER);
+
+    /**
+     * Stores the cached entries. Implementations must be thread-safe and are responsible for expiring entries after
+     * their time to live and for evicting entries to stay within their size budget.
+     */
+    public interface Backend<V> {
+
+        /**
+         * Returns the value stored for the key, or <code>null</code> if there is none or it expired.
+         */
+        @Nullable
+        V get(Fingerprint key);
+
+        /**
+         * Stores a value for the key, replacing any previous one. The backend may decline to store it.
+         */
+        void put(Fingerprint key, V value, TimeValue timeToLive);
+
+        void invalidate(Fingerprint key);
+
+        void invalidateAll();
+
+        /**
+         * The number of entries evicted to make room for others, or not admitted at all.
+         */
+        long evictions();
+
+        /**
+         * The number of entries currently stored.
+         */
+        long count();
+
+        /**
+         * The estimated size of the stored entries.
+         */
+        long sizeInBytes();
+    }
+
+    /**
+     * Loads a search result on a cache miss.
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws Exception;
+    }
+
+    private final Backend<V> backend;
+
+    private final TimeValue timeToLive;
+
+    private final TimeValue nowResolution;
+
+    private final LongSupplier clock;
+
+    private final ConcurrentMap<Fingerprint, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public SearchResultCache(Backend<V> backend) {
+        this(backend, DEFAULT_TIME_TO_LIVE, DEFAULT_NOW_RESOLUTION, System::currentTimeMillis);
+    }
+
+    /**
+     * @param backend       stores the entries
+     * @param timeToLive    how long an entry may be served after it was loaded
+     * @param nowResolution the interval <tt>now</tt> is pinned to when computing fingerprints
+     * @param clock         the current time in milliseconds since the epoch
+     */
+    public SearchResultCache(Backend<V> backend, TimeValue timeToLive, TimeValue nowResolution, LongSupplier clock) {
+        if (timeToLive.millis() <= 0) {
+            throw new IllegalArgumentException("[timeToLive] must be positive but was [" + timeToLive + "]");
+        }
+        if (nowResolution.millis() <= 0) {
+            throw new IllegalArgumentException("[nowResolution] must be positive but was [" + nowResolution + "]");
+        }
+        this.backend = backend;
+        this.timeToLive = timeToLive;
+        this.nowResolution = nowResolution;
+        this.clock = clock;
+    }
+
+    public TimeValue getTimeToLive() {
+        return timeToLive;
+    }
+
+    public TimeValue getNowResolution() {
+        return nowResolution;
+    }
+
+    /**
+     * Computes the fingerprint of a search.
+     *
+     * @param source the search source
+     * @param scope  anything else that identifies the search, e.g. the indices, types or routing it targets
+     */
+    public Fingerprint fingerprint(SearchSourceBuilder source, String... scope) throws IOException {
+        final long resolution = nowResolution.millis();
+        final long now = Math.floorDiv(clock.getAsLong(), resolution) * resolution;
+        final Digester digester = new Digester(now);
+        final BytesReference bytes = source.buildAsBytes(XContentType.SMILE);
+        try (XContentParser parser = XContentType.SMILE.xContent().createParser(NamedXContentRegistry.EMPTY, bytes)) {
+            XContentParser.Token token = parser.nextToken();
+            if (token != null) {
+                digester.digestValue(parser, token, false);
+            }
+        }
+        for (String s : scope) {
+            digester.string((byte) 'S', s);
+        }
+        if (digester.usesNow) {
+            digester.digest.update((byte) 'N');
+            digester.longValue(now);
+        }
+        return new Fingerprint(digester.digest.digest());
+    }
+
+    /**
+     * Returns the cached result for the fingerprint, or <code>null</code> if there is none.
+     */
+    @Nullable
+    public V get(Fingerprint key) {
+        V value = backend.get(key);
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    public void put(Fingerprint key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("[value] must not be null");
+        }
+        backend.put(key, value, timeToLive);
+    }
+
+    /**
+     * Returns the cached result for the fingerprint, loading and caching it on a miss. Concurrent calls for the same
+     * fingerprint wait for the load of the first one. Failed loads are not cached.
+     */
+    public V computeIfAbsent(Fingerprint key, Loader<V> loader) throws Exception {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            try {
+                return existing.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+        try {
+            value = loader.load();
+            if (value == null) {
+                throw new IllegalStateException("loader returned null for [" + key + "]");
+            }
+            put(key, value);
+            future.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    public void invalidate(Fingerprint key) {
+        backend.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        backend.invalidateAll();
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), backend.evictions(), backend.count(), backend.sizeInBytes());
+    }
+
+    /**
+     * Writes the canonical form of parsed content to a message digest, with a one byte tag before every token so that
+     * different structures never produce the same input.
+     */
+    private static final class Digester {
+        private final MessageDigest digest;
+        private final long now;
+        private boolean usesNow;
+
+        Digester(long now) {
+            try {
+                this.digest = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            this.now = now;
+        }
+
+        void digestValue(XContentParser parser, XContentParser.Token token, boolean range) throws IOException {
+            switch (token) {
+                case START_OBJECT:
+                    digest.update((byte) '{');
+                    while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                        final String name = parser.currentName();
+                        string((byte) 'k', name);
+                        token = parser.nextToken();
+                        if (range && token == XContentParser.Token.START_OBJECT) {
+                            digestRange(parser.map());
+                        } else {
+                            digestValue(parser, token, "range".equals(name));
+                        }
+                    }
+                    digest.update((byte) '}');
+                    break;
+                case START_ARRAY:
+                    digest.update((byte) '[');
+                    while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                        digestValue(parser, token, false);
+                    }
+                    digest.update((byte) ']');
+                    break;
+                case VALUE_STRING:
+                    string((byte) 's', parser.text());
+                    break;
+                case VALUE_NUMBER:
+                    switch (parser.numberType()) {
+                        case INT:
+                        case LONG:
+                            digest.update((byte) 'l');
+                            longValue(parser.longValue());
+                            break;
+                        case FLOAT:
+                        case DOUBLE:
+                            digest.update((byte) 'd');
+                            longValue(Double.doubleToLongBits(parser.doubleValue()));
+                            break;
+                        default:
+                            string((byte) 'n', parser.text());
+                    }
+                    break;
+                case VALUE_BOOLEAN:
+                    digest.update(parser.booleanValue() ? (byte) 't' : (byte) 'f');
+                    break;
+                case VALUE_NULL:
+                    digest.update((byte) '0');
+                    break;
+                case VALUE_EMBEDDED_OBJECT:
+                    byte[] binary = parser.binaryValue();
+                    digest.update((byte) 'b');
+                    longValue(binary.length);
+                    digest.update(binary);
+                    break;
+                default:
+                    throw new IllegalStateException("unexpected token [" + token + "]");
+            }
+        }
+
+        /**
+         * Digests the body of a range query with sorted keys and its <tt>now</tt> based bounds resolved.
+         */
+        private void digestRange(Map<String, Object> body) {
+            final Map<String, Object> sorted = new TreeMap<>(body);
+            final Object timeZone = sorted.get("time_zone");
+            final DateTimeZone zone = timeZone == null ? null : DateTimeZone.forID(timeZone.toString());
+            final boolean includeLower = Boolean.parseBoolean(String.valueOf(sorted.getOrDefault("include_lower", "true")));
+            final boolean includeUpper = Boolean.parseBoolean(String.valueOf(sorted.getOrDefault("include_upper", "true")));
+            resolve(sorted, "from", includeLower == false, zone);
+            resolve(sorted, "to", includeUpper, zone);
+            resolve(sorted, "gt", true, zone);
+            resolve(sorted, "gte", false, zone);
+            resolve(sorted, "lt", false, zone);
+            resolve(sorted, "lte", true, zone);
+            digestObject(sorted);
+        }
+
+        private void resolve(Map<String, Object> body, String key, boolean roundUp, DateTimeZone zone) {
+            final Object value = body.get(key);
+            if (value instanceof String && ((String) value).startsWith("now")) {
+                try {
+                    body.put(key, DATE_MATH_PARSER.parse((String) value, () -> now, roundUp, zone));
+                } catch (ElasticsearchParseException e) {
+                    // not date math, the value is digested as it is
+                }
+            }
+        }
+
+        private void digestObject(Object value) {
+            if (value instanceof Map) {
+                digest.update((byte) '{');
+                for (Map.Entry<?, ?> entry : new TreeMap<>((Map<?, ?>) value).entrySet()) {
+                    string((byte) 'k', entry.getKey().toString());
+                    digestObject(entry.getValue());
+                }
+                digest.update((byte) '}');
+            } else if (value instanceof List) {
+                digest.update((byte) '[');
+                for (Object o : (List<?>) value) {
+                    digestObject(o);
+                }
+                digest.update((byte) ']');
+            } else if (value instanceof String) {
+                string((byte) 's', (String) value);
+            } else if (value instanceof Integer || value instanceof Long) {
+                digest.update((byte) 'l');
+                longValue(((Number) value).longValue());
+            } else if (value instanceof Float || value instanceof Double) {
+                digest.update((byte) 'd');
+                longValue(Double.doubleToLongBits(((Number) value).doubleValue()));
+            } else if (value instanceof Boolean) {
+                digest.update((Boolean) value ? (byte) 't' : (byte) 'f');
+            } else if (value == null) {
+                digest.update((byte) '0');
+            } else {
+                string((byte) 'n', value.toString());
+            }
+        }
+
+        void string(byte tag, String value) {
+            if ((tag == 's' || tag == 'n') && usesNow == false && isDateMath(value)) {
+                usesNow = true;
+            }
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            digest.update(tag);
+            longValue(bytes.length);
+            digest.update(bytes);
+        }
+
+        /**
+         * Whether a value is <tt>now</tt> based date math, like the date math outside of range queries that is not
+         * resolved. Other values that start with <tt>now</tt>, such as the text of a match query, do not pin the
+         * fingerprint to the current time.
+         */
+        private boolean isDateMath(String value) {
+            if (value.startsWith("now") == false || (value.length() > 3 && "+-/".indexOf(value.charAt(3)) < 0)) {
+                return false;
+            }
+            try {
+                DATE_MATH_PARSER.parse(value, () -> now);
+                return true;
+            } catch (ElasticsearchParseException e) {
+                return false;
+            }
+        }
+
+        void longValue(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                digest.update((byte) (value >>> shift));
+            }
+        }
+    }
+
+    /**
+     * A 128 bit digest of the canonical form of a search.
+     */
+    public static final class Fingerprint {
+        private final long high;
+        private final long low;
+
+        Fingerprint(byte[] digest) {
+            long high = 0;
+            long low = 0;
+            for (int i = 0; i < 8; i++) {
+                high = (high << 8) | (digest[i] & 0xFF);
+                low = (low << 8) | (digest[i + 8] & 0xFF);
+            }
+            this.high = high;
+            this.low = low;
+        }
+
+        public Fingerprint(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        public long getHigh() {
+            return high;
+        }
+
+        public long getLow() {
+            return low;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            Fingerprint other = (Fingerprint) obj;
+            return high == other.high && low == other.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(high ^ low);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%016x%016x", high, low);
+        }
+    }
+
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long count;
+        private final long sizeInBytes;
+
+        public Stats(long hits, long misses, long evictions, long count, long sizeInBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.count = count;
+            this.sizeInBytes = sizeInBytes;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * The ratio of lookups that were answered from the cache, <tt>NaN</tt> before the first lookup.
+         */
+        public double getHitRatio() {
+            return (double) hits / (hits + misses);
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSizeInBytes() {
+            return sizeInBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "hits [" + hits + "], misses [" + misses + "], evictions [" + evictions + "], count [" + count
+                    + "], size [" + sizeInBytes + "b]";
+        }
+    }
+}
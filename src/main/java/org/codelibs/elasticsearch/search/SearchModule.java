@@ -0,0 +1,607 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.elasticsearch.search;
+
+import org.codelibs.elasticsearch.common.NamedRegistry;
+import org.codelibs.elasticsearch.common.ParseField;
+import org.codelibs.elasticsearch.common.geo.builders.ShapeBuilders;
+import org.codelibs.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.codelibs.elasticsearch.common.io.stream.Writeable;
+import org.codelibs.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.codelibs.elasticsearch.common.xcontent.ParseFieldRegistry;
+import org.codelibs.elasticsearch.common.xcontent.XContentParser;
+import org.codelibs.elasticsearch.index.query.BoolQueryBuilder;
+import org.codelibs.elasticsearch.index.query.BoostingQueryBuilder;
+import org.codelibs.elasticsearch.index.query.CommonTermsQueryBuilder;
+import org.codelibs.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.codelibs.elasticsearch.index.query.DisMaxQueryBuilder;
+import org.codelibs.elasticsearch.index.query.ExistsQueryBuilder;
+import org.codelibs.elasticsearch.index.query.FieldMaskingSpanQueryBuilder;
+import org.codelibs.elasticsearch.index.query.FuzzyQueryBuilder;
+import org.codelibs.elasticsearch.index.query.GeoBoundingBoxQueryBuilder;
+import org.codelibs.elasticsearch.index.query.GeoDistanceQueryBuilder;
+import org.codelibs.elasticsearch.index.query.GeoDistanceRangeQueryBuilder;
+import org.codelibs.elasticsearch.index.query.GeoPolygonQueryBuilder;
+import org.codelibs.elasticsearch.index.query.GeoShapeQueryBuilder;
+import org.codelibs.elasticsearch.index.query.GeohashCellQuery;
+import org.codelibs.elasticsearch.index.query.HasChildQueryBuilder;
+import org.codelibs.elasticsearch.index.query.HasParentQueryBuilder;
+import org.codelibs.elasticsearch.index.query.IdsQueryBuilder;
+import org.codelibs.elasticsearch.index.query.IndicesQueryBuilder;
+import org.codelibs.elasticsearch.index.query.MatchAllQueryBuilder;
+import org.codelibs.elasticsearch.index.query.MatchNoneQueryBuilder;
+import org.codelibs.elasticsearch.index.query.MatchPhrasePrefixQueryBuilder;
+import org.codelibs.elasticsearch.index.query.MatchPhraseQueryBuilder;
+import org.codelibs.elasticsearch.index.query.MatchQueryBuilder;
+import org.codelibs.elasticsearch.index.query.MoreLikeThisQueryBuilder;
+import org.codelibs.elasticsearch.index.query.MultiMatchQueryBuilder;
+import org.codelibs.elasticsearch.index.query.NestedQueryBuilder;
+import org.codelibs.elasticsearch.index.query.ParentIdQueryBuilder;
+import org.codelibs.elasticsearch.index.query.PrefixQueryBuilder;
+import org.codelibs.elasticsearch.index.query.QueryBuilder;
+import org.codelibs.elasticsearch.index.query.QueryParseContext;
+import org.codelibs.elasticsearch.index.query.QueryParser;
+import org.codelibs.elasticsearch.index.query.QueryStringQueryBuilder;
+import org.codelibs.elasticsearch.index.query.RangeQueryBuilder;
+import org.codelibs.elasticsearch.index.query.RegexpQueryBuilder;
+import org.codelibs.elasticsearch.index.query.ScriptQueryBuilder;
+import org.codelibs.elasticsearch.index.query.SimpleQueryStringBuilder;
+import org.codelibs.elasticsearch.index.query.SpanContainingQueryBuilder;
+import org.codelibs.elasticsearch.index.query.SpanFirstQueryBuilder;
+import org.codelibs.elasticsearch.index.query.SpanMultiTermQueryBuilder;
+import org.codelibs.elasticsearch.index.query.SpanNearQueryBuilder;
+import org.codelibs.elasticsearch.index.query.SpanNotQueryBuilder;
+import org.codelibs.elasticsearch.index.query.SpanOrQueryBuilder;
+import org.codelibs.elasticsearch.index.query.SpanTermQueryBuilder;
+import org.codelibs.elasticsearch.index.query.SpanWithinQueryBuilder;
+import org.codelibs.elasticsearch.index.query.TermQueryBuilder;
+import org.codelibs.elasticsearch.index.query.TermsQueryBuilder;
+import org.codelibs.elasticsearch.index.query.TypeQueryBuilder;
+import org.codelibs.elasticsearch.index.query.WildcardQueryBuilder;
+import org.codelibs.elasticsearch.index.query.WrapperQueryBuilder;
+import org.codelibs.elasticsearch.index.query.functionscore.ExponentialDecayFunctionBuilder;
+import org.codelibs.elasticsearch.index.query.functionscore.FieldValueFactorFunctionBuilder;
+import org.codelibs.elasticsearch.index.query.functionscore.FunctionScoreQueryBuilder;
+import org.codelibs.elasticsearch.index.query.functionscore.GaussDecayFunctionBuilder;
+import org.codelibs.elasticsearch.index.query.functionscore.LinearDecayFunctionBuilder;
+import org.codelibs.elasticsearch.index.query.functionscore.RandomScoreFunctionBuilder;
+import org.codelibs.elasticsearch.index.query.functionscore.ScoreFunctionBuilder;
+import org.codelibs.elasticsearch.index.query.functionscore.ScoreFunctionParser;
+import org.codelibs.elasticsearch.index.query.functionscore.ScriptScoreFunctionBuilder;
+import org.codelibs.elasticsearch.index.query.functionscore.WeightBuilder;
+import org.codelibs.elasticsearch.search.aggregations.AggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.Aggregator;
+import org.codelibs.elasticsearch.search.aggregations.AggregatorParsers;
+import org.codelibs.elasticsearch.search.aggregations.InternalAggregation;
+import org.codelibs.elasticsearch.search.aggregations.PipelineAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.children.ChildrenAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.children.InternalChildren;
+import org.codelibs.elasticsearch.search.aggregations.bucket.filter.FilterAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.filter.InternalFilter;
+import org.codelibs.elasticsearch.search.aggregations.bucket.filters.FiltersAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.filters.InternalFilters;
+import org.codelibs.elasticsearch.search.aggregations.bucket.geogrid.GeoGridAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.geogrid.InternalGeoHashGrid;
+import org.codelibs.elasticsearch.search.aggregations.bucket.global.GlobalAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.global.InternalGlobal;
+import org.codelibs.elasticsearch.search.aggregations.bucket.histogram.DateHistogramAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.histogram.HistogramAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.histogram.InternalDateHistogram;
+import org.codelibs.elasticsearch.search.aggregations.bucket.histogram.InternalHistogram;
+import org.codelibs.elasticsearch.search.aggregations.bucket.missing.InternalMissing;
+import org.codelibs.elasticsearch.search.aggregations.bucket.missing.MissingAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.nested.InternalNested;
+import org.codelibs.elasticsearch.search.aggregations.bucket.nested.InternalReverseNested;
+import org.codelibs.elasticsearch.search.aggregations.bucket.nested.NestedAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.nested.ReverseNestedAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.range.InternalBinaryRange;
+import org.codelibs.elasticsearch.search.aggregations.bucket.range.InternalRange;
+import org.codelibs.elasticsearch.search.aggregations.bucket.range.RangeAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.range.date.DateRangeAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.range.date.InternalDateRange;
+import org.codelibs.elasticsearch.search.aggregations.bucket.range.geodistance.GeoDistanceAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.range.geodistance.InternalGeoDistance;
+import org.codelibs.elasticsearch.search.aggregations.bucket.range.ip.IpRangeAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.sampler.DiversifiedAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.sampler.InternalSampler;
+import org.codelibs.elasticsearch.search.aggregations.bucket.sampler.SamplerAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.sampler.UnmappedSampler;
+import org.codelibs.elasticsearch.search.aggregations.bucket.significant.SignificantLongTerms;
+import org.codelibs.elasticsearch.search.aggregations.bucket.significant.SignificantStringTerms;
+import org.codelibs.elasticsearch.search.aggregations.bucket.significant.SignificantTermsAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.significant.UnmappedSignificantTerms;
+import org.codelibs.elasticsearch.search.aggregations.bucket.significant.heuristics.ChiSquare;
+import org.codelibs.elasticsearch.search.aggregations.bucket.significant.heuristics.GND;
+import org.codelibs.elasticsearch.search.aggregations.bucket.significant.heuristics.JLHScore;
+import org.codelibs.elasticsearch.search.aggregations.bucket.significant.heuristics.MutualInformation;
+import org.codelibs.elasticsearch.search.aggregations.bucket.significant.heuristics.PercentageScore;
+import org.codelibs.elasticsearch.search.aggregations.bucket.significant.heuristics.ScriptHeuristic;
+import org.codelibs.elasticsearch.search.aggregations.bucket.significant.heuristics.SignificanceHeuristic;
+import org.codelibs.elasticsearch.search.aggregations.bucket.significant.heuristics.SignificanceHeuristicParser;
+import org.codelibs.elasticsearch.search.aggregations.bucket.terms.DoubleTerms;
+import org.codelibs.elasticsearch.search.aggregations.bucket.terms.LongTerms;
+import org.codelibs.elasticsearch.search.aggregations.bucket.terms.StringTerms;
+import org.codelibs.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.bucket.terms.UnmappedTerms;
+import org.codelibs.elasticsearch.search.aggregations.metrics.avg.AvgAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.metrics.avg.InternalAvg;
+import org.codelibs.elasticsearch.search.aggregations.metrics.cardinality.CardinalityAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.metrics.cardinality.InternalCardinality;
+import org.codelibs.elasticsearch.search.aggregations.metrics.geobounds.GeoBoundsAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.metrics.geobounds.InternalGeoBounds;
+import org.codelibs.elasticsearch.search.aggregations.metrics.geocentroid.GeoCentroidAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.metrics.geocentroid.InternalGeoCentroid;
+import org.codelibs.elasticsearch.search.aggregations.metrics.max.InternalMax;
+import org.codelibs.elasticsearch.search.aggregations.metrics.max.MaxAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.metrics.min.InternalMin;
+import org.codelibs.elasticsearch.search.aggregations.metrics.min.MinAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.metrics.percentiles.PercentileRanksAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.metrics.percentiles.PercentilesAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.metrics.percentiles.tdigest.InternalTDigestPercentileRanks;
+import org.codelibs.elasticsearch.search.aggregations.metrics.percentiles.tdigest.InternalTDigestPercentiles;
+import org.codelibs.elasticsearch.search.aggregations.metrics.scripted.InternalScriptedMetric;
+import org.codelibs.elasticsearch.search.aggregations.metrics.scripted.ScriptedMetricAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.metrics.stats.InternalStats;
+import org.codelibs.elasticsearch.search.aggregations.metrics.stats.StatsAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.metrics.stats.extended.ExtendedStatsAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.metrics.stats.extended.InternalExtendedStats;
+import org.codelibs.elasticsearch.search.aggregations.metrics.sum.InternalSum;
+import org.codelibs.elasticsearch.search.aggregations.metrics.sum.SumAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.metrics.tophits.InternalTopHits;
+import org.codelibs.elasticsearch.search.aggregations.metrics.tophits.TopHitsAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.metrics.valuecount.InternalValueCount;
+import org.codelibs.elasticsearch.search.aggregations.metrics.valuecount.ValueCountAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.InternalSimpleValue;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.InternalBucketMetricValue;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.avg.AvgBucketPipelineAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.avg.AvgBucketPipelineAggregator;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.max.MaxBucketPipelineAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.max.MaxBucketPipelineAggregator;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.min.MinBucketPipelineAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.min.MinBucketPipelineAggregator;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.percentile.InternalPercentilesBucket;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.percentile.PercentilesBucketPipelineAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.percentile.PercentilesBucketPipelineAggregator;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.stats.InternalStatsBucket;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.stats.StatsBucketPipelineAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.stats.StatsBucketPipelineAggregator;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.stats.extended.ExtendedStatsBucketParser;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.stats.extended.ExtendedStatsBucketPipelineAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.stats.extended.ExtendedStatsBucketPipelineAggregator;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.stats.extended.InternalExtendedStatsBucket;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.sum.SumBucketPipelineAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketmetrics.sum.SumBucketPipelineAggregator;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketscript.BucketScriptPipelineAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketscript.BucketScriptPipelineAggregator;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketselector.BucketSelectorPipelineAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.bucketselector.BucketSelectorPipelineAggregator;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.cumulativesum.CumulativeSumPipelineAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.cumulativesum.CumulativeSumPipelineAggregator;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.derivative.DerivativePipelineAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.derivative.DerivativePipelineAggregator;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.derivative.InternalDerivative;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.movavg.MovAvgPipelineAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.movavg.MovAvgPipelineAggregator;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.movavg.models.EwmaModel;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.movavg.models.HoltLinearModel;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.movavg.models.HoltWintersModel;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.movavg.models.LinearModel;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.movavg.models.MovAvgModel;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.movavg.models.SimpleModel;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.serialdiff.SerialDiffPipelineAggregationBuilder;
+import org.codelibs.elasticsearch.search.aggregations.pipeline.serialdiff.SerialDiffPipelineAggregator;
+import org.codelibs.elasticsearch.search.rescore.QueryRescorerBuilder;
+import org.codelibs.elasticsearch.search.rescore.RescoreBuilder;
+import org.codelibs.elasticsearch.search.sort.FieldSortBuilder;
+import org.codelibs.elasticsearch.search.sort.GeoDistanceSortBuilder;
+import org.codelibs.elasticsearch.search.sort.ScoreSortBuilder;
+import org.codelibs.elasticsearch.search.sort.ScriptSortBuilder;
+import org.codelibs.elasticsearch.search.sort.SortBuilder;
+import org.codelibs.elasticsearch.search.suggest.Suggester;
+import org.codelibs.elasticsearch.search.suggest.Suggesters;
+import org.codelibs.elasticsearch.search.suggest.SuggestionBuilder;
+import org.codelibs.elasticsearch.search.suggest.completion.CompletionSuggester;
+import org.codelibs.elasticsearch.search.suggest.phrase.Laplace;
+import org.codelibs.elasticsearch.search.suggest.phrase.LinearInterpolation;
+import org.codelibs.elasticsearch.search.suggest.phrase.PhraseSuggester;
+import org.codelibs.elasticsearch.search.suggest.phrase.SmoothingModel;
+import org.codelibs.elasticsearch.search.suggest.phrase.StupidBackoff;
+import org.codelibs.elasticsearch.search.suggest.term.TermSuggester;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Registers every query, aggregation, pipeline aggregation, sort, rescorer, suggester, score function,
+ * significance heuristic and moving average model of this library, so that builders can be parsed back from
+ * {org.codelibs.elasticsearch.common.xcontent.XContent} and read from a {org.codelibs.elasticsearch.common.io.stream.StreamInput}.
+ * <p>
+ * This is the counterpart of Elasticsearch's search module without plugin support. All registries are built once in the
+ * constructor and are immutable afterwards, so a single instance can be shared by any number of threads.
+ */
+public class SearchModule {
+
+    private final List<NamedWriteableRegistry.Entry> namedWriteables = new ArrayList<>();
+    private final List<NamedXContentRegistry.Entry> namedXContents = new ArrayList<>();
+    private final ParseFieldRegistry<Aggregator.Parser> aggregationParserRegistry = new ParseFieldRegistry<>("aggregation");
+    private final ParseFieldRegistry<PipelineAggregator.Parser> pipelineAggregationParserRegistry = new ParseFieldRegistry<>(
+            "pipline_aggregation");
+    private final ParseFieldRegistry<SignificanceHeuristicParser> significanceHeuristicParserRegistry = new ParseFieldRegistry<>(
+            "significance_heuristic");
+    private final ParseFieldRegistry<MovAvgModel.AbstractModelParser> movingAverageModelParserRegistry = new ParseFieldRegistry<>(
+            "moving_avg_model");
+    private final SearchExtRegistry searchExtParserRegistry = new SearchExtRegistry();
+
+    private final AggregatorParsers aggregatorParsers;
+    private final Suggesters suggesters;
+    private final NamedWriteableRegistry namedWriteableRegistry;
+    private final NamedXContentRegistry namedXContentRegistry;
+
+    public SearchModule() {
+        registerSignificanceHeuristics();
+        registerMovingAverageModels();
+        registerQueries();
+        registerScoreFunctions();
+        registerAggregations();
+        registerPipelineAggregations();
+        registerSorts();
+        registerRescorers();
+        registerValueFormats();
+        ShapeBuilders.register(namedWriteables);
+        suggesters = registerSuggesters();
+        aggregatorParsers = new AggregatorParsers(aggregationParserRegistry, pipelineAggregationParserRegistry);
+        namedWriteableRegistry = new NamedWriteableRegistry(namedWriteables);
+        namedXContentRegistry = new NamedXContentRegistry(namedXContents);
+    }
+
+    public List<NamedWriteableRegistry.Entry> getNamedWriteables() {
+        return Collections.unmodifiableList(namedWriteables);
+    }
+
+    public List<NamedXContentRegistry.Entry> getNamedXContents() {
+        return Collections.unmodifiableList(namedXContents);
+    }
+
+    /**
+     * The registry to pass to {org.codelibs.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput} when reading builders.
+     */
+    public NamedWriteableRegistry getNamedWriteableRegistry() {
+        return namedWriteableRegistry;
+    }
+
+    /**
+     * The registry to pass to {org.codelibs.elasticsearch.common.xcontent.XContent#createParser} when parsing queries.
+     */
+    public NamedXContentRegistry getNamedXContentRegistry() {
+        return namedXContentRegistry;
+    }
+
+    public AggregatorParsers getAggregatorParsers() {
+        return aggregatorParsers;
+    }
+
+    public Suggesters getSuggesters() {
+        return suggesters;
+    }
+
+    public SearchExtRegistry getSearchExtRegistry() {
+        return searchExtParserRegistry;
+    }
+
+    public ParseFieldRegistry<SignificanceHeuristicParser> getSignificanceHeuristicParserRegistry() {
+        return significanceHeuristicParserRegistry;
+    }
+
+    public ParseFieldRegistry<MovAvgModel.AbstractModelParser> getMovingAverageModelParserRegistry() {
+        return movingAverageModelParserRegistry;
+    }
+
+    private void registerQueries() {
+        registerQuery(MatchQueryBuilder.QUERY_NAME_FIELD, MatchQueryBuilder::new, MatchQueryBuilder::fromXContent);
+        registerQuery(new ParseField(MatchPhraseQueryBuilder.NAME), MatchPhraseQueryBuilder::new, MatchPhraseQueryBuilder::fromXContent);
+        registerQuery(new ParseField(MatchPhrasePrefixQueryBuilder.NAME), MatchPhrasePrefixQueryBuilder::new,
+                MatchPhrasePrefixQueryBuilder::fromXContent);
+        registerQuery(new ParseField(MultiMatchQueryBuilder.NAME), MultiMatchQueryBuilder::new, MultiMatchQueryBuilder::fromXContent);
+        registerQuery(new ParseField(NestedQueryBuilder.NAME), NestedQueryBuilder::new, NestedQueryBuilder::fromXContent);
+        registerQuery(new ParseField(HasChildQueryBuilder.NAME), HasChildQueryBuilder::new, HasChildQueryBuilder::fromXContent);
+        registerQuery(new ParseField(HasParentQueryBuilder.NAME), HasParentQueryBuilder::new, HasParentQueryBuilder::fromXContent);
+        registerQuery(new ParseField(DisMaxQueryBuilder.NAME), DisMaxQueryBuilder::new, DisMaxQueryBuilder::fromXContent);
+        registerQuery(new ParseField(IdsQueryBuilder.NAME), IdsQueryBuilder::new, IdsQueryBuilder::fromXContent);
+        registerQuery(new ParseField(MatchAllQueryBuilder.NAME), MatchAllQueryBuilder::new, MatchAllQueryBuilder::fromXContent);
+        registerQuery(new ParseField(QueryStringQueryBuilder.NAME), QueryStringQueryBuilder::new, QueryStringQueryBuilder::fromXContent);
+        registerQuery(new ParseField(BoostingQueryBuilder.NAME), BoostingQueryBuilder::new, BoostingQueryBuilder::fromXContent);
+        registerQuery(new ParseField(BoolQueryBuilder.NAME), BoolQueryBuilder::new, BoolQueryBuilder::fromXContent);
+        registerQuery(new ParseField(TermQueryBuilder.NAME), TermQueryBuilder::new, TermQueryBuilder::fromXContent);
+        registerQuery(TermsQueryBuilder.QUERY_NAME_FIELD, TermsQueryBuilder::new, TermsQueryBuilder::fromXContent);
+        registerQuery(new ParseField(FuzzyQueryBuilder.NAME), FuzzyQueryBuilder::new, FuzzyQueryBuilder::fromXContent);
+        registerQuery(new ParseField(RegexpQueryBuilder.NAME), RegexpQueryBuilder::new, RegexpQueryBuilder::fromXContent);
+        registerQuery(new ParseField(RangeQueryBuilder.NAME), RangeQueryBuilder::new, RangeQueryBuilder::fromXContent);
+        registerQuery(new ParseField(PrefixQueryBuilder.NAME), PrefixQueryBuilder::new, PrefixQueryBuilder::fromXContent);
+        registerQuery(new ParseField(WildcardQueryBuilder.NAME), WildcardQueryBuilder::new, WildcardQueryBuilder::fromXContent);
+        registerQuery(new ParseField(ConstantScoreQueryBuilder.NAME), ConstantScoreQueryBuilder::new,
+                ConstantScoreQueryBuilder::fromXContent);
+        registerQuery(new ParseField(SpanTermQueryBuilder.NAME), SpanTermQueryBuilder::new, SpanTermQueryBuilder::fromXContent);
+        registerQuery(new ParseField(SpanNotQueryBuilder.NAME), SpanNotQueryBuilder::new, SpanNotQueryBuilder::fromXContent);
+        registerQuery(new ParseField(SpanWithinQueryBuilder.NAME), SpanWithinQueryBuilder::new, SpanWithinQueryBuilder::fromXContent);
+        registerQuery(new ParseField(SpanContainingQueryBuilder.NAME), SpanContainingQueryBuilder::new,
+                SpanContainingQueryBuilder::fromXContent);
+        registerQuery(new ParseField(FieldMaskingSpanQueryBuilder.NAME), FieldMaskingSpanQueryBuilder::new,
+                FieldMaskingSpanQueryBuilder::fromXContent);
+        registerQuery(new ParseField(SpanFirstQueryBuilder.NAME), SpanFirstQueryBuilder::new, SpanFirstQueryBuilder::fromXContent);
+        registerQuery(new ParseField(SpanNearQueryBuilder.NAME), SpanNearQueryBuilder::new, SpanNearQueryBuilder::fromXContent);
+        registerQuery(new ParseField(SpanOrQueryBuilder.NAME), SpanOrQueryBuilder::new, SpanOrQueryBuilder::fromXContent);
+        registerQuery(MoreLikeThisQueryBuilder.QUERY_NAME_FIELD, MoreLikeThisQueryBuilder::new, MoreLikeThisQueryBuilder::fromXContent);
+        registerQuery(new ParseField(WrapperQueryBuilder.NAME), WrapperQueryBuilder::new, WrapperQueryBuilder::fromXContent);
+        registerQuery(new ParseField(IndicesQueryBuilder.NAME), IndicesQueryBuilder::new, IndicesQueryBuilder::fromXContent);
+        registerQuery(new ParseField(CommonTermsQueryBuilder.NAME), CommonTermsQueryBuilder::new, CommonTermsQueryBuilder::fromXContent);
+        registerQuery(new ParseField(SpanMultiTermQueryBuilder.NAME), SpanMultiTermQueryBuilder::new,
+                SpanMultiTermQueryBuilder::fromXContent);
+        registerQuery(new ParseField(FunctionScoreQueryBuilder.NAME), FunctionScoreQueryBuilder::new,
+                FunctionScoreQueryBuilder::fromXContent);
+        registerQuery(new ParseField(SimpleQueryStringBuilder.NAME), SimpleQueryStringBuilder::new, SimpleQueryStringBuilder::fromXContent);
+        registerQuery(new ParseField(TypeQueryBuilder.NAME), TypeQueryBuilder::new, TypeQueryBuilder::fromXContent);
+        registerQuery(new ParseField(ScriptQueryBuilder.NAME), ScriptQueryBuilder::new, ScriptQueryBuilder::fromXContent);
+        registerQuery(new ParseField(GeoDistanceQueryBuilder.NAME), GeoDistanceQueryBuilder::new, GeoDistanceQueryBuilder::fromXContent);
+        registerQuery(new ParseField(GeoDistanceRangeQueryBuilder.NAME), GeoDistanceRangeQueryBuilder::new,
+                GeoDistanceRangeQueryBuilder::fromXContent);
+        registerQuery(GeoBoundingBoxQueryBuilder.QUERY_NAME_FIELD, GeoBoundingBoxQueryBuilder::new,
+                GeoBoundingBoxQueryBuilder::fromXContent);
+        registerQuery(new ParseField(GeohashCellQuery.NAME), GeohashCellQuery.Builder::new, GeohashCellQuery.Builder::fromXContent);
+        registerQuery(new ParseField(GeoPolygonQueryBuilder.NAME), GeoPolygonQueryBuilder::new, GeoPolygonQueryBuilder::fromXContent);
+        registerQuery(new ParseField(ExistsQueryBuilder.NAME), ExistsQueryBuilder::new, ExistsQueryBuilder::fromXContent);
+        registerQuery(new ParseField(MatchNoneQueryBuilder.NAME), MatchNoneQueryBuilder::new, MatchNoneQueryBuilder::fromXContent);
+        registerQuery(new ParseField(ParentIdQueryBuilder.NAME), ParentIdQueryBuilder::new, ParentIdQueryBuilder::fromXContent);
+        registerQuery(new ParseField(GeoShapeQueryBuilder.NAME), GeoShapeQueryBuilder::new, GeoShapeQueryBuilder::fromXContent);
+    }
+
+    private <QB extends QueryBuilder> void registerQuery(ParseField name, Writeable.Reader<QB> reader, QueryParser<QB> parser) {
+        namedWriteables.add(new NamedWriteableRegistry.Entry(QueryBuilder.class, name.getPreferredName(), reader));
+        // QueryParseContext looks queries up as Optional since a query clause may be empty
+        namedXContents.add(new NamedXContentRegistry.Entry(Optional.class, name,
+                (XContentParser p, Object c) -> parser.fromXContent((QueryParseContext) c)));
+    }
+
+    private void registerScoreFunctions() {
+        registerScoreFunction(ScriptScoreFunctionBuilder.NAME, ScriptScoreFunctionBuilder::new, ScriptScoreFunctionBuilder::fromXContent);
+        registerScoreFunction(GaussDecayFunctionBuilder.NAME, GaussDecayFunctionBuilder::new, GaussDecayFunctionBuilder.PARSER);
+        registerScoreFunction(LinearDecayFunctionBuilder.NAME, LinearDecayFunctionBuilder::new, LinearDecayFunctionBuilder.PARSER);
+        registerScoreFunction(ExponentialDecayFunctionBuilder.NAME, ExponentialDecayFunctionBuilder::new,
+                ExponentialDecayFunctionBuilder.PARSER);
+        registerScoreFunction(RandomScoreFunctionBuilder.NAME, RandomScoreFunctionBuilder::new, RandomScoreFunctionBuilder::fromXContent);
+        registerScoreFunction(FieldValueFactorFunctionBuilder.NAME, FieldValueFactorFunctionBuilder::new,
+                FieldValueFactorFunctionBuilder::fromXContent);
+        // weight doesn't have its own parser, every function supports it out of the box. It can also be a single function when it
+        // isn't associated with any other function, which is why it needs to be readable from the stream.
+        namedWriteables.add(new NamedWriteableRegistry.Entry(ScoreFunctionBuilder.class, WeightBuilder.NAME, WeightBuilder::new));
+    }
+
+    private <FB extends ScoreFunctionBuilder<FB>> void registerScoreFunction(String name, Writeable.Reader<FB> reader,
+            ScoreFunctionParser<FB> parser) {
+        namedWriteables.add(new NamedWriteableRegistry.Entry(ScoreFunctionBuilder.class, name, reader));
+        namedXContents.add(new NamedXContentRegistry.Entry(ScoreFunctionBuilder.class, new ParseField(name),
+                (XContentParser p, Object c) -> parser.fromXContent((QueryParseContext) c)));
+    }
+
+    private void registerAggregations() {
+        registerAggregation(AvgAggregationBuilder.NAME, AvgAggregationBuilder::new, AvgAggregationBuilder::parse);
+        registerAggregationResult(AvgAggregationBuilder.NAME, InternalAvg::new);
+        registerAggregation(SumAggregationBuilder.NAME, SumAggregationBuilder::new, SumAggregationBuilder::parse);
+        registerAggregationResult(SumAggregationBuilder.NAME, InternalSum::new);
+        registerAggregation(MinAggregationBuilder.NAME, MinAggregationBuilder::new, MinAggregationBuilder::parse);
+        registerAggregationResult(MinAggregationBuilder.NAME, InternalMin::new);
+        registerAggregation(MaxAggregationBuilder.NAME, MaxAggregationBuilder::new, MaxAggregationBuilder::parse);
+        registerAggregationResult(MaxAggregationBuilder.NAME, InternalMax::new);
+        registerAggregation(StatsAggregationBuilder.NAME, StatsAggregationBuilder::new, StatsAggregationBuilder::parse);
+        registerAggregationResult(StatsAggregationBuilder.NAME, InternalStats::new);
+        registerAggregation(ExtendedStatsAggregationBuilder.NAME, ExtendedStatsAggregationBuilder::new,
+                ExtendedStatsAggregationBuilder::parse);
+        registerAggregationResult(ExtendedStatsAggregationBuilder.NAME, InternalExtendedStats::new);
+        registerAggregation(ValueCountAggregationBuilder.NAME, ValueCountAggregationBuilder::new, ValueCountAggregationBuilder::parse);
+        registerAggregationResult(ValueCountAggregationBuilder.NAME, InternalValueCount::new);
+        // only the t-digest results exist in this library, HDR results can't be read back
+        registerAggregation(PercentilesAggregationBuilder.NAME, PercentilesAggregationBuilder::new, PercentilesAggregationBuilder::parse);
+        registerAggregationResult(InternalTDigestPercentiles.NAME, InternalTDigestPercentiles::new);
+        registerAggregation(PercentileRanksAggregationBuilder.NAME, PercentileRanksAggregationBuilder::new,
+                PercentileRanksAggregationBuilder::parse);
+        registerAggregationResult(InternalTDigestPercentileRanks.NAME, InternalTDigestPercentileRanks::new);
+        registerAggregation(CardinalityAggregationBuilder.NAME, CardinalityAggregationBuilder::new, CardinalityAggregationBuilder::parse);
+        registerAggregationResult(CardinalityAggregationBuilder.NAME, InternalCardinality::new);
+        registerAggregation(GlobalAggregationBuilder.NAME, GlobalAggregationBuilder::new, GlobalAggregationBuilder::parse);
+        registerAggregationResult(GlobalAggregationBuilder.NAME, InternalGlobal::new);
+        registerAggregation(MissingAggregationBuilder.NAME, MissingAggregationBuilder::new, MissingAggregationBuilder::parse);
+        registerAggregationResult(MissingAggregationBuilder.NAME, InternalMissing::new);
+        registerAggregation(FilterAggregationBuilder.NAME, FilterAggregationBuilder::new, FilterAggregationBuilder::parse);
+        registerAggregationResult(FilterAggregationBuilder.NAME, InternalFilter::new);
+        registerAggregation(FiltersAggregationBuilder.NAME, FiltersAggregationBuilder::new, FiltersAggregationBuilder::parse);
+        registerAggregationResult(FiltersAggregationBuilder.NAME, InternalFilters::new);
+        registerAggregation(SamplerAggregationBuilder.NAME, SamplerAggregationBuilder::new, SamplerAggregationBuilder::parse);
+        registerAggregationResult(InternalSampler.NAME, InternalSampler::new);
+        registerAggregationResult(UnmappedSampler.NAME, UnmappedSampler::new);
+        registerAggregation(DiversifiedAggregationBuilder.NAME, DiversifiedAggregationBuilder::new, DiversifiedAggregationBuilder::parse);
+        registerAggregation(TermsAggregationBuilder.NAME, TermsAggregationBuilder::new, TermsAggregationBuilder::parse);
+        registerAggregationResult(StringTerms.NAME, StringTerms::new);
+        registerAggregationResult(UnmappedTerms.NAME, UnmappedTerms::new);
+        registerAggregationResult(LongTerms.NAME, LongTerms::new);
+        registerAggregationResult(DoubleTerms.NAME, DoubleTerms::new);
+        registerAggregation(SignificantTermsAggregationBuilder.NAME, SignificantTermsAggregationBuilder::new,
+                SignificantTermsAggregationBuilder.getParser(significanceHeuristicParserRegistry));
+        registerAggregationResult(SignificantStringTerms.NAME, SignificantStringTerms::new);
+        registerAggregationResult(SignificantLongTerms.NAME, SignificantLongTerms::new);
+        registerAggregationResult(UnmappedSignificantTerms.NAME, UnmappedSignificantTerms::new);
+        registerAggregation(RangeAggregationBuilder.NAME, RangeAggregationBuilder::new, RangeAggregationBuilder::parse);
+        registerAggregationResult(RangeAggregationBuilder.NAME, InternalRange::new);
+        registerAggregation(DateRangeAggregationBuilder.NAME, DateRangeAggregationBuilder::new, DateRangeAggregationBuilder::parse);
+        registerAggregationResult(DateRangeAggregationBuilder.NAME, InternalDateRange::new);
+        registerAggregation(IpRangeAggregationBuilder.NAME, IpRangeAggregationBuilder::new, IpRangeAggregationBuilder::parse);
+        registerAggregationResult(IpRangeAggregationBuilder.NAME, InternalBinaryRange::new);
+        registerAggregation(HistogramAggregationBuilder.NAME, HistogramAggregationBuilder::new, HistogramAggregationBuilder::parse);
+        registerAggregationResult(HistogramAggregationBuilder.NAME, InternalHistogram::new);
+        registerAggregation(DateHistogramAggregationBuilder.NAME, DateHistogramAggregationBuilder::new,
+                DateHistogramAggregationBuilder::parse);
+        registerAggregationResult(DateHistogramAggregationBuilder.NAME, InternalDateHistogram::new);
+        registerAggregation(GeoDistanceAggregationBuilder.NAME, GeoDistanceAggregationBuilder::new, GeoDistanceAggregationBuilder::parse);
+        registerAggregationResult(GeoDistanceAggregationBuilder.NAME, InternalGeoDistance::new);
+        registerAggregation(GeoGridAggregationBuilder.NAME, GeoGridAggregationBuilder::new, GeoGridAggregationBuilder::parse);
+        registerAggregationResult(GeoGridAggregationBuilder.NAME, InternalGeoHashGrid::new);
+        registerAggregation(NestedAggregationBuilder.NAME, NestedAggregationBuilder::new, NestedAggregationBuilder::parse);
+        registerAggregationResult(NestedAggregationBuilder.NAME, InternalNested::new);
+        registerAggregation(ReverseNestedAggregationBuilder.NAME, ReverseNestedAggregationBuilder::new,
+                ReverseNestedAggregationBuilder::parse);
+        registerAggregationResult(ReverseNestedAggregationBuilder.NAME, InternalReverseNested::new);
+        registerAggregation(TopHitsAggregationBuilder.NAME, TopHitsAggregationBuilder::new, TopHitsAggregationBuilder::parse);
+        registerAggregationResult(TopHitsAggregationBuilder.NAME, InternalTopHits::new);
+        registerAggregation(GeoBoundsAggregationBuilder.NAME, GeoBoundsAggregationBuilder::new, GeoBoundsAggregationBuilder::parse);
+        registerAggregationResult(GeoBoundsAggregationBuilder.NAME, InternalGeoBounds::new);
+        registerAggregation(GeoCentroidAggregationBuilder.NAME, GeoCentroidAggregationBuilder::new, GeoCentroidAggregationBuilder::parse);
+        registerAggregationResult(GeoCentroidAggregationBuilder.NAME, InternalGeoCentroid::new);
+        registerAggregation(ScriptedMetricAggregationBuilder.NAME, ScriptedMetricAggregationBuilder::new,
+                ScriptedMetricAggregationBuilder::parse);
+        registerAggregationResult(ScriptedMetricAggregationBuilder.NAME, InternalScriptedMetric::new);
+        registerAggregation(ChildrenAggregationBuilder.NAME, ChildrenAggregationBuilder::new, ChildrenAggregationBuilder::parse);
+        registerAggregationResult(ChildrenAggregationBuilder.NAME, InternalChildren::new);
+    }
+
+    private void registerAggregation(String name, Writeable.Reader<? extends AggregationBuilder> reader, Aggregator.Parser parser) {
+        aggregationParserRegistry.register(parser, name);
+        namedWriteables.add(new NamedWriteableRegistry.Entry(AggregationBuilder.class, name, reader));
+    }
+
+    private void registerAggregationResult(String writeableName, Writeable.Reader<? extends InternalAggregation> reader) {
+        namedWriteables.add(new NamedWriteableRegistry.Entry(InternalAggregation.class, writeableName, reader));
+    }
+
+    private void registerPipelineAggregations() {
+        registerPipelineAggregation(DerivativePipelineAggregationBuilder.NAME, DerivativePipelineAggregationBuilder::new,
+                DerivativePipelineAggregator::new, DerivativePipelineAggregationBuilder::parse);
+        registerAggregationResult(DerivativePipelineAggregationBuilder.NAME, InternalDerivative::new);
+        registerPipelineAggregation(MaxBucketPipelineAggregationBuilder.NAME, MaxBucketPipelineAggregationBuilder::new,
+                MaxBucketPipelineAggregator::new, MaxBucketPipelineAggregationBuilder.PARSER);
+        // min_bucket shares its result with max_bucket
+        registerAggregationResult(InternalBucketMetricValue.NAME, InternalBucketMetricValue::new);
+        registerPipelineAggregation(MinBucketPipelineAggregationBuilder.NAME, MinBucketPipelineAggregationBuilder::new,
+                MinBucketPipelineAggregator::new, MinBucketPipelineAggregationBuilder.PARSER);
+        registerPipelineAggregation(AvgBucketPipelineAggregationBuilder.NAME, AvgBucketPipelineAggregationBuilder::new,
+                AvgBucketPipelineAggregator::new, AvgBucketPipelineAggregationBuilder.PARSER);
+        // avg_bucket, sum_bucket, cumulative_sum, bucket_script, moving_avg and serial_diff all produce simple values
+        registerAggregationResult(InternalSimpleValue.NAME, InternalSimpleValue::new);
+        registerPipelineAggregation(SumBucketPipelineAggregationBuilder.NAME, SumBucketPipelineAggregationBuilder::new,
+                SumBucketPipelineAggregator::new, SumBucketPipelineAggregationBuilder.PARSER);
+        registerPipelineAggregation(StatsBucketPipelineAggregationBuilder.NAME, StatsBucketPipelineAggregationBuilder::new,
+                StatsBucketPipelineAggregator::new, StatsBucketPipelineAggregationBuilder.PARSER);
+        registerAggregationResult(StatsBucketPipelineAggregationBuilder.NAME, InternalStatsBucket::new);
+        registerPipelineAggregation(ExtendedStatsBucketPipelineAggregationBuilder.NAME, ExtendedStatsBucketPipelineAggregationBuilder::new,
+                ExtendedStatsBucketPipelineAggregator::new, new ExtendedStatsBucketParser());
+        registerAggregationResult(ExtendedStatsBucketPipelineAggregationBuilder.NAME, InternalExtendedStatsBucket::new);
+        registerPipelineAggregation(PercentilesBucketPipelineAggregationBuilder.NAME, PercentilesBucketPipelineAggregationBuilder::new,
+                PercentilesBucketPipelineAggregator::new, PercentilesBucketPipelineAggregationBuilder.PARSER);
+        registerAggregationResult(PercentilesBucketPipelineAggregationBuilder.NAME, InternalPercentilesBucket::new);
+        registerPipelineAggregation(MovAvgPipelineAggregationBuilder.NAME, MovAvgPipelineAggregationBuilder::new,
+                MovAvgPipelineAggregator::new,
+                (n, c) -> MovAvgPipelineAggregationBuilder.parse(movingAverageModelParserRegistry, n, c));
+        registerPipelineAggregation(CumulativeSumPipelineAggregationBuilder.NAME, CumulativeSumPipelineAggregationBuilder::new,
+                CumulativeSumPipelineAggregator::new, CumulativeSumPipelineAggregationBuilder::parse);
+        registerPipelineAggregation(BucketScriptPipelineAggregationBuilder.NAME, BucketScriptPipelineAggregationBuilder::new,
+                BucketScriptPipelineAggregator::new, BucketScriptPipelineAggregationBuilder::parse);
+        registerPipelineAggregation(BucketSelectorPipelineAggregationBuilder.NAME, BucketSelectorPipelineAggregationBuilder::new,
+                BucketSelectorPipelineAggregator::new, BucketSelectorPipelineAggregationBuilder::parse);
+        registerPipelineAggregation(SerialDiffPipelineAggregationBuilder.NAME, SerialDiffPipelineAggregationBuilder::new,
+                SerialDiffPipelineAggregator::new, SerialDiffPipelineAggregationBuilder::parse);
+    }
+
+    private void registerPipelineAggregation(String name, Writeable.Reader<? extends PipelineAggregationBuilder> builderReader,
+            Writeable.Reader<? extends PipelineAggregator> aggregatorReader, PipelineAggregator.Parser parser) {
+        pipelineAggregationParserRegistry.register(parser, name);
+        namedWriteables.add(new NamedWriteableRegistry.Entry(PipelineAggregationBuilder.class, name, builderReader));
+        namedWriteables.add(new NamedWriteableRegistry.Entry(PipelineAggregator.class, name, aggregatorReader));
+    }
+
+    private void registerSignificanceHeuristics() {
+        registerSignificanceHeuristic(ChiSquare.NAME, ChiSquare::new, ChiSquare.PARSER);
+        registerSignificanceHeuristic(GND.NAME, GND::new, GND.PARSER);
+        registerSignificanceHeuristic(JLHScore.NAME, JLHScore::new, JLHScore::parse);
+        registerSignificanceHeuristic(MutualInformation.NAME, MutualInformation::new, MutualInformation.PARSER);
+        registerSignificanceHeuristic(PercentageScore.NAME, PercentageScore::new, PercentageScore::parse);
+        registerSignificanceHeuristic(ScriptHeuristic.NAME, ScriptHeuristic::new, ScriptHeuristic::parse);
+    }
+
+    private void registerSignificanceHeuristic(String name, Writeable.Reader<? extends SignificanceHeuristic> reader,
+            SignificanceHeuristicParser parser) {
+        significanceHeuristicParserRegistry.register(parser, name);
+        namedWriteables.add(new NamedWriteableRegistry.Entry(SignificanceHeuristic.class, name, reader));
+    }
+
+    private void registerMovingAverageModels() {
+        registerMovingAverageModel(SimpleModel.NAME, SimpleModel::new, SimpleModel.PARSER);
+        registerMovingAverageModel(LinearModel.NAME, LinearModel::new, LinearModel.PARSER);
+        registerMovingAverageModel(EwmaModel.NAME, EwmaModel::new, EwmaModel.PARSER);
+        registerMovingAverageModel(HoltLinearModel.NAME, HoltLinearModel::new, HoltLinearModel.PARSER);
+        registerMovingAverageModel(HoltWintersModel.NAME, HoltWintersModel::new, HoltWintersModel.PARSER);
+    }
+
+    private void registerMovingAverageModel(String name, Writeable.Reader<? extends MovAvgModel> reader,
+            MovAvgModel.AbstractModelParser parser) {
+        movingAverageModelParserRegistry.register(parser, name);
+        namedWriteables.add(new NamedWriteableRegistry.Entry(MovAvgModel.class, name, reader));
+    }
+
+    private void registerSorts() {
+        namedWriteables.add(new NamedWriteableRegistry.Entry(SortBuilder.class, GeoDistanceSortBuilder.NAME, GeoDistanceSortBuilder::new));
+        namedWriteables.add(new NamedWriteableRegistry.Entry(SortBuilder.class, ScoreSortBuilder.NAME, ScoreSortBuilder::new));
+        namedWriteables.add(new NamedWriteableRegistry.Entry(SortBuilder.class, ScriptSortBuilder.NAME, ScriptSortBuilder::new));
+        namedWriteables.add(new NamedWriteableRegistry.Entry(SortBuilder.class, FieldSortBuilder.NAME, FieldSortBuilder::new));
+    }
+
+    private void registerRescorers() {
+        namedWriteables.add(new NamedWriteableRegistry.Entry(RescoreBuilder.class, QueryRescorerBuilder.NAME, QueryRescorerBuilder::new));
+    }
+
+    private void registerValueFormats() {
+        registerValueFormat(DocValueFormat.BOOLEAN.getWriteableName(), in -> DocValueFormat.BOOLEAN);
+        registerValueFormat(DocValueFormat.DateTime.NAME, DocValueFormat.DateTime::new);
+        registerValueFormat(DocValueFormat.Decimal.NAME, DocValueFormat.Decimal::new);
+        registerValueFormat(DocValueFormat.GEOHASH.getWriteableName(), in -> DocValueFormat.GEOHASH);
+        registerValueFormat(DocValueFormat.IP.getWriteableName(), in -> DocValueFormat.IP);
+        registerValueFormat(DocValueFormat.RAW.getWriteableName(), in -> DocValueFormat.RAW);
+    }
+
+    private void registerValueFormat(String name, Writeable.Reader<? extends DocValueFormat> reader) {
+        namedWriteables.add(new NamedWriteableRegistry.Entry(DocValueFormat.class, name, reader));
+    }
+
+    private Suggesters registerSuggesters() {
+        namedWriteables.add(new NamedWriteableRegistry.Entry(SmoothingModel.class, Laplace.NAME, Laplace::new));
+        namedWriteables.add(new NamedWriteableRegistry.Entry(SmoothingModel.class, LinearInterpolation.NAME, LinearInterpolation::new));
+        namedWriteables.add(new NamedWriteableRegistry.Entry(SmoothingModel.class, StupidBackoff.NAME, StupidBackoff::new));
+
+        NamedRegistry<Suggester<?>> suggesters = new NamedRegistry<>("suggester");
+        registerSuggester(suggesters, "phrase", PhraseSuggester.INSTANCE);
+        registerSuggester(suggesters, "term", TermSuggester.INSTANCE);
+        registerSuggester(suggesters, "completion", CompletionSuggester.INSTANCE);
+        return new Suggesters(Collections.unmodifiableMap(suggesters.getRegistry()));
+    }
+
+    private void registerSuggester(NamedRegistry<Suggester<?>> suggesters, String name, Suggester<?> suggester) {
+        suggesters.register(name, suggester);
+        namedWriteables.add(new NamedWriteableRegistry.Entry(SuggestionBuilder.class, name, suggester));
+    }
+}
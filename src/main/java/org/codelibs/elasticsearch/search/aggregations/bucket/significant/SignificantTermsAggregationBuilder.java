@@ -21,9 +21,12 @@ package org.codelibs.elasticsearch.search.aggregations.bucket.significant;
 import org.codelibs.elasticsearch.common.ParseField;
 import org.codelibs.elasticsearch.common.io.stream.StreamInput;
 import org.codelibs.elasticsearch.common.io.stream.StreamOutput;
+import org.codelibs.elasticsearch.common.xcontent.ObjectParser;
 import org.codelibs.elasticsearch.common.xcontent.ParseFieldRegistry;
 import org.codelibs.elasticsearch.common.xcontent.XContentBuilder;
 import org.codelibs.elasticsearch.index.query.QueryBuilder;
+import org.codelibs.elasticsearch.index.query.QueryParseContext;
+import org.codelibs.elasticsearch.search.aggregations.AggregationBuilder;
 import org.codelibs.elasticsearch.search.aggregations.AggregatorFactories.Builder;
 import org.codelibs.elasticsearch.search.aggregations.Aggregator;
 import org.codelibs.elasticsearch.search.aggregations.AggregatorFactory;
@@ -41,6 +44,7 @@ import org.codelibs.elasticsearch.search.aggregations.support.ValuesSource;
 import org.codelibs.elasticsearch.search.aggregations.support.ValuesSourceAggregationBuilder;
 import org.codelibs.elasticsearch.search.aggregations.support.ValuesSourceAggregatorFactory;
 import org.codelibs.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.codelibs.elasticsearch.search.aggregations.support.ValuesSourceParserHelper;
 import org.codelibs.elasticsearch.search.aggregations.support.ValuesSourceType;
 import org.codelibs.elasticsearch.search.internal.SearchContext;
 
@@ -62,7 +66,45 @@ public class SignificantTermsAggregationBuilder extends ValuesSourceAggregationB
     static final SignificanceHeuristic DEFAULT_SIGNIFICANCE_HEURISTIC = new JLHScore();
 
     public static Aggregator.Parser getParser(ParseFieldRegistry<SignificanceHeuristicParser> significanceHeuristicParserRegistry) {
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        ObjectParser<SignificantTermsAggregationBuilder, QueryParseContext> parser =
+                new ObjectParser<>(SignificantTermsAggregationBuilder.NAME);
+        ValuesSourceParserHelper.declareAnyFields(parser, true, true);
+
+        parser.declareInt(SignificantTermsAggregationBuilder::shardSize, TermsAggregationBuilder.SHARD_SIZE_FIELD_NAME);
+
+        parser.declareLong(SignificantTermsAggregationBuilder::minDocCount, TermsAggregationBuilder.MIN_DOC_COUNT_FIELD_NAME);
+
+        parser.declareLong(SignificantTermsAggregationBuilder::shardMinDocCount, TermsAggregationBuilder.SHARD_MIN_DOC_COUNT_FIELD_NAME);
+
+        parser.declareInt(SignificantTermsAggregationBuilder::size, TermsAggregationBuilder.REQUIRED_SIZE_FIELD_NAME);
+
+        parser.declareString(SignificantTermsAggregationBuilder::executionHint, TermsAggregationBuilder.EXECUTION_HINT_FIELD_NAME);
+
+        parser.declareObject(SignificantTermsAggregationBuilder::backgroundFilter,
+                (p, context) -> context.parseInnerQueryBuilder().orElse(null),
+                SignificantTermsAggregationBuilder.BACKGROUND_FILTER);
+
+        parser.declareField((b, v) -> b.includeExclude(IncludeExclude.merge(v, b.includeExclude())),
+                IncludeExclude::parseInclude, IncludeExclude.INCLUDE_FIELD, ObjectParser.ValueType.OBJECT_ARRAY_OR_STRING);
+
+        parser.declareField((b, v) -> b.includeExclude(IncludeExclude.merge(b.includeExclude(), v)),
+                IncludeExclude::parseExclude, IncludeExclude.EXCLUDE_FIELD, ObjectParser.ValueType.STRING_ARRAY);
+
+        for (String name : significanceHeuristicParserRegistry.getNames()) {
+            parser.declareObject(SignificantTermsAggregationBuilder::significanceHeuristic,
+                    (p, context) -> {
+                        SignificanceHeuristicParser significanceHeuristicParser = significanceHeuristicParserRegistry
+                                .lookupReturningNullIfNotFound(name);
+                        return significanceHeuristicParser.parse(context);
+                    },
+                    new ParseField(name));
+        }
+        return new Aggregator.Parser() {
+            @Override
+            public AggregationBuilder parse(String aggregationName, QueryParseContext context) throws IOException {
+                return parser.parse(context.parser(), new SignificantTermsAggregationBuilder(aggregationName, null), context);
+            }
+        };
     }
 
     private IncludeExclude includeExclude = null;
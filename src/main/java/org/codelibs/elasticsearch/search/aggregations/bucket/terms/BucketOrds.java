@@ -0,0 +1,85 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.codelibs.elasticsearch.search.aggregations.bucket.terms;
+
+import org.codelibs.elasticsearch.common.lease.Releasable;
+import org.codelibs.elasticsearch.common.util.BigArrays;
+import org.codelibs.elasticsearch.common.util.BytesRefHash;
+import org.codelibs.elasticsearch.common.util.LongHash;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Assigns dense ordinals to the terms of buckets, so that the buckets of the same term can be grouped on reduce
+ * without boxing the terms or allocating a list per term.
+ */
+abstract class BucketOrds<B extends InternalTerms.Bucket<B>> implements Releasable {
+
+    /**
+     * Returns the ordinal of the term of the given bucket, the next free ordinal is assigned if the term is new.
+     */
+    abstract long add(B bucket);
+
+    /**
+     * Returns the number of distinct terms.
+     */
+    abstract long size();
+
+    static <B extends InternalTerms.Bucket<B>> BucketOrds<B> longs(long capacity, BigArrays bigArrays, ToLongFunction<B> term) {
+        final LongHash hash = new LongHash(capacity, bigArrays);
+        return new BucketOrds<B>() {
+            @Override
+            long add(B bucket) {
+                long ord = hash.add(term.applyAsLong(bucket));
+                return ord < 0 ? -1 - ord : ord;
+            }
+
+            @Override
+            long size() {
+                return hash.size();
+            }
+
+            @Override
+            public void close() {
+                hash.close();
+            }
+        };
+    }
+
+    static BucketOrds<StringTerms.Bucket> bytesRefs(long capacity, BigArrays bigArrays) {
+        final BytesRefHash hash = new BytesRefHash(capacity, bigArrays);
+        return new BucketOrds<StringTerms.Bucket>() {
+            @Override
+            long add(StringTerms.Bucket bucket) {
+                long ord = hash.add(bucket.termBytes);
+                return ord < 0 ? -1 - ord : ord;
+            }
+
+            @Override
+            long size() {
+                return hash.size();
+            }
+
+            @Override
+            public void close() {
+                hash.close();
+            }
+        };
+    }
+}
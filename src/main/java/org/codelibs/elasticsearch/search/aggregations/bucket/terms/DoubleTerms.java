@@ -20,6 +20,7 @@ package org.codelibs.elasticsearch.search.aggregations.bucket.terms;
 
 import org.codelibs.elasticsearch.common.io.stream.StreamInput;
 import org.codelibs.elasticsearch.common.io.stream.StreamOutput;
+import org.codelibs.elasticsearch.common.util.BigArrays;
 import org.codelibs.elasticsearch.common.xcontent.XContentBuilder;
 import org.codelibs.elasticsearch.search.DocValueFormat;
 import org.codelibs.elasticsearch.search.aggregations.InternalAggregations;
@@ -148,6 +149,11 @@ public class DoubleTerms extends InternalMappedTerms<DoubleTerms, DoubleTerms.Bu
         return builder;
     }
 
+    @Override
+    BucketOrds<Bucket> newBucketOrds(long capacity, BigArrays bigArrays) {
+        return BucketOrds.longs(capacity, bigArrays, bucket -> Double.doubleToLongBits(bucket.term));
+    }
+
     @Override
     protected Bucket[] createBucketsArray(int size) {
         return new Bucket[size];
@@ -100,6 +100,50 @@ class InternalOrder extends Terms.Order {
         return false;
     }
 
+    /**
+     * Returns true if the order only compares doc counts and terms, so that buckets can be compared before their
+     * sub-aggregations are reduced.
+     */
+    public static boolean isCountOrTermOrder(Terms.Order order) {
+        if (order == COUNT_DESC || order == COUNT_ASC || order == TERM_DESC || order == TERM_ASC) {
+            return true;
+        } else if (order instanceof CompoundOrder) {
+            for (Terms.Order orderElement : ((CompoundOrder) order).orderElements) {
+                if (isCountOrTermOrder(orderElement) == false) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compares a bucket to a term that is not reduced yet, given its bucket on one shard and its total doc count, with an
+     * order for which {#isCountOrTermOrder} holds. This is the same as comparing the bucket to the reduced bucket of
+     * the term, without reducing it.
+     */
+    static int compareCountOrTerm(Terms.Order order, Terms.Bucket bucket, long docCount, Terms.Bucket term) {
+        if (order == COUNT_DESC) {
+            return Long.compare(docCount, bucket.getDocCount());
+        } else if (order == COUNT_ASC) {
+            return Long.compare(bucket.getDocCount(), docCount);
+        } else if (order == TERM_DESC) {
+            return term.compareTerm(bucket);
+        } else if (order == TERM_ASC) {
+            return bucket.compareTerm(term);
+        } else if (order instanceof CompoundOrder) {
+            for (Terms.Order orderElement : ((CompoundOrder) order).orderElements) {
+                final int cmp = compareCountOrTerm(orderElement, bucket, docCount, term);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return 0;
+        }
+        throw new IllegalArgumentException("order [" + order + "] does not only compare doc counts and terms");
+    }
+
     final byte id;
     final String key;
     final boolean asc;
@@ -18,8 +18,10 @@
  */
 package org.codelibs.elasticsearch.search.aggregations.bucket.terms;
 
+import org.apache.lucene.util.PriorityQueue;
 import org.codelibs.elasticsearch.common.io.stream.StreamInput;
 import org.codelibs.elasticsearch.common.io.stream.StreamOutput;
+import org.codelibs.elasticsearch.common.util.BigArrays;
 import org.codelibs.elasticsearch.common.xcontent.ToXContent;
 import org.codelibs.elasticsearch.search.DocValueFormat;
 import org.codelibs.elasticsearch.search.aggregations.AggregationExecutionException;
@@ -33,7 +35,7 @@ import org.codelibs.elasticsearch.search.aggregations.pipeline.PipelineAggregato
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 
@@ -181,9 +183,9 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
 
     @Override
     public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
-        Map<Object, List<B>> buckets = new HashMap<>();
         long sumDocCountError = 0;
         long otherDocCount = 0;
+        int numBuckets = 0;
         InternalTerms<A, B> referenceTerms = null;
         for (InternalAggregation aggregation : aggregations) {
             @SuppressWarnings("unchecked")
@@ -219,46 +221,216 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
             setDocCountError(thisAggDocCountError);
             for (B bucket : terms.getBucketsInternal()) {
                 bucket.docCountError = thisAggDocCountError;
-                List<B> bucketList = buckets.get(bucket.getKey());
-                if (bucketList == null) {
-                    bucketList = new ArrayList<>();
-                    buckets.put(bucket.getKey(), bucketList);
+            }
+            numBuckets += terms.getBucketsInternal().size();
+        }
+
+        final Comparator<Terms.Bucket> comparator = order.comparator(null);
+        final ReducedBuckets reduced;
+        if (InternalOrder.isTermOrder(order) && isSorted(aggregations, comparator)) {
+            reduced = mergeSortedBuckets(aggregations, comparator, sumDocCountError, reduceContext);
+        } else {
+            reduced = hashBuckets(aggregations, numBuckets, comparator, sumDocCountError, reduceContext);
+        }
+        long docCountError;
+        if (sumDocCountError == -1) {
+            docCountError = -1;
+        } else {
+            docCountError = aggregations.size() == 1 ? 0 : sumDocCountError;
+        }
+        return create(name, reduced.buckets, docCountError, otherDocCount + reduced.otherDocCount);
+    }
+
+    /**
+     * Returns true if the buckets of all the given aggregations are sorted by the given comparator and unique.
+     */
+    private boolean isSorted(List<InternalAggregation> aggregations, Comparator<Terms.Bucket> comparator) {
+        for (InternalAggregation aggregation : aggregations) {
+            @SuppressWarnings("unchecked")
+            List<B> buckets = ((InternalTerms<A, B>) aggregation).getBucketsInternal();
+            for (int i = 1; i < buckets.size(); i++) {
+                if (comparator.compare(buckets.get(i - 1), buckets.get(i)) >= 0) {
+                    return false;
                 }
-                bucketList.add(bucket);
             }
         }
+        return true;
+    }
 
-        final int size = Math.min(requiredSize, buckets.size());
-        BucketPriorityQueue<B> ordered = new BucketPriorityQueue<>(size, order.comparator(null));
-        for (List<B> sameTermBuckets : buckets.values()) {
-            final B b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext);
-            if (b.docCountError != -1) {
-                if (sumDocCountError == -1) {
-                    b.docCountError = -1;
+    /**
+     * Merges the buckets of aggregations that are sorted by term. The buckets of the same term are reduced in order,
+     * so reducing stops as soon as the required number of buckets is reached and the remaining terms only add to the
+     * sum of the other doc counts.
+     */
+    private ReducedBuckets mergeSortedBuckets(List<InternalAggregation> aggregations, Comparator<Terms.Bucket> comparator,
+            long sumDocCountError, ReduceContext reduceContext) {
+        PriorityQueue<BucketIterator> pq = new PriorityQueue<BucketIterator>(aggregations.size()) {
+            @Override
+            protected boolean lessThan(BucketIterator a, BucketIterator b) {
+                return comparator.compare(a.current, b.current) < 0;
+            }
+        };
+        for (InternalAggregation aggregation : aggregations) {
+            @SuppressWarnings("unchecked")
+            List<B> buckets = ((InternalTerms<A, B>) aggregation).getBucketsInternal();
+            if (buckets.isEmpty() == false) {
+                pq.add(new BucketIterator(buckets));
+            }
+        }
+        final int size = reduceContext.isFinalReduce() == false ? Integer.MAX_VALUE : requiredSize;
+        ReducedBuckets reduced = new ReducedBuckets(new ArrayList<>());
+        List<B> sameTermBuckets = new ArrayList<>(aggregations.size());
+        while (pq.size() > 0) {
+            sameTermBuckets.clear();
+            long docCount = 0;
+            B first = pq.top().current;
+            do {
+                BucketIterator top = pq.top();
+                sameTermBuckets.add(top.current);
+                docCount += top.current.docCount;
+                if (top.next()) {
+                    pq.updateTop();
+                } else {
+                    pq.pop();
+                }
+            } while (pq.size() > 0 && comparator.compare(pq.top().current, first) == 0);
+            if (docCount >= minDocCount || reduceContext.isFinalReduce() == false) {
+                if (reduced.buckets.size() < size) {
+                    reduced.buckets.add(reduceBucket(sameTermBuckets, sumDocCountError, reduceContext));
                 } else {
-                    b.docCountError = sumDocCountError - b.docCountError;
+                    reduced.otherDocCount += docCount;
                 }
             }
-            if (b.docCount >= minDocCount) {
-                B removed = ordered.insertWithOverflow(b);
-                if (removed != null) {
-                    otherDocCount += removed.getDocCount();
+        }
+        return reduced;
+    }
+
+    /**
+     * Groups the buckets by term with a hash of the terms, and keeps the top buckets in a priority queue. Unless the
+     * order depends on sub-aggregations, a term that cannot make it into a full queue is not reduced at all.
+     */
+    private ReducedBuckets hashBuckets(List<InternalAggregation> aggregations, int numBuckets, Comparator<Terms.Bucket> comparator,
+            long sumDocCountError, ReduceContext reduceContext) {
+        // sort the buckets by ordinal of their term, the buckets of a term are then a contiguous slice of sortedBuckets
+        final B[] sortedBuckets = createBucketsArray(numBuckets);
+        final int[] offsets;
+        // there are at least as many terms as buckets on any shard, and at most as many as buckets on all shards
+        int maxShardBuckets = 0;
+        for (InternalAggregation aggregation : aggregations) {
+            maxShardBuckets = Math.max(maxShardBuckets, ((InternalTerms<?, ?>) aggregation).getBucketsInternal().size());
+        }
+        try (BucketOrds<B> bucketOrds = newBucketOrds(maxShardBuckets, reduceContext.bigArrays())) {
+            int[] ords = new int[numBuckets];
+            int i = 0;
+            for (InternalAggregation aggregation : aggregations) {
+                @SuppressWarnings("unchecked")
+                InternalTerms<A, B> terms = (InternalTerms<A, B>) aggregation;
+                for (B bucket : terms.getBucketsInternal()) {
+                    ords[i++] = (int) bucketOrds.add(bucket);
                 }
             }
+            offsets = new int[(int) bucketOrds.size() + 1];
+            for (int ord : ords) {
+                offsets[ord + 1]++;
+            }
+            for (int ord = 1; ord < offsets.length; ord++) {
+                offsets[ord] += offsets[ord - 1];
+            }
+            int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+            i = 0;
+            for (InternalAggregation aggregation : aggregations) {
+                @SuppressWarnings("unchecked")
+                InternalTerms<A, B> terms = (InternalTerms<A, B>) aggregation;
+                for (B bucket : terms.getBucketsInternal()) {
+                    sortedBuckets[next[ords[i++]]++] = bucket;
+                }
+            }
+        }
+
+        final int numTerms = offsets.length - 1;
+        final int size = reduceContext.isFinalReduce() == false ? numTerms : Math.min(requiredSize, numTerms);
+        final boolean canSkipTerms = InternalOrder.isCountOrTermOrder(order);
+        final List<B> allBuckets = Arrays.asList(sortedBuckets);
+        BucketPriorityQueue<B> ordered = new BucketPriorityQueue<>(size, comparator);
+        long otherDocCount = 0;
+        for (int ord = 0; ord < numTerms; ord++) {
+            long docCount = 0;
+            for (int i = offsets[ord]; i < offsets[ord + 1]; i++) {
+                docCount += sortedBuckets[i].docCount;
+            }
+            if (docCount < minDocCount && reduceContext.isFinalReduce()) {
+                continue;
+            }
+            if (canSkipTerms && ordered.size() == size) {
+                // the queue is full, a term that does not beat the least competitive bucket would be removed right away
+                if (size == 0 || InternalOrder.compareCountOrTerm(order, ordered.top(), docCount, sortedBuckets[offsets[ord]]) <= 0) {
+                    otherDocCount += docCount;
+                    continue;
+                }
+            }
+            B removed = ordered.insertWithOverflow(
+                    reduceBucket(allBuckets.subList(offsets[ord], offsets[ord + 1]), sumDocCountError, reduceContext));
+            if (removed != null) {
+                otherDocCount += removed.getDocCount();
+            }
         }
         B[] list = createBucketsArray(ordered.size());
         for (int i = ordered.size() - 1; i >= 0; i--) {
             list[i] = ordered.pop();
         }
-        long docCountError;
-        if (sumDocCountError == -1) {
-            docCountError = -1;
-        } else {
-            docCountError = aggregations.size() == 1 ? 0 : sumDocCountError;
+        ReducedBuckets reduced = new ReducedBuckets(Arrays.asList(list));
+        reduced.otherDocCount = otherDocCount;
+        return reduced;
+    }
+
+    private B reduceBucket(List<B> sameTermBuckets, long sumDocCountError, ReduceContext reduceContext) {
+        final B b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext);
+        if (b.docCountError != -1) {
+            if (sumDocCountError == -1) {
+                b.docCountError = -1;
+            } else {
+                b.docCountError = sumDocCountError - b.docCountError;
+            }
+        }
+        return b;
+    }
+
+    /**
+     * The reduced buckets in order, and the doc count of the terms that did not make it.
+     */
+    private class ReducedBuckets {
+        final List<B> buckets;
+        long otherDocCount;
+
+        ReducedBuckets(List<B> buckets) {
+            this.buckets = buckets;
+        }
+    }
+
+    private class BucketIterator {
+        final List<B> buckets;
+        int index;
+        B current;
+
+        BucketIterator(List<B> buckets) {
+            this.buckets = buckets;
+            this.current = buckets.get(0);
+        }
+
+        boolean next() {
+            if (++index < buckets.size()) {
+                current = buckets.get(index);
+                return true;
+            }
+            return false;
         }
-        return create(name, Arrays.asList(list), docCountError, otherDocCount);
     }
 
+    /**
+     * Creates the ordinals used to group the buckets of the same term on reduce.
+     */
+    abstract BucketOrds<B> newBucketOrds(long capacity, BigArrays bigArrays);
+
     protected abstract void setDocCountError(long docCountError);
 
     protected abstract int getShardSize();
@@ -21,6 +21,7 @@ package org.codelibs.elasticsearch.search.aggregations.bucket.terms;
 import org.apache.lucene.util.BytesRef;
 import org.codelibs.elasticsearch.common.io.stream.StreamInput;
 import org.codelibs.elasticsearch.common.io.stream.StreamOutput;
+import org.codelibs.elasticsearch.common.util.BigArrays;
 import org.codelibs.elasticsearch.common.xcontent.XContentBuilder;
 import org.codelibs.elasticsearch.search.DocValueFormat;
 import org.codelibs.elasticsearch.search.aggregations.InternalAggregations;
@@ -146,6 +147,11 @@ public class StringTerms extends InternalMappedTerms<StringTerms, StringTerms.Bu
         return builder;
     }
 
+    @Override
+    BucketOrds<Bucket> newBucketOrds(long capacity, BigArrays bigArrays) {
+        return BucketOrds.bytesRefs(capacity, bigArrays);
+    }
+
     @Override
     protected Bucket[] createBucketsArray(int size) {
         return new Bucket[size];
@@ -20,6 +20,7 @@ package org.codelibs.elasticsearch.search.aggregations.bucket.terms;
 
 import org.codelibs.elasticsearch.common.io.stream.StreamInput;
 import org.codelibs.elasticsearch.common.io.stream.StreamOutput;
+import org.codelibs.elasticsearch.common.util.BigArrays;
 import org.codelibs.elasticsearch.common.xcontent.XContentBuilder;
 import org.codelibs.elasticsearch.search.DocValueFormat;
 import org.codelibs.elasticsearch.search.aggregations.InternalAggregation;
@@ -133,6 +134,11 @@ public class UnmappedTerms extends InternalTerms<UnmappedTerms, UnmappedTerms.Bu
         return null;
     }
 
+    @Override
+    BucketOrds<Bucket> newBucketOrds(long capacity, BigArrays bigArrays) {
+        throw new UnsupportedOperationException("not supported for UnmappedTerms");
+    }
+
     @Override
     protected Bucket[] createBucketsArray(int size) {
         return new Bucket[size];
@@ -0,0 +1,189 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.elasticsearch.search.aggregations.metrics.cardinality;
+
+import org.apache.lucene.util.BytesRef;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.codelibs.elasticsearch.common.io.stream.StreamOutput;
+import org.codelibs.elasticsearch.common.io.stream.Writeable;
+import org.codelibs.elasticsearch.common.lease.Releasable;
+import org.codelibs.elasticsearch.common.lease.Releasables;
+import org.codelibs.elasticsearch.common.util.BigArrays;
+
+import java.io.IOException;
+
+/**
+ * A {HyperLogLogSketch} that values can be added to from many threads. The sketch is striped: each thread adds its
+ * values to one of several sketches, under the lock of that sketch only, and the stripes are merged to estimate the
+ * cardinality or to serialize the sketch. The union of the stripes is the same as if all values had been added to a
+ * single sketch, but each stripe that switches to HyperLogLog++ takes <code>2^precision</code> bytes.
+ */
+public final class ConcurrentHyperLogLogSketch implements Releasable, Writeable {
+
+    private final BigArrays bigArrays;
+
+    private final HyperLogLogSketch[] stripes;
+
+    /**
+     * Creates a sketch with a stripe per available processor.
+     */
+    public ConcurrentHyperLogLogSketch(int precision, BigArrays bigArrays) {
+        this(precision, bigArrays, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param precision   the number of bits of the hashes that select a register
+     * @param bigArrays   allocates the registers of the stripes and of their snapshots
+     * @param concurrency the number of stripes
+     */
+    public ConcurrentHyperLogLogSketch(int precision, BigArrays bigArrays, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("[concurrency] must be at least 1 but was [" + concurrency + "]");
+        }
+        this.bigArrays = bigArrays;
+        stripes = new HyperLogLogSketch[concurrency];
+        boolean success = false;
+        try {
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = new HyperLogLogSketch(precision, bigArrays);
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                Releasables.close(stripes);
+            }
+        }
+    }
+
+    public int precision() {
+        return stripes[0].precision();
+    }
+
+    private HyperLogLogSketch stripe() {
+        // the same thread keeps adding to the same stripe
+        return stripes[(int) (Thread.currentThread().getId() % stripes.length)];
+    }
+
+    /**
+     * Adds a value by its hash, see {HyperLogLogSketch#add(long)}.
+     */
+    public void add(long hash) {
+        final HyperLogLogSketch stripe = stripe();
+        synchronized (stripe) {
+            stripe.add(hash);
+        }
+    }
+
+    /**
+     * Adds a string or binary value, which is hashed before taking a lock.
+     */
+    public void add(BytesRef value) {
+        add(HyperLogLogSketch.hash(value));
+    }
+
+    /**
+     * Adds the values of a sketch of the same precision to this sketch.
+     */
+    public void merge(HyperLogLogSketch other) {
+        final HyperLogLogSketch stripe = stripe();
+        synchronized (stripe) {
+            stripe.merge(other);
+        }
+    }
+
+    /**
+     * Adds the values counted by a cardinality aggregation of the same precision to this sketch.
+     */
+    public void merge(InternalCardinality cardinality) {
+        final HyperLogLogSketch stripe = stripe();
+        synchronized (stripe) {
+            stripe.merge(cardinality);
+        }
+    }
+
+    /**
+     * Merges the stripes into a new sketch, which must be closed. Values that are added concurrently may or may not be
+     * part of the snapshot.
+     */
+    public HyperLogLogSketch snapshot() {
+        final HyperLogLogSketch snapshot = new HyperLogLogSketch(precision(), bigArrays);
+        boolean success = false;
+        try {
+            for (HyperLogLogSketch stripe : stripes) {
+                synchronized (stripe) {
+                    snapshot.merge(stripe);
+                }
+            }
+            success = true;
+            return snapshot;
+        } finally {
+            if (success == false) {
+                snapshot.close();
+            }
+        }
+    }
+
+    /**
+     * The estimated number of distinct values of all stripes.
+     */
+    public long estimate() {
+        try (HyperLogLogSketch snapshot = snapshot()) {
+            return snapshot.estimate();
+        }
+    }
+
+    /**
+     * The memory used by the stripes, as accounted by {BigArrays}.
+     */
+    public long ramBytesUsed() {
+        long ramBytesUsed = 0;
+        for (HyperLogLogSketch stripe : stripes) {
+            synchronized (stripe) {
+                ramBytesUsed += stripe.ramBytesUsed();
+            }
+        }
+        return ramBytesUsed;
+    }
+
+    /**
+     * Writes the union of the stripes, which is read back as a {HyperLogLogSketch}.
+     */
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        try (HyperLogLogSketch snapshot = snapshot()) {
+            snapshot.writeTo(out);
+        }
+    }
+
+    /**
+     * The serialized form of the union of the stripes, see {HyperLogLogSketch#fromBytes}.
+     */
+    public BytesReference toBytes() throws IOException {
+        final BytesStreamOutput out = new BytesStreamOutput();
+        writeTo(out);
+        return out.bytes();
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(stripes);
+    }
+}
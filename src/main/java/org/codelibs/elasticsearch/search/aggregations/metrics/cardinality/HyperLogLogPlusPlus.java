@@ -59,6 +59,16 @@ public final class HyperLogLogPlusPlus implements Releasable {
     private static final float MAX_LOAD_FACTOR = 0.75f;
     private static final int P2 = 25;
     private static final int BIAS_K = 6;
+    // the high bit of each byte of a word, which is never set in registers
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    // 2^-r for every register value r, as a signed byte
+    private static final double[] INVERSE_POWERS_OF_TWO = new double[256];
+
+    static {
+        for (int i = 0; i < INVERSE_POWERS_OF_TWO.length; ++i) {
+            INVERSE_POWERS_OF_TWO[i] = 1. / (1L << (byte) i);
+        }
+    }
 
     /**
      * Compute the required precision so that <code>count</code> distinct entries
@@ -170,6 +180,11 @@ public final class HyperLogLogPlusPlus implements Releasable {
         algorithm = new OpenBitSet();
         runLens = bigArrays.newByteArray(initialBucketCount << p);
         hashSet = new Hashset(initialBucketCount);
+        alphaMM = alphaMM(p);
+    }
+
+    private static double alphaMM(int p) {
+        final int m = 1 << p;
         final double alpha;
         switch (p) {
         case 4:
@@ -182,7 +197,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
             alpha = 0.7213 / (1 + 1.079 / m);
             break;
         }
-        alphaMM = alpha * m * m;
+        return alpha * m * m;
     }
 
     public int precision() {
@@ -222,12 +237,75 @@ public final class HyperLogLogPlusPlus implements Releasable {
             }
             final long thisStart = thisBucket << p;
             final long otherStart = otherBucket << p;
-            for (int i = 0; i < m; ++i) {
-                runLens.set(thisStart + i, (byte) Math.max(runLens.get(thisStart + i), other.runLens.get(otherStart + i)));
+            final BytesRef registers = new BytesRef();
+            final BytesRef otherRegisters = new BytesRef();
+            // buckets are aligned on pages or fit in one, so their registers are merged in place page by page
+            for (int offset = 0; offset < m; offset += BigArrays.BYTE_PAGE_SIZE) {
+                final int length = Math.min(m - offset, BigArrays.BYTE_PAGE_SIZE);
+                final boolean copied = runLens.get(thisStart + offset, length, registers);
+                other.runLens.get(otherStart + offset, length, otherRegisters);
+                mergeRegisters(registers.bytes, registers.offset, otherRegisters.bytes, otherRegisters.offset, length);
+                if (copied) {
+                    runLens.set(thisStart + offset, registers.bytes, registers.offset, length);
+                }
             }
         }
     }
 
+    /**
+     * Merges HyperLogLog registers, one byte per register, into <code>registers</code>, by keeping the maximum of each
+     * register of both arrays. Eight registers are merged at once in each long word.
+     */
+    public static void mergeRegisters(byte[] registers, int offset, byte[] otherRegisters, int otherOffset, int length) {
+        final ByteBuffer words = ByteBuffer.wrap(registers).order(ByteOrder.nativeOrder());
+        final ByteBuffer otherWords = ByteBuffer.wrap(otherRegisters).order(ByteOrder.nativeOrder());
+        int i = 0;
+        for (final int end = length - Long.BYTES; i <= end; i += Long.BYTES) {
+            words.putLong(offset + i, max(words.getLong(offset + i), otherWords.getLong(otherOffset + i)));
+        }
+        for (; i < length; ++i) {
+            registers[offset + i] = (byte) Math.max(registers[offset + i], otherRegisters[otherOffset + i]);
+        }
+    }
+
+    /**
+     * The maximum of each of the eight bytes of two words, whose high bits must be clear. Adding the high bit to the
+     * bytes of <code>a</code> before subtracting those of <code>b</code> never borrows from the next byte and leaves
+     * the high bit set where <code>a</code> is greater or equal.
+     */
+    static long max(long a, long b) {
+        final long greaterOrEqual = ((a | HIGH_BITS) - b) & HIGH_BITS;
+        final long mask = (greaterOrEqual >>> 7) * 0xFF;
+        return (a & mask) | (b & ~mask);
+    }
+
+    /**
+     * Adds a hash to HyperLogLog registers of the given precision, stored one byte per register from <code>offset</code>.
+     */
+    public static void collectRegister(byte[] registers, int offset, int precision, long hash) {
+        final int index = offset + (int) index(hash, precision);
+        registers[index] = (byte) Math.max(runLen(hash, precision), registers[index]);
+    }
+
+    /**
+     * Estimates the cardinality of HyperLogLog registers of the given precision, stored one byte per register from
+     * <code>offset</code>, with the bias correction and the small range correction of HyperLogLog++.
+     */
+    public static long estimateCardinality(byte[] registers, int offset, int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+        }
+        final int[] histogram = new int[INVERSE_POWERS_OF_TWO.length];
+        addToHistogram(registers, offset, 1 << precision, histogram);
+        return cardinalityHll(precision, alphaMM(precision), histogram);
+    }
+
+    private static void addToHistogram(byte[] registers, int offset, int length, int[] histogram) {
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            histogram[registers[i] & 0xFF]++;
+        }
+    }
+
     public void collect(long bucket, long hash) {
         ensureCapacity(bucket + 1);
         if (algorithm.get(bucket) == LINEAR_COUNTING) {
@@ -281,24 +359,36 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     private long cardinalityHll(long bucket) {
+        // counting the registers of each value replaces a division per register with a table lookup per value
+        final int[] histogram = new int[INVERSE_POWERS_OF_TWO.length];
+        final BytesRef registers = new BytesRef();
+        for (int offset = 0; offset < m; offset += BigArrays.BYTE_PAGE_SIZE) {
+            final int length = Math.min(m - offset, BigArrays.BYTE_PAGE_SIZE);
+            runLens.get((bucket << p) + offset, length, registers);
+            addToHistogram(registers.bytes, registers.offset, length, histogram);
+        }
+        return cardinalityHll(p, alphaMM, histogram);
+    }
+
+    private static long cardinalityHll(int p, double alphaMM, int[] histogram) {
+        final int m = 1 << p;
         double inverseSum = 0;
-        int zeros = 0;
-        for (long i = bucket << p, end = i + m; i < end; ++i) {
-            final int runLen = runLens.get(i);
-            inverseSum += 1. / (1L << runLen);
-            if (runLen == 0) {
-                ++zeros;
+        // the smallest terms first
+        for (int runLen = histogram.length - 1; runLen >= 0; --runLen) {
+            if (histogram[runLen] != 0) {
+                inverseSum += histogram[runLen] * INVERSE_POWERS_OF_TWO[runLen];
             }
         }
+        final int zeros = histogram[0];
         double e1 = alphaMM / inverseSum;
-        double e2 = e1 <= 5 * m ? e1 - estimateBias(e1) : e1;
+        double e2 = e1 <= 5 * m ? e1 - estimateBias(p, e1) : e1;
         long h;
         if (zeros != 0) {
             h = linearCounting(m, zeros);
         } else {
             h = Math.round(e2);
         }
-        if (h <= threshold()) {
+        if (h <= THRESHOLDS[p - 4]) {
             return h;
         } else {
             return Math.round(e2);
@@ -374,9 +464,9 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
 
-    private double estimateBias(double e) {
-        final double[] rawEstimateData = rawEstimateData();
-        final double[] biasData = biasData();
+    private static double estimateBias(int p, double e) {
+        final double[] rawEstimateData = RAW_ESTIMATE_DATA[p - 4];
+        final double[] biasData = BIAS_DATA[p - 4];
 
         final double[] weights = new double[BIAS_K];
         int index = biasData.length - BIAS_K;
@@ -403,16 +493,11 @@ public final class HyperLogLogPlusPlus implements Releasable {
         return biasSum / weightSum;
     }
 
-    private double[] biasData() {
-        return BIAS_DATA[p - 4];
-    }
-
-    private double[] rawEstimateData() {
-        return RAW_ESTIMATE_DATA[p - 4];
-    }
-
-    private long threshold() {
-        return THRESHOLDS[p - 4];
+    /**
+     * The memory used by the registers and the hash set sizes of all buckets, as accounted by {BigArrays}.
+     */
+    long ramBytesUsed() {
+        return runLens.ramBytesUsed() + hashSet.sizes.ramBytesUsed();
     }
 
     @Override
@@ -527,8 +612,11 @@ public final class HyperLogLogPlusPlus implements Releasable {
             }
         } else {
             out.writeBoolean(HYPERLOGLOG);
-            for (long i = bucket << p, end = i + m; i < end; ++i) {
-                out.writeByte(runLens.get(i));
+            final BytesRef registers = new BytesRef();
+            for (int offset = 0; offset < m; offset += BigArrays.BYTE_PAGE_SIZE) {
+                final int length = Math.min(m - offset, BigArrays.BYTE_PAGE_SIZE);
+                runLens.get((bucket << p) + offset, length, registers);
+                out.writeBytes(registers.bytes, registers.offset, length);
             }
         }
     }
@@ -546,8 +634,14 @@ public final class HyperLogLogPlusPlus implements Releasable {
             }
         } else {
             counts.algorithm.set(0);
-            for (int i = 0; i < counts.m; ++i) {
-                counts.runLens.set(i, in.readByte());
+            final BytesRef registers = new BytesRef();
+            for (int offset = 0; offset < counts.m; offset += BigArrays.BYTE_PAGE_SIZE) {
+                final int length = Math.min(counts.m - offset, BigArrays.BYTE_PAGE_SIZE);
+                final boolean copied = counts.runLens.get(offset, length, registers);
+                in.readBytes(registers.bytes, registers.offset, length);
+                if (copied) {
+                    counts.runLens.set(offset, registers.bytes, registers.offset, length);
+                }
             }
         }
         return counts;
@@ -0,0 +1,185 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.codelibs.elasticsearch.search.aggregations.metrics.cardinality;
+
+import com.carrotsearch.hppc.BitMixer;
+import org.apache.lucene.util.BytesRef;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.hash.MurmurHash3;
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.codelibs.elasticsearch.common.io.stream.StreamInput;
+import org.codelibs.elasticsearch.common.io.stream.StreamOutput;
+import org.codelibs.elasticsearch.common.io.stream.Writeable;
+import org.codelibs.elasticsearch.common.lease.Releasable;
+import org.codelibs.elasticsearch.common.util.BigArrays;
+
+import java.io.IOException;
+
+/**
+ * A sketch of the distinct values of a set, to count them outside of a search. The sketch is a
+ * {HyperLogLogPlusPlus} with a single bucket: it counts exactly with linear counting while the set is small and
+ * switches to HyperLogLog++ when it grows. Its registers are allocated by the given {BigArrays}, so they are
+ * accounted by its circuit breaker, and they must be released with {#close()}.
+ * <p>
+ * The serialized form of the sketch is the stream format of {HyperLogLogPlusPlus}, the hashes while it uses linear
+ * counting and the registers afterwards. Values are hashed like the cardinality aggregation hashes the values of
+ * fields, with {#hash(BytesRef)}, {#hash(long)} and {#hash(double)}, so that sketches can be merged with the
+ * {InternalCardinality} results of a search on the same values and precision.
+ * <p>
+ * A sketch is not thread-safe, see {ConcurrentHyperLogLogSketch} to add values from many threads.
+ */
+public final class HyperLogLogSketch implements Releasable, Writeable {
+
+    private final HyperLogLogPlusPlus counts;
+
+    private final MurmurHash3.Hash128 spare = new MurmurHash3.Hash128();
+
+    /**
+     * @param precision the number of bits of the hashes that select a register, between
+     *                  {HyperLogLogPlusPlus#MIN_PRECISION} and {HyperLogLogPlusPlus#MAX_PRECISION}
+     * @param bigArrays allocates the registers
+     */
+    public HyperLogLogSketch(int precision, BigArrays bigArrays) {
+        this(new HyperLogLogPlusPlus(precision, bigArrays, 1));
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public HyperLogLogSketch(StreamInput in, BigArrays bigArrays) throws IOException {
+        this(HyperLogLogPlusPlus.readFrom(in, bigArrays));
+    }
+
+    private HyperLogLogSketch(HyperLogLogPlusPlus counts) {
+        this.counts = counts;
+    }
+
+    /**
+     * Reads a sketch from the bytes of {#toBytes()}.
+     */
+    public static HyperLogLogSketch fromBytes(BytesReference bytes, BigArrays bigArrays) throws IOException {
+        try (StreamInput in = bytes.streamInput()) {
+            return new HyperLogLogSketch(in, bigArrays);
+        }
+    }
+
+    /**
+     * The hash of a string or binary value, as computed for <code>keyword</code>, <code>ip</code> and other fields with
+     * binary doc values.
+     */
+    public static long hash(BytesRef value) {
+        return hash(value, new MurmurHash3.Hash128());
+    }
+
+    private static long hash(BytesRef value, MurmurHash3.Hash128 hash) {
+        return MurmurHash3.hash128(value.bytes, value.offset, value.length, 0, hash).h1;
+    }
+
+    /**
+     * The hash of the value of an integer, date or boolean field.
+     */
+    public static long hash(long value) {
+        return BitMixer.mix64(value);
+    }
+
+    /**
+     * The hash of the value of a floating point field.
+     */
+    public static long hash(double value) {
+        return BitMixer.mix64(Double.doubleToLongBits(value));
+    }
+
+    public int precision() {
+        return counts.precision();
+    }
+
+    /**
+     * Adds a value by its hash, which should be well distributed over all 64 bits.
+     */
+    public void add(long hash) {
+        counts.collect(0, hash);
+    }
+
+    /**
+     * Adds a string or binary value.
+     */
+    public void add(BytesRef value) {
+        counts.collect(0, hash(value, spare));
+    }
+
+    /**
+     * Adds the values of another sketch of the same precision to this sketch.
+     */
+    public void merge(HyperLogLogSketch other) {
+        merge(other.counts);
+    }
+
+    /**
+     * Adds the values counted by a cardinality aggregation to this sketch. The aggregation must use the same precision,
+     * which follows from its <code>precision_threshold</code>.
+     */
+    public void merge(InternalCardinality cardinality) {
+        if (cardinality.getCounts() != null) {
+            merge(cardinality.getCounts());
+        }
+    }
+
+    void merge(HyperLogLogPlusPlus other) {
+        if (other.precision() != counts.precision()) {
+            throw new IllegalArgumentException("cannot merge a sketch of precision [" + other.precision()
+                    + "] into a sketch of precision [" + counts.precision() + "]");
+        }
+        counts.merge(0, other, 0);
+    }
+
+    /**
+     * The estimated number of distinct values. It is close to exact as long as the sketch uses linear counting, up to
+     * <code>3 * 2^(precision - 4)</code> distinct hashes.
+     */
+    public long estimate() {
+        return counts.cardinality(0);
+    }
+
+    /**
+     * The memory used by the sketch, as accounted by the {BigArrays} it was created with.
+     */
+    public long ramBytesUsed() {
+        return counts.ramBytesUsed();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        counts.writeTo(0, out);
+    }
+
+    /**
+     * The serialized form of the sketch, the same as {#writeTo(StreamOutput)}.
+     */
+    public BytesReference toBytes() throws IOException {
+        final BytesStreamOutput out = new BytesStreamOutput();
+        writeTo(out);
+        return out.bytes();
+    }
+
+    @Override
+    public void close() {
+        counts.close();
+    }
+}
@@ -101,6 +101,13 @@ public final class InternalCardinality extends InternalNumericMetricsAggregation
         }
     }
 
+    /**
+     * The sketch of the distinct values, or <code>null</code> if no value was counted.
+     */
+    HyperLogLogPlusPlus getCounts() {
+        return counts;
+    }
+
     public void merge(InternalCardinality other) {
         assert counts != null && other != null;
         counts.merge(0, other.counts, 0);
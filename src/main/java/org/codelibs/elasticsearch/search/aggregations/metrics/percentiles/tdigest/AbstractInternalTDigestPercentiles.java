@@ -74,12 +74,20 @@ abstract class AbstractInternalTDigestPercentiles extends InternalNumericMetrics
     public abstract double value(double key);
 
     public long getEstimatedMemoryFootprint() {
-        throw new UnsupportedOperationException();
+        return state.byteSize();
     }
 
     @Override
     public AbstractInternalTDigestPercentiles doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
-        throw new UnsupportedOperationException();
+        TDigestState merged = null;
+        for (InternalAggregation aggregation : aggregations) {
+            final AbstractInternalTDigestPercentiles percentiles = (AbstractInternalTDigestPercentiles) aggregation;
+            if (merged == null) {
+                merged = new TDigestState(percentiles.state.compression());
+            }
+            merged.add(percentiles.state);
+        }
+        return createReduced(getName(), keys, merged, keyed, pipelineAggregators(), getMetaData());
     }
 
     protected abstract AbstractInternalTDigestPercentiles createReduced(String name, double[] keys, TDigestState merged, boolean keyed,
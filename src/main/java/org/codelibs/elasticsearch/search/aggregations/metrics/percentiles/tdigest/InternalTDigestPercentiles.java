@@ -20,6 +20,7 @@ package org.codelibs.elasticsearch.search.aggregations.metrics.percentiles.tdige
 
 import org.codelibs.elasticsearch.common.io.stream.StreamInput;
 import org.codelibs.elasticsearch.search.DocValueFormat;
+import org.codelibs.elasticsearch.search.aggregations.metrics.percentiles.InternalPercentile;
 import org.codelibs.elasticsearch.search.aggregations.metrics.percentiles.Percentile;
 import org.codelibs.elasticsearch.search.aggregations.metrics.percentiles.Percentiles;
 import org.codelibs.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
@@ -56,7 +57,7 @@ public class InternalTDigestPercentiles extends AbstractInternalTDigestPercentil
 
     @Override
     public double percentile(double percent) {
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        return state.quantile(percent / 100);
     }
 
     @Override
@@ -78,10 +79,12 @@ public class InternalTDigestPercentiles extends AbstractInternalTDigestPercentil
     public static class Iter implements Iterator<Percentile> {
 
         private final double[] percents;
+        private final TDigestState state;
         private int i;
 
         public Iter(double[] percents, TDigestState state) {
             this.percents = percents;
+            this.state = state;
             i = 0;
         }
 
@@ -92,7 +95,9 @@ public class InternalTDigestPercentiles extends AbstractInternalTDigestPercentil
 
         @Override
         public Percentile next() {
-            throw new UnsupportedOperationException();
+            final Percentile next = new InternalPercentile(percents[i], state.quantile(percents[i] / 100));
+            ++i;
+            return next;
         }
 
         @Override
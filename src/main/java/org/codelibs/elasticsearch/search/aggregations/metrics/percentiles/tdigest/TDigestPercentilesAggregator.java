@@ -53,7 +53,12 @@ public class TDigestPercentilesAggregator extends AbstractTDigestPercentilesAggr
 
     @Override
     public double metric(String name, long bucketOrd) {
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        TDigestState state = getState(bucketOrd);
+        if (state == null) {
+            return Double.NaN;
+        } else {
+            return state.quantile(Double.parseDouble(name) / 100);
+        }
     }
 
     @Override
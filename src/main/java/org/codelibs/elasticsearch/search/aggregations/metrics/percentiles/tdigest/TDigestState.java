@@ -18,23 +18,400 @@
  */
 package org.codelibs.elasticsearch.search.aggregations.metrics.percentiles.tdigest;
 
+import org.apache.lucene.util.IntroSorter;
 import org.codelibs.elasticsearch.common.io.stream.StreamInput;
 import org.codelibs.elasticsearch.common.io.stream.StreamOutput;
 
 import java.io.IOException;
+import java.util.Arrays;
 
+/**
+ * A t-digest that merges the values it is given into a bounded number of centroids, sorted by mean. Values are
+ * appended to a buffer that is merged with the centroids, in a single sorted pass, whenever it is full, so adding a
+ * value or another digest does not allocate once the arrays reached their final size.
+ * <p>
+ * The centroids of a digest are sized with the arcsine scale function of the t-digest paper, which keeps centroids
+ * small near the tails, where quantiles need the most accuracy. The stream format is the one of the Elasticsearch
+ * <code>TDigestState</code>: the compression, followed by the mean and count of every centroid.
+ */
 public class TDigestState {
 
+    private final double compression;
+
+    /** Compression used to size the centroids, at least 1 so that the number of centroids is bounded. */
+    private final double effectiveCompression;
+
+    private final int maxCentroids;
+
+    private final int bufferSize;
+
+    private double[] mean = new double[0];
+    private double[] weight = new double[0];
+    private int centroidCount;
+
+    // values that are not merged into the centroids yet, the arrays have room to sort them together with the centroids
+    private double[] bufferMean = new double[0];
+    private double[] bufferWeight = new double[0];
+    private int bufferCount;
+
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    private IntroSorter sorter;
+
     public TDigestState(double compression) {
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        if (compression < 0 || Double.isNaN(compression)) {
+            throw new IllegalArgumentException("[compression] must be greater than or equal to 0. Found [" + compression + "]");
+        }
+        this.compression = compression;
+        this.effectiveCompression = Math.max(1, compression);
+        this.maxCentroids = 2 * (int) Math.ceil(effectiveCompression) + 10;
+        this.bufferSize = 4 * maxCentroids;
+    }
+
+    public double compression() {
+        return compression;
+    }
+
+    /**
+     * Returns the number of values added to this digest.
+     */
+    public long size() {
+        return (long) totalWeight;
+    }
+
+    public int centroidCount() {
+        compress();
+        return centroidCount;
+    }
+
+    public double getMin() {
+        return totalWeight == 0 ? Double.NaN : min;
+    }
+
+    public double getMax() {
+        return totalWeight == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Returns the number of bytes used by the arrays of this digest.
+     */
+    public long byteSize() {
+        return (long) (mean.length + weight.length + bufferMean.length + bufferWeight.length) * Double.BYTES;
+    }
+
+    public void add(double x) {
+        add(x, 1);
+    }
+
+    public void add(double x, long w) {
+        if (Double.isNaN(x)) {
+            throw new IllegalArgumentException("Cannot add NaN");
+        }
+        if (bufferCount == bufferSize) {
+            compress();
+        }
+        ensureBufferCapacity(bufferCount + 1);
+        bufferMean[bufferCount] = x;
+        bufferWeight[bufferCount] = w;
+        bufferCount++;
+        totalWeight += w;
+        min = Math.min(min, x);
+        max = Math.max(max, x);
+    }
+
+    /**
+     * Adds the centroids of the given digest to this digest.
+     */
+    public void add(TDigestState other) {
+        other.compress();
+        for (int i = 0; i < other.centroidCount;) {
+            if (bufferCount == bufferSize) {
+                compress();
+            }
+            final int length = Math.min(other.centroidCount - i, bufferSize - bufferCount);
+            ensureBufferCapacity(bufferCount + length);
+            System.arraycopy(other.mean, i, bufferMean, bufferCount, length);
+            System.arraycopy(other.weight, i, bufferWeight, bufferCount, length);
+            // the total weight must include the buffered centroids when the buffer is merged
+            for (int j = bufferCount; j < bufferCount + length; j++) {
+                totalWeight += bufferWeight[j];
+            }
+            bufferCount += length;
+            i += length;
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Merges the buffered values into the centroids.
+     */
+    public void compress() {
+        if (bufferCount == 0) {
+            return;
+        }
+        final int n = bufferCount + centroidCount;
+        ensureBufferCapacity(n);
+        System.arraycopy(mean, 0, bufferMean, bufferCount, centroidCount);
+        System.arraycopy(weight, 0, bufferWeight, bufferCount, centroidCount);
+        sorter().sort(0, n);
+
+        int count = 0;
+        // weight of the centroids before the current one, and the weight the current one may grow to
+        double weightSoFar = 0;
+        double weightLimit = totalWeight * integratedQ(1);
+        double currentMean = bufferMean[0];
+        double currentWeight = bufferWeight[0];
+        for (int i = 1; i < n; i++) {
+            final double w = bufferWeight[i];
+            if (weightSoFar + currentWeight + w <= weightLimit) {
+                currentWeight += w;
+                currentMean += (bufferMean[i] - currentMean) * w / currentWeight;
+            } else {
+                count = addCentroid(count, currentMean, currentWeight);
+                weightSoFar += currentWeight;
+                weightLimit = totalWeight * integratedQ(integratedLocation(weightSoFar / totalWeight) + 1);
+                currentMean = bufferMean[i];
+                currentWeight = w;
+            }
+        }
+        centroidCount = addCentroid(count, currentMean, currentWeight);
+        bufferCount = 0;
+    }
+
+    private int addCentroid(int count, double centroidMean, double centroidWeight) {
+        if (count == mean.length) {
+            final int newLength = Math.max(count + 1, Math.min(count << 1, maxCentroids));
+            mean = Arrays.copyOf(mean, newLength);
+            weight = Arrays.copyOf(weight, newLength);
+        }
+        mean[count] = centroidMean;
+        weight[count] = centroidWeight;
+        return count + 1;
+    }
+
+    private void ensureBufferCapacity(int capacity) {
+        if (bufferMean.length < capacity) {
+            final int newLength = Math.max(capacity, Math.min(bufferMean.length << 1, bufferSize + maxCentroids));
+            bufferMean = Arrays.copyOf(bufferMean, newLength);
+            bufferWeight = Arrays.copyOf(bufferWeight, newLength);
+        }
+    }
+
+    /**
+     * The scale function: maps a quantile to the number of centroids that may be used up to this quantile.
+     */
+    private double integratedLocation(double q) {
+        return effectiveCompression * (Math.asin(2 * Math.min(1, q) - 1) + Math.PI / 2) / Math.PI;
+    }
+
+    /**
+     * The inverse of {#integratedLocation(double)}.
+     */
+    private double integratedQ(double k) {
+        return (Math.sin(Math.min(k, effectiveCompression) * Math.PI / effectiveCompression - Math.PI / 2) + 1) / 2;
+    }
+
+    private IntroSorter sorter() {
+        if (sorter == null) {
+            sorter = new IntroSorter() {
+                private double pivot;
+
+                @Override
+                protected void swap(int i, int j) {
+                    double tmp = bufferMean[i];
+                    bufferMean[i] = bufferMean[j];
+                    bufferMean[j] = tmp;
+                    tmp = bufferWeight[i];
+                    bufferWeight[i] = bufferWeight[j];
+                    bufferWeight[j] = tmp;
+                }
+
+                @Override
+                protected int compare(int i, int j) {
+                    return Double.compare(bufferMean[i], bufferMean[j]);
+                }
+
+                @Override
+                protected void setPivot(int i) {
+                    pivot = bufferMean[i];
+                }
+
+                @Override
+                protected int comparePivot(int j) {
+                    return Double.compare(pivot, bufferMean[j]);
+                }
+            };
+        }
+        return sorter;
+    }
+
+    /**
+     * Returns the estimated value at the given quantile, between 0 and 1.
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("q should be in [0,1], got " + q);
+        }
+        compress();
+        final int n = centroidCount;
+        if (n == 0) {
+            return Double.NaN;
+        } else if (n == 1) {
+            return mean[0];
+        }
+
+        final double index = q * totalWeight;
+        // the tails are interpolated between the extreme values and the first and last centroids
+        if (index < 1) {
+            return min;
+        }
+        if (weight[0] > 1 && index < weight[0] / 2) {
+            return min + (index - 1) / (weight[0] / 2 - 1) * (mean[0] - min);
+        }
+        if (index > totalWeight - 1) {
+            return max;
+        }
+        if (weight[n - 1] > 1 && totalWeight - index <= weight[n - 1] / 2) {
+            return max - (totalWeight - index - 1) / (weight[n - 1] / 2 - 1) * (max - mean[n - 1]);
+        }
+
+        double weightSoFar = weight[0] / 2;
+        for (int i = 0; i < n - 1; i++) {
+            final double dw = (weight[i] + weight[i + 1]) / 2;
+            if (weightSoFar + dw > index) {
+                // a centroid of a single value is not spread around its mean
+                double leftUnit = 0;
+                if (weight[i] == 1) {
+                    if (index - weightSoFar < 0.5) {
+                        return mean[i];
+                    }
+                    leftUnit = 0.5;
+                }
+                double rightUnit = 0;
+                if (weight[i + 1] == 1) {
+                    if (weightSoFar + dw - index <= 0.5) {
+                        return mean[i + 1];
+                    }
+                    rightUnit = 0.5;
+                }
+                final double z1 = index - weightSoFar - leftUnit;
+                final double z2 = weightSoFar + dw - index - rightUnit;
+                return weightedAverage(mean[i], z2, mean[i + 1], z1);
+            }
+            weightSoFar += dw;
+        }
+        // not reached, the right tail is handled above
+        return max;
+    }
+
+    /**
+     * Returns the estimated fraction of the values that are less than or equal to the given value.
+     */
+    public double cdf(double x) {
+        compress();
+        final int n = centroidCount;
+        if (n == 0) {
+            return Double.NaN;
+        } else if (n == 1) {
+            final double width = max - min;
+            if (x < min) {
+                return 0;
+            } else if (x > max) {
+                return 1;
+            } else if (width == 0) {
+                return 0.5;
+            }
+            return (x - min) / width;
+        }
+
+        if (x < min) {
+            return 0;
+        } else if (x > max) {
+            return 1;
+        }
+        if (x < mean[0]) {
+            if (mean[0] - min > 0) {
+                if (x == min) {
+                    return 0.5 / totalWeight;
+                }
+                return (1 + (x - min) / (mean[0] - min) * (weight[0] / 2 - 1)) / totalWeight;
+            }
+            return 0;
+        }
+        if (x > mean[n - 1]) {
+            if (max - mean[n - 1] > 0) {
+                if (x == max) {
+                    return 1 - 0.5 / totalWeight;
+                }
+                return 1 - (1 + (max - x) / (max - mean[n - 1]) * (weight[n - 1] / 2 - 1)) / totalWeight;
+            }
+            return 1;
+        }
+
+        double weightSoFar = 0;
+        for (int i = 0; i < n - 1; i++) {
+            if (mean[i] == x) {
+                double dw = 0;
+                for (; i < n && mean[i] == x; i++) {
+                    dw += weight[i];
+                }
+                return (weightSoFar + dw / 2) / totalWeight;
+            } else if (mean[i] <= x && x < mean[i + 1]) {
+                final double dw = (weight[i] + weight[i + 1]) / 2;
+                if (mean[i + 1] - mean[i] > 0) {
+                    // a centroid of a single value is not spread around its mean
+                    double leftExcludedW = 0;
+                    double rightExcludedW = 0;
+                    if (weight[i] == 1) {
+                        if (weight[i + 1] == 1) {
+                            return (weightSoFar + 1) / totalWeight;
+                        }
+                        leftExcludedW = 0.5;
+                    } else if (weight[i + 1] == 1) {
+                        rightExcludedW = 0.5;
+                    }
+                    final double dwNoSingleton = dw - leftExcludedW - rightExcludedW;
+                    final double base = weightSoFar + weight[i] / 2 + leftExcludedW;
+                    return (base + dwNoSingleton * (x - mean[i]) / (mean[i + 1] - mean[i])) / totalWeight;
+                }
+                return (weightSoFar + dw) / totalWeight;
+            } else {
+                weightSoFar += weight[i];
+            }
+        }
+        // x is the mean of the last centroid
+        return 1 - 0.5 / totalWeight;
+    }
+
+    private static double weightedAverage(double x1, double w1, double x2, double w2) {
+        if (x1 > x2) {
+            return weightedAverage(x2, w2, x1, w1);
+        }
+        final double x = (x1 * w1 + x2 * w2) / (w1 + w2);
+        return Math.max(x1, Math.min(x, x2));
     }
 
     public static void write(TDigestState state, StreamOutput out) throws IOException {
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        state.compress();
+        out.writeDouble(state.compression);
+        out.writeVInt(state.centroidCount);
+        for (int i = 0; i < state.centroidCount; i++) {
+            out.writeDouble(state.mean[i]);
+            out.writeVLong((long) state.weight[i]);
+        }
     }
 
     public static TDigestState read(StreamInput in) throws IOException {
-        throw new UnsupportedOperationException("querybuilders does not support this operation.");
+        final double compression = in.readDouble();
+        final TDigestState state = new TDigestState(compression);
+        final int n = in.readVInt();
+        for (int i = 0; i < n; i++) {
+            state.add(in.readDouble(), in.readVLong());
+        }
+        return state;
     }
 
 }
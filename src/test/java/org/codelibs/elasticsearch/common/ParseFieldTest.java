@@ -0,0 +1,46 @@
+package org.codelibs.elasticsearch.common;
+
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.codelibs.elasticsearch.common.xcontent.XContentFactory;
+import org.codelibs.elasticsearch.common.xcontent.XContentParser;
+import org.codelibs.elasticsearch.common.xcontent.XContentType;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ParseFieldTest {
+
+    @Test
+    public void test_canonicalFieldNames() throws Exception {
+        ParseField boost = new ParseField("boost");
+        // a name that is not a constant of the class files
+        ParseField computed = new ParseField(new StringBuilder("field_").append(42).toString(), "old_" + 42);
+        for (XContentType type : XContentType.values()) {
+            BytesReference bytes = XContentFactory.contentBuilder(type).startObject().field("boost", 2).field("field_42", 1)
+                    .startObject("old_42").field("boost", 3).endObject().endObject().bytes();
+            try (XContentParser parser = type.xContent().createParser(NamedXContentRegistry.EMPTY, bytes)) {
+                assertEquals(XContentParser.Token.START_OBJECT, parser.nextToken());
+                assertEquals(XContentParser.Token.FIELD_NAME, parser.nextToken());
+                assertSame(type.name(), boost.getPreferredName(), parser.currentName());
+                parser.nextToken();
+                // values are named by their field too
+                assertSame(type.name(), boost.getPreferredName(), parser.currentName());
+                parser.nextToken();
+                assertSame(type.name(), computed.getPreferredName(), parser.currentName());
+                assertTrue(computed.match(parser.currentName()));
+                parser.nextToken();
+                parser.nextToken();
+                assertSame(type.name(), computed.getDeprecatedNames()[0], parser.currentName());
+                assertTrue(computed.match(parser.currentName()));
+                parser.nextToken();
+                parser.nextToken();
+                assertSame(type.name(), boost.getPreferredName(), parser.currentName());
+            }
+        }
+        // names that are not canonical still match
+        assertTrue(boost.match(new String("boost")));
+        assertFalse(boost.match("boosts"));
+        assertFalse(new ParseField("boost").withAllDeprecated("weight").match("weight"));
+    }
+}
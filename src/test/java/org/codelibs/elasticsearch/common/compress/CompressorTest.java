@@ -0,0 +1,164 @@
+package org.codelibs.elasticsearch.common.compress;
+
+import org.codelibs.elasticsearch.common.bytes.BytesArray;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.codelibs.elasticsearch.common.io.stream.StreamOutput;
+import org.codelibs.elasticsearch.common.xcontent.ToXContent;
+import org.codelibs.elasticsearch.common.xcontent.XContentType;
+import org.codelibs.elasticsearch.index.query.QueryBuilders;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class CompressorTest {
+
+    private static final Compressor[] COMPRESSORS = { CompressorFactory.COMPRESSOR, CompressorFactory.LZ4, new DeflateCompressor(9) };
+
+    private static byte[] compress(Compressor compressor, byte[] bytes, int chunk) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        try (StreamOutput compressed = compressor.streamOutput(out)) {
+            for (int i = 0; i < bytes.length; i += chunk) {
+                compressed.writeBytes(bytes, i, Math.min(chunk, bytes.length - i));
+            }
+        }
+        return BytesReference.toBytes(out.bytes());
+    }
+
+    private static byte[][] inputs() {
+        Random random = new Random(0);
+        String term = "{\"term\":{\"user\":\"kimchy\"}},";
+        byte[] text = new byte[200000];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = (byte) term.charAt(random.nextInt(8) == 0 ? random.nextInt(term.length()) : i % term.length());
+        }
+        byte[] noise = new byte[100000];
+        random.nextBytes(noise);
+        byte[] runs = new byte[70000];
+        Arrays.fill(runs, (byte) 'a');
+        return new byte[][] { new byte[0], "{}".getBytes(), "{\"a\":\"aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa\"}".getBytes(), text, noise,
+                runs };
+    }
+
+    @Test
+    public void test_roundTrip() throws Exception {
+        for (Compressor compressor : COMPRESSORS) {
+            for (byte[] input : inputs()) {
+                for (int chunk : new int[] { 1, 1000, Integer.MAX_VALUE }) {
+                    BytesReference compressed = new BytesArray(compress(compressor, input, Math.min(chunk, Math.max(1, input.length))));
+                    Compressor detected = CompressorFactory.compressor(compressed);
+                    assertNotNull(detected);
+                    assertSame(compressor.getClass(), detected.getClass());
+                    assertArrayEquals(input, BytesReference.toBytes(CompressorFactory.uncompress(compressed)));
+                }
+            }
+        }
+        // LZ4 trades ratio for speed but still compresses repetitive content
+        byte[] text = inputs()[3];
+        assertTrue(compress(CompressorFactory.LZ4, text, text.length).length < text.length / 2);
+    }
+
+    @Test
+    public void test_corrupted() throws Exception {
+        byte[] text = inputs()[3];
+        byte[] compressed = compress(CompressorFactory.LZ4, text, text.length);
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+        try {
+            CompressorFactory.uncompress(new BytesArray(truncated));
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        // a back reference to a distance of zero
+        try {
+            LZ4.decompress(new byte[] { 0x10, 'a', 0, 0 }, 0, 4, new byte[5], 0, 5);
+            fail();
+        } catch (IOException e) {
+            assertEquals("Corrupted LZ4 block at offset [4]", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_compressedXContent() throws Exception {
+        ToXContent query = (builder, params) -> builder.field("query", QueryBuilders.termQuery("user", "kimchy"));
+        CompressedXContent deflate = new CompressedXContent(query, XContentType.JSON, ToXContent.EMPTY_PARAMS);
+        CompressedXContent lz4 = new CompressedXContent(query, XContentType.JSON, ToXContent.EMPTY_PARAMS, CompressorFactory.LZ4);
+        assertNotEquals(new BytesArray(deflate.compressed()), new BytesArray(lz4.compressed()));
+        assertEquals(deflate, lz4);
+        assertEquals(deflate.hashCode(), lz4.hashCode());
+        assertEquals(lz4, new CompressedXContent(lz4.compressedReference()));
+        assertEquals(lz4.string(), new CompressedXContent(new BytesArray(lz4.uncompressed()), CompressorFactory.LZ4).string());
+    }
+
+    @Test
+    public void test_pooledDeflaters() throws Exception {
+        byte[] text = inputs()[3];
+        byte[] compressed = compress(CompressorFactory.COMPRESSOR, text, 1000);
+        final int deflaters = DeflateCompressor.deflaters(3).pooled();
+        final int inflaters = DeflateCompressor.INFLATERS.pooled();
+        assertTrue(deflaters > 0);
+        for (int i = 0; i < 10; i++) {
+            // reset deflaters produce the same bytes
+            assertArrayEquals(compressed, compress(CompressorFactory.COMPRESSOR, text, 1000));
+            assertArrayEquals(text, BytesReference.toBytes(CompressorFactory.uncompress(new BytesArray(compressed))));
+        }
+        assertEquals(deflaters, DeflateCompressor.deflaters(3).pooled());
+        assertEquals(Math.max(1, inflaters), DeflateCompressor.INFLATERS.pooled());
+
+        // writing to a closed stream must not touch a deflater that went back to the pool
+        StreamOutput out = CompressorFactory.COMPRESSOR.streamOutput(new BytesStreamOutput());
+        out.close();
+        try {
+            out.writeByte((byte) 1);
+            fail();
+        } catch (IOException e) {
+            assertEquals("Stream closed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_leakedStreams() throws Exception {
+        final ResourcePool<DeflateCompressor.Deflating> deflaters = DeflateCompressor.deflaters(9);
+        final long leaks = deflaters.leaks();
+        new DeflateCompressor(9).streamOutput(new BytesStreamOutput()).writeByte((byte) 1);
+        for (int i = 0; i < 100 && deflaters.leaks() == leaks; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        // the collector is free to never enqueue the stream, test_reclaimLeakedLease covers the reclamation itself
+        assumeTrue("the leaked stream was not collected", deflaters.leaks() != leaks);
+        assertEquals(leaks + 1, deflaters.leaks());
+    }
+
+    @Test
+    public void test_reclaimLeakedLease() throws Exception {
+        final List<Object> destroyed = new ArrayList<>();
+        final ResourcePool<Object> pool = new ResourcePool<>("test", 1, Object::new, resource -> {}, destroyed::add);
+        final Object owner = new Object();
+        final ResourcePool<Object>.Lease leaked = pool.acquire(owner);
+        final ResourcePool<Object>.Lease released = pool.acquire(owner);
+
+        // enqueuing the phantom reference is what the collector does once the owner is unreachable
+        assertTrue(leaked.enqueue());
+        assertEquals(1, pool.leaks());
+        assertEquals(Collections.singletonList(leaked.resource()), destroyed);
+
+        released.release(true);
+        assertEquals(1, pool.pooled());
+        assertEquals(1, pool.leaks());
+
+        // a released lease is not reported even if it is enqueued afterwards
+        released.enqueue();
+        assertEquals(1, pool.leaks());
+        assertEquals(1, destroyed.size());
+        assertSame(released.resource(), pool.acquire(owner).resource());
+    }
+}
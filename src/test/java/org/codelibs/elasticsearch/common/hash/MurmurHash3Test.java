@@ -0,0 +1,62 @@
+package org.codelibs.elasticsearch.common.hash;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class MurmurHash3Test {
+
+    private static final String TEXT = "The quick brown fox jumps over the lazy dog";
+
+    // MurmurHash3_x64_128 with seed 0 of the first n bytes of TEXT, as { h1, h2 }
+    private static final long[][] PREFIX_HASHES = {
+        { 0x0000000000000000L, 0x0000000000000000L }, // 0
+        { 0x8c03777e9184689aL, 0x3ab5d6b4ba293e79L }, // 1
+        { 0xd7dd0beaee68e3b9L, 0xa56fb69099026b97L }, // 2
+        { 0x304f2652dcd66d9aL, 0xef385e5d15eabf42L }, // 3
+        { 0xbd4301beaba07d9cL, 0xdfae3c4b8026dd1cL }, // 4
+        { 0x6f7aac75205270feL, 0x76f5ebd390dac61fL }, // 5
+        { 0x796e1100f3f66746L, 0xb2a07e0b1665ab1fL }, // 6
+        { 0xf0d3843a5abcd5c9L, 0x9394b7f9c86d6073L }, // 7
+        { 0x644baae4ad5b71cdL, 0x8eeef997e2881cdfL }, // 8
+        { 0x37a06404b2a8f155L, 0xadbcc8ff3d6eccc0L }, // 9
+        { 0x420e44df457484b8L, 0x9cabadd477515fe9L }, // 10
+        { 0x87c320550739a882L, 0xfa91e8a5d66e7b9fL }, // 11
+        { 0x61d6a1372f90f9cbL, 0xb66353ea7c002529L }, // 12
+        { 0x3c600c93f99bfd3bL, 0xc3e13319056f26f4L }, // 13
+        { 0xdcd216a95d6e6007L, 0x84c1eeb85c46c838L }, // 14
+        { 0x48137cb864e39216L, 0xfd7baf64397ad64bL }, // 15
+        { 0x9d1244f4af9b32c4L, 0x3d153c8b2c2a3aa6L }, // 16
+        { 0x91f96376e757e9aeL, 0x9b44e58dae83eb0cL }, // 17
+    };
+
+    private static void assertHash(long h1, long h2, byte[] bytes, int offset, int length, long seed) {
+        MurmurHash3.Hash128 hash = MurmurHash3.hash128(bytes, offset, length, seed, new MurmurHash3.Hash128());
+        assertEquals("h1 of " + length + " bytes", h1, hash.h1);
+        assertEquals("h2 of " + length + " bytes", h2, hash.h2);
+    }
+
+    @Test
+    public void test_hash128() throws Exception {
+        byte[] text = TEXT.getBytes(StandardCharsets.US_ASCII);
+        // every tail length, without and with a full block before it
+        for (int length = 0; length < PREFIX_HASHES.length; length++) {
+            assertHash(PREFIX_HASHES[length][0], PREFIX_HASHES[length][1], text, 0, length, 0);
+        }
+        assertHash(0x9b28b5ddd9c4c509L, 0x0d3c1cb80fe2f964L, text, 0, 31, 0);
+        assertHash(0xdf6af91bb29bdacfL, 0x91a341c58df1f3a6L, text, 0, 32, 0);
+        assertHash(0xe34bbc7bbc071b6cL, 0x7a433ca9c49a9347L, text, 0, text.length, 0);
+        assertHash(0x740dcf93fe0bd5d7L, 0xc4546cf4ec705c8fL, text, 0, text.length, 42);
+        assertHash(0xcbd8a7b341bd9b02L, 0x5b1e906a48ae1d19L, "hello".getBytes(StandardCharsets.US_ASCII), 0, 5, 0);
+
+        // the hash does not depend on where the bytes are
+        byte[] shifted = new byte[text.length + 7];
+        System.arraycopy(text, 0, shifted, 3, text.length);
+        for (int length = 0; length < PREFIX_HASHES.length; length++) {
+            assertHash(PREFIX_HASHES[length][0], PREFIX_HASHES[length][1], shifted, 3, length, 0);
+        }
+        assertHash(0xe34bbc7bbc071b6cL, 0x7a433ca9c49a9347L, shifted, 3, text.length, 0);
+    }
+}
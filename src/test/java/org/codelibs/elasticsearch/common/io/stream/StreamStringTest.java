@@ -0,0 +1,126 @@
+package org.codelibs.elasticsearch.common.io.stream;
+
+import org.apache.lucene.util.BytesRef;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.util.BigArrays;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StreamStringTest {
+
+    private static List<String> strings() {
+        List<String> strings = new ArrayList<>();
+        strings.add("");
+        strings.add("kimchy");
+        strings.add("café");
+        strings.add("検索エンジン");
+        strings.add("😀 surrogates");
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            large.append((char) ('a' + i % 26));
+        }
+        strings.add(large.toString());
+        large.setCharAt(19999, 'é');
+        strings.add(large.toString());
+        // enough strings of all kinds to cross several pages
+        Random random = new Random(0);
+        for (int i = 0; i < 5000; i++) {
+            char[] chars = new char[random.nextInt(20)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = random.nextInt(4) == 0 ? (char) random.nextInt(0xD800) : (char) ('a' + random.nextInt(26));
+            }
+            strings.add(new String(chars));
+        }
+        return strings;
+    }
+
+    @Test
+    public void test_readString() throws Exception {
+        final List<String> strings = strings();
+        BytesStreamOutput out = new BytesStreamOutput();
+        for (String string : strings) {
+            out.writeString(string);
+            out.writeByte((byte) 42);
+        }
+        BytesReference bytes = out.bytes();
+        byte[] array = BytesRef.deepCopyOf(bytes.toBytesRef()).bytes;
+        ByteBuffer direct = ByteBuffer.allocateDirect(array.length);
+        direct.put(array).flip();
+        StreamInput[] inputs = { bytes.streamInput(), new ByteBufferStreamInput(ByteBuffer.wrap(array)),
+                new ByteBufferStreamInput(direct), new InputStreamStreamInput(new ByteArrayInputStream(array)),
+                new NamedWriteableAwareStreamInput(new ByteBufferStreamInput(ByteBuffer.wrap(array)), null) };
+        for (StreamInput in : inputs) {
+            for (String string : strings) {
+                assertEquals(string, in.readString());
+                assertEquals(42, in.readByte());
+            }
+            assertEquals(0, in.available());
+        }
+    }
+
+    @Test
+    public void test_writeString() throws Exception {
+        // the encoding matches the encoding of the generic stream output
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        OutputStreamStreamOutput generic = new OutputStreamStreamOutput(expected);
+        BytesStreamOutput out = new BytesStreamOutput();
+        for (String string : strings()) {
+            generic.writeString(string);
+            out.writeString(string);
+        }
+        assertEquals(new BytesRef(expected.toByteArray()), out.bytes().toBytesRef());
+    }
+
+    @Test
+    public void test_readTruncatedString() throws Exception {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeString("café");
+        byte[] truncated = new byte[(int) out.position() - 1];
+        System.arraycopy(out.bytes().toBytesRef().bytes, 0, truncated, 0, truncated.length);
+        try {
+            new ByteBufferStreamInput(ByteBuffer.wrap(truncated)).readString();
+            fail();
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void test_readMalformedString() throws Exception {
+        for (int lead : new int[] { 0x80, 0xBF, 0xF0, 0xFF }) {
+            // the malformed character within a page and right behind a page boundary
+            for (int prefix : new int[] { 1, BigArrays.PAGE_SIZE_IN_BYTES - 2 }) {
+                BytesStreamOutput out = new BytesStreamOutput();
+                out.writeVInt(prefix + 2);
+                for (int i = 0; i < prefix; i++) {
+                    out.writeByte((byte) 'a');
+                }
+                out.writeByte((byte) lead);
+                out.writeByte((byte) 'b');
+                out.writeByte((byte) 'c');
+                byte[] array = BytesReference.toBytes(out.bytes());
+                StreamInput[] inputs = { out.bytes().streamInput(), new ByteBufferStreamInput(ByteBuffer.wrap(array)),
+                        new InputStreamStreamInput(new ByteArrayInputStream(array)) };
+                for (StreamInput in : inputs) {
+                    try {
+                        in.readString();
+                        fail(in.getClass().getSimpleName() + " " + Integer.toHexString(lead) + " " + prefix);
+                    } catch (IOException e) {
+                        assertEquals("Invalid string; unexpected character: " + lead + " hex: " + Integer.toHexString(lead),
+                                e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package org.codelibs.elasticsearch.common.joda;
+
+import org.codelibs.elasticsearch.ElasticsearchParseException;
+import org.codelibs.elasticsearch.index.mapper.DateFieldMapper;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.*;
+
+public class DateMathParserTest {
+
+    private static final DateTimeZone[] ZONES = { null, DateTimeZone.UTC, DateTimeZone.forID("+05:30"),
+            DateTimeZone.forID("Europe/Berlin"), DateTimeZone.forID("America/St_Johns") };
+
+    // 2016-11-20T13:21:06.789Z
+    private static final LongSupplier NOW = () -> 1479648066789L;
+
+    private static DateMathParser jodaParser(FormatDateTimeFormatter formatter) {
+        // a format without a fast path, with the same joda parser
+        return new DateMathParser(new FormatDateTimeFormatter("joda", formatter.parser(), formatter.printer(), Locale.ROOT));
+    }
+
+    private static String randomDate(Random random) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "%04d", 1900 + random.nextInt(200)));
+        if (random.nextInt(5) > 0) {
+            builder.append(String.format(Locale.ROOT, "-%02d", 1 + random.nextInt(12)));
+            if (random.nextInt(5) > 0) {
+                builder.append(String.format(Locale.ROOT, "-%02d", 1 + random.nextInt(31)));
+            }
+        }
+        if (random.nextBoolean()) {
+            builder.append('T');
+            if (random.nextInt(5) > 0) {
+                builder.append(String.format(Locale.ROOT, "%02d", random.nextInt(25)));
+                if (random.nextInt(5) > 0) {
+                    builder.append(String.format(Locale.ROOT, ":%02d", random.nextInt(60)));
+                    if (random.nextInt(5) > 0) {
+                        builder.append(String.format(Locale.ROOT, ":%02d", random.nextInt(60)));
+                        if (random.nextBoolean()) {
+                            builder.append('.');
+                            for (int i = random.nextInt(11); i >= 0; i--) {
+                                builder.append(random.nextInt(10));
+                            }
+                        }
+                    }
+                }
+            }
+            switch (random.nextInt(6)) {
+                case 0:
+                    builder.append('Z');
+                    break;
+                case 1:
+                    builder.append(String.format(Locale.ROOT, "+%02d:%02d", random.nextInt(15), random.nextInt(60)));
+                    break;
+                case 2:
+                    builder.append(String.format(Locale.ROOT, "-%02d%02d", random.nextInt(15), random.nextInt(60)));
+                    break;
+                case 3:
+                    builder.append(String.format(Locale.ROOT, "+%02d", random.nextInt(15)));
+                    break;
+                default:
+                    break;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String randomText(Random random) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return Long.toString(random.nextLong() % 100000000000000L);
+            case 1:
+                return Integer.toString(random.nextInt(20000) - 10000);
+            case 2:
+                return "now" + randomMath(random);
+            case 3:
+                return randomDate(random) + "||" + randomMath(random);
+            default:
+                return randomDate(random);
+        }
+    }
+
+    private static String randomMath(Random random) {
+        StringBuilder builder = new StringBuilder();
+        String units = "yMwdhHms";
+        for (int i = random.nextInt(4); i > 0; i--) {
+            char unit = units.charAt(random.nextInt(units.length()));
+            switch (random.nextInt(3)) {
+                case 0:
+                    builder.append('/').append(unit);
+                    break;
+                case 1:
+                    builder.append('+').append(random.nextInt(100)).append(unit);
+                    break;
+                default:
+                    builder.append('-').append(unit);
+                    break;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static Object resolve(DateMathParser parser, String text, boolean roundUp, DateTimeZone timeZone) {
+        try {
+            return parser.parse(text, NOW, roundUp, timeZone);
+        } catch (ElasticsearchParseException e) {
+            // the format in the message is the name of the parser
+            return e.getMessage().replaceFirst(" with format \\[.*\\]$", "");
+        }
+    }
+
+    @Test
+    public void test_sameAsJoda() throws Exception {
+        Random random = new Random(0);
+        List<FormatDateTimeFormatter> formatters = new ArrayList<>();
+        formatters.add(DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER);
+        formatters.add(Joda.forPattern("strict_date_optional_time"));
+        formatters.add(Joda.forPattern("epoch_millis"));
+        for (FormatDateTimeFormatter formatter : formatters) {
+            DateMathParser parser = new DateMathParser(formatter);
+            DateMathParser joda = jodaParser(formatter);
+            for (int i = 0; i < 10000; i++) {
+                String text = randomText(random);
+                boolean roundUp = random.nextBoolean();
+                DateTimeZone timeZone = ZONES[random.nextInt(ZONES.length)];
+                assertEquals(formatter.format() + " " + text + " " + roundUp + " " + timeZone,
+                        resolve(joda, text, roundUp, timeZone), resolve(parser, text, roundUp, timeZone));
+            }
+        }
+        // local times in the gap of a time zone are rejected like joda does
+        DateMathParser parser = new DateMathParser(DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER);
+        DateTimeZone berlin = DateTimeZone.forID("Europe/Berlin");
+        assertEquals(resolve(jodaParser(DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER), "2016-03-27T02:30", false, berlin),
+                resolve(parser, "2016-03-27T02:30", false, berlin));
+        assertTrue(resolve(parser, "2016-03-27T02:30", false, berlin) instanceof String);
+        assertEquals(1459045800000L, parser.parse("2016-03-27T02:30", NOW, false, null));
+        assertEquals(1451692799999L, parser.parse("2016-01-01", NOW, true, null));
+        assertEquals(1451606400000L, parser.parse("1451606400000", NOW, true, null));
+    }
+
+    @Test
+    public void test_compile() throws Exception {
+        DateMathParser parser = new DateMathParser(DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER);
+        DateMathParser.CompiledExpression lastDay = parser.compile("now-1d/d");
+        assertTrue(lastDay.usesNow());
+        assertEquals(1479513600000L, lastDay.resolve(NOW));
+        assertEquals(1479599999999L, lastDay.resolve(NOW, true, null));
+        assertEquals(1479510000000L, lastDay.resolve(NOW, false, DateTimeZone.forOffsetHours(1)));
+
+        DateMathParser.CompiledExpression month = parser.compile("2016-01-15||+1M/M");
+        assertFalse(month.usesNow());
+        assertEquals(1454284800000L, month.resolve(NOW));
+        assertEquals(1456790399999L, month.resolve(NOW, true, null));
+
+        try {
+            parser.compile("now+1x");
+            fail();
+        } catch (ElasticsearchParseException e) {
+            assertEquals("unit [x] not supported for date math [+1x]", e.getMessage());
+        }
+        try {
+            parser.compile("2016-01-15||/2d");
+            fail();
+        } catch (ElasticsearchParseException e) {
+            assertEquals("rounding `/` can only be used on single unit types [/2d]", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_formatterCache() throws Exception {
+        assertSame(Joda.forPattern("strict_date_optional_time||epoch_millis"), DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER);
+        assertSame(Joda.forPattern(" yyyy/MM/dd "), Joda.forPattern("yyyy/MM/dd"));
+        assertNotSame(Joda.forPattern("yyyy/MM/dd", Locale.ROOT), Joda.forPattern("yyyy/MM/dd", Locale.GERMAN));
+
+        // the cache is shared by all tests, which should not see the throwaway patterns
+        Joda.clearCachedFormatters();
+        try {
+            FormatDateTimeFormatter hot = Joda.forPattern("yyyy/MM/dd");
+            FormatDateTimeFormatter cold = Joda.forPattern("yyyy-MM");
+            for (int i = 0; i < Joda.MAX_CACHED_FORMATTERS * 2; i++) {
+                assertEquals("'" + i + "' yyyy", Joda.forPattern("'" + i + "' yyyy").format());
+                assertSame(hot, Joda.forPattern("yyyy/MM/dd"));
+            }
+            assertEquals(Joda.MAX_CACHED_FORMATTERS, Joda.cachedFormatters());
+            // the least recently used patterns were evicted
+            assertNotSame(cold, Joda.forPattern("yyyy-MM"));
+        } finally {
+            Joda.clearCachedFormatters();
+        }
+    }
+}
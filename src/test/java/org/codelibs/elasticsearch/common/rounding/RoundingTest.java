@@ -0,0 +1,109 @@
+package org.codelibs.elasticsearch.common.rounding;
+
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.codelibs.elasticsearch.common.io.stream.StreamInput;
+import org.codelibs.elasticsearch.common.unit.TimeValue;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RoundingTest {
+
+    // time zones with hour and half hour daylight saving shifts and with a half hour offset
+    private static final String[] ZONES = { "Europe/Berlin", "America/St_Johns", "Australia/Lord_Howe" };
+
+    // 2015-01-01T00:00:00Z to 2020-01-01T00:00:00Z
+    private static final long MIN = 1420070400000L;
+    private static final long MAX = 1577836800000L;
+
+    private static void assertSameRounding(DateTimeZone timeZone, Rounding rounding, Rounding prepared, long min, long max,
+            Random random) {
+        for (int i = 0; i < 2000; i++) {
+            long value = min + (long) (random.nextDouble() * (max - min));
+            assertEquals(rounding + " " + value, rounding.round(value), prepared.round(value));
+        }
+        // the values around every transition of the time zone
+        for (long transition = timeZone.nextTransition(min); transition < max && transition != timeZone.nextTransition(transition);
+                transition = timeZone.nextTransition(transition)) {
+            for (long value = transition - TimeValue.timeValueHours(3).millis(); value <= transition + TimeValue.timeValueHours(3).millis();
+                    value += random.nextInt(600000) + 1) {
+                assertEquals(rounding + " " + value, rounding.round(value), prepared.round(value));
+            }
+            assertEquals(rounding.round(transition - 1), prepared.round(transition - 1));
+            assertEquals(rounding.round(transition), prepared.round(transition));
+        }
+        assertEquals(rounding.round(min - 1), prepared.round(min - 1));
+        assertEquals(rounding.round(max + 1), prepared.round(max + 1));
+    }
+
+    @Test
+    public void test_preparedTimeUnitRounding() throws Exception {
+        Random random = new Random(0);
+        for (String zone : ZONES) {
+            DateTimeZone timeZone = DateTimeZone.forID(zone);
+            for (DateTimeUnit unit : new DateTimeUnit[] { DateTimeUnit.YEAR_OF_CENTURY, DateTimeUnit.QUARTER,
+                    DateTimeUnit.MONTH_OF_YEAR, DateTimeUnit.WEEK_OF_WEEKYEAR, DateTimeUnit.DAY_OF_MONTH,
+                    DateTimeUnit.HOUR_OF_DAY }) {
+                Rounding rounding = Rounding.builder(unit).timeZone(timeZone).build();
+                Rounding prepared = Rounding.builder(unit).timeZone(timeZone).prepare(MIN, MAX).build();
+                assertSameRounding(timeZone, rounding, prepared, MIN, MAX, random);
+            }
+            // minutes on a shorter range, to keep the tables small
+            Rounding rounding = Rounding.builder(DateTimeUnit.MINUTES_OF_HOUR).timeZone(timeZone).build();
+            assertSameRounding(timeZone, rounding, rounding.prepare(MAX - TimeValue.timeValueHours(24 * 30).millis(), MAX), MIN, MAX, random);
+        }
+    }
+
+    @Test
+    public void test_preparedTimeIntervalRounding() throws Exception {
+        Random random = new Random(1);
+        for (String zone : ZONES) {
+            DateTimeZone timeZone = DateTimeZone.forID(zone);
+            for (TimeValue interval : new TimeValue[] { TimeValue.timeValueMinutes(90), TimeValue.timeValueHours(7),
+                    TimeValue.timeValueHours(36) }) {
+                Rounding rounding = Rounding.builder(interval).timeZone(timeZone).build();
+                Rounding prepared = Rounding.builder(interval).timeZone(timeZone).prepare(MIN, MAX).build();
+                assertSameRounding(timeZone, rounding, prepared, MIN, MAX, random);
+            }
+        }
+    }
+
+    @Test
+    public void test_preparedSerialization() throws Exception {
+        Rounding rounding = Rounding.builder(DateTimeUnit.DAY_OF_MONTH).timeZone(DateTimeZone.forID("Europe/Berlin")).build();
+        Rounding prepared = rounding.prepare(MIN, MAX);
+        // one bucket per day, but the days around the 10 transitions
+        assertEquals(1827 - 10 * 5, ((Rounding.PreparedRounding) prepared).preparedBuckets());
+        assertEquals(prepared, rounding.prepare(MIN, MAX));
+        assertNotEquals(prepared, rounding);
+        assertEquals(rounding.nextRoundingValue(MIN), prepared.nextRoundingValue(MIN));
+
+        // prepared roundings are written as the rounding they were prepared from
+        BytesStreamOutput out = new BytesStreamOutput();
+        Rounding.Streams.write(prepared, out);
+        try (StreamInput in = out.bytes().streamInput()) {
+            assertEquals(rounding, Rounding.Streams.read(in));
+        }
+        try (StreamInput in = out.bytes().streamInput()) {
+            in.readByte();
+            prepared.readFrom(in);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        // rounding to hours in a fixed time zone is arithmetic already
+        Rounding hours = Rounding.builder(DateTimeUnit.HOUR_OF_DAY).build();
+        assertSame(hours, hours.prepare(MIN, MAX));
+
+        try {
+            Rounding.builder(DateTimeUnit.SECOND_OF_MINUTE).timeZone(DateTimeZone.forID("Europe/Berlin")).prepare(MIN, MAX).build();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Cannot prepare more than [1048576] buckets"));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.codelibs.elasticsearch.common.util;
+
+import org.codelibs.elasticsearch.common.breaker.CircuitBreaker;
+import org.codelibs.elasticsearch.common.breaker.CircuitBreakingException;
+import org.codelibs.elasticsearch.common.settings.Settings;
+import org.codelibs.elasticsearch.common.unit.ByteSizeUnit;
+import org.codelibs.elasticsearch.common.unit.ByteSizeValue;
+import org.codelibs.elasticsearch.indices.breaker.BreakerSettings;
+import org.codelibs.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class BigArraysTest {
+
+    @Test
+    public void test_recycledPages() throws Exception {
+        PageCacheRecycler recycler = new PageCacheRecycler(PageCacheRecycler.Type.CONCURRENT, new ByteSizeValue(1, ByteSizeUnit.MB));
+        BigArrays bigArrays = new BigArrays(recycler, false);
+
+        LongArray longs = bigArrays.newLongArray(10000);
+        assertEquals(5, recycler.outstandingPages());
+        for (long i = 0; i < longs.size(); i++) {
+            longs.set(i, i * 3);
+        }
+        longs = bigArrays.grow(longs, 20000);
+        assertEquals(11, recycler.outstandingPages());
+        for (long i = 0; i < 10000; i++) {
+            assertEquals(i * 3, longs.get(i));
+            assertEquals(0, longs.get(i + 10000));
+        }
+        longs = bigArrays.resize(longs, 3000);
+        assertEquals(2, recycler.outstandingPages());
+        longs.close();
+        assertEquals(0, recycler.outstandingPages());
+        assertEquals(11 * BigArrays.PAGE_SIZE_IN_BYTES, recycler.offHeapSizeInBytes());
+
+        // the pages of the long array are reused as doubles, ints and floats, and cleared first
+        DoubleArray doubles = bigArrays.newDoubleArray(BigArrays.LONG_PAGE_SIZE * 2);
+        IntArray ints = bigArrays.newIntArray(BigArrays.INT_PAGE_SIZE * 3);
+        FloatArray floats = bigArrays.newFloatArray(BigArrays.INT_PAGE_SIZE * 4);
+        assertEquals(9, recycler.outstandingPages());
+        assertEquals(11 * BigArrays.PAGE_SIZE_IN_BYTES, recycler.offHeapSizeInBytes());
+        for (long i = 0; i < doubles.size(); i++) {
+            assertEquals(0d, doubles.get(i), 0d);
+        }
+        doubles.fill(10, 3000, 1.5);
+        doubles.increment(20, 1);
+        assertEquals(0d, doubles.get(9), 0d);
+        assertEquals(2.5, doubles.get(20), 0d);
+        assertEquals(1.5, doubles.get(2999), 0d);
+        ints.fill(0, ints.size(), 7);
+        assertEquals(9, ints.increment(ints.size() - 1, 2));
+        floats.set(5, 0.25f);
+        assertEquals(0.25f, floats.get(5), 0f);
+        assertEquals(0f, floats.get(floats.size() - 1), 0f);
+        doubles.close();
+        ints.close();
+        floats.close();
+        assertEquals(0, recycler.outstandingPages());
+
+        // byte arrays keep their pages on the heap
+        ByteArray bytes = bigArrays.newByteArray(BigArrays.BYTE_PAGE_SIZE * 2);
+        assertEquals(0, recycler.outstandingPages());
+        bytes.close();
+
+        recycler.close();
+        assertEquals(0, recycler.offHeapSizeInBytes());
+    }
+
+    @Test
+    public void test_limit() throws Exception {
+        PageCacheRecycler recycler = new PageCacheRecycler(PageCacheRecycler.Type.QUEUE,
+                new ByteSizeValue(2 * BigArrays.PAGE_SIZE_IN_BYTES));
+        ByteBuffer[] pages = new ByteBuffer[3];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = recycler.obtain();
+            assertEquals(BigArrays.PAGE_SIZE_IN_BYTES, pages[i].capacity());
+        }
+        assertTrue(pages[0].isDirect());
+        assertTrue(pages[1].isDirect());
+        assertFalse(pages[2].isDirect());
+        assertEquals(3, recycler.outstandingPages());
+        assertEquals(2 * BigArrays.PAGE_SIZE_IN_BYTES, recycler.offHeapSizeInBytes());
+        for (ByteBuffer page : pages) {
+            recycler.release(page);
+        }
+        assertSame(pages[1], recycler.obtain());
+        assertSame(pages[0], recycler.obtain());
+        assertFalse(recycler.obtain().isDirect());
+
+        PageCacheRecycler none = new PageCacheRecycler(Settings.builder().put("cache.recycler.page.type", "none").build());
+        assertEquals(PageCacheRecycler.Type.NONE, none.getType());
+        assertFalse(none.obtain().isDirect());
+        assertEquals(0, none.offHeapSizeInBytes());
+    }
+
+    @Test
+    public void test_circuitBreaker() throws Exception {
+        HierarchyCircuitBreakerService breakerService = new HierarchyCircuitBreakerService(
+                new BreakerSettings(CircuitBreaker.PARENT, ByteSizeUnit.MB.toBytes(2), 1.0, CircuitBreaker.Type.PARENT),
+                new BreakerSettings(CircuitBreaker.REQUEST, ByteSizeUnit.MB.toBytes(1), 1.0),
+                new BreakerSettings("other", ByteSizeUnit.MB.toBytes(2), 1.0));
+        CircuitBreaker request = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        BigArrays bigArrays = new BigArrays(null, breakerService, false);
+
+        // without checking the breaker, arrays are only accounted for
+        LongArray accounted = bigArrays.newLongArray(200000);
+        assertEquals(accounted.ramBytesUsed(), request.getUsed());
+        accounted.close();
+        assertEquals(0, request.getUsed());
+
+        LongArray longs = bigArrays.withCircuitBreaking().newLongArray(100000);
+        assertEquals(longs.ramBytesUsed(), request.getUsed());
+        try {
+            bigArrays.withCircuitBreaking().grow(longs, 200000);
+            fail();
+        } catch (CircuitBreakingException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("[request] Data too large"));
+        }
+        // the array that could not grow is still accounted for until it is closed
+        longs.close();
+        assertEquals(0, request.getUsed());
+        assertEquals(1, request.getTrippedCount());
+
+        // the parent trips when the children together go over its limit
+        breakerService.getBreaker("other").addEstimateBytesAndMaybeBreak(ByteSizeUnit.KB.toBytes(1500), "other");
+        try {
+            bigArrays.withCircuitBreaking().newIntArray(200000);
+            fail();
+        } catch (CircuitBreakingException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("[parent] Data too large"));
+        }
+        assertEquals(0, request.getUsed());
+        assertEquals(1, breakerService.stats(CircuitBreaker.PARENT).getTrippedCount());
+        assertEquals(ByteSizeUnit.KB.toBytes(1500), breakerService.stats().getStats(CircuitBreaker.PARENT).getEstimated());
+    }
+}
@@ -0,0 +1,85 @@
+package org.codelibs.elasticsearch.common.xcontent;
+
+import org.codelibs.elasticsearch.common.ParseField;
+import org.codelibs.elasticsearch.common.ParseFieldMatcher;
+import org.codelibs.elasticsearch.common.ParseFieldMatcherSupplier;
+import org.codelibs.elasticsearch.common.xcontent.json.JsonXContent;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ObjectParserTest {
+
+    private static final ParseFieldMatcherSupplier CONTEXT = () -> ParseFieldMatcher.EMPTY;
+
+    private static class Thing {
+        final Map<String, Object> values = new HashMap<>();
+    }
+
+    private static Thing parse(ObjectParser<Thing, ParseFieldMatcherSupplier> objectParser, String json) throws Exception {
+        try (XContentParser parser = JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY, json)) {
+            return objectParser.parse(parser, new Thing(), CONTEXT);
+        }
+    }
+
+    @Test
+    public void test_fieldTable() throws Exception {
+        ObjectParser<Thing, ParseFieldMatcherSupplier> objectParser = new ObjectParser<>("thing");
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String name = "field_" + i;
+            names.add(name);
+            objectParser.declareInt((t, v) -> t.values.put(name, v), new ParseField(name));
+        }
+        // names with the same hash code
+        objectParser.declareString((t, v) -> t.values.put("Aa", v), new ParseField("Aa"));
+        objectParser.declareString((t, v) -> t.values.put("BB", v), new ParseField("BB"));
+        objectParser.declareString((t, v) -> t.values.put("old", v), new ParseField("new_name", "old_name"));
+
+        Thing thing = parse(objectParser, "{\"field_0\": 0, \"field_42\": 42, \"field_99\": \"99\", \"Aa\": \"a\", \"BB\": \"b\","
+                + " \"old_name\": \"deprecated\"}");
+        assertEquals(0, thing.values.get("field_0"));
+        assertEquals(42, thing.values.get("field_42"));
+        assertEquals(99, thing.values.get("field_99"));
+        assertEquals("a", thing.values.get("Aa"));
+        assertEquals("b", thing.values.get("BB"));
+        assertEquals("deprecated", thing.values.get("old"));
+
+        try {
+            parse(objectParser, "{\"field_100\": 100}");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("[thing] unknown field [field_100], parser not found", e.getMessage());
+        }
+        try {
+            parse(objectParser, "{\"field_1\": true}");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("[thing] field_1 doesn't support values of type: VALUE_BOOLEAN", e.getMessage());
+        }
+
+        // fields declared after the first parse are found
+        objectParser.declareBoolean((t, v) -> t.values.put("late", v), new ParseField("late"));
+        assertEquals(true, parse(objectParser, "{\"late\": true}").values.get("late"));
+    }
+
+    @Test
+    public void test_ignoreUnknownFields() throws Exception {
+        ObjectParser<Thing, ParseFieldMatcherSupplier> objectParser = new ObjectParser<>("thing", true, Thing::new);
+        objectParser.declareString((t, v) -> t.values.put("name", v), new ParseField("name"));
+        Thing thing = parse(objectParser, "{\"unknown\": {\"name\": \"inner\"}, \"name\": \"outer\"}");
+        assertEquals("outer", thing.values.get("name"));
+        assertEquals(1, thing.values.size());
+        try {
+            parse(objectParser, "{\"name\": {}}");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("[thing] name doesn't support values of type: START_OBJECT", e.getMessage());
+        }
+    }
+}
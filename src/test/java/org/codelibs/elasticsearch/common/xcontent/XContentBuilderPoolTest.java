@@ -0,0 +1,84 @@
+package org.codelibs.elasticsearch.common.xcontent;
+
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class XContentBuilderPoolTest {
+    @Test
+    public void test_reuseBuffer() throws Exception {
+        BytesReference first;
+        try (XContentBuilderPool.Lease lease = XContentBuilderPool.acquire(XContentType.JSON)) {
+            lease.builder().startObject().field("a", 1).endObject();
+            first = lease.copyBytes();
+        }
+        try (XContentBuilderPool.Lease lease = XContentBuilderPool.acquire(XContentType.JSON)) {
+            lease.builder().startObject().field("b", "c").endObject();
+            assertEquals("{\"b\":\"c\"}", lease.string());
+        }
+        assertEquals("{\"a\":1}", first.utf8ToString());
+    }
+
+    @Test
+    public void test_nestedLeases() throws Exception {
+        try (XContentBuilderPool.Lease outer = XContentBuilderPool.acquire(XContentType.JSON)) {
+            outer.builder().startObject().field("outer", true);
+            try (XContentBuilderPool.Lease inner = XContentBuilderPool.acquire(XContentType.JSON)) {
+                inner.builder().startObject().field("inner", true).endObject();
+                assertEquals("{\"inner\":true}", inner.string());
+            }
+            outer.builder().endObject();
+            assertEquals("{\"outer\":true}", outer.string());
+        }
+    }
+
+    @Test
+    public void test_oversizedAndUnfinishedBuilders() throws Exception {
+        XContentBuilderPool.clear();
+        BytesStreamOutput oversized;
+        try (XContentBuilderPool.Lease lease = XContentBuilderPool.acquire(XContentType.JSON)) {
+            oversized = lease.buffer();
+            XContentBuilder builder = lease.builder().startArray();
+            for (int i = 0; i < XContentBuilderPool.MAX_RETAINED_BYTES; i++) {
+                builder.value(i);
+            }
+            builder.endArray();
+            assertTrue(lease.bytes().length() > XContentBuilderPool.MAX_RETAINED_BYTES);
+        }
+        assertEquals(0, XContentBuilderPool.pooledBuffers());
+
+        BytesStreamOutput unfinished;
+        try (XContentBuilderPool.Lease lease = XContentBuilderPool.acquire(XContentType.JSON)) {
+            unfinished = lease.buffer();
+            assertNotSame(oversized, unfinished);
+            lease.builder().startObject().field("a", 1);
+        }
+        assertEquals(0, XContentBuilderPool.pooledBuffers());
+
+        BytesStreamOutput finished;
+        try (XContentBuilderPool.Lease lease = XContentBuilderPool.acquire(XContentType.SMILE)) {
+            finished = lease.buffer();
+            assertNotSame(oversized, finished);
+            assertNotSame(unfinished, finished);
+            assertEquals(0, lease.buffer().size());
+            lease.builder().startObject().field("a", 1).endObject();
+            assertEquals(XContentType.SMILE, XContentFactory.xContentType(lease.bytes()));
+        }
+        assertEquals(1, XContentBuilderPool.pooledBuffers());
+
+        try (XContentBuilderPool.Lease lease = XContentBuilderPool.acquire(XContentType.JSON)) {
+            assertSame(finished, lease.buffer());
+            assertEquals(0, XContentBuilderPool.pooledBuffers());
+        }
+        assertEquals(1, XContentBuilderPool.pooledBuffers());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_useAfterClose() throws Exception {
+        XContentBuilderPool.Lease lease = XContentBuilderPool.acquire(XContentType.JSON);
+        lease.close();
+        lease.builder();
+    }
+}
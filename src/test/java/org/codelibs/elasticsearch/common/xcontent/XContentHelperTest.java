@@ -0,0 +1,102 @@
+package org.codelibs.elasticsearch.common.xcontent;
+
+import org.codelibs.elasticsearch.common.bytes.BytesArray;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.bytes.CompositeBytesReference;
+import org.codelibs.elasticsearch.common.compress.CompressorFactory;
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.codelibs.elasticsearch.common.io.stream.StreamOutput;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class XContentHelperTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static BytesReference newContent(XContentType type) throws Exception {
+        XContentBuilder builder = XContentFactory.contentBuilder(type).startObject().field("name", "large").startArray("values");
+        // large enough to span several pages of a BytesStreamOutput
+        for (int i = 0; i < 5000; i++) {
+            builder.value("value-" + i);
+        }
+        return builder.endArray().endObject().bytes();
+    }
+
+    private static void assertContent(XContentParser parser) throws Exception {
+        try {
+            Map<String, Object> map = parser.map();
+            assertEquals("large", map.get("name"));
+            assertEquals(5000, ((java.util.List<?>) map.get("values")).size());
+            assertEquals("value-4999", ((java.util.List<?>) map.get("values")).get(4999));
+        } finally {
+            parser.close();
+        }
+    }
+
+    @Test
+    public void test_createParserFromBytesReference() throws Exception {
+        for (XContentType type : new XContentType[] { XContentType.JSON, XContentType.SMILE, XContentType.CBOR }) {
+            byte[] content = BytesReference.toBytes(newContent(type));
+            byte[] padded = new byte[content.length + 10];
+            System.arraycopy(content, 0, padded, 5, content.length);
+            assertContent(XContentHelper.createParser(NamedXContentRegistry.EMPTY, new BytesArray(padded, 5, content.length)));
+
+            BytesStreamOutput out = new BytesStreamOutput();
+            out.writeBytes(content);
+            assertContent(XContentHelper.createParser(NamedXContentRegistry.EMPTY, out.bytes()));
+
+            int half = content.length / 2;
+            BytesReference composite = new CompositeBytesReference(new BytesArray(content, 0, half),
+                    new BytesArray(content, half, content.length - half));
+            assertContent(type.xContent().createParser(NamedXContentRegistry.EMPTY, composite));
+        }
+        try (XContentParser parser = XContentType.JSON.xContent().createParser(NamedXContentRegistry.EMPTY, BytesArray.EMPTY)) {
+            assertNull(parser.nextToken());
+        }
+    }
+
+    @Test
+    public void test_createParserFromByteBuffer() throws Exception {
+        for (XContentType type : new XContentType[] { XContentType.JSON, XContentType.SMILE, XContentType.CBOR }) {
+            byte[] content = BytesReference.toBytes(newContent(type));
+            ByteBuffer heap = ByteBuffer.allocate(content.length + 3);
+            heap.position(3);
+            heap.put(content).position(3);
+            assertContent(XContentHelper.createParser(NamedXContentRegistry.EMPTY, heap));
+            assertEquals(3, heap.position());
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(content.length);
+            direct.put(content).flip();
+            assertContent(XContentHelper.createParser(NamedXContentRegistry.EMPTY, direct));
+            assertEquals(0, direct.position());
+            assertContent(type.xContent().createParser(NamedXContentRegistry.EMPTY, direct));
+        }
+    }
+
+    @Test
+    public void test_createParserFromCompressedByteBuffer() throws Exception {
+        BytesStreamOutput out = new BytesStreamOutput();
+        try (StreamOutput compressed = CompressorFactory.COMPRESSOR.streamOutput(out)) {
+            newContent(XContentType.JSON).writeTo(compressed);
+        }
+        byte[] content = BytesReference.toBytes(out.bytes());
+        ByteBuffer direct = ByteBuffer.allocateDirect(content.length);
+        direct.put(content).flip();
+        assertContent(XContentHelper.createParser(NamedXContentRegistry.EMPTY, direct));
+    }
+
+    @Test
+    public void test_createParserFromFile() throws Exception {
+        Path path = temporaryFolder.newFile("content.smile").toPath();
+        Files.write(path, BytesReference.toBytes(newContent(XContentType.SMILE)));
+        assertContent(XContentHelper.createParser(NamedXContentRegistry.EMPTY, path));
+    }
+}
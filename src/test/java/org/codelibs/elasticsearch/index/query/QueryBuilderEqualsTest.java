@@ -0,0 +1,180 @@
+package org.codelibs.elasticsearch.index.query;
+
+import org.apache.lucene.search.join.ScoreMode;
+import org.codelibs.elasticsearch.common.geo.GeoPoint;
+import org.codelibs.elasticsearch.common.geo.builders.ShapeBuilders;
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.codelibs.elasticsearch.common.lucene.search.function.FieldValueFactorFunction;
+import org.codelibs.elasticsearch.common.unit.DistanceUnit;
+import org.codelibs.elasticsearch.common.unit.Fuzziness;
+import org.codelibs.elasticsearch.index.query.functionscore.FunctionScoreQueryBuilder;
+import org.codelibs.elasticsearch.index.query.functionscore.ScoreFunctionBuilders;
+import org.codelibs.elasticsearch.script.Script;
+import org.codelibs.elasticsearch.script.ScriptType;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class QueryBuilderEqualsTest {
+    private static List<Supplier<QueryBuilder>> queries() {
+        List<Supplier<QueryBuilder>> queries = new ArrayList<>();
+        queries.add(() -> QueryBuilders.matchAllQuery().boost(2.0f));
+        queries.add(() -> new MatchNoneQueryBuilder());
+        queries.add(() -> QueryBuilders.matchQuery("field1", "keyword").fuzziness(1).operator(Operator.AND).analyzer("analyzer1"));
+        queries.add(() -> QueryBuilders.matchPhraseQuery("field1", "keyword1 keyword2").slop(2));
+        queries.add(() -> QueryBuilders.matchPhrasePrefixQuery("field1", "keyword1 keyword2").maxExpansions(10));
+        queries.add(() -> QueryBuilders.multiMatchQuery("keyword1", "field1", "field2"));
+        queries.add(() -> QueryBuilders.commonTermsQuery("field1", "keyword1").cutoffFrequency(0.001f));
+        queries.add(() -> QueryBuilders.queryStringQuery("field1:keyword1").defaultField("field3").fuzziness(Fuzziness.ONE));
+        queries.add(() -> QueryBuilders.simpleQueryStringQuery("keyword1 keyword2").field("field1", 2.0f));
+        queries.add(() -> QueryBuilders.termQuery("field1", "term1").queryName("name"));
+        queries.add(() -> QueryBuilders.termsQuery("field1", "term1", "term2"));
+        queries.add(() -> QueryBuilders.termsQuery("field1", new int[] { 1, 2, 3 }));
+        queries.add(() -> QueryBuilders.termsQuery("field1", new Object[] { "term1", 2 }));
+        queries.add(() -> QueryBuilders.rangeQuery("field1").gte(10).lte(100));
+        queries.add(() -> QueryBuilders.existsQuery("field1"));
+        queries.add(() -> QueryBuilders.prefixQuery("field1", "key"));
+        queries.add(() -> QueryBuilders.wildcardQuery("field1", "k*d"));
+        queries.add(() -> QueryBuilders.regexpQuery("field1", "ke.*d"));
+        queries.add(() -> QueryBuilders.fuzzyQuery("field1", "keyword").fuzziness(Fuzziness.ONE));
+        queries.add(() -> QueryBuilders.typeQuery("type1"));
+        queries.add(() -> QueryBuilders.idsQuery("type").addIds("1", "2"));
+        queries.add(() -> QueryBuilders.constantScoreQuery(QueryBuilders.termQuery("field1", "term1")));
+        queries.add(() -> QueryBuilders.boolQuery().must(QueryBuilders.termQuery("field1", "term1"))
+                .should(QueryBuilders.termsQuery("field2", "term2", "term3")).minimumShouldMatch(1));
+        queries.add(() -> QueryBuilders.disMaxQuery().add(QueryBuilders.termQuery("field1", "term1")).tieBreaker(0.7f));
+        queries.add(() -> QueryBuilders.functionScoreQuery(QueryBuilders.matchAllQuery(),
+                ScoreFunctionBuilders.fieldValueFactorFunction("field1").factor(2).modifier(FieldValueFactorFunction.Modifier.LN)));
+        queries.add(() -> QueryBuilders.functionScoreQuery(new FunctionScoreQueryBuilder.FilterFunctionBuilder[] {
+                new FunctionScoreQueryBuilder.FilterFunctionBuilder(QueryBuilders.termQuery("field1", "term1"),
+                        ScoreFunctionBuilders.weightFactorFunction(1)) }));
+        queries.add(() -> QueryBuilders.boostingQuery(QueryBuilders.termQuery("field1", "term1"), QueryBuilders.termQuery("field2", "term2"))
+                .negativeBoost(0.2f));
+        queries.add(() -> QueryBuilders.nestedQuery("obj1", QueryBuilders.matchAllQuery(), ScoreMode.Avg));
+        queries.add(() -> QueryBuilders.hasChildQuery("child", QueryBuilders.matchAllQuery(), ScoreMode.Avg));
+        queries.add(() -> QueryBuilders.hasParentQuery("parent", QueryBuilders.matchAllQuery(), true));
+        queries.add(() -> {
+            try {
+                return QueryBuilders.geoShapeQuery("location", ShapeBuilders.newCircleBuilder().center(1, 1));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        queries.add(() -> QueryBuilders.geoBoundingBoxQuery("location").setCorners(1, 1, 0, 0));
+        queries.add(() -> QueryBuilders.geoDistanceQuery("location").distance(1, DistanceUnit.KILOMETERS).point(1, 1));
+        queries.add(() -> QueryBuilders.geoPolygonQuery("location", Arrays.asList(new GeoPoint(1, 1), new GeoPoint(2, 2),
+                new GeoPoint(3, 3))));
+        queries.add(() -> QueryBuilders.moreLikeThisQuery(new String[] { "field1" }, new String[] { "texts" },
+                new MoreLikeThisQueryBuilder.Item[] { new MoreLikeThisQueryBuilder.Item("index", "type", "1") }).maxQueryTerms(3));
+        queries.add(() -> QueryBuilders.scriptQuery(new Script(ScriptType.INLINE, "painless", "doc['num1'].value > 1",
+                Collections.singletonMap("num1", 1))));
+        queries.add(() -> QueryBuilders.spanTermQuery("field1", "term1"));
+        queries.add(() -> QueryBuilders.spanMultiTermQueryBuilder(QueryBuilders.prefixQuery("field1", "ki")));
+        queries.add(() -> QueryBuilders.spanFirstQuery(QueryBuilders.spanTermQuery("field1", "term1"), 3));
+        queries.add(() -> QueryBuilders.spanNearQuery(QueryBuilders.spanTermQuery("field1", "term1"), 5)
+                .addClause(QueryBuilders.spanTermQuery("field2", "term2")));
+        queries.add(() -> QueryBuilders.spanOrQuery(QueryBuilders.spanTermQuery("field1", "term1")));
+        queries.add(() -> QueryBuilders.spanNotQuery(QueryBuilders.spanTermQuery("field1", "term1"), QueryBuilders.spanTermQuery("field2", "term2")));
+        queries.add(() -> QueryBuilders.spanContainingQuery(QueryBuilders.spanTermQuery("field1", "term1"),
+                QueryBuilders.spanTermQuery("field2", "term2")));
+        queries.add(() -> QueryBuilders.spanWithinQuery(QueryBuilders.spanTermQuery("field1", "term1"),
+                QueryBuilders.spanTermQuery("field2", "term2")));
+        queries.add(() -> QueryBuilders.fieldMaskingSpanQuery(QueryBuilders.spanTermQuery("field1", "term2"), "field1"));
+        queries.add(() -> QueryBuilders.wrapperQuery("{\"match_all\":{}}"));
+        return queries;
+    }
+
+    @Test
+    public void test_equalsAndHashCode() throws Exception {
+        List<Supplier<QueryBuilder>> queries = queries();
+        Map<QueryBuilder, Integer> index = new HashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            QueryBuilder query = queries.get(i).get();
+            QueryBuilder copy = queries.get(i).get();
+            assertEquals(query.toString(), query, copy);
+            assertEquals(query.toString(), query.hashCode(), copy.hashCode());
+            assertNotEquals(query.toString(), query, copy.boost(3.5f));
+            assertNull(query.toString(), index.put(query, i));
+        }
+        for (int i = 0; i < queries.size(); i++) {
+            assertEquals(Integer.valueOf(i), index.get(queries.get(i).get()));
+        }
+    }
+
+    @Test
+    public void test_termsQuery() throws Exception {
+        List<String> terms = IntStream.range(0, 10000).mapToObj(i -> "term" + i).collect(Collectors.toList());
+        TermsQueryBuilder query = QueryBuilders.termsQuery("field1", terms);
+        assertEquals(query, QueryBuilders.termsQuery("field1", terms));
+        assertNotEquals(query, QueryBuilders.termsQuery("field2", terms));
+        assertNotEquals(query, QueryBuilders.termsQuery("field1", terms.subList(1, terms.size())));
+        assertNotEquals(QueryBuilders.termsQuery("field1", new long[] { 1, 2 }), QueryBuilders.termsQuery("field1", new long[] { 2, 1 }));
+        assertEquals(QueryBuilders.termsQuery("field1", new int[] { 1, 2 }), QueryBuilders.termsQuery("field1", new long[] { 1, 2 }));
+
+        // read back from the stream the values are plain lists, which are still equal
+        BytesStreamOutput out = new BytesStreamOutput();
+        query.writeTo(out);
+        TermsQueryBuilder read = new TermsQueryBuilder(out.bytes().streamInput());
+        assertEquals(query, read);
+        assertEquals(read, query);
+        assertEquals(query.hashCode(), read.hashCode());
+    }
+
+    @Test
+    public void test_cachedHashCode() throws Exception {
+        TermQueryBuilder term = QueryBuilders.termQuery("field1", "term1");
+        int hashCode = term.hashCode();
+        term.boost(2.0f);
+        assertNotEquals(hashCode, term.hashCode());
+        term.boost(1.0f);
+        assertEquals(hashCode, term.hashCode());
+        term.queryName("name");
+        assertEquals(QueryBuilders.termQuery("field1", "term1").queryName("name").hashCode(), term.hashCode());
+
+        // compound queries see changes of their inner queries
+        BoolQueryBuilder bool = QueryBuilders.boolQuery().must(term);
+        BoolQueryBuilder copy = QueryBuilders.boolQuery().must(QueryBuilders.termQuery("field1", "term1").queryName("name"));
+        assertEquals(copy.hashCode(), bool.hashCode());
+        term.boost(2.0f);
+        assertNotEquals(copy, bool);
+        assertNotEquals(copy.hashCode(), bool.hashCode());
+        bool.must(QueryBuilders.matchAllQuery());
+        copy.must(QueryBuilders.matchAllQuery());
+        ((TermQueryBuilder) copy.must().get(0)).boost(2.0f);
+        assertEquals(copy, bool);
+        assertEquals(copy.hashCode(), bool.hashCode());
+    }
+
+    @Test
+    public void test_ignoreClauseOrder() throws Exception {
+        QueryBuilder a = QueryBuilders.termQuery("field1", "a");
+        QueryBuilder b = QueryBuilders.termsQuery("field2", "b", "c");
+        QueryBuilder c = QueryBuilders.rangeQuery("field3").gte(1);
+        BoolQueryBuilder ordered = QueryBuilders.boolQuery().filter(a).filter(b).filter(a).should(c);
+        BoolQueryBuilder reordered = QueryBuilders.boolQuery().filter(b).filter(a).filter(a).should(c);
+        assertNotEquals(ordered, reordered);
+
+        ordered.ignoreClauseOrder(true);
+        assertNotEquals(ordered, reordered);
+        reordered.ignoreClauseOrder(true);
+        assertEquals(ordered, reordered);
+        assertEquals(ordered.hashCode(), reordered.hashCode());
+
+        // clauses count as often as they were added and only within their occurrence
+        assertNotEquals(ordered, QueryBuilders.boolQuery().filter(b).filter(b).filter(a).should(c).ignoreClauseOrder(true));
+        assertNotEquals(ordered, QueryBuilders.boolQuery().filter(b).filter(a).filter(a).must(c).ignoreClauseOrder(true));
+        assertEquals(ordered.toString(), QueryBuilders.boolQuery().filter(a).filter(b).filter(a).should(c).toString());
+    }
+}
@@ -0,0 +1,142 @@
+package org.codelibs.elasticsearch.index.query;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.RAMDirectory;
+import org.codelibs.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.codelibs.elasticsearch.index.mapper.FieldTypeLookup;
+import org.codelibs.elasticsearch.index.mapper.NumberFieldMapper.NumberType;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QueryShardContextTest {
+    private static final long NOW = new DateTime(2017, 2, 1, 0, 0, DateTimeZone.UTC).getMillis();
+
+    private RAMDirectory directory;
+
+    private DirectoryReader reader;
+
+    private IndexSearcher searcher;
+
+    private FieldTypeLookup fieldTypes;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = new RAMDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            addDocument(writer, "kimchy", "Elasticsearch query builders", 35, "2017-01-30");
+            addDocument(writer, "shay", "Lucene query parsers", 28, "2016-12-24");
+            addDocument(writer, "jordan", "Building search applications", 41, "2017-01-10");
+            Document doc = new Document();
+            doc.add(new StringField("user", "nobody", Field.Store.NO));
+            writer.addDocument(doc);
+        }
+        reader = DirectoryReader.open(directory);
+        searcher = new IndexSearcher(reader);
+        fieldTypes = FieldTypeLookup.builder().keyword("user").text("title").number("age", NumberType.LONG).date("created")
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reader.close();
+        directory.close();
+    }
+
+    private static void addDocument(IndexWriter writer, String user, String title, long age, String created) throws Exception {
+        Document doc = new Document();
+        doc.add(new StringField("user", user, Field.Store.NO));
+        doc.add(new TextField("title", title, Field.Store.NO));
+        doc.add(new LongPoint("age", age));
+        doc.add(new LongPoint("created", new DateTime(created, DateTimeZone.UTC).getMillis()));
+        writer.addDocument(doc);
+    }
+
+    private QueryShardContext newContext() {
+        return new QueryShardContext(fieldTypes, reader, () -> NOW, NamedXContentRegistry.EMPTY);
+    }
+
+    private int count(QueryBuilder builder) throws Exception {
+        return searcher.count(builder.toQuery(newContext()));
+    }
+
+    @Test
+    public void test_termLevelQueries() throws Exception {
+        assertEquals(1, count(QueryBuilders.termQuery("user", "kimchy")));
+        assertEquals(2, count(QueryBuilders.termsQuery("user", "kimchy", "shay", "unknown")));
+        assertEquals(1, count(QueryBuilders.termQuery("age", 28)));
+        assertEquals(2, count(QueryBuilders.termsQuery("age", new long[] { 28, 41 })));
+        assertEquals(0, count(QueryBuilders.termQuery("missing", "kimchy")));
+        assertEquals(1, count(QueryBuilders.prefixQuery("user", "ki")));
+        assertEquals(2, count(QueryBuilders.wildcardQuery("user", "*o*")));
+        assertEquals(1, count(QueryBuilders.regexpQuery("user", "s.a.")));
+        assertEquals(1, count(QueryBuilders.fuzzyQuery("user", "kimchi")));
+        assertEquals(3, count(QueryBuilders.existsQuery("age")));
+        assertEquals(4, count(QueryBuilders.existsQuery("u*")));
+        assertEquals(0, count(QueryBuilders.existsQuery("missing")));
+    }
+
+    @Test
+    public void test_rangeQueries() throws Exception {
+        assertEquals(2, count(QueryBuilders.rangeQuery("age").gte(30)));
+        assertEquals(1, count(QueryBuilders.rangeQuery("age").gt(28).lt(41)));
+        assertEquals(2, count(QueryBuilders.rangeQuery("created").gte("now-1M/d")));
+        assertEquals(1, count(QueryBuilders.rangeQuery("created").lt("01/01/2017").format("dd/MM/yyyy")));
+        assertEquals(3, count(QueryBuilders.rangeQuery("user").gte("kimchy")));
+        try {
+            count(QueryBuilders.rangeQuery("age").gte(30).timeZone("+01:00"));
+            fail();
+        } catch (QueryShardException e) {
+            assertTrue(e.getMessage().contains("time_zone"));
+        }
+    }
+
+    @Test
+    public void test_fullTextQueries() throws Exception {
+        assertEquals(2, count(QueryBuilders.matchQuery("title", "Query")));
+        assertEquals(3, count(QueryBuilders.matchQuery("title", "query search")));
+        assertEquals(1, count(QueryBuilders.matchQuery("title", "query builders").operator(Operator.AND)));
+        assertEquals(1, count(QueryBuilders.matchQuery("title", "lucene query missing").minimumShouldMatch("2")));
+        assertEquals(1, count(QueryBuilders.matchQuery("user", "kimchy")));
+        assertEquals(1, count(QueryBuilders.matchPhraseQuery("title", "query parsers")));
+        assertEquals(0, count(QueryBuilders.matchPhraseQuery("title", "parsers query")));
+        assertEquals(1, count(QueryBuilders.matchPhrasePrefixQuery("title", "query bui")));
+        assertEquals(0, count(QueryBuilders.matchQuery("title", "the")));
+        try {
+            count(QueryBuilders.matchQuery("title", "query").analyzer("unknown"));
+            fail();
+        } catch (QueryShardException e) {
+            assertTrue(e.getMessage().contains("unknown"));
+        }
+    }
+
+    @Test
+    public void test_compoundQueries() throws Exception {
+        BoolQueryBuilder bool = QueryBuilders.boolQuery().must(QueryBuilders.matchQuery("title", "query"))
+                .filter(QueryBuilders.rangeQuery("age").gte(30)).mustNot(QueryBuilders.termQuery("user", "shay"));
+        assertEquals(1, count(bool));
+        assertEquals(1, count(QueryBuilders.boolQuery().mustNot(QueryBuilders.existsQuery("title"))));
+        assertEquals(4, count(QueryBuilders.boolQuery()));
+        assertEquals(2, count(QueryBuilders.constantScoreQuery(QueryBuilders.boolQuery()
+                .should(QueryBuilders.termQuery("user", "kimchy")).should(QueryBuilders.termQuery("user", "shay")))));
+
+        QueryShardContext context = newContext();
+        Query query = QueryBuilders.termQuery("user", "kimchy").boost(2f).queryName("by_user").toQuery(context);
+        assertEquals(1, searcher.count(query));
+        assertEquals(query, context.copyNamedQueries().get("by_user"));
+    }
+}
@@ -0,0 +1,102 @@
+package org.codelibs.elasticsearch.querybuilders;
+
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.codelibs.elasticsearch.common.util.BigArrays;
+import org.codelibs.elasticsearch.search.DocValueFormat;
+import org.codelibs.elasticsearch.search.SearchModule;
+import org.codelibs.elasticsearch.search.aggregations.InternalAggregation;
+import org.codelibs.elasticsearch.search.aggregations.InternalAggregations;
+import org.codelibs.elasticsearch.search.aggregations.bucket.terms.LongTerms;
+import org.codelibs.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.codelibs.elasticsearch.search.aggregations.metrics.max.InternalMax;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class AggregationReducerTest {
+    private static final int NUM_RESULTS = 200;
+
+    private static final int NUM_TERMS = 50;
+
+    private final SearchModule searchModule = new SearchModule();
+
+    private static List<InternalAggregations> newResults() {
+        List<InternalAggregations> results = new ArrayList<>();
+        for (int i = 0; i < NUM_RESULTS; i++) {
+            List<LongTerms.Bucket> buckets = new ArrayList<>();
+            // every result holds the terms [i % 10, i % 10 + 10), term t has t + 1 docs
+            for (int j = 0; j < 10; j++) {
+                long term = i % 10 + j;
+                buckets.add(new LongTerms.Bucket(term, term + 1, InternalAggregations.EMPTY, false, 0, DocValueFormat.RAW));
+            }
+            List<InternalAggregation> aggs = new ArrayList<>();
+            aggs.add(new LongTerms("terms", Terms.Order.count(false), 5, 150, Collections.emptyList(), null, DocValueFormat.RAW,
+                    NUM_TERMS, false, 0, buckets, 0));
+            aggs.add(new InternalMax("max", i, DocValueFormat.RAW, Collections.emptyList(), null));
+            results.add(new InternalAggregations(aggs));
+        }
+        return results;
+    }
+
+    private static void assertReduced(InternalAggregations reduced) {
+        InternalMax max = reduced.get("max");
+        assertEquals(NUM_RESULTS - 1, max.getValue(), 0d);
+        Terms terms = reduced.get("terms");
+        // term t is in the results with i % 10 in [t - 9, t], i.e. in (t + 1) * 20 results for t < 10
+        assertEquals(5, terms.getBuckets().size());
+        long term = 9;
+        for (Terms.Bucket bucket : terms.getBuckets()) {
+            assertEquals(term, bucket.getKeyAsNumber().longValue());
+            long results = (Math.min(term, 9) - Math.max(term - 9, 0) + 1) * (NUM_RESULTS / 10);
+            assertEquals((term + 1) * results, bucket.getDocCount());
+            term++;
+        }
+    }
+
+    @Test
+    public void test_reduce() throws Exception {
+        AggregationReducer reducer = new AggregationReducer(searchModule.getNamedWriteableRegistry());
+        assertReduced(reducer.reduce(newResults()));
+        assertSame(InternalAggregations.EMPTY, reducer.reduce(Collections.emptyList()));
+    }
+
+    @Test
+    public void test_minDocCountIsAppliedOnFinalReduce() throws Exception {
+        // with a batch size of 2 no partial result reaches min_doc_count on its own
+        AggregationReducer reducer = new AggregationReducer(searchModule.getNamedWriteableRegistry(),
+                BigArrays.NON_RECYCLING_INSTANCE, 2, null);
+        assertReduced(reducer.reduce(newResults()));
+    }
+
+    @Test
+    public void test_parallelReduce() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            AggregationReducer reducer = new AggregationReducer(searchModule.getNamedWriteableRegistry(),
+                    BigArrays.NON_RECYCLING_INSTANCE, 4, pool);
+            assertReduced(reducer.reduce(newResults()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void test_buffer() throws Exception {
+        AggregationReducer reducer = new AggregationReducer(searchModule.getNamedWriteableRegistry(),
+                BigArrays.NON_RECYCLING_INSTANCE, 8, null);
+        AggregationReducer.Buffer buffer = reducer.newBuffer();
+        for (InternalAggregations result : newResults()) {
+            try (BytesStreamOutput out = new BytesStreamOutput()) {
+                result.writeTo(out);
+                buffer.add(out.bytes());
+            }
+        }
+        assertEquals(NUM_RESULTS, buffer.getNumResults());
+        assertReduced(buffer.reduce());
+    }
+}
@@ -0,0 +1,141 @@
+package org.codelibs.elasticsearch.querybuilders;
+
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.xcontent.ToXContent;
+import org.codelibs.elasticsearch.common.xcontent.XContentBuilder;
+import org.codelibs.elasticsearch.common.xcontent.XContentFactory;
+import org.codelibs.elasticsearch.common.xcontent.XContentType;
+import org.codelibs.elasticsearch.index.query.QueryBuilder;
+import org.codelibs.elasticsearch.index.query.QueryBuilders;
+import org.codelibs.elasticsearch.search.builder.SearchSourceBuilder;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class QueryTemplateTest {
+    private static final String[] STRINGS = { "", "a", "kimchy", "quote\" back\\slash", "control\n\t\u0001\u001f",
+            "日本語", "emoji 😀", repeat('x', 32), repeat('x', 33), repeat('x', 64), repeat('x', 65), repeat('x', 66),
+            repeat('é', 32), repeat('é', 33), repeat('é', 40), repeat('y', 3000), repeat('é', 3000) };
+
+    private static final long[] LONGS = { 0, 1, -1, 15, -16, 16, -17, 31, 32, 63, 64, 1000, -1000, 1 << 20, Integer.MAX_VALUE,
+            Integer.MIN_VALUE, Integer.MAX_VALUE + 1L, Integer.MIN_VALUE - 1L, 1L << 40, Long.MAX_VALUE, Long.MIN_VALUE };
+
+    private static final double[] DOUBLES = { 0.0, -0.0, 1.5, -3.25, 1e-10, 1e300, Double.MAX_VALUE, Double.MIN_VALUE };
+
+    @Test
+    public void test_scalarSlots() throws Exception {
+        // CBOR output leaves a larger recycled output buffer on the thread, which must not change the SMILE encoding
+        render(XContentType.CBOR, QueryBuilders.termQuery("user", "kimchy"));
+        for (XContentType type : new XContentType[] { XContentType.JSON, XContentType.SMILE }) {
+            QueryTemplate.Slots slots = new QueryTemplate.Slots();
+            QueryTemplate template = QueryTemplate.compile(type, QueryBuilders.boolQuery()
+                    .must(QueryBuilders.matchQuery("title", slots.string("text")))
+                    .filter(QueryBuilders.termQuery("user", slots.string("text")))
+                    .filter(QueryBuilders.rangeQuery("age").gte(slots.longValue("age")).lte(slots.doubleValue("max")))
+                    .filter(QueryBuilders.rangeQuery("date").gte(slots.date("date"))), slots);
+            assertEquals(4, template.slotCount());
+            QueryTemplate.Bindings bindings = template.newBindings();
+            for (int i = 0; i < Math.max(STRINGS.length, Math.max(LONGS.length, DOUBLES.length)); i++) {
+                String text = STRINGS[i % STRINGS.length];
+                long age = LONGS[i % LONGS.length];
+                double max = DOUBLES[i % DOUBLES.length];
+                long date = 1486000000000L + i * 3600000L;
+                bindings.set("text", text).set("age", age).set("max", max).set("date", date);
+                QueryBuilder expected = QueryBuilders.boolQuery()
+                        .must(QueryBuilders.matchQuery("title", text))
+                        .filter(QueryBuilders.termQuery("user", text))
+                        .filter(QueryBuilders.rangeQuery("age").gte(age).lte(max))
+                        .filter(QueryBuilders.rangeQuery("date").gte(new DateTime(date, DateTimeZone.UTC)));
+                assertArrayEquals(type + " " + i, render(type, expected), BytesReference.toBytes(bindings.bytes()));
+            }
+
+            bindings.set("date", "now-1d/d");
+            QueryBuilder expected = QueryBuilders.boolQuery()
+                    .must(QueryBuilders.matchQuery("title", STRINGS[0]))
+                    .filter(QueryBuilders.termQuery("user", STRINGS[0]))
+                    .filter(QueryBuilders.rangeQuery("age").gte(LONGS[0]).lte(DOUBLES[0]))
+                    .filter(QueryBuilders.rangeQuery("date").gte("now-1d/d"));
+            bindings.set("text", STRINGS[0]).set("age", LONGS[0]).set("max", DOUBLES[0]);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            bindings.writeTo(out);
+            assertArrayEquals(render(type, expected), out.toByteArray());
+        }
+    }
+
+    @Test
+    public void test_arraySlots() throws Exception {
+        String[][] strings = { {}, { "a" }, { "a", "b\"", "日本" } };
+        long[][] longs = { {}, { 1 }, { -20, 70000, Long.MAX_VALUE } };
+        for (XContentType type : new XContentType[] { XContentType.JSON, XContentType.SMILE }) {
+            QueryTemplate.Slots slots = new QueryTemplate.Slots();
+            SearchSourceBuilder source = new SearchSourceBuilder().query(QueryBuilders.boolQuery()
+                    .filter(QueryBuilders.termsQuery("tags", slots.strings("tags")))
+                    .filter(QueryBuilders.termsQuery("ids", slots.longs("ids")))).size(10);
+            QueryTemplate template = QueryTemplate.compile(type, source, slots);
+            QueryTemplate.Bindings bindings = template.newBindings();
+            for (int i = 0; i < strings.length; i++) {
+                bindings.setStrings("tags", strings[i]).setLongs(template.slot("ids"), longs[i]);
+                SearchSourceBuilder expected = new SearchSourceBuilder().query(QueryBuilders.boolQuery()
+                        .filter(QueryBuilders.termsQuery("tags", strings[i]))
+                        .filter(QueryBuilders.termsQuery("ids", longs[i]))).size(10);
+                assertArrayEquals(type + " " + Arrays.toString(strings[i]), render(type, expected),
+                        BytesReference.toBytes(bindings.bytes()));
+            }
+        }
+    }
+
+    @Test
+    public void test_invalidTemplates() throws Exception {
+        QueryTemplate.Slots slots = new QueryTemplate.Slots();
+        String user = slots.string("user");
+        slots.string("unused");
+        try {
+            QueryTemplate.compile(XContentType.JSON, QueryBuilders.termQuery("user", user), slots);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("slot [unused] does not appear in the rendered content", e.getMessage());
+        }
+
+        slots = new QueryTemplate.Slots();
+        try {
+            slots.string("a");
+            slots.longValue("a");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        QueryTemplate template = QueryTemplate.compile(XContentType.JSON, QueryBuilders.termQuery("user", slots.string("a")), slots);
+        QueryTemplate.Bindings bindings = template.newBindings();
+        try {
+            bindings.string();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("slot [a] is not bound", e.getMessage());
+        }
+        try {
+            bindings.set("a", 1L);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals("{\"term\":{\"user\":{\"value\":\"b\",\"boost\":1.0}}}", bindings.set("a", "b").string());
+    }
+
+    private static byte[] render(XContentType type, ToXContent content) throws Exception {
+        XContentBuilder builder = type == XContentType.SMILE ? XContentBuilder.builder(QueryTemplate.SMILE) : XContentFactory.contentBuilder(type);
+        content.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        return BytesReference.toBytes(builder.bytes());
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -1,10 +1,22 @@
 package org.codelibs.elasticsearch.querybuilders;
 
+import org.codelibs.elasticsearch.ElasticsearchException;
+import org.codelibs.elasticsearch.common.bytes.BytesArray;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.xcontent.XContentFactory;
+import org.codelibs.elasticsearch.common.xcontent.XContentHelper;
+import org.codelibs.elasticsearch.common.xcontent.XContentType;
 import org.codelibs.elasticsearch.index.query.QueryBuilders;
 import org.codelibs.elasticsearch.search.aggregations.AggregationBuilders;
+import org.codelibs.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
 import org.codelibs.elasticsearch.search.sort.SortOrder;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.Assert.*;
 
 public class SearchDslBuilderTest {
@@ -17,4 +29,106 @@ public class SearchDslBuilderTest {
                 AggregationBuilders.terms("test").field("field1")
             ).from(0).size(20).sort("field1", SortOrder.DESC).build());
     }
+
+    @Test
+    public void test_buildMatchesReformattedSource() throws Exception {
+        SearchDslBuilder builder = SearchDslBuilder.builder().query(() ->
+            QueryBuilders.boolQuery()
+                .must(QueryBuilders.matchQuery("title", "keyword").cutoffFrequency(0.001f))
+                .filter(QueryBuilders.rangeQuery("date").gte("now-1d/d"))
+                .filter(QueryBuilders.termsQuery("tags", "a", "b", "c"))
+        ).aggregation(() ->
+            AggregationBuilders.terms("test").field("field1").subAggregation(AggregationBuilders.avg("avg").field("price"))
+        ).highlighter(() ->
+            new HighlightBuilder().field("title")
+        ).minScore(0.5f).from(10).size(20).sort("field1", SortOrder.DESC);
+
+        assertEquals(XContentHelper.convertToJson(builder.searchSourceBuilder.buildAsBytes(), true), builder.build());
+        assertEquals(XContentHelper.convertToJson(builder.searchSourceBuilder.buildAsBytes(), true, true), builder.build(true));
+        assertEquals(builder.build(), builder.buildAsBytes().utf8ToString());
+        assertEquals(builder.build(true), builder.buildAsBytes(true).utf8ToString());
+    }
+
+    @Test
+    public void test_prettyPrint() {
+        assertEquals("{\n  \"size\" : 1,\n  \"query\" : {\n    \"match_all\" : {\n      \"boost\" : 1.0\n    }\n  }\n}",
+            SearchDslBuilder.builder().query(QueryBuilders.matchAllQuery()).size(1).build(true));
+    }
+
+    @Test
+    public void test_buildToSinks() throws Exception {
+        SearchDslBuilder builder = SearchDslBuilder.builder().query(() ->
+            QueryBuilders.termsQuery("id", "1", "2", "3")
+        ).size(3);
+        String json = builder.build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        builder.build(out);
+        assertEquals(json, new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        out.reset();
+        builder.build(XContentType.JSON, Channels.newChannel(out));
+        assertEquals(json, new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        out.reset();
+        builder.build(XContentType.SMILE, out);
+        assertEquals(builder.searchSourceBuilder.buildAsBytes(XContentType.SMILE), new BytesArray(out.toByteArray()));
+
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.put((byte) ' ');
+        int written = builder.build(XContentType.JSON, buffer);
+        assertEquals(json.length(), written);
+        assertEquals(json.length() + 1, buffer.position());
+        assertEquals(json, new String(buffer.array(), 1, written, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void test_buildAsBinaryBytes() throws Exception {
+        SearchDslBuilder builder = SearchDslBuilder.builder().query(() ->
+            QueryBuilders.boolQuery()
+                .filter(QueryBuilders.termQuery("category", "books"))
+                .filter(QueryBuilders.termQuery("category", "music"))
+        ).aggregation(() ->
+            AggregationBuilders.terms("category").field("category").subAggregation(AggregationBuilders.avg("price").field("price"))
+        ).sort("price", SortOrder.DESC);
+        String json = builder.build();
+        for (XContentType type : XContentType.values()) {
+            BytesReference bytes = builder.buildAsBytes(type);
+            assertEquals(type, XContentFactory.xContentType(bytes));
+            assertEquals(json, XContentHelper.convertToJson(bytes, false));
+        }
+        BytesReference smile = builder.buildAsBytes(XContentType.SMILE);
+        assertTrue(smile.length() < builder.buildAsBytes(XContentType.JSON).length());
+
+        // repeated values are written once
+        builder.sharedStringValues(true);
+        BytesReference shared = builder.buildAsBytes(XContentType.SMILE);
+        assertTrue(shared.length() < smile.length());
+        assertEquals(json, XContentHelper.convertToJson(shared, false));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        builder.build(XContentType.SMILE, out);
+        assertEquals(shared, new BytesArray(out.toByteArray()));
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        assertEquals(shared.length(), builder.build(XContentType.SMILE, buffer));
+        assertEquals(builder.buildAsBytes(XContentType.JSON), builder.searchSourceBuilder.buildAsBytes(XContentType.JSON));
+    }
+
+    @Test
+    public void test_buildToSmallByteBuffer() {
+        SearchDslBuilder builder = SearchDslBuilder.builder().query(QueryBuilders.termQuery("category", "books"));
+        for (boolean shared : new boolean[] { false, true }) {
+            builder.sharedStringValues(shared);
+            for (XContentType type : new XContentType[] { XContentType.JSON, XContentType.SMILE }) {
+                ByteBuffer buffer = ByteBuffer.allocate(16);
+                buffer.put((byte) ' ');
+                try {
+                    builder.build(type, buffer);
+                    fail();
+                } catch (ElasticsearchException e) {
+                    // the partly written body is dropped
+                    assertEquals(1, buffer.position());
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,138 @@
+package org.codelibs.elasticsearch.querybuilders;
+
+import org.codelibs.elasticsearch.common.bytes.BytesArray;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.unit.ByteSizeUnit;
+import org.codelibs.elasticsearch.common.unit.ByteSizeValue;
+import org.codelibs.elasticsearch.common.unit.TimeValue;
+import org.codelibs.elasticsearch.index.query.QueryBuilders;
+import org.codelibs.elasticsearch.search.aggregations.AggregationBuilders;
+import org.codelibs.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class SearchResultCacheTest {
+    // 2017-02-02T01:47:00Z
+    private final AtomicLong clock = new AtomicLong(1486000020000L);
+
+    private SearchResultCache<BytesReference> newCache(InMemoryCacheBackend.EvictionPolicy policy, long budget) {
+        InMemoryCacheBackend<BytesReference> backend = new InMemoryCacheBackend<>(new ByteSizeValue(budget), BytesReference::length,
+                policy, clock::get);
+        return new SearchResultCache<>(backend, TimeValue.timeValueMinutes(10), TimeValue.timeValueMinutes(1), clock::get);
+    }
+
+    private static SearchSourceBuilder search(String from) {
+        return new SearchSourceBuilder().query(QueryBuilders.boolQuery()
+                .must(QueryBuilders.matchQuery("title", "kimchy"))
+                .filter(QueryBuilders.rangeQuery("date").gte(from).timeZone("+01:00"))).size(10);
+    }
+
+    @Test
+    public void test_fingerprint() throws Exception {
+        SearchResultCache<BytesReference> cache = newCache(InMemoryCacheBackend.EvictionPolicy.LRU, ByteSizeUnit.MB.toBytes(1));
+        assertEquals(cache.fingerprint(search("2017-01-01")), cache.fingerprint(search("2017-01-01")));
+        assertNotEquals(cache.fingerprint(search("2017-01-01")), cache.fingerprint(search("2017-01-02")));
+        assertNotEquals(cache.fingerprint(search("2017-01-01")), cache.fingerprint(search("2017-01-01"), "index"));
+        assertNotEquals(cache.fingerprint(search("2017-01-01").size(20)), cache.fingerprint(search("2017-01-01")));
+
+        // now is pinned to the resolution, or rounded by the date math
+        SearchResultCache.Fingerprint minutes = cache.fingerprint(search("now-15m"));
+        SearchResultCache.Fingerprint day = cache.fingerprint(search("now-1d/d"));
+        clock.addAndGet(59000);
+        assertEquals(minutes, cache.fingerprint(search("now-15m")));
+        clock.addAndGet(2000);
+        assertNotEquals(minutes, cache.fingerprint(search("now-15m")));
+        assertEquals(day, cache.fingerprint(search("now-1d/d")));
+        clock.addAndGet(TimeValue.timeValueHours(23).millis());
+        assertNotEquals(day, cache.fingerprint(search("now-1d/d")));
+
+        // now outside of range queries pins the fingerprint to the resolution
+        SearchSourceBuilder dateRange = new SearchSourceBuilder().aggregation(AggregationBuilders.dateRange("dates").field("date")
+                .addUnboundedTo("now-10d/d"));
+        SearchResultCache.Fingerprint aggregation = cache.fingerprint(dateRange);
+        assertEquals(aggregation, cache.fingerprint(dateRange));
+        clock.addAndGet(60000);
+        assertNotEquals(aggregation, cache.fingerprint(dateRange));
+        assertEquals(32, aggregation.toString().length());
+
+        // strings that only start with now are not date math
+        SearchSourceBuilder notDateMath = new SearchSourceBuilder().query(QueryBuilders.boolQuery()
+                .must(QueryBuilders.matchQuery("title", "now playing"))
+                .filter(QueryBuilders.termQuery("nowcast", "nowhere")));
+        SearchResultCache.Fingerprint playing = cache.fingerprint(notDateMath);
+        clock.addAndGet(TimeValue.timeValueHours(1).millis());
+        assertEquals(playing, cache.fingerprint(notDateMath));
+    }
+
+    @Test
+    public void test_computeIfAbsent() throws Exception {
+        SearchResultCache<BytesReference> cache = newCache(InMemoryCacheBackend.EvictionPolicy.LRU, ByteSizeUnit.MB.toBytes(1));
+        SearchResultCache.Fingerprint key = cache.fingerprint(search("2017-01-01"));
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(new BytesArray("response"), cache.computeIfAbsent(key, () -> {
+                loads.incrementAndGet();
+                return new BytesArray("response");
+            }));
+        }
+        assertEquals(1, loads.get());
+        SearchResultCache.Stats stats = cache.stats();
+        assertEquals(2, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getCount());
+        assertEquals(8 + InMemoryCacheBackend.ENTRY_OVERHEAD, stats.getSizeInBytes());
+
+        try {
+            cache.computeIfAbsent(cache.fingerprint(search("2017-01-02")), () -> {
+                throw new IllegalStateException("failed");
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("failed", e.getMessage());
+        }
+        assertEquals(1, cache.stats().getCount());
+
+        // entries expire after their time to live
+        clock.addAndGet(TimeValue.timeValueMinutes(10).millis());
+        assertNull(cache.get(key));
+        assertEquals(0, cache.stats().getCount());
+        assertEquals(0, cache.stats().getSizeInBytes());
+    }
+
+    @Test
+    public void test_evictions() throws Exception {
+        final long entry = 1000 + InMemoryCacheBackend.ENTRY_OVERHEAD;
+        SearchResultCache<BytesReference> lru = newCache(InMemoryCacheBackend.EvictionPolicy.LRU, 3 * entry);
+        SearchResultCache<BytesReference> lfu = newCache(InMemoryCacheBackend.EvictionPolicy.TINY_LFU, 3 * entry);
+        BytesReference value = new BytesArray(new byte[1000]);
+        for (SearchResultCache<BytesReference> cache : new SearchResultCache[] { lru, lfu }) {
+            SearchResultCache.Fingerprint[] keys = new SearchResultCache.Fingerprint[10];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = cache.fingerprint(search("2017-01-0" + i));
+            }
+            // three popular searches
+            for (int round = 0; round < 3; round++) {
+                for (int i = 0; i < 3; i++) {
+                    cache.computeIfAbsent(keys[i], () -> value);
+                }
+            }
+            // followed by a scan of one-off searches
+            for (int i = 3; i < keys.length; i++) {
+                cache.computeIfAbsent(keys[i], () -> value);
+            }
+            assertEquals(3, cache.stats().getCount());
+            assertEquals(3 * entry, cache.stats().getSizeInBytes());
+            assertEquals(7, cache.stats().getEvictions());
+            boolean popularKept = cache.get(keys[0]) != null && cache.get(keys[1]) != null && cache.get(keys[2]) != null;
+            assertEquals(cache == lfu, popularKept);
+        }
+
+        // values larger than the budget are never stored
+        lru.put(lru.fingerprint(search("2017-02-01")), new BytesArray(new byte[4000]));
+        assertEquals(8, lru.stats().getEvictions());
+    }
+}
@@ -0,0 +1,59 @@
+package org.codelibs.elasticsearch.search;
+
+import org.codelibs.elasticsearch.common.ParseFieldMatcher;
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.codelibs.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.codelibs.elasticsearch.common.io.stream.StreamInput;
+import org.codelibs.elasticsearch.common.xcontent.XContentParser;
+import org.codelibs.elasticsearch.common.xcontent.json.JsonXContent;
+import org.codelibs.elasticsearch.index.query.BoolQueryBuilder;
+import org.codelibs.elasticsearch.index.query.QueryBuilder;
+import org.codelibs.elasticsearch.index.query.QueryBuilders;
+import org.codelibs.elasticsearch.index.query.QueryParseContext;
+import org.codelibs.elasticsearch.search.aggregations.AggregationBuilders;
+import org.codelibs.elasticsearch.search.builder.SearchSourceBuilder;
+import org.codelibs.elasticsearch.search.sort.SortOrder;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SearchModuleTest {
+    private final SearchModule searchModule = new SearchModule();
+
+    @Test
+    public void test_parseQuery() throws Exception {
+        String json = "{\"bool\":{\"must\":[{\"term\":{\"user\":\"kimchy\"}}],"
+                + "\"filter\":[{\"range\":{\"age\":{\"gte\":10}}}]}}";
+        try (XContentParser parser = JsonXContent.jsonXContent.createParser(searchModule.getNamedXContentRegistry(), json)) {
+            QueryParseContext context = new QueryParseContext(parser, ParseFieldMatcher.EMPTY);
+            QueryBuilder query = context.parseInnerQueryBuilder().get();
+            assertTrue(query instanceof BoolQueryBuilder);
+            assertEquals(QueryBuilders.boolQuery().must(QueryBuilders.termQuery("user", "kimchy"))
+                    .filter(QueryBuilders.rangeQuery("age").gte(10)), query);
+        }
+    }
+
+    @Test
+    public void test_searchSourceRoundTrip() throws Exception {
+        SearchSourceBuilder source = new SearchSourceBuilder().query(QueryBuilders.matchQuery("title", "search"))
+                .aggregation(AggregationBuilders.terms("tags").field("tag")
+                        .subAggregation(AggregationBuilders.avg("avg_price").field("price")))
+                .sort("date", SortOrder.DESC).size(20);
+
+        try (XContentParser parser = JsonXContent.jsonXContent.createParser(searchModule.getNamedXContentRegistry(),
+                source.toString())) {
+            QueryParseContext context = new QueryParseContext(parser, ParseFieldMatcher.EMPTY);
+            SearchSourceBuilder parsed = SearchSourceBuilder.fromXContent(context, searchModule.getAggregatorParsers(),
+                    searchModule.getSuggesters(), searchModule.getSearchExtRegistry());
+            assertEquals(source, parsed);
+        }
+
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            source.writeTo(out);
+            try (StreamInput in = new NamedWriteableAwareStreamInput(out.bytes().streamInput(),
+                    searchModule.getNamedWriteableRegistry())) {
+                assertEquals(source, new SearchSourceBuilder(in));
+            }
+        }
+    }
+}
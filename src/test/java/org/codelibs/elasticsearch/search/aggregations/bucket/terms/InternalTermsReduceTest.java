@@ -0,0 +1,149 @@
+package org.codelibs.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.util.BytesRef;
+import org.codelibs.elasticsearch.common.util.BigArrays;
+import org.codelibs.elasticsearch.search.DocValueFormat;
+import org.codelibs.elasticsearch.search.aggregations.InternalAggregation;
+import org.codelibs.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.codelibs.elasticsearch.search.aggregations.InternalAggregations;
+import org.codelibs.elasticsearch.search.aggregations.metrics.max.InternalMax;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class InternalTermsReduceTest {
+    private static final int NUM_SHARDS = 7;
+
+    private static final int NUM_TERMS = 300;
+
+    private final Random random = new Random(42);
+
+    private List<InternalAggregation> newShardResults(String type, Terms.Order order, long minDocCount,
+            Map<Long, long[]> expected) {
+        List<InternalAggregation> results = new ArrayList<>();
+        for (int shard = 0; shard < NUM_SHARDS; shard++) {
+            // expected holds the doc count and the max sub-aggregation value of every term
+            TreeMap<Long, Long> shardTerms = new TreeMap<>();
+            for (long term = 0; term < NUM_TERMS; term++) {
+                if (random.nextInt(3) > 0) {
+                    long docCount = 1 + random.nextInt(50);
+                    shardTerms.put(term, docCount);
+                    long[] stats = expected.computeIfAbsent(term, t -> new long[2]);
+                    stats[0] += docCount;
+                    stats[1] = Math.max(stats[1], docCount);
+                }
+            }
+            List<InternalTerms.Bucket<?>> buckets = new ArrayList<>();
+            for (Map.Entry<Long, Long> entry : shardTerms.entrySet()) {
+                long term = entry.getKey();
+                long docCount = entry.getValue();
+                InternalAggregations aggs = new InternalAggregations(Collections.singletonList(
+                        new InternalMax("max", docCount, DocValueFormat.RAW, Collections.emptyList(), null)));
+                if ("long".equals(type)) {
+                    buckets.add(new LongTerms.Bucket(term, docCount, aggs, false, 0, DocValueFormat.RAW));
+                } else if ("double".equals(type)) {
+                    buckets.add(new DoubleTerms.Bucket(term, docCount, aggs, false, 0, DocValueFormat.RAW));
+                } else {
+                    // zero padded, so that the terms sort the same way as numbers
+                    buckets.add(new StringTerms.Bucket(new BytesRef(String.format("%04d", term)), docCount, aggs, false, 0,
+                            DocValueFormat.RAW));
+                }
+            }
+            buckets.sort(order.comparator(null));
+            results.add(newTerms(type, order, minDocCount, buckets));
+        }
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static InternalAggregation newTerms(String type, Terms.Order order, long minDocCount, List<?> buckets) {
+        if ("long".equals(type)) {
+            return new LongTerms("terms", order, 10, minDocCount, Collections.emptyList(), null, DocValueFormat.RAW, NUM_TERMS,
+                    false, 3, (List<LongTerms.Bucket>) buckets, 0);
+        } else if ("double".equals(type)) {
+            return new DoubleTerms("terms", order, 10, minDocCount, Collections.emptyList(), null, DocValueFormat.RAW, NUM_TERMS,
+                    false, 3, (List<DoubleTerms.Bucket>) buckets, 0);
+        }
+        return new StringTerms("terms", order, 10, minDocCount, Collections.emptyList(), null, DocValueFormat.RAW, NUM_TERMS,
+                false, 3, (List<StringTerms.Bucket>) buckets, 0);
+    }
+
+    private void assertReduce(String type, Terms.Order order, long minDocCount) {
+        Map<Long, long[]> stats = new TreeMap<>();
+        List<InternalAggregation> results = newShardResults(type, order, minDocCount, stats);
+        InternalTerms<?, ?> reduced = (InternalTerms<?, ?>) results.get(0).reduce(results,
+                new ReduceContext(BigArrays.NON_RECYCLING_INSTANCE));
+
+        List<long[]> expected = new ArrayList<>();
+        for (Map.Entry<Long, long[]> entry : stats.entrySet()) {
+            if (entry.getValue()[0] >= minDocCount) {
+                expected.add(new long[] { entry.getKey(), entry.getValue()[0], entry.getValue()[1] });
+            }
+        }
+        if (InternalOrder.isCountDesc(order)) {
+            expected.sort((e1, e2) -> e1[1] == e2[1] ? Long.compare(e1[0], e2[0]) : Long.compare(e2[1], e1[1]));
+        } else if (order == InternalOrder.TERM_DESC) {
+            expected.sort((e1, e2) -> Long.compare(e2[0], e1[0]));
+        } else if (order instanceof InternalOrder.CompoundOrder) {
+            // by ascending count, then by descending term
+            expected.sort((e1, e2) -> e1[1] == e2[1] ? Long.compare(e2[0], e1[0]) : Long.compare(e1[1], e2[1]));
+        }
+        long otherDocCount = 3 * NUM_SHARDS;
+        for (long[] e : expected.subList(10, expected.size())) {
+            otherDocCount += e[1];
+        }
+
+        String message = type + " " + order;
+        assertEquals(message, 10, reduced.getBuckets().size());
+        assertEquals(message, otherDocCount, reduced.getSumOfOtherDocCounts());
+        for (int i = 0; i < 10; i++) {
+            Terms.Bucket bucket = reduced.getBuckets().get(i);
+            assertEquals(message, expected.get(i)[0], Long.parseLong(bucket.getKeyAsString().replaceAll("\\.0$", "")));
+            assertEquals(message, expected.get(i)[1], bucket.getDocCount());
+            InternalMax max = bucket.getAggregations().get("max");
+            assertEquals(message, expected.get(i)[2], max.getValue(), 0d);
+        }
+    }
+
+    @Test
+    public void test_reduceByCount() throws Exception {
+        for (String type : new String[] { "long", "double", "string" }) {
+            assertReduce(type, Terms.Order.compound(Terms.Order.count(false), Terms.Order.term(true)), 1);
+            assertReduce(type, Terms.Order.compound(Terms.Order.count(false), Terms.Order.term(true)), 150);
+            assertReduce(type, Terms.Order.compound(Terms.Order.count(true), Terms.Order.term(false)), 1);
+        }
+    }
+
+    @Test
+    public void test_reduceByTerm() throws Exception {
+        for (String type : new String[] { "long", "double", "string" }) {
+            assertReduce(type, Terms.Order.term(true), 1);
+            assertReduce(type, Terms.Order.term(false), 1);
+            assertReduce(type, Terms.Order.term(true), 150);
+        }
+    }
+
+    @Test
+    public void test_partialReduceKeepsAllTerms() throws Exception {
+        Map<Long, long[]> stats = new TreeMap<>();
+        List<InternalAggregation> results = newShardResults("long", Terms.Order.term(true), 150, stats);
+        InternalTerms<?, ?> reduced = (InternalTerms<?, ?>) results.get(0).reduce(results,
+                new ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, false));
+        assertEquals(stats.size(), reduced.getBuckets().size());
+        assertEquals(3 * NUM_SHARDS, reduced.getSumOfOtherDocCounts());
+        long previous = -1;
+        for (Terms.Bucket bucket : reduced.getBuckets()) {
+            long term = bucket.getKeyAsNumber().longValue();
+            assertTrue(term > previous);
+            assertEquals(stats.get(term)[0], bucket.getDocCount());
+            previous = term;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.codelibs.elasticsearch.search.aggregations.metrics.cardinality;
+
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.codelibs.elasticsearch.common.util.BigArrays;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HyperLogLogPlusPlusTest {
+
+    private static long hash(long value) {
+        long z = value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Test
+    public void test_max() throws Exception {
+        Random random = new Random(0);
+        for (int i = 0; i < 10000; i++) {
+            long a = 0;
+            long b = 0;
+            long expected = 0;
+            for (int lane = 0; lane < 8; lane++) {
+                final long x = random.nextInt(65);
+                final long y = random.nextInt(4) == 0 ? x : random.nextInt(65);
+                a |= x << (lane * 8);
+                b |= y << (lane * 8);
+                expected |= Math.max(x, y) << (lane * 8);
+            }
+            assertEquals(expected, HyperLogLogPlusPlus.max(a, b));
+        }
+    }
+
+    @Test
+    public void test_merge() throws Exception {
+        for (int precision : new int[] { 4, 10, 14, 18 }) {
+            HyperLogLogPlusPlus left = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1);
+            HyperLogLogPlusPlus right = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1);
+            HyperLogLogPlusPlus union = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1);
+            for (long i = 0; i < 200000; i++) {
+                // the buckets overlap and the second bucket of right stays in linear counting
+                if (i < 150000) {
+                    left.collect(3, hash(i));
+                    union.collect(0, hash(i));
+                }
+                if (i >= 50000) {
+                    right.collect(1, hash(i));
+                    union.collect(0, hash(i));
+                }
+                if (i < 100) {
+                    right.collect(2, hash(-i));
+                }
+            }
+            left.merge(3, right, 1);
+            assertEquals(union.cardinality(0), left.cardinality(3));
+            left.merge(3, right, 2);
+            union.merge(0, right, 2);
+            assertEquals(union.cardinality(0), left.cardinality(3));
+            left.close();
+            right.close();
+            union.close();
+        }
+    }
+
+    @Test
+    public void test_cardinality() throws Exception {
+        HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(HyperLogLogPlusPlus.DEFAULT_PRECISION, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        byte[] registers = new byte[1 << HyperLogLogPlusPlus.DEFAULT_PRECISION];
+        long n = 0;
+        for (long target : new long[] { 10, 1000, 10000, 100000, 1000000 }) {
+            for (; n < target; n++) {
+                counts.collect(0, hash(n));
+                HyperLogLogPlusPlus.collectRegister(registers, 0, HyperLogLogPlusPlus.DEFAULT_PRECISION, hash(n));
+            }
+            final long cardinality = counts.cardinality(0);
+            assertEquals(target, cardinality, target * 0.03);
+            if (target >= 10000) {
+                // beyond linear counting the counts and the standalone registers are the same
+                assertEquals(cardinality, HyperLogLogPlusPlus.estimateCardinality(registers, 0, HyperLogLogPlusPlus.DEFAULT_PRECISION));
+            }
+        }
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        counts.writeTo(0, out);
+        HyperLogLogPlusPlus read = HyperLogLogPlusPlus.readFrom(out.bytes().streamInput(), BigArrays.NON_RECYCLING_INSTANCE);
+        assertEquals(counts.cardinality(0), read.cardinality(0));
+        counts.close();
+        read.close();
+    }
+}
@@ -0,0 +1,140 @@
+package org.codelibs.elasticsearch.search.aggregations.metrics.cardinality;
+
+import org.apache.lucene.util.BytesRef;
+import org.codelibs.elasticsearch.common.breaker.CircuitBreaker;
+import org.codelibs.elasticsearch.common.bytes.BytesReference;
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.codelibs.elasticsearch.common.io.stream.StreamInput;
+import org.codelibs.elasticsearch.common.settings.Settings;
+import org.codelibs.elasticsearch.common.util.BigArrays;
+import org.codelibs.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.codelibs.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class HyperLogLogSketchTest {
+
+    @Test
+    public void test_estimate() throws Exception {
+        try (HyperLogLogSketch sketch = new HyperLogLogSketch(14, BigArrays.NON_RECYCLING_INSTANCE)) {
+            for (int i = 0; i < 1000; i++) {
+                sketch.add(new BytesRef("user-" + (i % 500)));
+            }
+            // linear counting
+            assertEquals(500, sketch.estimate());
+            for (long i = 0; i < 100000; i++) {
+                sketch.add(HyperLogLogSketch.hash(i));
+            }
+            assertEquals(100500, sketch.estimate(), 100500 * 0.02);
+        }
+    }
+
+    @Test
+    public void test_serialization() throws Exception {
+        for (int size : new int[] { 10, 100000 }) {
+            try (HyperLogLogSketch sketch = new HyperLogLogSketch(14, BigArrays.NON_RECYCLING_INSTANCE)) {
+                for (int i = 0; i < size; i++) {
+                    sketch.add(HyperLogLogSketch.hash((double) i));
+                }
+                BytesReference bytes = sketch.toBytes();
+                if (size == 10) {
+                    // the precision, the algorithm, the number of hashes and the hashes
+                    assertEquals(1 + 1 + 1 + 10 * 4, bytes.length());
+                } else {
+                    assertEquals(1 + 1 + (1 << 14), bytes.length());
+                }
+                try (HyperLogLogSketch copy = HyperLogLogSketch.fromBytes(bytes, BigArrays.NON_RECYCLING_INSTANCE)) {
+                    assertEquals(sketch.estimate(), copy.estimate());
+                    assertEquals(bytes, copy.toBytes());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_mergeInternalCardinality() throws Exception {
+        HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(14, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        for (int i = 0; i < 20000; i++) {
+            counts.collect(0, HyperLogLogSketch.hash(new BytesRef("user-" + i)));
+        }
+        InternalCardinality cardinality = new InternalCardinality("users", counts, Collections.emptyList(),
+                Collections.emptyMap());
+        // the counts as written in a search response
+        BytesStreamOutput out = new BytesStreamOutput();
+        counts.writeTo(0, out);
+        StreamInput in = out.bytes().streamInput();
+
+        try (HyperLogLogSketch sketch = new HyperLogLogSketch(in, BigArrays.NON_RECYCLING_INSTANCE);
+             HyperLogLogSketch other = new HyperLogLogSketch(14, BigArrays.NON_RECYCLING_INSTANCE)) {
+            assertEquals(cardinality.getValue(), sketch.estimate());
+            for (int i = 10000; i < 30000; i++) {
+                other.add(new BytesRef("user-" + i));
+            }
+            other.merge(cardinality);
+            assertEquals(30000, other.estimate(), 30000 * 0.02);
+            sketch.merge(other);
+            assertEquals(other.estimate(), sketch.estimate());
+
+            try (HyperLogLogSketch coarse = new HyperLogLogSketch(10, BigArrays.NON_RECYCLING_INSTANCE)) {
+                coarse.merge(cardinality);
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertEquals("cannot merge a sketch of precision [14] into a sketch of precision [10]", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void test_memoryAccounting() throws Exception {
+        CircuitBreakerService breakerService = new HierarchyCircuitBreakerService(Settings.EMPTY);
+        CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        BigArrays bigArrays = new BigArrays(null, breakerService, true);
+        HyperLogLogSketch sketch = new HyperLogLogSketch(16, bigArrays);
+        assertEquals(sketch.ramBytesUsed(), breaker.getUsed());
+        assertTrue(sketch.ramBytesUsed() >= 1 << 16);
+        sketch.close();
+        assertEquals(0, breaker.getUsed());
+    }
+
+    @Test
+    public void test_concurrentAdd() throws Exception {
+        final int threads = 4;
+        final int values = 50000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (ConcurrentHyperLogLogSketch concurrent = new ConcurrentHyperLogLogSketch(14, BigArrays.NON_RECYCLING_INSTANCE, threads);
+             HyperLogLogSketch expected = new HyperLogLogSketch(14, BigArrays.NON_RECYCLING_INSTANCE)) {
+            CountDownLatch start = new CountDownLatch(1);
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    // the threads add overlapping values
+                    for (int i = thread * values / 2; i < thread * values / 2 + values; i++) {
+                        concurrent.add(HyperLogLogSketch.hash((long) i));
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+            for (int i = 0; i < (threads + 1) * values / 2; i++) {
+                expected.add(HyperLogLogSketch.hash((long) i));
+            }
+            assertEquals(expected.estimate(), concurrent.estimate());
+            assertEquals(expected.toBytes(), concurrent.toBytes());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.codelibs.elasticsearch.search.aggregations.metrics.percentiles.tdigest;
+
+import org.codelibs.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.codelibs.elasticsearch.common.io.stream.StreamInput;
+import org.codelibs.elasticsearch.common.util.BigArrays;
+import org.codelibs.elasticsearch.search.DocValueFormat;
+import org.codelibs.elasticsearch.search.aggregations.InternalAggregation;
+import org.codelibs.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.codelibs.elasticsearch.search.aggregations.metrics.percentiles.Percentile;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TDigestStateTest {
+    private static final int NUM_VALUES = 100000;
+
+    private final Random random = new Random(0);
+
+    private static double exactQuantile(double[] sorted, double q) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(q * sorted.length))];
+    }
+
+    private static void assertQuantiles(double[] sorted, TDigestState state) {
+        for (double q : new double[] { 0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999 }) {
+            // the rank of the estimate is close to the requested quantile, with a tighter bound at the tails
+            double rank = state.cdf(state.quantile(q));
+            assertEquals("q=" + q, q, rank, Math.max(0.0005, 0.01 * Math.sqrt(q * (1 - q))) * 4);
+            assertEquals("q=" + q, exactQuantile(sorted, q), state.quantile(q), 0.02);
+        }
+        assertEquals(sorted[0], state.quantile(0), 0d);
+        assertEquals(sorted[sorted.length - 1], state.quantile(1), 0d);
+    }
+
+    @Test
+    public void test_quantiles() throws Exception {
+        double[] values = new double[NUM_VALUES];
+        TDigestState state = new TDigestState(100);
+        for (int i = 0; i < NUM_VALUES; i++) {
+            values[i] = random.nextDouble();
+            state.add(values[i]);
+        }
+        Arrays.sort(values);
+        assertEquals(NUM_VALUES, state.size());
+        assertTrue(state.centroidCount() <= 2 * 100 + 10);
+        assertQuantiles(values, state);
+        assertEquals(0.5, state.cdf(0.5), 0.01);
+        assertEquals(0, state.cdf(-1), 0d);
+        assertEquals(1, state.cdf(2), 0d);
+
+        TDigestState empty = new TDigestState(100);
+        assertTrue(Double.isNaN(empty.quantile(0.5)));
+        assertTrue(Double.isNaN(empty.cdf(0.5)));
+        try {
+            state.add(Double.NaN);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Cannot add NaN", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_merge() throws Exception {
+        double[] values = new double[NUM_VALUES];
+        List<TDigestState> shards = new ArrayList<>();
+        for (int shard = 0; shard < 50; shard++) {
+            shards.add(new TDigestState(100));
+        }
+        for (int i = 0; i < NUM_VALUES; i++) {
+            // skewed values, each shard holds a different range
+            values[i] = Math.exp(random.nextGaussian());
+            shards.get((int) Math.min(49, values[i] * 10)).add(values[i]);
+        }
+        Arrays.sort(values);
+        TDigestState merged = new TDigestState(100);
+        for (TDigestState shard : shards) {
+            merged.add(shard);
+        }
+        assertEquals(NUM_VALUES, merged.size());
+        assertTrue(merged.centroidCount() <= 2 * 100 + 10);
+        assertEquals(values[0], merged.getMin(), 0d);
+        assertEquals(values[NUM_VALUES - 1], merged.getMax(), 0d);
+        for (double q : new double[] { 0.01, 0.1, 0.5, 0.9, 0.99 }) {
+            assertEquals("q=" + q, q, merged.cdf(merged.quantile(q)), 0.01);
+        }
+    }
+
+    @Test
+    public void test_streamFormat() throws Exception {
+        TDigestState state = new TDigestState(50);
+        for (int i = 0; i < 10000; i++) {
+            state.add(random.nextInt(1000));
+        }
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            TDigestState.write(state, out);
+            StreamInput in = out.bytes().streamInput();
+            // compression, number of centroids and then the mean and count of every centroid
+            assertEquals(50, in.readDouble(), 0d);
+            int centroidCount = in.readVInt();
+            assertEquals(state.centroidCount(), centroidCount);
+            long count = 0;
+            double previous = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < centroidCount; i++) {
+                double mean = in.readDouble();
+                assertTrue(mean >= previous);
+                previous = mean;
+                count += in.readVLong();
+            }
+            assertEquals(10000, count);
+
+            TDigestState read = TDigestState.read(out.bytes().streamInput());
+            assertEquals(state.compression(), read.compression(), 0d);
+            assertEquals(state.size(), read.size());
+            for (double q : new double[] { 0.1, 0.5, 0.9 }) {
+                assertEquals(state.quantile(q), read.quantile(q), 10);
+            }
+        }
+    }
+
+    @Test
+    public void test_reducePercentiles() throws Exception {
+        List<InternalAggregation> aggregations = new ArrayList<>();
+        for (int shard = 0; shard < 5; shard++) {
+            TDigestState state = new TDigestState(100);
+            for (int i = 0; i < 1000; i++) {
+                state.add(shard * 1000 + i);
+            }
+            aggregations.add(new InternalTDigestPercentiles("percentiles", new double[] { 1, 50, 99 }, state, false,
+                    DocValueFormat.RAW, Collections.emptyList(), null));
+        }
+        InternalTDigestPercentiles reduced = (InternalTDigestPercentiles) aggregations.get(0).reduce(aggregations,
+                new ReduceContext(BigArrays.NON_RECYCLING_INSTANCE));
+        assertEquals(50, reduced.percentile(1), 5);
+        assertEquals(2500, reduced.percentile(50), 25);
+        assertEquals(4950, reduced.percentile(99), 5);
+        List<Double> percents = new ArrayList<>();
+        for (Percentile percentile : reduced) {
+            percents.add(percentile.getPercent());
+            assertEquals(reduced.percentile(percentile.getPercent()), percentile.getValue(), 0d);
+        }
+        assertEquals(Arrays.asList(1d, 50d, 99d), percents);
+        assertEquals(50, InternalTDigestPercentileRanks.percentileRank(reduced.state, 2500), 1);
+    }
+}